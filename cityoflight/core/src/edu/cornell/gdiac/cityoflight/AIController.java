@@ -471,6 +471,7 @@ public class AIController{
      */
     public boolean canSeeAnnette(){
         AnnetteModel annette = level.getAnnette();
+        level.refreshLight(light);
 //        return (light.contains(annette.getX(), annette.getY() + annette.getHeight()));
 //        return (light.contains(annette.getX(), annette.getY())||
 //                light.contains(annette.getX()-annette.getWidth()/2, annette.getY()-annette.getHeight()/2)||
@@ -637,6 +638,7 @@ public class AIController{
             if (!distraction.getAlive()) {
                 creature.setDistracted(false);
             } else {
+                level.refreshLight(light);
                 if (light.contains(distraction.getX(), distraction.getY()) && creature.getType() != 2) {
 //                    System.out.println("distracted = true");
                     lastseendistraction = distraction.getPosition();
@@ -659,7 +661,9 @@ public class AIController{
     }
 
     public void updateDistractionPosition(){
-        lastseendistraction = level.getDistraction().getPosition();
+        if (level.getDistraction() != null) {
+            lastseendistraction = level.getDistraction().getPosition();
+        }
     }
 
     public boolean isDistracted(){
@@ -38,11 +38,6 @@ public class AnnetteModel extends BoxObstacle {
 
     /** The current horizontal movement of the character */
     private Vector2 movement = new Vector2();
-    /** Whether or not to animate the current frame */
-    private boolean animate = false;
-
-    /** How many frames until we can walk again */
-    private int walkCool;
     /** The standard number of frames to wait until we can walk again */
     private int walkLimit;
 
@@ -52,10 +47,12 @@ public class AnnetteModel extends BoxObstacle {
     /** Whether we are actively walking in place */
     private boolean isWalkingInPlace;
 
-    /** FilmStrip pointer to the texture region */
-    private FilmStrip sidefilmstrip;
-    private FilmStrip upfilmstrip;
-    private FilmStrip downfilmstrip;
+    /** The animation state (one frame counter for every direction) */
+    private Animator animator = new Animator(null, 0);
+    /** The frames for each direction */
+    private FrameTable sideframes;
+    private FrameTable upframes;
+    private FrameTable downframes;
 
     private FilmStrip sideboxfilmstrip;
 
@@ -76,14 +73,6 @@ public class AnnetteModel extends BoxObstacle {
     /** The color to show off the debug shape */
     private Color debugColor;
 
-    private PolygonShape sensorShapeD;
-    private Fixture sensorFixtureD;
-    private PolygonShape sensorShapeU;
-    private Fixture sensorFixtureU;
-    private PolygonShape sensorShapeR;
-    private Fixture sensorFixtureR;
-    private PolygonShape sensorShapeL;
-    private Fixture sensorFixtureL;
     private PolygonShape annetteShape;
     private Fixture annetteFixture;
 
@@ -213,6 +202,7 @@ public class AnnetteModel extends BoxObstacle {
      */
     public void setStartFrame(int value) {
         startFrame = value;
+        animator.setStart(value);
     }
 
     /**
@@ -231,6 +221,18 @@ public class AnnetteModel extends BoxObstacle {
      */
     public void setWalkLimit(int value) {
         walkLimit = value;
+        animator.setInterval(value);
+    }
+
+    /**
+     * Returns the animation state of Annette
+     *
+     * The level advances the animators of all its models together.
+     *
+     * @return the animation state of Annette
+     */
+    public Animator getAnimator() {
+        return animator;
     }
 
     /**
@@ -349,28 +351,15 @@ public class AnnetteModel extends BoxObstacle {
         // Now get the texture from the AssetManager singleton
         String key = sideJson.get("texture").asString();
         TextureRegion texture = JsonAssetManager.getInstance().getEntry(key, TextureRegion.class);
-        try {
-            sidefilmstrip = (FilmStrip)texture;
-        } catch (Exception e) {
-            sidefilmstrip = null;
-        }
+        sideframes = JsonAssetManager.getInstance().getFrames(key);
         setTexture(texture);
 
         String key2 = sideJson.get("texture2").asString();
-        TextureRegion texture2 = JsonAssetManager.getInstance().getEntry(key2, TextureRegion.class);
-        try {
-            downfilmstrip = (FilmStrip)texture2;
-        } catch (Exception e) {
-            downfilmstrip = null;
-        }
+        downframes = JsonAssetManager.getInstance().getFrames(key2);
 
         String key3 = sideJson.get("texture3").asString();
-        TextureRegion texture3 = JsonAssetManager.getInstance().getEntry(key3, TextureRegion.class);
-        try {
-            upfilmstrip = (FilmStrip)texture3;
-        } catch (Exception e) {
-            upfilmstrip = null;
-        }
+        upframes = JsonAssetManager.getInstance().getFrames(key3);
+        animator.setTable(sideframes);
 
         String key4 = "shadow";
         shadow = JsonAssetManager.getInstance().getEntry(key4, TextureRegion.class);
@@ -401,42 +390,6 @@ public class AnnetteModel extends BoxObstacle {
         if (!super.activatePhysics(world)) {
             return false;
         }
-        Vector2 sensorCenterD = new Vector2(0, -((getHeight()/2) + SENSOR_SIZE));
-        FixtureDef sensorDefD = new FixtureDef();
-        sensorDefD.isSensor = true;
-        sensorShapeD = new PolygonShape();
-        sensorShapeD.setAsBox(SENSOR_SIZE, SENSOR_SIZE, sensorCenterD,0);
-        sensorDefD.shape = sensorShapeD;
-        sensorFixtureD = body.createFixture(sensorDefD);
-        sensorFixtureD.setUserData("annetteDown");
-
-        Vector2 sensorCenterU = new Vector2(0, ((getHeight()/2) + SENSOR_SIZE));
-        FixtureDef sensorDefU = new FixtureDef();
-        sensorDefU.isSensor = true;
-        sensorShapeU = new PolygonShape();
-        sensorShapeU.setAsBox(SENSOR_SIZE, SENSOR_SIZE, sensorCenterU,0);
-        sensorDefU.shape = sensorShapeU;
-        sensorFixtureU = body.createFixture(sensorDefU);
-        sensorFixtureU.setUserData("annetteUp");
-
-        Vector2 sensorCenterR = new Vector2(getWidth() / 2 + SENSOR_SIZE, 0);
-        FixtureDef sensorDefR = new FixtureDef();
-        sensorDefR.isSensor = true;
-        sensorShapeR = new PolygonShape();
-        sensorShapeR.setAsBox(SENSOR_SIZE, SENSOR_SIZE, sensorCenterR,0);
-        sensorDefR.shape = sensorShapeR;
-        sensorFixtureR = body.createFixture(sensorDefR);
-        sensorFixtureR.setUserData("annetteRight");
-
-        Vector2 sensorCenterL = new Vector2(-(getWidth() / 2 + SENSOR_SIZE), 0);
-        FixtureDef sensorDefL = new FixtureDef();
-        sensorDefL.isSensor = true;
-        sensorShapeL = new PolygonShape();
-        sensorShapeL.setAsBox(SENSOR_SIZE, SENSOR_SIZE, sensorCenterL,0);
-        sensorDefL.shape = sensorShapeL;
-        sensorFixtureL = body.createFixture(sensorDefL);
-        sensorFixtureL.setUserData("annetteLeft");
-
         Vector2 annetteCenter = new Vector2(0, 0);
         FixtureDef annetteDef = new FixtureDef();
         annetteDef.isSensor = true;
@@ -454,6 +407,38 @@ public class AnnetteModel extends BoxObstacle {
         return true;
     }
 
+    /**
+     * Returns the area next to Annette where a box would be summoned
+     *
+     * This is a square of side 2*SENSOR_SIZE just beyond the edge of Annette's body
+     * in the given direction.  It is used to check that the box has room before it
+     * is summoned.
+     *
+     * @param dir   the direction Annette is facing
+     * @param area  the rectangle to store the result in
+     *
+     * @return the area next to Annette where a box would be summoned
+     */
+    public Rectangle getPlacementArea(Direction dir, Rectangle area) {
+        float cx = getX();
+        float cy = getY();
+        switch (dir) {
+            case UP:
+                cy += getHeight() / 2 + SENSOR_SIZE;
+                break;
+            case DOWN:
+                cy -= getHeight() / 2 + SENSOR_SIZE;
+                break;
+            case RIGHT:
+                cx += getWidth() / 2 + SENSOR_SIZE;
+                break;
+            case LEFT:
+                cx -= getWidth() / 2 + SENSOR_SIZE;
+                break;
+        }
+        return area.set(cx - SENSOR_SIZE, cy - SENSOR_SIZE, 2 * SENSOR_SIZE, 2 * SENSOR_SIZE);
+    }
+
     /**
      * Applies the force to the body of Annette
      *
@@ -472,59 +457,21 @@ public class AnnetteModel extends BoxObstacle {
         if (getMovement().len2() > 0f) {
             forceCache.set(getMovement());
             body.applyForce(forceCache,getPosition(),true);
-            animate = true;
+            animator.setPlaying(true);
         } else {
-            if (isWalkingInPlace){ animate = true; }
-            else{ animate = false; }
+            animator.setPlaying(isWalkingInPlace);
         }
     }
 
     /**
      * Updates the object's physics state (NOT GAME LOGIC).
      *
-     * We use this method to reset cooldowns.
+     * The animation is advanced by the level (see getAnimator).
      *
      * @param dt Number of seconds since last animation frame
      */
     public void update(float dt) {
-        // Animate if necessary
-        if (animate && walkCool == 0) {
-            switch (direction) {
-                case RIGHT:
-                    if (sidefilmstrip != null) {
-                        int next = (sidefilmstrip.getFrame()+1) % sidefilmstrip.getSize();
-                        sidefilmstrip.setFrame(next);
-                    }
-                    break;
-                case LEFT:
-                    if (sidefilmstrip != null) {
-                        int next = (sidefilmstrip.getFrame()+1) % sidefilmstrip.getSize();
-                        sidefilmstrip.setFrame(next);
-                    }
-                    break;
-                case UP:
-                    if (upfilmstrip != null){
-                        int next = (upfilmstrip.getFrame()+1) % upfilmstrip.getSize();
-                        upfilmstrip.setFrame(next);
-                    }
-                    break;
-                case DOWN:
-                    setTexture(sidefilmstrip);
-                    if (downfilmstrip != null){
-                        int next = (downfilmstrip.getFrame()+1) % downfilmstrip.getSize();
-                        downfilmstrip.setFrame(next);
-                    }
-                }
-            walkCool = walkLimit;
-        } else if (walkCool > 0) {
-            walkCool--;
-        } else if (!animate) {
-            if (sidefilmstrip != null) {
-                sidefilmstrip.setFrame(startFrame);
-            }
-            walkCool = 0;
-        }
-
+        // The level advances the animation (see getAnimator)
         super.update(dt);
     }
 
@@ -535,35 +482,31 @@ public class AnnetteModel extends BoxObstacle {
      */
     public void draw(ObstacleCanvas canvas) {
 
-        FilmStrip dirTexture = null;
         float flipped = 0.6f;
 
         switch (direction) {
             case RIGHT:
-                setTexture(sidefilmstrip);
-                dirTexture = sidefilmstrip;
+                animator.setTable(sideframes);
 
                 break;
             case LEFT:
                 flipped = -0.6f;
-                setTexture(sidefilmstrip);
-                dirTexture = sidefilmstrip;
+                animator.setTable(sideframes);
 
                 break;
             case UP:
-                setTexture(sidefilmstrip);
-                dirTexture = upfilmstrip;
+                animator.setTable(upframes);
 
                 break;
             case DOWN:
-                setTexture(sidefilmstrip);
-                dirTexture = downfilmstrip;
+                animator.setTable(downframes);
         }
+        TextureRegion dirTexture = animator.getRegion();
 
         if (texture != null) {
 //            System.out.println("annette x " + getX() * drawScale.x + " annette y " + getY() * drawScale.y);
-            canvas.draw(shadow, Color.WHITE, origin.x - shadow.getRegionWidth()/4, origin.y - dirTexture.getRegionHeight()/4, getX() * drawScale.x, getY() * drawScale.y, getAngle(), flipped, Math.abs(flipped));
-            canvas.draw(dirTexture, Color.WHITE, origin.x, origin.y - dirTexture.getRegionHeight()/4, getX() * drawScale.x, getY() * drawScale.y, getAngle(), flipped * 0.8f, Math.abs(flipped) * 0.8f);
+            canvas.draw(shadow, Color.WHITE, origin.x - shadow.getRegionWidth()/4, origin.y - dirTexture.getRegionHeight()/4, getRenderX() * drawScale.x, getRenderY() * drawScale.y, getRenderAngle(), flipped, Math.abs(flipped));
+            canvas.draw(dirTexture, Color.WHITE, origin.x, origin.y - dirTexture.getRegionHeight()/4, getRenderX() * drawScale.x, getRenderY() * drawScale.y, getRenderAngle(), flipped * 0.8f, Math.abs(flipped) * 0.8f);
         }
         else{
 //            System.out.println("can't find annette texture");
@@ -580,10 +523,6 @@ public class AnnetteModel extends BoxObstacle {
     public void drawDebug(ObstacleCanvas canvas) {
         super.drawDebug(canvas);
         if (debugColor != null) {
-            canvas.drawPhysics(sensorShapeD,debugColor,getX(),getY(),getAngle(),drawScale.x,drawScale.y);
-            canvas.drawPhysics(sensorShapeU,debugColor,getX(),getY(),getAngle(),drawScale.x,drawScale.y);
-            canvas.drawPhysics(sensorShapeR,debugColor,getX(),getY(),getAngle(),drawScale.x,drawScale.y);
-            canvas.drawPhysics(sensorShapeL,debugColor,getX(),getY(),getAngle(),drawScale.x,drawScale.y);
             canvas.drawPhysics(annetteShape,Color.ORANGE,getX(),getY(),getAngle(),drawScale.x,drawScale.y);
         }
     }
@@ -21,6 +21,21 @@ public class BackgroundModel {
         tileTexture = tileTexture1;
     }
 
+    /**
+     * Returns true if the tile overlaps the given area
+     *
+     * @param area the area to check (in tiles)
+     *
+     * @return true if the tile overlaps the given area
+     */
+    public boolean overlaps(Rectangle area) {
+        // Tiles are drawn from their bottom left corner, at 64 pixels to a tile
+        float width = tileTexture != null ? tileTexture.getRegionWidth()/64f : 1;
+        float height = tileTexture != null ? tileTexture.getRegionHeight()/64f : 1;
+        return x < area.x + area.width && area.x < x + width &&
+               y < area.y + area.height && area.y < y + height;
+    }
+
     public void draw(ObstacleCanvas canvas){
 //        float scale = GameController.TEMP_SCALE;
         float scale = 64; // hard coded
@@ -72,9 +72,6 @@ public class BoxModel extends BoxObstacle {
 
     /** The current horizontal movement of the character */
     private Vector2 movement = new Vector2();
-    /** Whether or not to animate the current frame */
-    private boolean animate = true;
-
     /** If the box has been summoned */
     private boolean doesExist;
     /** If the box is deactivated */
@@ -82,24 +79,29 @@ public class BoxModel extends BoxObstacle {
     /** If the box is deactivating */
     private boolean deactivating;
 
-    /** FilmStrip pointer to the texture region */
-    private FilmStrip filmstrip;
     /** The current animation frame of the avatar */
     private int startFrame;
 
     /** Cache for internal force calculations */
     private Vector2 forceCache = new Vector2();
 
-    private int boxCool = 0;
-    private int shineLimitCountdown = 0;
-
     /** Time between box frames*/
     private final int boxLimit = 5;
     /** Time between animations of box shining*/
     private final int shineLimit = 100;
 
+    /** The animation state of the box shining */
+    private Animator animator = new Animator(null, boxLimit);
+
     private Vector2 velocity;
 
+    /** The collision filter from the level file, restored whenever the box is summoned */
+    private Filter summonFilter = new Filter();
+    /** The collision filter of a deactivated box (created on first use) */
+    private Filter inactiveFilter;
+    /** The collision filter of a reactivated box (created on first use) */
+    private Filter activeFilter;
+
     /**
      * Returns the directional movement of this character.
      *
@@ -212,6 +214,18 @@ public class BoxModel extends BoxObstacle {
      */
     public void setStartFrame(int value) {
         startFrame = value;
+        animator.setStart(value);
+    }
+
+    /**
+     * Returns the animation state of this box
+     *
+     * The level advances the animators of all its models together.
+     *
+     * @return the animation state of this box
+     */
+    public Animator getAnimator() {
+        return animator;
     }
 
     /**
@@ -379,30 +393,28 @@ public class BoxModel extends BoxObstacle {
     }
 
 
-    public void initialize(JsonValue level, Vector2 annettepos, float xoff, float yoff) {
-
-
-        JsonValue layers = level.get("layers");
-        //System.out.println("layers: " + layers);
-        JsonValue crateLayer = null;
+    /**
+     * Initializes the box from the "Crate" layer of the level
+     *
+     * The box is built once per level, before its body is created.  Summoning it later
+     * only moves it into place (see summon).
+     *
+     * @param layer the JSON tree defining the "Crate" layer
+     */
+    public void initialize(JsonValue layer) {
+        JsonValue crateLayer = layer.get("objects");
         JsonValue props = null;
         JsonValue boxBound = null;
-        for(int i = 0; i< layers.size; i++){
-            JsonValue curLayer = layers.get(i);
-            if(curLayer.get("name").asString().equals("Crate")){
-                crateLayer = curLayer.get("objects");
-                for(int f =0; f<2;f++){
-                    JsonValue curLayer2 = crateLayer.get(f);
-                    if(curLayer2.get("name").asString().equals("crate")){
-                        props = curLayer2.get("properties");
-                        //System.out.println("crate init: " + props);
-
-                    }
-                    else{
-//                        System.out.println("crate bounds init");
-                        boxBound = curLayer2;
-                    }
-                }
+        for(int f =0; f<2;f++){
+            JsonValue curLayer2 = crateLayer.get(f);
+            if(curLayer2.get("name").asString().equals("crate")){
+                props = curLayer2.get("properties");
+                //System.out.println("crate init: " + props);
+
+            }
+            else{
+//                System.out.println("crate bounds init");
+                boxBound = curLayer2;
             }
         }
 
@@ -414,7 +426,6 @@ public class BoxModel extends BoxObstacle {
         float height = boxBound.get("height").asFloat()/64;
         setWidth(width);
         setHeight(height);
-        setPosition(annettepos.x + xoff,annettepos.y + yoff);
 
         // Technically, we should do error checking here.
         // A JSON field might accidentally be missing
@@ -438,10 +449,9 @@ public class BoxModel extends BoxObstacle {
         // Create the collision filter (used for light penetration)
         short collideBits = LevelModel.bitStringToShort(props.get("collideBits").asString());
         short excludeBits = LevelModel.bitStringToComplement(props.get("excludeBits").asString());
-        Filter filter = new Filter();
-        filter.categoryBits = collideBits;
-        filter.maskBits = excludeBits;
-        super.setFilterData(filter);
+        summonFilter.categoryBits = collideBits;
+        summonFilter.maskBits = excludeBits;
+        super.setFilterData(summonFilter);
 
         // Reflection is best way to convert name to color
         Color debugColor;
@@ -459,11 +469,9 @@ public class BoxModel extends BoxObstacle {
         // Now get the texture from the AssetManager singleton
         String key = props.get("texture").asString();
         TextureRegion texture = JsonAssetManager.getInstance().getEntry(key, TextureRegion.class);
-        try {
-            filmstrip = (FilmStrip)texture;
-        } catch (Exception e) {
-            filmstrip = null;
-        }
+        animator.setTable(JsonAssetManager.getInstance().getFrames(key));
+        animator.setRest(shineLimit);
+        animator.setPlaying(true);
         setTexture(texture);
 //        setSensor(true);
     }
@@ -493,29 +501,63 @@ public class BoxModel extends BoxObstacle {
         return true;
     }
 
+    /**
+     * Places the box at the given position and wakes its body
+     *
+     * The body is created once per level and only put to sleep when the box goes away,
+     * so summoning it allocates nothing.  The transform, velocity, collision bits and
+     * state flags are all reset, as if the box were new.
+     *
+     * @param x the x-coordinate of the box
+     * @param y the y-coordinate of the box
+     */
+    public void summon(float x, float y) {
+        setPosition(x, y);
+        setLinearVelocity(Vector2.Zero);
+        setAngularVelocity(0.0f);
+        movement.setZero();
+        setFilterData(summonFilter);
+        snapInterpolation();
+        setActive(true);
+        doesExist = true;
+        deactivated = false;
+        deactivating = false;
+    }
+
+    /**
+     * Puts the body of the box to sleep until it is summoned again
+     *
+     * This must not be called during a physics step.
+     */
+    public void dismiss() {
+        doesExist = false;
+        setLinearVelocity(Vector2.Zero);
+        movement.setZero();
+        setActive(false);
+    }
+
     /**
      * Immediately changes collision of box to "inactive"
      */
     protected void deactivate() {
-        short collideBits = LevelModel.bitStringToShort("0010");
-        short excludeBits = LevelModel.bitStringToComplement("0001");
-        Filter filter = new Filter();
-        filter.categoryBits = collideBits;
-        filter.maskBits = excludeBits;
-        setFilterData(filter);
+        if (inactiveFilter == null) {
+            inactiveFilter = new Filter();
+            inactiveFilter.categoryBits = LevelModel.bitStringToShort("0010");
+            inactiveFilter.maskBits = LevelModel.bitStringToComplement("0001");
+        }
+        setFilterData(inactiveFilter);
     }
 
     /**
      * Immediately resets collision bits of box to "active"
      */
     protected void reactivate() {
-        short collideBits = LevelModel.bitStringToShort("0001");
-        short excludeBits = LevelModel.bitStringToComplement("0000");
-        Filter filter = new Filter();
-        filter.categoryBits = collideBits;
-        filter.maskBits = excludeBits;
-        setFilterData(filter);
-
+        if (activeFilter == null) {
+            activeFilter = new Filter();
+            activeFilter.categoryBits = LevelModel.bitStringToShort("0001");
+            activeFilter.maskBits = LevelModel.bitStringToComplement("0000");
+        }
+        setFilterData(activeFilter);
     }
 
     /**
@@ -578,39 +620,12 @@ public class BoxModel extends BoxObstacle {
     public void setBoxSound(String key) { mainSound = key; }
 
     /**
-     * Animates this box.
+     * Updates the box.
      *
-     * If the animation is not active, it will reset to the initial animation frame.
+     * The shine animation is advanced by the level (see getAnimator).
      *
      */
     public void update(float dt) {
-        // Animate if necessary
-        if(shineLimitCountdown==0)
-            animate = true;
-
-        if (animate && boxCool == 0) {
-                    if (filmstrip != null) {
-                        int next = (filmstrip.getFrame()+1) % filmstrip.getSize();
-                        if(next < filmstrip.getFrame()) {
-                            animate = false;
-                            shineLimitCountdown = shineLimit;
-                        }
-                        else
-                        filmstrip.setFrame(next);
-                    }
-            boxCool = boxLimit;
-        }
-
-        else if (boxCool > 0) {
-            boxCool--;
-        } else if (!animate) {
-            if (filmstrip != null) {
-                filmstrip.setFrame(startFrame);
-            }
-            shineLimitCountdown--;
-            boxCool = 0;
-        }
-
         super.update(dt);
     }
 
@@ -624,14 +639,24 @@ public class BoxModel extends BoxObstacle {
 
         /** (3/5/2018) might need to change the code below; copied from RocketModel */
 //        float offsety = mainBox.getRegionHeight()-origin.y;
-        canvas.draw(texture,Color.WHITE,origin.x,origin.y,getX()*drawScale.x,getY()*drawScale.x,getAngle(),2 * GameController.TEMP_SCALE,2 * GameController.TEMP_SCALE);
+        canvas.draw(getFrame(),Color.WHITE,origin.x,origin.y,getRenderX()*drawScale.x,getRenderY()*drawScale.x,getRenderAngle(),2 * GameController.TEMP_SCALE,2 * GameController.TEMP_SCALE);
     }
 
     public void drawState(ObstacleCanvas canvas, Color color) {
         if (texture != null) {
             if (doesExist) {
-                canvas.draw(texture, color, origin.x, origin.y, getX() * drawScale.x, getY() * drawScale.x, getAngle(), 2 * GameController.TEMP_SCALE, 2 * GameController.TEMP_SCALE);
+                canvas.draw(getFrame(), color, origin.x, origin.y, getRenderX() * drawScale.x, getRenderY() * drawScale.x, getRenderAngle(), 2 * GameController.TEMP_SCALE, 2 * GameController.TEMP_SCALE);
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the region of the current animation frame
+     *
+     * @return the region of the current animation frame
+     */
+    private TextureRegion getFrame() {
+        TextureRegion frame = animator.getRegion();
+        return frame == null ? texture : frame;
+    }
+}
@@ -18,6 +18,7 @@ package edu.cornell.gdiac.cityoflight;
 import com.badlogic.gdx.math.*;
 import com.badlogic.gdx.utils.*;
 import com.badlogic.gdx.graphics.*;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.physics.box2d.*;
 import edu.cornell.gdiac.physics.lights.LightSource;
 
@@ -42,28 +43,25 @@ public class CreatureModel extends BoxObstacle {
 
     /** The current directional movement of the creature */
     private Vector2 movement = new Vector2();
-    /** Whether or not to animate the current frame */
-    private boolean animate = false;
-
-    /** How many frames until the creature can walk again */
-    private int walkCool;
     /** The standard number of frames to wait until the creature can walk again */
     private int walkLimit;
 
-    /** FilmStrip pointer to the texture region */
-    private FilmStrip filmstrip;
-    /**FilmStrip for side animation*/
-    private FilmStrip sideAnim;
-    /**FilmStrip for side animation*/
-    private FilmStrip upAnim;
-    /**FilmStrip for side animation*/
-    private FilmStrip downAnim;
+    /** The animation state (the frames are shared with every creature of this kind) */
+    private Animator animator = new Animator(null, 0);
+    /** Frames for side animation */
+    private FrameTable sideAnim;
+    /** Frames for up animation */
+    private FrameTable upAnim;
+    /** Frames for down animation */
+    private FrameTable downAnim;
 
     /** The current animation frame of the creature */
     private int startFrame;
 
     /** Cache for internal force calculations */
     private Vector2 forceCache = new Vector2();
+    /** Whether this creature is moved by the level rather than by the constraint solver */
+    private boolean kinematic;
 
     // Behavior and AI related constants
 
@@ -244,6 +242,7 @@ public class CreatureModel extends BoxObstacle {
      */
     public void setStartFrame(int value) {
         startFrame = value;
+        animator.setStart(value);
     }
 
     /**
@@ -262,6 +261,18 @@ public class CreatureModel extends BoxObstacle {
      */
     public void setWalkLimit(int value) {
         walkLimit = value;
+        animator.setInterval(value);
+    }
+
+    /**
+     * Returns the animation state of this creature
+     *
+     * The level advances the animators of all its models together.
+     *
+     * @return the animation state of this creature
+     */
+    public Animator getAnimator() {
+        return animator;
     }
 
     /**
@@ -405,6 +416,55 @@ public class CreatureModel extends BoxObstacle {
     public void setTurnBehavior(int value){turnBehavior = value;}
     public int getTurnBehavior(){return turnBehavior;}
 
+    /**
+     * Returns true if this creature is moved kinematically
+     *
+     * A kinematic creature is not pushed by forces.  Instead, the level sweeps its
+     * bounding box against the static geometry every physics step and marks it as
+     * stuck when it would run into something.
+     *
+     * @return true if this creature is moved kinematically
+     */
+    public boolean isKinematic() {
+        return kinematic;
+    }
+
+    /**
+     * Sets whether this creature is moved kinematically
+     *
+     * A kinematic creature is not pushed by forces.  Instead, the level sweeps its
+     * bounding box against the static geometry every physics step and marks it as
+     * stuck when it would run into something.
+     *
+     * @param value whether this creature is moved kinematically
+     */
+    public void setKinematic(boolean value) {
+        kinematic = value;
+        setBodyType(value ? BodyDef.BodyType.KinematicBody : BodyDef.BodyType.DynamicBody);
+    }
+
+    /**
+     * Returns the velocity to move a kinematic creature at
+     *
+     * A dynamic creature has its velocity reset every frame and is then pushed by
+     * its movement force for a single step.  This is the velocity that push would
+     * produce, so both kinds of creature walk at the same speed.
+     *
+     * This method returns the same vector each time it is called.
+     *
+     * @param dt the length of a physics step
+     *
+     * @return the velocity to move a kinematic creature at
+     */
+    public Vector2 getKinematicVelocity(float dt) {
+        float mass = getDensity()*getWidth()*getHeight();
+        forceCache.set(movement);
+        if (mass > 0) {
+            forceCache.scl(dt/mass);
+        }
+        return forceCache;
+    }
+
 
     /**
      * Creates a new creature with degenerate settings
@@ -424,7 +484,7 @@ public class CreatureModel extends BoxObstacle {
      *
      * @param json	the
      */
-    public void initialize(JsonValue json, JsonValue bounds, FilmStrip tex1, FilmStrip tex2, FilmStrip tex3, float pSize1) {
+    public void initialize(JsonValue json, JsonValue bounds, FrameTable tex1, FrameTable tex2, FrameTable tex3, float pSize1) {
 
         setName(json.name());
         float[] pos  = {bounds.get("x").asFloat() / 64, pSize1 - bounds.get("y").asFloat() / 64};
@@ -479,15 +539,20 @@ public class CreatureModel extends BoxObstacle {
         setDebugColor(debugColor);
 
 
-        filmstrip = tex1;
         sideAnim = tex1;
 
         downAnim = tex2;
 
         upAnim = tex3;
-        setTexture(tex1);
+        animator.setTable(tex1);
+        if (tex1 != null) {
+            setTexture(tex1.getSource());
+        }
 
         setBodyType(CREATURE_BODY_TYPE.equals("static") ? BodyDef.BodyType.StaticBody : BodyDef.BodyType.DynamicBody);
+        if (json.has("kinematic")) {
+            setKinematic(json.get("kinematic").asBoolean());
+        }
         setStartFrame(CREATURE_START_FRAME);
         setWalkLimit(CREATURE_WALK_COOL);
         setDensity (CREATURE_DENSITY);
@@ -526,47 +591,31 @@ public class CreatureModel extends BoxObstacle {
         }
 
         // Only walk or spin if we allow it
-        setLinearVelocity(Vector2.Zero);
         setAngularVelocity(0.0f);
+        if (!kinematic) {
+            setLinearVelocity(Vector2.Zero);
+        }
 
-        // Apply force for movement
+        // Apply force for movement (the level moves kinematic creatures)
         if (getMovement().len2() > 0f) {
-            forceCache.set(getMovement());
-            body.applyForce(forceCache,getPosition(),true);
-            animate = true;
-        } else {
-            if (isWalkingInPlace) {
-                animate = true;
-            } else {
-                animate = false;
+            if (!kinematic) {
+                forceCache.set(getMovement());
+                body.applyForce(forceCache,getPosition(),true);
             }
+            animator.setPlaying(true);
+        } else {
+            animator.setPlaying(isWalkingInPlace);
         }
     }
 
     /**
      * Updates the object's physics state (NOT GAME LOGIC).
      *
-     * We use this method to reset cooldowns.
+     * The animation is advanced by the level (see getAnimator).
      *
      * @param dt Number of seconds since last animation frame
      */
     public void update(float dt) {
-        // Animate if necessary
-        if (animate && walkCool == 0) {
-            if (filmstrip != null) {
-                int next = (filmstrip.getFrame()+1) % filmstrip.getSize();
-                filmstrip.setFrame(next);
-            }
-            walkCool = walkLimit;
-        } else if (walkCool > 0) {
-            walkCool--;
-        } else if (!animate) {
-            if (filmstrip != null) {
-                filmstrip.setFrame(startFrame);
-            }
-            walkCool = 0;
-        }
-
         super.update(dt);
 //        if (getVision() != null) {
 //            System.out.println("lights "+getVision().getX()+" "+getVision().getY());
@@ -584,31 +633,31 @@ public class CreatureModel extends BoxObstacle {
         int isReflected = movement.x < 0 ? -1 : 1;
         int xOffset = 0;
         boolean isRight = false;
-        FilmStrip dirTexture = null;
+        FrameTable dirTable = null;
         if(movement.x != 0)
         {
-            setTexture(sideAnim);
-            dirTexture = sideAnim;
-            filmstrip = sideAnim;
+            dirTable = sideAnim;
             if (movement.x > 0) { isRight = true; }
         }
         else if(movement.y > 0)
         {
-            setTexture(upAnim);
-            dirTexture = upAnim;
-            filmstrip = upAnim;
+            dirTable = upAnim;
             //change so that sprite bounds are not offset for tarasque
            // if(type == 2) xOffset = 0;
         }
         else if(movement.y < 0){
-            setTexture(downAnim);
-            dirTexture = downAnim;
-            filmstrip = downAnim;
+            dirTable = downAnim;
             //if(type == 2) xOffset = 0;
         }
-        else {
+        if (dirTable != null) {
+            setTexture(dirTable.getSource());
+            animator.setTable(dirTable);
+        }
+
+        TextureRegion dirTexture = (dirTable == null ? null : animator.getRegion());
+        if (dirTable == null) {
             if (texture != null) {
-                canvas.draw(texture, Color.WHITE, origin.x, origin.y, getX() * drawScale.x, getY() * drawScale.y+texture.getRegionHeight()/6 + dragon_y_offset,
+                canvas.draw(animator.getRegion(), Color.WHITE, origin.x, origin.y, getRenderX() * drawScale.x, getRenderY() * drawScale.y+texture.getRegionHeight()/6 + dragon_y_offset,
                         0, 0.75f * isReflected, 0.75f );
             }
         }
@@ -616,52 +665,52 @@ public class CreatureModel extends BoxObstacle {
         if (texture != null && dirTexture != null) {
 //          System.out.println("creature position " + getX() + " " + getY());
             if (type != 3) {
-                if (type == 2 && dirTexture == upAnim) {
+                if (type == 2 && dirTable == upAnim) {
 //                    System.out.println("here");
-                    canvas.draw(dirTexture, Color.WHITE, origin.x, origin.y, (getX() + xOffset) * drawScale.x, getY() * drawScale.y + texture.getRegionHeight() / 6 + dragon_y_offset - 40,
+                    canvas.draw(dirTexture, Color.WHITE, origin.x, origin.y, (getRenderX() + xOffset) * drawScale.x, getRenderY() * drawScale.y + texture.getRegionHeight() / 6 + dragon_y_offset - 40,
                             0, 0.75f * isReflected, 0.75f);
                 }
-                else if (type == 2 && dirTexture == sideAnim) {
+                else if (type == 2 && dirTable == sideAnim) {
 //                    System.out.println("here");
                     if (isRight) {
-                        canvas.draw(dirTexture, Color.WHITE, origin.x, origin.y, (getX() + xOffset) * drawScale.x - 20, getY() * drawScale.y + texture.getRegionHeight() / 6 + dragon_y_offset +10,
+                        canvas.draw(dirTexture, Color.WHITE, origin.x, origin.y, (getRenderX() + xOffset) * drawScale.x - 20, getRenderY() * drawScale.y + texture.getRegionHeight() / 6 + dragon_y_offset +10,
                                 0, 0.75f * isReflected, 0.75f);
                     }
                     else {
-                        canvas.draw(dirTexture, Color.WHITE, origin.x, origin.y, (getX() + xOffset) * drawScale.x + 20, getY() * drawScale.y + texture.getRegionHeight() / 6 + dragon_y_offset + 10,
+                        canvas.draw(dirTexture, Color.WHITE, origin.x, origin.y, (getRenderX() + xOffset) * drawScale.x + 20, getRenderY() * drawScale.y + texture.getRegionHeight() / 6 + dragon_y_offset + 10,
                                 0, 0.75f * isReflected, 0.75f);
                     }
                 }
-                else if (type == 1 && (dirTexture == upAnim || dirTexture == downAnim)) {
+                else if (type == 1 && (dirTable == upAnim || dirTable == downAnim)) {
 //                    System.out.println("here");
-                    canvas.draw(dirTexture, Color.WHITE, origin.x, origin.y, (getX() + xOffset) * drawScale.x, getY() * drawScale.y + texture.getRegionHeight() / 6 + dragon_y_offset-25,
+                    canvas.draw(dirTexture, Color.WHITE, origin.x, origin.y, (getRenderX() + xOffset) * drawScale.x, getRenderY() * drawScale.y + texture.getRegionHeight() / 6 + dragon_y_offset-25,
                             0, 0.75f * isReflected, 0.75f);
                 }
-                else if (type == 1 && (dirTexture == sideAnim)) {
+                else if (type == 1 && (dirTable == sideAnim)) {
 //                    System.out.println("here");
-                    canvas.draw(dirTexture, Color.WHITE, origin.x, origin.y, (getX() + xOffset) * drawScale.x - 7, getY() * drawScale.y + texture.getRegionHeight() / 6 + dragon_y_offset - 10,
+                    canvas.draw(dirTexture, Color.WHITE, origin.x, origin.y, (getRenderX() + xOffset) * drawScale.x - 7, getRenderY() * drawScale.y + texture.getRegionHeight() / 6 + dragon_y_offset - 10,
                             0, 0.75f * isReflected, 0.75f);
                 }
-//                else if (type == 1 && dirTexture == downAnim) {
+//                else if (type == 1 && dirTable == downAnim) {
 ////                    System.out.println("here");
 //                    canvas.draw(dirTexture, Color.WHITE, origin.x, origin.y, (getX() + xOffset) * drawScale.x, getY() * drawScale.y + texture.getRegionHeight() / 6 + dragon_y_offset + 20,
 //                            0, 0.75f * isReflected, 0.75f);
 //                }
                 else {
-                    canvas.draw(dirTexture, Color.WHITE, origin.x, origin.y, (getX() + xOffset) * drawScale.x, getY() * drawScale.y + texture.getRegionHeight() / 6 + dragon_y_offset,
+                    canvas.draw(dirTexture, Color.WHITE, origin.x, origin.y, (getRenderX() + xOffset) * drawScale.x, getRenderY() * drawScale.y + texture.getRegionHeight() / 6 + dragon_y_offset,
                             0, 0.75f * isReflected, 0.75f);
                 }
             }else{
                 if (DRESS_COOLDOWN <= 0) {
                     dressOfDoom();
-                    canvas.draw(dirTexture, BLANCHE_DRESS_OF_DOOM,origin.x,origin.y,(getX() + xOffset)* drawScale.x,getY()* drawScale.y+texture.getRegionHeight()/6,
+                    canvas.draw(dirTexture, BLANCHE_DRESS_OF_DOOM,origin.x,origin.y,(getRenderX() + xOffset)* drawScale.x,getRenderY()* drawScale.y+texture.getRegionHeight()/6,
                             0,0.75f* isReflected,0.75f );
                     if (DRESS_COOLDOWN < -DRESS_DURATION - 100) {
                         DRESS_COOLDOWN = DRESS_COOLDOWN_LIMIT;
                         enddressOfDoom();
                     }
                 } else{
-                    canvas.draw(dirTexture,Color.WHITE,origin.x,origin.y,(getX() + xOffset)* drawScale.x,getY()* drawScale.y+texture.getRegionHeight()/6,
+                    canvas.draw(dirTexture,Color.WHITE,origin.x,origin.y,(getRenderX() + xOffset)* drawScale.x,getRenderY()* drawScale.y+texture.getRegionHeight()/6,
                             0,0.75f* isReflected,0.75f );
                 }
                 DRESS_COOLDOWN --;
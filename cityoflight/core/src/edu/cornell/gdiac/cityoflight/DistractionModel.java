@@ -36,10 +36,6 @@ public class DistractionModel extends WheelObstacle {
 
     private FilmStrip filmStrip;
 
-    /**
-     * The sprite for the bird.
-     */
-    TextureRegion birdsprite = new TextureRegion(new Texture("textures/bird.png"));
     /**
      * The bird's x coordinate on the screen.
      */
@@ -204,9 +200,58 @@ public class DistractionModel extends WheelObstacle {
         setFixedRotation(true);
         //#endregion
 
+        // The bird is built once per level, and sleeps until it is launched
+        super.setActive(false);
+
         return true;
     }
 
+    /**
+     * Launches the bird from the given position in the given direction
+     *
+     * The body is created once per level, so this only resets the transform and the
+     * state of the bird and wakes its body.  It allocates nothing.
+     *
+     * @param x         the x-coordinate of Annette
+     * @param y         the y-coordinate of Annette
+     * @param direction the direction the bird flies in
+     */
+    public void launch(float x, float y, AnnetteModel.Direction direction) {
+        this.direction = direction;
+        this.life = BIRD_LIFE;
+        this.alpha = 255;
+        this.seen = false;
+        setPosition(x, y);
+        setPositionByOffset(x, y);
+        setLinearVelocity(Vector2.Zero);
+        movement.setZero();
+        snapInterpolation();
+        super.setActive(true);
+        alive = true;
+    }
+
+    /**
+     * Puts the body of the bird to sleep until it is launched again
+     *
+     * This must not be called during a physics step (such as in a contact callback).
+     */
+    public void putAway() {
+        alive = false;
+        setLinearVelocity(Vector2.Zero);
+        super.setActive(false);
+    }
+
+    /**
+     * Returns true if the body of the bird is awake
+     *
+     * Unlike isActive, this is the state of the body, and not whether the bird is alive.
+     *
+     * @return true if the body of the bird is awake
+     */
+    public boolean isAwake() {
+        return body != null && body.isActive();
+    }
+
     public void setMovement(float dx, float dy) {
         movement.set(dx,dy);
     }
@@ -315,7 +360,7 @@ public class DistractionModel extends WheelObstacle {
     }
 
     public void draw(ObstacleCanvas canvas) {
-        if ((birdsprite != null) && alive) {
+        if ((filmStrip != null) && alive) {
             Color color = Color.WHITE.cpy();
             if (life < 100) {
                 alpha = (int) ((1 - ((float) life / BIRD_LIFE)) * 255);
@@ -335,8 +380,8 @@ public class DistractionModel extends WheelObstacle {
                     flipped = -0.3f;
                     break;
             }
-            canvas.draw(filmStrip, color, origin.x, origin.y, this.body.getPosition().x * drawScale.x,
-                    this.body.getPosition().y * drawScale.y, getAngle(), flipped * GameController.TEMP_SCALE * 3, Math.abs(flipped) * GameController.TEMP_SCALE * 3);
+            canvas.draw(filmStrip, color, origin.x, origin.y, getRenderX() * drawScale.x,
+                    getRenderY() * drawScale.y, getRenderAngle(), flipped * GameController.TEMP_SCALE * 3, Math.abs(flipped) * GameController.TEMP_SCALE * 3);
         }
     }
 
@@ -28,10 +28,6 @@ import edu.cornell.gdiac.physics.obstacle.*;
  */
 public class ExitModel extends BoxObstacle {
 
-	private boolean animate = true;
-	private int boxCool = 0;
-	private int shineLimitCountdown = 0;
-	private FilmStrip filmstrip;
 	private int startFrame = 1;
 
 	/** Time between box frames*/
@@ -39,6 +35,9 @@ public class ExitModel extends BoxObstacle {
 	/** Time between animations of box shining*/
 	private final int shineLimit = 1;
 
+	/** The animation state of the door */
+	private Animator animator = new Animator(null, boxLimit);
+
 	/**
 	 * Create a new ExitModel with degenerate settings
 	 */	
@@ -52,34 +51,18 @@ public class ExitModel extends BoxObstacle {
 		return 10000;
 	}
 
-	public void update(float dt) {
-		// Animate if necessary
-		if(shineLimitCountdown==0)
-			animate = true;
-
-		if (animate && boxCool == 0) {
-			if (filmstrip != null) {
-				int next = (filmstrip.getFrame()+1) % filmstrip.getSize();
-				if(next < filmstrip.getFrame()) {
-					animate = false;
-					shineLimitCountdown = shineLimit;
-				}
-				else
-					filmstrip.setFrame(next);
-			}
-			boxCool = boxLimit;
-		}
-
-		else if (boxCool > 0) {
-			boxCool--;
-		} else if (!animate) {
-			if (filmstrip != null) {
-				filmstrip.setFrame(startFrame);
-			}
-			shineLimitCountdown--;
-			boxCool = 0;
-		}
+	/**
+	 * Returns the animation state of the door
+	 *
+	 * The level advances the animators of all its models together.
+	 *
+	 * @return the animation state of the door
+	 */
+	public Animator getAnimator() {
+		return animator;
+	}
 
+	public void update(float dt) {
 		super.update(dt);
 	}
 
@@ -141,11 +124,10 @@ public class ExitModel extends BoxObstacle {
 		
 		// Now get the texture from the AssetManager singleton
 		TextureRegion texture = JsonAssetManager.getInstance().getEntry(textr, TextureRegion.class);
-		try {
-			filmstrip = (FilmStrip)texture;
-		} catch (Exception e) {
-			filmstrip = null;
-		}
+		animator.setTable(JsonAssetManager.getInstance().getFrames(textr));
+		animator.setStart(startFrame);
+		animator.setRest(shineLimit);
+		animator.setPlaying(true);
 		setTexture(texture);
 	}
 
@@ -159,7 +141,8 @@ public class ExitModel extends BoxObstacle {
 		if (texture != null) {
 			//System.out.println(getY());
 
-			canvas.draw(texture,Color.WHITE,origin.x,origin.y,getX()*drawScale.x,getY()*drawScale.y, getAngle(),GameController.TEMP_SCALE * 2, GameController.TEMP_SCALE  * 2);
+			TextureRegion frame = animator.getRegion();
+			canvas.draw(frame == null ? texture : frame,Color.WHITE,origin.x,origin.y,getX()*drawScale.x,getY()*drawScale.y, getAngle(),GameController.TEMP_SCALE * 2, GameController.TEMP_SCALE  * 2);
 //			canvas.draw(texture,Color.WHITE,origin.x,origin.y,getX()*drawScale.x,getY()*drawScale.y, getAngle(),GameController.TEMP_SCALE * 2, GameController.TEMP_SCALE  * 2);
 		}
 	}
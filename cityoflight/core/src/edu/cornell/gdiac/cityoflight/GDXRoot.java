@@ -33,6 +33,9 @@ import java.util.logging.Level;
  * and you would draw it as a root class in an architecture specification.
  */
 public class GDXRoot extends Game implements ScreenListener {
+	/** Milliseconds each frame to spend populating a level on the loading screen */
+	private static final int POPULATE_BUDGET = 12;
+
 	/** Drawing context to display graphics (VIEW CLASS) */
 	private ObstacleCanvas canvas;
 	/** Player mode for the asset loading screen (CONTROLLER CLASS) */
@@ -66,8 +69,14 @@ public class GDXRoot extends Game implements ScreenListener {
 	 *
 	 * This is method immediately loads assets for the loading screen, and prepares
 	 * the asynchronous loader for all other assets.
+	 *
+	 * The startup is recorded on the load timeline until the menu first draws.
 	 */
 	public void create() {
+		LoadTimeline timeline = LoadTimeline.getInstance();
+		timeline.start("startup");
+
+		long start = timeline.now();
 		canvas  = new ObstacleCanvas();
 		drawHelper = new DrawHelper();
 
@@ -75,12 +84,15 @@ public class GDXRoot extends Game implements ScreenListener {
 //		menu = new MenuMode(canvas, this);
 		menu = new MenuMode(canvas, this);
 
-//		levels = new LevelController(canvas);
+		levels = new LevelController(canvas);
 		pause = new PauseMode(canvas);
 		help = new HelpMode(canvas);
+		timeline.record("startup", "create screens", start);
 		// Initialize the three game worlds
+		start = timeline.now();
 		controller = new GameController();
 		controller.preLoadContent();
+		timeline.record("startup", "create controller", start);
 		loading.setScreenListener(this);
 		setScreen(loading);
 	}
@@ -99,6 +111,10 @@ public class GDXRoot extends Game implements ScreenListener {
 		canvas.dispose();
 		canvas = null;
 
+		menu.dispose();
+		levels.dispose();
+		help.dispose();
+		loading.dispose();
 		menu = null;
 		levels = null;
 		pause = null;
@@ -130,41 +146,36 @@ public class GDXRoot extends Game implements ScreenListener {
 	 * @param exitCode The state of the screen upon exit
 	 */
 	public void exitScreen(Screen screen, int exitCode) {
+		if (screen == loading && loading.getLevel() != null) {
+			// The level is populated, so it is ready to play
+			loading.setLevel(null);
+			controller.finishReset();
+			setScreen(controller);
+			return;
+		}
 		if (exitCode == GameController.EXIT_MENU) {
 //			loading.dispose();
 //			loading = null;
-			menu = new MenuMode(canvas, this);
-
-
+			// The screens are kept between visits, so they only need a reset
+			menu.setScreenListener(this);
+			menu.setCanvas(canvas);
+			menu.reset();
 			setScreen(menu);
 			//			setScreen(menu);
 
 //			if (getScreen().equals(levels)) {
 //				levels.hide();
 //			}
-			if (levels != null) {
-				levels.dispose();
-				levels.setActive(false);
-				levels = null;
-			}
+			levels.setActive(false);
+			LevelPreloader.getInstance().cancel();
 
 			if (controller != null) {
-				if (controller.getBGM() != null) {
-					controller.getBGM().stop();
-					controller.getDet_bgm().stop();
+				if (controller.getMusic() != null) {
+					controller.getMusic().stop();
 				}
 			}
-			menu.setScreenListener(this);
-			menu.setCanvas(canvas);
-			menu.reset();
 		}
 		if (exitCode == GameController.EXIT_LEVEL) {
-            if (menu != null) {
-                menu.dispose();
-                menu = null;
-            }
-
-			levels = new LevelController(canvas);
 			levels.setScreenListener(this);
 			levels.setCanvas(canvas);
 			levels.reset(canvas);
@@ -173,10 +184,6 @@ public class GDXRoot extends Game implements ScreenListener {
 		}
 
 		if (exitCode == GameController.EXIT_HELP) {
-
-			menu.dispose();
-			menu = null;
-			help = new HelpMode(canvas);
 			help.setScreenListener(this);
 			help.setCanvas(canvas);
 			help.reset();
@@ -185,8 +192,7 @@ public class GDXRoot extends Game implements ScreenListener {
 		}
 
 		if (exitCode == GameController.EXIT_PAUSE) {
-			controller.getBGM().pause();
-			controller.getDet_bgm().pause();
+			controller.getMusic().pause();
 //			if (pause.isMusic()) {
 //				controller.setMusicPlay(true);
 //			}
@@ -227,13 +233,8 @@ public class GDXRoot extends Game implements ScreenListener {
 			if (getScreen().equals(menu)) {
 				controller.setWhichLevel(0);
 			}
-			if (menu != null) {
-				menuMusic = menu.getMenuMusic();
-				menuMusic.stop();
-				menu.dispose();
-				menu = null;
-
-			}
+			menuMusic = menu.getMenuMusic();
+			menuMusic.stop();
 			if (pause.isMusic()) {
 				controller.setMusicPlay(true);
 			}
@@ -274,25 +275,27 @@ public class GDXRoot extends Game implements ScreenListener {
 			else if (controller.whichlevel == 0) {
 					controller.setWhichLevel(1);
 				}
+				if (!getScreen().equals(pause)) {
+					// Time the load until the first update of the level
+					LoadTimeline.getInstance().start("level-"+controller.whichlevel);
+				}
+				long start = LoadTimeline.getInstance().now();
 				controller.loadContent();
+				LoadTimeline.getInstance().record("assets", "allocate directory", start);
 				controller.setScreenListener(this);
 				controller.setCanvas(canvas);
 				if (!getScreen().equals(pause)) {
-					controller.reset();
+					// Populate the level a few steps each frame behind the loading screen
+					controller.beginReset();
+					loading.setBudget(POPULATE_BUDGET);
+					loading.setLevel(controller.getLevel());
+					setScreen(loading);
 				} else {
 					pause.reset();
-				}
-				setScreen(controller);
-				if (loading != null) {
-					loading.dispose();
-					loading = null;
+					setScreen(controller);
 				}
 				controller.setMenu(menu);
-
-				if (levels != null) {
-					levels.dispose();
-					levels = null;
-				}
+				levels.setActive(false);
 
 //			else {
 //			}
@@ -304,7 +307,24 @@ public class GDXRoot extends Game implements ScreenListener {
 		}
 	}
 
+	/**
+	 * Called when the Application should render itself.
+	 *
+	 * While the menu is up, this also warms the level select screen a texture at
+	 * a time, as it is the most likely screen to come next.  On the level select
+	 * screen, it prepares the level under the mouse.
+	 *
+	 * The first frame of the menu ends the startup on the load timeline.
+	 */
 	public void render() {
 		super.render();
+		if (getScreen() == menu && levels != null) {
+			LoadTimeline.getInstance().finish();
+			levels.preload();
+		} else if (getScreen() == levels && levels != null) {
+			LevelPreloader preloader = LevelPreloader.getInstance();
+			preloader.request(levels.getHoveredLevel());
+			preloader.update();
+		}
 	}
 }
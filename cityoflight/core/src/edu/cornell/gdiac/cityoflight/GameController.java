@@ -15,13 +15,15 @@
  */
 package edu.cornell.gdiac.cityoflight;
 
+import com.badlogic.ashley.core.Entity;
 import com.badlogic.gdx.*;
-import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.utils.*;
 import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.graphics.g2d.*;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.*;
+import edu.cornell.gdiac.cityoflight.ecs.AIComponent;
 import edu.cornell.gdiac.util.*;
 
 import edu.cornell.gdiac.physics.obstacle.*;
@@ -37,7 +39,7 @@ import edu.cornell.gdiac.physics.obstacle.*;
  * You will notice that asset loading is very different.  It relies on the
  * singleton asset manager to manage the various assets.
  */
-public class GameController implements Screen, ContactListener {
+public class GameController implements Screen, ContactListener, LevelModel.StepListener {
 	/**
 	 * Tracks the asset state.  Otherwise subclasses will try to load assets
 	 */
@@ -105,9 +107,14 @@ public class GameController implements Screen, ContactListener {
 
 		assetState = AssetState.LOADING;
 
+		LoadTimeline timeline = LoadTimeline.getInstance();
+		long start = timeline.now();
 		jsonReader = new JsonReader();
-		assetDirectory = jsonReader.parse(Gdx.files.internal("jsons/assets.json"));
+		assetDirectory = jsonReader.parse(JsonAssetManager.getInstance().resolve("jsons/assets.json"));
+		timeline.record("json", "parse jsons/assets.json", start);
 
+		// Textures are loaded per level (see reset)
+		JsonAssetManager.getInstance().setLazy(true);
 		JsonAssetManager.getInstance().loadDirectory(assetDirectory);
 	}
 
@@ -163,6 +170,24 @@ public class GameController implements Screen, ContactListener {
 	public static final int EXIT_CONTROLS = 6;
 	/** Exit code for going to the control menu screen*/
 	public static final int EXIT_CREATURES = 7;
+	/** The level files, in order (CHANGE THIS IF YOU ADD LEVELS) */
+	private static final String[] LEVEL_FILES = {
+		"jsons/Level0.json", "jsons/Level1_5.json", "jsons/Level2_5.json", "jsons/Level3_5.json",
+		"jsons/Level4_5.json", "jsons/Level5_5.json", "jsons/lvl_num.json", "jsons/Emmalevel.json",
+		"jsons/Level10.json", "jsons/Level11.json"
+	};
+
+	/**
+	 * Returns the JSON file for the given level
+	 *
+	 * @param level	The level number (starting at 1)
+	 *
+	 * @return the JSON file for the given level
+	 */
+	public static String getLevelFile(int level) {
+		return LEVEL_FILES[level-1];
+	}
+
 	/** Which level to load */
 	public int whichlevel;
 	public void setWhichLevel(int val) {
@@ -182,9 +207,19 @@ public class GameController implements Screen, ContactListener {
 	private Array<AIController> AIcontrollers = new Array<AIController>();
 
 	private SoundController sound;
-
-	private Music bgm;
-	private Music det_bgm;
+	/** The voice keys of the sound effects (see SoundController) */
+	private int ambientKey, distractionKey, distractionGoneKey, boxKey, noBoxKey,
+				boxDeactivateKey, boxGoneKey, winKey, loseKey;
+	/** The handles of the sound effects (see SoundController) */
+	private int ambientSound, distractionSound, distractionGoneSound, boxSound, noBoxSound,
+				boxDeactivateSound, boxGoneSound, winSound, loseSound;
+
+	/** The level music, with a stem for when Annette is detected */
+	private AdaptiveMusic music;
+	/** The stem of the music to play normally */
+	private static final int NORMAL_STEM = 0;
+	/** The stem of the music to play when Annette is detected */
+	private static final int DETECTED_STEM = 1;
 
 	/** Whether or not this is an active controller */
 	private boolean active;
@@ -197,10 +232,8 @@ public class GameController implements Screen, ContactListener {
 
 	private float dist;
 
-	private boolean downBox = false;
-	private boolean upBox = false;
-	private boolean rightBox = false;
-	private boolean leftBox = false;
+	/** Cache for the area where a box would be summoned */
+	private Rectangle boxArea = new Rectangle();
 
 	private boolean musicPlay = true;
 	private boolean detectedPlay = false;
@@ -210,12 +243,8 @@ public class GameController implements Screen, ContactListener {
 		menu = val;
 	}
 
-	public Music getBGM() {
-		return bgm;
-	}
-
-	public Music getDet_bgm() {
-		return det_bgm;
+	public AdaptiveMusic getMusic() {
+		return music;
 	}
 
 	public void setMusicPlay(boolean val) { musicPlay = val; }
@@ -324,17 +353,33 @@ public class GameController implements Screen, ContactListener {
 	public GameController() {
 		jsonReader = new JsonReader();
 		level = new LevelModel();
+		level.setStepListener(this);
 		complete = false;
 		failed = false;
 		active = false;
 		countdown = -1;
 		sound = SoundController.getInstance();
-		bgm = Gdx.audio.newMusic(Gdx.files.internal("music/120bpm_music.mp3"));
-		det_bgm = Gdx.audio.newMusic(Gdx.files.internal("music/120bpm_detected_music.mp3"));
-		bgm.setLooping(true);
-		bgm.setVolume(0.6f);
-		det_bgm.setLooping(true);
-		det_bgm.setVolume(0.0f);
+		ambientKey = sound.getKey("ambient_effect");
+		ambientSound = sound.getHandle("sounds/ambient_effect.wav");
+		distractionKey = sound.getKey("distraction_effect");
+		distractionSound = sound.getHandle("sounds/distraction_effect.wav");
+		distractionGoneKey = sound.getKey("distraction_gone_effect");
+		distractionGoneSound = sound.getHandle("sounds/distraction_gone_effect.wav");
+		boxKey = sound.getKey("box_effect");
+		boxSound = sound.getHandle("sounds/box_effect.wav");
+		noBoxKey = sound.getKey("no_box_effect");
+		noBoxSound = sound.getHandle("sounds/no_box_effect.wav");
+		boxDeactivateKey = sound.getKey("box_deactivate_effect");
+		boxDeactivateSound = sound.getHandle("sounds/box_deactivate_effect.wav");
+		boxGoneKey = sound.getKey("box_gone_effect");
+		boxGoneSound = sound.getHandle("sounds/box_gone_effect.wav");
+		winKey = sound.getKey("win_effect");
+		winSound = sound.getHandle("sounds/win_effect.wav");
+		loseKey = sound.getKey("lose_effect");
+		loseSound = sound.getHandle("sounds/lose_effect.wav");
+		music = new AdaptiveMusic(JsonAssetManager.getInstance().resolve("music/120bpm_music.mp3"),
+								  JsonAssetManager.getInstance().resolve("music/120bpm_detected_music.mp3"));
+		music.setVolume(0.6f);
 		drawHelper = new DrawHelper();
 
 		setComplete(false);
@@ -346,67 +391,83 @@ public class GameController implements Screen, ContactListener {
 	 */
 	public void dispose() {
 		level.dispose();
+		music.dispose();
 		level  = null;
+		music  = null;
 		canvas = null;
 	}
 
+	/**
+	 * Returns the level being played
+	 *
+	 * @return the level being played
+	 */
+	public LevelModel getLevel() {
+		return level;
+	}
+
 	/**
 	 * Resets the status of the game so that we can play again.
 	 *
 	 * This method disposes of the level and creates a new one. It will
 	 * reread from the JSON file, allowing us to make changes on the fly.
+	 *
+	 * The reset is recorded on the load timeline until the next frame is drawn.
 	 */
 	public void reset() {
+		LoadTimeline.getInstance().start("level-"+whichlevel);
+		beginReset();
+		while (level.isPopulating()) {
+			level.populateStep();
+		}
+		finishReset();
+	}
 
+	/**
+	 * Starts resetting the game, leaving the level to be populated
+	 *
+	 * The level is disposed and its file reread, but only the physics world and the
+	 * lighting are created.  The rest of the level must be populated (for example, by
+	 * the loading screen) before calling finishReset.
+	 */
+	public void beginReset() {
+		LoadTimeline timeline = LoadTimeline.getInstance();
+		long start = timeline.now();
 		level.dispose();
+		timeline.record("populate", "dispose level", start);
 
 		AIcontrollers.clear();
 		setComplete(false);
 		setFailure(false);
 		countdown = -1;
-		// Reload the json each time
-		if (whichlevel == 2) {
-			levelFormat = jsonReader.parse(Gdx.files.internal("jsons/Level1_5.json"));
-		}
-		if (whichlevel == 3) {
-			levelFormat = jsonReader.parse(Gdx.files.internal("jsons/Level2_5.json"));
-		}
-		if (whichlevel == 4) {
-			levelFormat = jsonReader.parse(Gdx.files.internal("jsons/Level3_5.json"));
-		}
-		if (whichlevel == 5) {
-			levelFormat = jsonReader.parse(Gdx.files.internal("jsons/Level4_5.json"));
-		}
-		if (whichlevel == 6) {
-			levelFormat = jsonReader.parse(Gdx.files.internal("jsons/Level5_5.json"));
-		}
-		if (whichlevel == 7) {
-			levelFormat = jsonReader.parse(Gdx.files.internal("jsons/lvl_num.json"));
-		}
-		if (whichlevel == 8) {
-			levelFormat = jsonReader.parse(Gdx.files.internal("jsons/Emmalevel.json"));
-		}
-		if (whichlevel == 9) {
-			levelFormat = jsonReader.parse(Gdx.files.internal("jsons/Level10.json"));
-		}
-		if (whichlevel == 10) {
-			levelFormat = jsonReader.parse(Gdx.files.internal("jsons/Level11.json"));
-		}
-		if (whichlevel == 1) {
-			levelFormat = jsonReader.parse(Gdx.files.internal("jsons/Level0.json"));
+		// Reload the json each time (unless the level select screen already did)
+		levelFormat = LevelPreloader.getInstance().take(whichlevel);
+		if (levelFormat == null) {
+			start = timeline.now();
+			levelFormat = jsonReader.parse(JsonAssetManager.getInstance().resolve(getLevelFile(whichlevel)));
+			if (timeline.isRecording()) {
+				timeline.record("json", "parse "+getLevelFile(whichlevel), start);
+			}
+		} else if (timeline.isRecording()) {
+			timeline.mark("json", "preloaded "+getLevelFile(whichlevel));
 		}
 		// CHANGE THIS IF YOU ADD LEVELS
 		numLevels = 10;
 
-		level.populate(levelFormat);
+		// Load only the textures this level uses
+		JsonAssetManager.getInstance().loadManifest(levelFormat);
+		JsonAssetManager.getInstance().allocateManifest();
+
+		level.beginPopulate(levelFormat);
+	}
+
+	/**
+	 * Finishes resetting the game once the level is populated
+	 */
+	public void finishReset() {
 		level.getWorld().setContactListener(this);
 
-		if (level.getDistraction() != null) {
-			level.getDistraction().setAlive(false);
-//			level.getDistraction().deactivatePhysics(level.getWorld());
-//			level.getDistraction().dispose();
-			level.objects.remove(level.getDistraction());
-		}
+		level.dismissDistraction();
 		drawHelper.reset();
 
 		level.resetAchievements();
@@ -453,11 +514,8 @@ public class GameController implements Screen, ContactListener {
 		}
 
 		if (input.didMute()) {
-			bgm.stop();
-			det_bgm.stop();
-			for (String s : sound.getCollection()) {
-				sound.stop(s);
-			}
+			music.stop();
+			sound.stopAll();
 			if (musicPlay){	musicPlay = false; }
 			else { musicPlay = true; }
 			if (soundPlay){	soundPlay = false; }
@@ -485,8 +543,7 @@ public class GameController implements Screen, ContactListener {
 				}
 				else {
 //					whichlevel = 1;
-					bgm.stop();
-					det_bgm.stop();
+					music.stop();
 					listener.exitScreen(this, EXIT_MENU);
 					return false;
 				}
@@ -500,6 +557,8 @@ public class GameController implements Screen, ContactListener {
 
 	private Vector2 aAngleCache = new Vector2();
 	private Vector2 dAngleCache = new Vector2();
+	/** Cache for the objects found by the spatial queries of the level */
+	private Array<Obstacle> nearby = new Array<Obstacle>();
 
 
 	/** Update loop for pause menu */
@@ -533,45 +592,39 @@ public class GameController implements Screen, ContactListener {
 		float yoff = 0;
 
 		if (!musicPlay) {
-			bgm.pause();
-			det_bgm.pause();
+			music.pause();
 		}
 		else {
-			if (!bgm.isPlaying()) {
-				bgm.play();
-				det_bgm.play();
-			}
-			if (detectedPlay && !complete) {
-				det_bgm.setVolume(0.3f);
-				bgm.setVolume(0.0f);
-				det_bgm.setVolume(0.6f);
-			}
-			else {
-//				System.out.println("normal music");
-				bgm.setVolume(0.3f);
-				det_bgm.setVolume(0.0f);
-				bgm.setVolume(0.6f);
+			// Only the stem being heard is decoded, except while they crossfade
+			music.setStem(detectedPlay && !complete ? DETECTED_STEM : NORMAL_STEM);
+			if (!music.isPlaying()) {
+				music.play();
 			}
+			music.update(dt);
 		}
 
 		// creature AI.
-        for (CreatureModel c : level.getCreature()) {
-		    if (distraction != null) {
-		        if (distraction.getX() > c.getX() && distraction.getX() < c.getX()+c.getWidth() &&
-                        distraction.getY() > c.getY() && distraction.getY() < c.getY()+c.getHeight()) {
-		            c.setDistracted(true);
-		            distraction.setSeen(true);
-                }
-            }
-        }
+		if (distraction != null) {
+			// Only the creatures near the bird are checked, not every creature
+			nearby.clear();
+			level.queryRadius(distraction.getX(), distraction.getY(), level.getCreatureExtent(), nearby);
+			for (int ii = 0; ii < nearby.size; ii++) {
+				if (nearby.get(ii) instanceof CreatureModel) {
+					CreatureModel c = (CreatureModel)nearby.get(ii);
+					if (distraction.getX() > c.getX() && distraction.getX() < c.getX()+c.getWidth() &&
+						distraction.getY() > c.getY() && distraction.getY() < c.getY()+c.getHeight()) {
+						c.setDistracted(true);
+						distraction.setSeen(true);
+					}
+				}
+			}
+		}
 
 		createAIControllers();
+		level.updateAI(dt);
 
 		for (AIController controller : AIcontrollers){
-			controller.chooseAction();
-			controller.doAction();
-
-			if (controller.isDistracted()) {
+			if (controller.isDistracted() && distraction != null) {
 				distraction.setSeen(true);
 			}
 		}
@@ -585,9 +638,9 @@ public class GameController implements Screen, ContactListener {
 		annette.setWalkingInPlace(InputController.getInstance().didHoldShift());
 		if (annette.isWalkingInPlace()) {
 			hasUsedWalking = true;
-			sound.play("ambient_effect", "sounds/ambient_effect.wav", true, 0.1f, soundPlay);
+			playSound(ambientKey, ambientSound, true, 0.1f, SoundController.LOW_PRIORITY);
 		}
-		else { sound.stop("ambient_effect"); }
+		else { sound.stop(ambientKey); }
 		aAngleCache.scl(annette.getForce());
 		annette.setDirection(input.getDirection());
 		if (!complete && !failed && whichlevel!= 1) {
@@ -596,13 +649,11 @@ public class GameController implements Screen, ContactListener {
 		if (!complete && !failed && whichlevel != 1 && whichlevel != 2 && whichlevel != 3) {
 			annette.setBird(input.didX());
 		}
-		annette.applyForce();
 
 		//Check if distraction was called
-		if (annette.getBird()&&!level.isDistraction() && !isFailure()) {
-			level.createDistraction(levelFormat);
+		if (annette.getBird()&&!level.isDistraction() && !isFailure() && level.launchDistraction()) {
 			hasUsedDistraction = true;
-			sound.play("distraction_effect", "sounds/distraction_effect.wav", false, 0.2f, soundPlay);
+			playSound(distractionKey, distractionSound, false, 0.2f, SoundController.DEFAULT_PRIORITY);
 			level.getDistraction().setAlive(true);
 			dAngleCache.set(input.getaHoriz(),input.getaVert());
 
@@ -621,10 +672,8 @@ public class GameController implements Screen, ContactListener {
 		if (distraction != null) {
 //			System.out.println(level.objects.contains(distraction));
 			if (!distraction.getAlive() && distraction.isActive()) {
-				sound.play("distraction_gone_effect", "sounds/distraction_gone_effect.wav", false, 1.0f, soundPlay);
-//				distraction.deactivatePhysics(level.getWorld());
-				distraction.dispose();
-				level.objects.remove(distraction);
+				playSound(distractionGoneKey, distractionGoneSound, false, 1.0f, SoundController.DEFAULT_PRIORITY);
+				level.dismissDistraction();
 			}
 		}
 
@@ -638,69 +687,46 @@ public class GameController implements Screen, ContactListener {
 
 		box.setDrawScale(level.scale);
 		if (annette.isSummoning() && !box.getDoesExist()) {
-			boolean canBox;
 			// get direction annette is facing
 			switch (annette.getDirection()) {
 				case RIGHT:
 					xoff = BOX_HOFFSET;
-					canBox = rightBox;
 					break;
 				case LEFT:
 					xoff = -BOX_HOFFSET;
-					canBox = leftBox;
 					break;
 				case UP:
 					yoff = BOX_VOFFSET;
-					canBox = upBox;
 					break;
 				case DOWN:
 					yoff = -BOX_VOFFSET;
-					canBox = downBox;
 					break;
 				default: {
 					xoff = 0;
 					yoff = 0;
-					canBox = false;
 					break;
 				}
 			}
-			// TODO: REMOVE THIS LINE!
-			canBox = true;
-			if (canBox) {
-				try {
-					box.initialize(levelFormat, annette.getPosition(), xoff, yoff);
-				}
-				catch (Exception e) {
-					box = new BoxModel(1, 1);
-					level.setBox(box);
-					box.setDrawScale(level.scale);
-					box.initialize(levelFormat, annette.getPosition(), xoff, yoff);
-				}
-				level.activate(box);
-				box.setActive(true);
-				box.setDoesExist(true);
-				box.setDeactivated(false);
-				box.setDeactivating(false);
+			// only check for room when the box is actually summoned
+			boolean canBox = level.isAreaClear(annette.getPlacementArea(annette.getDirection(), boxArea), annette);
+			if (canBox && level.summonBox(annette.getX() + xoff, annette.getY() + yoff)) {
 				hasUsedBox = true;
-				sound.play("box_effect", "sounds/box_effect.wav", false, 0.8f, soundPlay);
+				playSound(boxKey, boxSound, false, 0.8f, SoundController.DEFAULT_PRIORITY);
 			}
 			else {
-				sound.stop("no_box_effect");
-				sound.play("no_box_effect", "sounds/no_box_effect.wav", false, 0.75f, soundPlay);
+				sound.stop(noBoxKey);
+				playSound(noBoxKey, noBoxSound, false, 0.75f, SoundController.DEFAULT_PRIORITY);
 			}
 		}
 		else if (annette.isSummoning() && box.getDoesExist()) {
 			if (dist  <= BoxModel.INNER_RADIUS){
 				if (annette.isSummoning() && box.getDoesExist()) {
-					box.setDoesExist(false);
-					box.deactivatePhysics(level.getWorld());
-					box.dispose();
-					level.objects.remove(box);
+					level.dismissBox();
 				}
 			}
 			else {
-				sound.stop("no_box_effect");
-				sound.play("no_box_effect", "sounds/no_box_effect.wav", false, 0.75f, soundPlay);
+				sound.stop(noBoxKey);
+				playSound(noBoxKey, noBoxSound, false, 0.75f, SoundController.DEFAULT_PRIORITY);
 			}
 		}
 		box.applyForce();
@@ -717,20 +743,17 @@ public class GameController implements Screen, ContactListener {
 		if (box.getDoesExist() && !box.getDeactivated() && dist > BoxModel.OUTER_RADIUS){
 			box.setDeactivated(true);
 			box.deactivate();
-			sound.stop("box_deactivate_effect");
-			sound.play("box_deactivate_effect", "sounds/box_deactivate_effect.wav", false, 0.5f, soundPlay);
+			sound.stop(boxDeactivateKey);
+			playSound(boxDeactivateKey, boxDeactivateSound, false, 0.5f, SoundController.DEFAULT_PRIORITY);
 		}
 
 		// box is GONE
 		if (box.getDoesExist() && dist > BoxModel.GONE_RADIUS){
-			box.setDoesExist(false);
-			box.deactivatePhysics(level.getWorld());
-			box.dispose();
-			level.objects.remove(box);
+			level.dismissBox();
 			if (level.getAchievementType1() == 4){level.setGetAchievement1(true);}
 			if (level.getAchievementType2() == 4){level.setGetAchievement2(true);}
-			sound.stop("box_gone_effect");
-			sound.play("box_gone_effect", "sounds/box_gone_effect.wav", false, 0.5f, soundPlay);
+			sound.stop(boxGoneKey);
+			playSound(boxGoneKey, boxGoneSound, false, 0.5f, SoundController.DEFAULT_PRIORITY);
 		}
 
 
@@ -758,12 +781,38 @@ public class GameController implements Screen, ContactListener {
 			}
 			annette.setMovement(aAngleCache.x,aAngleCache.y);
 		}
+		annette.applyForce();
 
 		// Turn the physics engine crank.
 		level.update(dt);
 		sound.update();
 	}
 
+	/**
+	 * Applies the key events that arrived since the last step to Annette's movement
+	 *
+	 * This is called by the level before each physics step, so a change of direction
+	 * does not wait for the next frame.  The buttons (summoning, the bird and walking in
+	 * place) are still handled once per frame in update.
+	 *
+	 * @param time	the time of the step in nanoseconds
+	 */
+	public void preStep(long time) {
+		InputController input = InputController.getInstance();
+		AnnetteModel annette = level.getAnnette();
+		if (!input.readEvents(time) || annette == null || !annette.isActive()) {
+			return;
+		}
+		if (annette.isWalkingInPlace() && !annette.getBird()) {
+			return;
+		}
+		aAngleCache.set(input.getaHoriz(),input.getaVert());
+		aAngleCache.scl(annette.getForce());
+		annette.setDirection(input.getDirection());
+		annette.setMovement(aAngleCache.x,aAngleCache.y);
+		annette.applyForce();
+	}
+
 	/**
 	 * Draw the physics objects to the canvas
 	 *
@@ -830,7 +879,7 @@ public class GameController implements Screen, ContactListener {
 				if (level.getAchievementType2() == 6){level.setGetAchievement2(false);}
 			}
 			if (!endSoundhasPlayed) {
-				sound.play("win_effect", "sounds/win_effect.wav", false, 0.5f, soundPlay);
+				playSound(winKey, winSound, false, 0.5f, SoundController.HIGH_PRIORITY);
 				endSoundhasPlayed = true;
 			}
 			if (drawHelper.get_win_transition_second_part()) {
@@ -843,7 +892,7 @@ public class GameController implements Screen, ContactListener {
 			drawHelper.drawLevelTransition(canvas,level,1);
 		} else if (failed) {
 			if (!endSoundhasPlayed) {
-				sound.play("lose_effect", "sounds/lose_effect.wav", false, 0.5f, soundPlay);
+				playSound(loseKey, loseSound, false, 0.5f, SoundController.HIGH_PRIORITY);
 				endSoundhasPlayed = true;
 			}
 			if (drawHelper.get_win_transition_second_part()) {
@@ -891,13 +940,21 @@ public class GameController implements Screen, ContactListener {
 	 * We defer to the other methods update() and draw().  However, it is VERY important
 	 * that we only quit AFTER a draw.
 	 *
+	 * The first frame of a level ends its load on the load timeline.
+	 *
 	 * @param delta Number of seconds since last animation frame
 	 */
 	public void render(float delta) {
 		if (active) {
 			if (preUpdate(delta)) {
+				LoadTimeline timeline = LoadTimeline.getInstance();
+				long start = timeline.now();
 				update(delta);
+				timeline.record("frame", "update", start);
+				start = timeline.now();
 				draw(delta);
+				timeline.record("frame", "draw", start);
+				timeline.finish();
 			}
 			else {
 				updatePause(delta);
@@ -931,6 +988,7 @@ public class GameController implements Screen, ContactListener {
 	public void show() {
 		// Useless if called in outside animation loop
 		active = true;
+		InputController.getInstance().setScreenProcessor(null);
 	}
 
 	/**
@@ -1013,70 +1071,18 @@ public class GameController implements Screen, ContactListener {
 				}
 			}
 
-			// checking sensors to see if box can be made
-			if (sf1.contains("annetteDown") || sf2.contains("annetteDown")) {
-				downBox = false; }
-//			else { downBox = true; }
-			if (sf1.contains("annetteUp") || sf2.contains("annetteUp")) { upBox = false; }
-//			else { upBox = true; }
-			if (sf1.contains("annetteRight") || sf2.contains("annetteRight")) { rightBox = false; }
-//			else { rightBox = true; }
-			if (sf1.contains("annetteLeft") || sf2.contains("annetteLeft")) { leftBox = false; }
-//			else { leftBox = true; }
-
-
 			// Check if bird hits box
 			if ((bd1 == distraction && bd2 == box) || (bd1==box && bd2==distraction)) {
 				annette.setBird(false);
-				distraction.setAlive(false);
-//				distraction.deactivatePhysics(level.getWorld());
-//				distraction.dispose();
-				level.objects.remove(distraction);
-			}
-
-			// check for distraction collisions with mazes
-			for (Obstacle b : level.getMazes()) {
-				if ((bd1 == b && bd2 == distraction) || (bd1 == distraction && bd2 == b )) {
-					annette.setBird(false);
-					distraction.setAlive(false);
-//					distraction.deactivatePhysics(level.getWorld());
-//					distraction.dispose();
-					level.objects.remove(distraction);
-				}
+				level.dismissDistraction();
 			}
 
-			// check for distraction collisions with barriers
-			for (Obstacle w : level.getBarriers()) {
-				if ((bd1 == w && bd2 == distraction) || (bd1 == distraction && bd2== w )) {
-					annette.setBird(false);
-					distraction.setAlive(false);
-//					distraction.deactivatePhysics(level.getWorld());
-//					distraction.dispose();
-					level.objects.remove(distraction);
-				}
-			}
-
-			// check annette against mazes
-			for (Obstacle b : level.getMazes()) {
-				if ((bd1 == b && bd2 == annette) || (bd1 == annette && bd2 == b )
-						|| (sf1.contains("center") && bd2 == b) || (sf2.contains("center") && bd1 == b)) {
-					downBox = false;
-					upBox = false;
-					leftBox = false;
-					rightBox = false;
-				}
-			}
-			// check annette against barriers
-			for (Obstacle w : level.getBarriers()) {
-				if ((bd1 == w && bd2 == annette) || (bd1 == annette && bd2== w )) {
-					downBox = false;
-					upBox = false;
-					leftBox = false;
-					rightBox = false;
-				}
+			// check for distraction collisions with mazes and barriers
+			if ((level.isWall(bd1) && bd2 == distraction) || (bd1 == distraction && level.isWall(bd2))) {
+				annette.setBird(false);
+				level.dismissDistraction();
 			}
 
-
 			// check if creature is distracted
 			for (CreatureModel c : level.getCreature()) {
 				if ((bd1 == c && bd2 == distraction) || (bd1 == distraction && bd2 == c )) {
@@ -1086,15 +1092,8 @@ public class GameController implements Screen, ContactListener {
 
 			// check if creature hits barrier
 			for (CreatureModel c : level.getCreature()) {
-				for (Obstacle o : level.getBarriers()) {
-					if ((bd1 == c && bd2 == o) || (bd1 == o && bd2 == c)) {
-						c.setStuck(true);
-					}
-				}
-				for (Obstacle o : level.getMazes()) {
-					if ((bd1 == c && bd2 == o) || (bd1 == o && bd2 == c)) {
-						c.setStuck(true);
-					}
+				if ((bd1 == c && level.isWall(bd2)) || (level.isWall(bd1) && bd2 == c)) {
+					c.setStuck(true);
 				}
 				if ((bd1 == c && bd2 == box) || (bd1 == box && bd2 == c)) {
 					c.setStuck(true);
@@ -1124,8 +1123,8 @@ public class GameController implements Screen, ContactListener {
 				box.setDeactivating(false);
 				box.reactivate();
 				level.setAlpha(255);
-				sound.stop("box_effect");
-				sound.play("box_effect", "sounds/box_effect.wav", false, 0.8f, soundPlay);
+				sound.stop(boxKey);
+				playSound(boxKey, boxSound, false, 0.8f, SoundController.DEFAULT_PRIORITY);
 			}
 
 		} catch (Exception e) {
@@ -1134,12 +1133,34 @@ public class GameController implements Screen, ContactListener {
 
 	}
 
+	/**
+	 * Plays a sound effect, if sound effects are on
+	 *
+	 * @param key		The voice key of the sound effect
+	 * @param handle	The handle of the sound effect
+	 * @param loop		Whether to loop the sound
+	 * @param volume	The sound volume in the range [0,1]
+	 * @param priority	The priority of the sound effect
+	 */
+	private void playSound(int key, int handle, boolean loop, float volume, int priority) {
+		if (soundPlay) {
+			sound.play(key, handle, loop, volume, 0.0f, priority);
+		}
+	}
+
 	public void createAIControllers(){
 		if (AIcontrollers.size == 0) {
+			LoadTimeline timeline = LoadTimeline.getInstance();
+			long start = timeline.now();
 			for (CreatureModel c : level.getCreature()) {
 				AIController controller = new AIController(c, level);
 				AIcontrollers.add(controller);
+				Entity entity = level.getEntity(c);
+				if (entity != null) {
+					entity.add(new AIComponent(controller));
+				}
 			}
+			timeline.record("ai", "create AI controllers", start);
 		}
 	}
 
@@ -1160,48 +1181,7 @@ public class GameController implements Screen, ContactListener {
 	}
 
 	/** Unused ContactListener method */
-	public void endContact(Contact contact) {
-		Fixture fix1 = contact.getFixtureA();
-		Fixture fix2 = contact.getFixtureB();
-
-		Body body1 = fix1.getBody();
-		Body body2 = fix2.getBody();
-
-		Object fd1 = fix1.getUserData();
-		Object fd2 = fix2.getUserData();
-
-		try {
-			Obstacle bd1 = (Obstacle) body1.getUserData();
-			Obstacle bd2 = (Obstacle) body2.getUserData();
-
-			String sf1 = "";
-			String sf2 = "";
-
-			if (fd1 != null) {
-				sf1 = (String) fd1;
-			}
-			if (fd2 != null) {
-				sf2 = (String) fd2;
-			}
-
-			AnnetteModel annette = level.getAnnette();
-//			BoxModel box = level.getBox();
-
-			// checking sensors to see if box can be made
-			if (!sf1.contains("annetteDown") && !sf2.contains("annetteDown")) {
-				downBox = true; }
-//			else { downBox = true; }
-			if (!sf1.contains("annetteUp") && !sf2.contains("annetteUp")) { upBox = true; }
-//			else { upBox = true; }
-			if (!sf1.contains("annetteRight") && !sf2.contains("annetteRight")) { rightBox = true; }
-//			else { rightBox = true; }
-			if (!sf1.contains("annetteLeft") && !sf2.contains("annetteLeft")) { leftBox = true; }
-//			else { leftBox = true; }
-
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-	}
+	public void endContact(Contact contact) {}
 	/** Unused ContactListener method */
 	public void postSolve(Contact contact, ContactImpulse impulse) {}
 	/** Unused ContactListener method */
@@ -26,6 +26,8 @@ import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
 import edu.cornell.gdiac.physics.obstacle.ObstacleCanvas;
 import edu.cornell.gdiac.util.ScreenListener;
 import edu.cornell.gdiac.util.SoundController;
+import edu.cornell.gdiac.util.SoundRegistry;
+import edu.cornell.gdiac.util.TextureRegistry;
 
 import javax.xml.soap.Text;
 
@@ -53,6 +55,12 @@ public class HelpMode implements Screen, ControllerListener, ContactListener, In
 //    private Texture playButton;
     private Texture quitButton;
     private Texture exitButton;
+    /** The help page on screen (null for the top menu) */
+    private Texture page;
+    /** The file of the help page on screen */
+    private String pageFile;
+    /** The shared textures for all screens */
+    private TextureRegistry textures = TextureRegistry.getInstance();
     private int controlState;
     private int creatureState;
     private int quitState;
@@ -89,11 +97,11 @@ public class HelpMode implements Screen, ControllerListener, ContactListener, In
     private SoundController sound = SoundController.getInstance();
 
 //    Sound startSound = Gdx.audio.newSound(Gdx.files.internal("sounds/select_effect.wav"));
-    Sound menuSound = Gdx.audio.newSound(Gdx.files.internal("sounds/seen_effect.wav"));
+    Sound menuSound = SoundRegistry.getInstance().acquire(this, "sounds/seen_effect.wav");
 
     public HelpMode(ObstacleCanvas drawcanvas) {
         canvas = drawcanvas;
-        background = new Texture(BACKGROUND_FILE);
+        background = textures.acquire(this, BACKGROUND_FILE);
         controlState = 0;
         creatureState = 0;
         quitState = 0;
@@ -104,9 +112,8 @@ public class HelpMode implements Screen, ControllerListener, ContactListener, In
 
 //        exitButton = null;
 //        playButton = null;
-        quitButton = new Texture(BACK_FILE);
-        quitButton.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
-        exitButton= new Texture(MENU_FILE);
+        quitButton = textures.acquire(this, BACK_FILE);
+        exitButton= textures.acquire(this, MENU_FILE);
         exitButton.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
         active = false;
         showControls = false;
@@ -120,9 +127,27 @@ public class HelpMode implements Screen, ControllerListener, ContactListener, In
 
     }
 
+    /**
+     * Resets this screen so that it can be shown again
+     *
+     * GDXRoot keeps this screen between visits, so this returns to the top menu
+     * of the help instead of rebuilding the screen.
+     */
     public void reset() {
         controlState = 0;
         creatureState = 0;
+        quitState = 0;
+        snailState = 0;
+        tarasqueState = 0;
+        ladyState = 0;
+        exitState = 0;
+        showControls = false;
+        showCreatureSelect = false;
+        showHelp = true;
+        showLady = false;
+        showSnail = false;
+        showTarasque = false;
+        showExit = true;
 //        dispose();
 //        if (stage != null) {
 //            playbutton = null;
@@ -142,10 +167,32 @@ public class HelpMode implements Screen, ControllerListener, ContactListener, In
     }
 
     public void dispose() {
-        if (background != null) {
-            background.dispose();
-            background = null;
+        textures.releaseAll(this);
+        SoundRegistry.getInstance().releaseAll(this);
+        background = null;
+        quitButton = null;
+        exitButton = null;
+        page = null;
+        pageFile = null;
+    }
+
+    /**
+     * Sets the help page to draw behind the buttons
+     *
+     * Only the page on screen is held, so the other pages do not take up memory
+     * while they are not shown.
+     *
+     * @param file  The image for the help page
+     */
+    private void showPage(String file) {
+        if (file.equals(pageFile)) {
+            return;
         }
+        if (pageFile != null) {
+            textures.release(this, pageFile);
+        }
+        page = textures.acquire(this, file);
+        pageFile = file;
     }
 
     public void show() {
@@ -278,11 +325,6 @@ public class HelpMode implements Screen, ControllerListener, ContactListener, In
 //        if (stage == null) {
 //            create();
 //        }
-        if (quitButton != null && toControls()) {
-//            System.out.println("quit button");
-            quitButton = new Texture(BACK_FILE);
-            quitButton.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
-        }
 //        if (playButton == null) {
 //            playButton = new Texture(PLAY_BTN_FILE);
 //            playButton.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
@@ -313,7 +355,8 @@ public class HelpMode implements Screen, ControllerListener, ContactListener, In
         }
         else if (showControls) {
 //            System.out.println(quitButton == null);
-            canvas.draw(new Texture(CONTROLS_FILE), Color.WHITE, 0, 0, 0, 0, 0, 1f, 1f);
+            showPage(CONTROLS_FILE);
+            canvas.draw(page, Color.WHITE, 0, 0, 0, 0, 0, 1f, 1f);
             if (quitButton != null) {
 //                System.out.println("here");
                 Color tint2 = (creatureState == 1 ? Color.GRAY : Color.WHITE);
@@ -322,7 +365,8 @@ public class HelpMode implements Screen, ControllerListener, ContactListener, In
             }
         }
         else if (showCreatureSelect) {
-            canvas.draw(new Texture(CREATURE_SELECTION_FILE), Color.WHITE, 0, 0, 0, 0, 0, 1f, 1f);
+            showPage(CREATURE_SELECTION_FILE);
+            canvas.draw(page, Color.WHITE, 0, 0, 0, 0, 0, 1f, 1f);
             if (exitButton != null) {
 //                System.out.println("here");
                 Color tint2 = (exitState == 1 ? Color.WHITE : Color.BLACK);
@@ -331,7 +375,8 @@ public class HelpMode implements Screen, ControllerListener, ContactListener, In
             }
         }
         else if (showSnail) {
-            canvas.draw(new Texture(LOU_CARCOLH_FILE), Color.WHITE, 0,0,0,0,0,1,1);
+            showPage(LOU_CARCOLH_FILE);
+            canvas.draw(page, Color.WHITE, 0,0,0,0,0,1,1);
             if (quitButton != null) {
 //                System.out.println("here");
                 Color tint2 = (creatureState == 1 ? Color.GRAY : Color.WHITE);
@@ -340,7 +385,8 @@ public class HelpMode implements Screen, ControllerListener, ContactListener, In
             }
         }
         else if (showTarasque) {
-            canvas.draw(new Texture(TARASQUE_FILE), Color.WHITE, 0,0,0,0,0,1,1);
+            showPage(TARASQUE_FILE);
+            canvas.draw(page, Color.WHITE, 0,0,0,0,0,1,1);
             if (quitButton != null) {
 //                System.out.println("here");
                 Color tint2 = (creatureState == 1 ? Color.GRAY : Color.WHITE);
@@ -349,7 +395,8 @@ public class HelpMode implements Screen, ControllerListener, ContactListener, In
             }
         }
         else if (showLady) {
-            canvas.draw(new Texture(DAME_BLANCHE_FILE), Color.WHITE, 0,0,0,0,0,1,1);
+            showPage(DAME_BLANCHE_FILE);
+            canvas.draw(page, Color.WHITE, 0,0,0,0,0,1,1);
             if (quitButton != null) {
 //                System.out.println("here");
                 Color tint2 = (creatureState == 1 ? Color.GRAY : Color.WHITE);
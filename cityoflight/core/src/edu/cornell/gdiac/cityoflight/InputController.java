@@ -10,10 +10,16 @@
  * Author: Walker M. White
  * Based on original PhysicsDemo Lab by Don Holden, 2007
  * B2Lights version, 3/12/2016
+ *
+ * The keyboard is no longer polled once per frame.  Key presses and releases are queued
+ * (with their times) as they arrive, and are applied when the game asks for them.  The
+ * physics applies them before each of its steps, so movement does not wait for the next
+ * frame, and a key that is pressed and released within a single frame is not lost.
  */
 package edu.cornell.gdiac.cityoflight;
 
 import com.badlogic.gdx.*;
+import com.badlogic.gdx.utils.TimeUtils;
 
 import edu.cornell.gdiac.util.XBox360Controller;
 
@@ -23,8 +29,12 @@ import edu.cornell.gdiac.util.XBox360Controller;
  * This supports both a keyboard and X-Box controller. In previous solutions, we only 
  * detected the X-Box controller on start-up.  This class allows us to hot-swap in
  * a controller via the new XBox360Controller class.
+ *
+ * The keyboard is read through the InputProcessor interface.  The game screens must
+ * install this controller with setScreenProcessor, which puts it ahead of the screen's
+ * own processor (it never consumes an event).
  */
-public class InputController {
+public class InputController implements InputProcessor {
 	/** The singleton instance of the input controller */
 	private static InputController theController = null;
 
@@ -69,6 +79,45 @@ public class InputController {
 
 	private float ANNETTE_DEFAULT_SPEED = 1.2f;
 
+	/** The number of key events that can wait in the queue */
+	private static final int QUEUE_SIZE = 64;
+	/** The number of key codes tracked */
+	private static final int KEY_COUNT = 256;
+	/** The keys read by the game (synced when the controller is installed) */
+	private static final int[] GAME_KEYS = {Input.Keys.R, Input.Keys.O, Input.Keys.ESCAPE,
+			Input.Keys.SPACE, Input.Keys.X, Input.Keys.P, Input.Keys.SHIFT_LEFT,
+			Input.Keys.SHIFT_RIGHT, Input.Keys.M, Input.Keys.RIGHT, Input.Keys.LEFT,
+			Input.Keys.UP, Input.Keys.DOWN};
+
+	// Fields to manage the event queue (a ring buffer, so nothing is allocated)
+	/** The key code of each queued event */
+	private int[] eventKeys;
+	/** Whether each queued event is a press (as opposed to a release) */
+	private boolean[] eventDown;
+	/** The time of each queued event, in nanoseconds (from TimeUtils.nanoTime) */
+	private long[] eventTimes;
+	/** The index of the oldest queued event */
+	private int eventHead;
+	/** The number of queued events */
+	private int eventCount;
+	/** The processor installed by setScreenProcessor */
+	private InputMultiplexer multiplexer;
+
+	// Fields to manage the keyboard state built from the events
+	/** Whether each key is held down */
+	private boolean[] held;
+	/** Whether each key went down since the last call to readInput */
+	private boolean[] struck;
+	/** Whether each key went down in the last batch of events applied */
+	private boolean[] tapped;
+	/** Whether any key went down since the taps were last cleared */
+	private boolean anyTapped;
+	/** Whether a physics step has seen the taps (so they can be cleared) */
+	private boolean tapStepped;
+	/** The gamepad stick (kept apart so that the keyboard can be reapplied) */
+	private float padHoriz;
+	private float padVert;
+
 	/** the arrow key (for movement) that was last pressed */
 	int lastPressedKey;
 
@@ -199,6 +248,45 @@ public class InputController {
 	public InputController() { 
 		// If we have a game-pad for id, then use it.
 		xbox = new XBox360Controller(0);
+
+		eventKeys = new int[QUEUE_SIZE];
+		eventDown = new boolean[QUEUE_SIZE];
+		eventTimes = new long[QUEUE_SIZE];
+		held = new boolean[KEY_COUNT];
+		struck = new boolean[KEY_COUNT];
+		tapped = new boolean[KEY_COUNT];
+		multiplexer = new InputMultiplexer();
+	}
+
+	/**
+	 * Installs this controller ahead of the given screen processor
+	 *
+	 * This replaces the current processor of Gdx.input.  Key events that happened while
+	 * this controller was not installed were never seen, so the held keys are reset
+	 * from the keyboard state.
+	 *
+	 * @param processor	the processor of the screen (may be null)
+	 */
+	public void setScreenProcessor(InputProcessor processor) {
+		multiplexer.clear();
+		multiplexer.addProcessor(this);
+		if (processor != null) {
+			multiplexer.addProcessor(processor);
+		}
+		Gdx.input.setInputProcessor(multiplexer);
+
+		eventHead = 0;
+		eventCount = 0;
+		anyTapped = false;
+		tapStepped = false;
+		for (int ii = 0; ii < KEY_COUNT; ii++) {
+			held[ii] = false;
+			struck[ii] = false;
+			tapped[ii] = false;
+		}
+		for (int key : GAME_KEYS) {
+			held[key] = Gdx.input.isKeyPressed(key);
+		}
 	}
 
 	public AnnetteModel.Direction getDirection() { return this.direction; }
@@ -206,6 +294,9 @@ public class InputController {
 	 * Reads the input for the player and converts the result into game logic.
 	 */
 	public void readInput() {
+		// Apply every event up to now
+		applyEvents(TimeUtils.nanoTime());
+
 		// Copy state from last animation frame
 		// Helps us ignore buttons that are held down
 		resetPrevious  = resetPressed;
@@ -224,7 +315,41 @@ public class InputController {
 		} else {
 			readKeyboard(false);
 		}
-}
+		for (int key : GAME_KEYS) {
+			struck[key] = false;
+		}
+	}
+
+	/**
+	 * Applies the key events up to the given time, updating the movement
+	 *
+	 * This is called before each physics step, with the time that the step catches up
+	 * to.  It only changes the movement (the arrow keys); the buttons are read once per
+	 * frame by readInput.  An arrow key that was pressed and released before a step
+	 * still moves Annette for that one step.
+	 *
+	 * @param time	the time of the last event to apply, in nanoseconds
+	 *
+	 * @return true if the movement may have changed
+	 */
+	public boolean readEvents(long time) {
+		boolean changed = false;
+		if (tapStepped) {
+			// The last step saw the taps, so they are over
+			for (int key : GAME_KEYS) {
+				tapped[key] = false;
+			}
+			anyTapped = false;
+			tapStepped = false;
+			changed = true;
+		}
+		changed = applyEvents(time) || changed;
+		tapStepped = anyTapped;
+		if (changed) {
+			readMovement(xbox.isConnected());
+		}
+		return changed;
+	}
 
 	/**
 	 * Reads input from an X-Box controller connected to this computer.
@@ -240,8 +365,8 @@ public class InputController {
 		debugPressed  = xbox.getY();
 
 		// Increase animation frame, but only if trying to move
-		aHoriz = xbox.getLeftX();
-		aVert   = xbox.getLeftY();
+		padHoriz = xbox.getLeftX();
+		padVert  = xbox.getLeftY();
 	}
 
 	/**
@@ -255,24 +380,34 @@ public class InputController {
 	 */
 	private void readKeyboard(boolean secondary) {
 		// Give priority to gamepad results
-		resetPressed = (secondary && resetPressed) || (Gdx.input.isKeyPressed(Input.Keys.R));
-		debugPressed = (secondary && debugPressed) || (Gdx.input.isKeyPressed(Input.Keys.O));
-		exitPressed  = (secondary && exitPressed) || (Gdx.input.isKeyPressed(Input.Keys.ESCAPE));
-		spacePressed = (secondary && spacePressed) || (Gdx.input.isKeyPressed(Input.Keys.SPACE));
-		xPressed = (secondary && xPressed) || (Gdx.input.isKeyPressed(Input.Keys.X));
-		pausePressed = (secondary && pausePressed) || (Gdx.input.isKeyPressed(Input.Keys.P));
-		shiftPressed = (secondary && shiftPressed) || (Gdx.input.isKeyPressed(Input.Keys.SHIFT_LEFT) || (Gdx.input.isKeyPressed(Input.Keys.SHIFT_RIGHT)));
-		mPressed = (secondary && mPressed) || (Gdx.input.isKeyPressed(Input.Keys.M));
+		resetPressed = (secondary && resetPressed) || isDown(Input.Keys.R);
+		debugPressed = (secondary && debugPressed) || isDown(Input.Keys.O);
+		exitPressed  = (secondary && exitPressed) || isDown(Input.Keys.ESCAPE);
+		spacePressed = (secondary && spacePressed) || isDown(Input.Keys.SPACE);
+		xPressed = (secondary && xPressed) || isDown(Input.Keys.X);
+		pausePressed = (secondary && pausePressed) || isDown(Input.Keys.P);
+		shiftPressed = (secondary && shiftPressed) || (isDown(Input.Keys.SHIFT_LEFT) || isDown(Input.Keys.SHIFT_RIGHT));
+		mPressed = (secondary && mPressed) || isDown(Input.Keys.M);
+		readMovement(secondary);
+	}
+
+	/**
+	 * Reads the movement from the arrow keys.
+	 *
+	 * The keyboard movement is added to the gamepad stick if secondary is true.
+	 *
+	 * @param secondary true if the keyboard should give priority to a gamepad
+	 */
+	private void readMovement(boolean secondary) {
 		// Annette Directional controls
-		aHoriz = (secondary ? aHoriz : 0.0f);
-		aVert = (secondary ? aVert : 0.0f);
+		aHoriz = (secondary ? padHoriz : 0.0f);
+		aVert = (secondary ? padVert : 0.0f);
 
 		// If more than one direction is pressed, the one last pressed has precedence.
-		findLastKey();
-		boolean rightPressed = Gdx.input.isKeyPressed(Input.Keys.RIGHT);
-		boolean leftPressed = Gdx.input.isKeyPressed(Input.Keys.LEFT);
-		boolean upPressed = Gdx.input.isKeyPressed(Input.Keys.UP);
-		boolean downPressed = Gdx.input.isKeyPressed(Input.Keys.DOWN);
+		boolean rightPressed = isMoving(Input.Keys.RIGHT);
+		boolean leftPressed = isMoving(Input.Keys.LEFT);
+		boolean upPressed = isMoving(Input.Keys.UP);
+		boolean downPressed = isMoving(Input.Keys.DOWN);
 
 
 		if(shiftPressed && shiftPrevious) {
@@ -304,25 +439,25 @@ public class InputController {
 				this.direction = AnnetteModel.Direction.DOWN;
 			} else {
 
-				if (Gdx.input.isKeyPressed(Input.Keys.RIGHT) && lastPressedKey == Input.Keys.RIGHT) {
+				if (rightPressed && lastPressedKey == Input.Keys.RIGHT) {
 //					bHoriz -= 0.05f;
 					bHoriz -= ANNETTE_DEFAULT_SPEED;
 					cHoriz -= 0.02f;
 					this.direction = AnnetteModel.Direction.RIGHT;
 				}
-				if (Gdx.input.isKeyPressed(Input.Keys.LEFT) && lastPressedKey == Input.Keys.LEFT) {
+				if (leftPressed && lastPressedKey == Input.Keys.LEFT) {
 //					bHoriz += 0.05f;
 					bHoriz += ANNETTE_DEFAULT_SPEED;
 					cHoriz += 0.02f;
 					this.direction = AnnetteModel.Direction.LEFT;
 				}
-				if (Gdx.input.isKeyPressed(Input.Keys.UP) && lastPressedKey == Input.Keys.UP) {
+				if (upPressed && lastPressedKey == Input.Keys.UP) {
 //					bVert -= 0.05f;
 					bVert -= ANNETTE_DEFAULT_SPEED;
 					cVert -= 0.02f;
 					this.direction = AnnetteModel.Direction.UP;
 				}
-				if (Gdx.input.isKeyPressed(Input.Keys.DOWN) && lastPressedKey == Input.Keys.DOWN) {
+				if (downPressed && lastPressedKey == Input.Keys.DOWN) {
 //					bVert += 0.05f;
 					bVert += ANNETTE_DEFAULT_SPEED;
 					cVert += 0.02f;
@@ -346,19 +481,19 @@ public class InputController {
 				this.direction = AnnetteModel.Direction.DOWN;
 			} else {
 
-				if (Gdx.input.isKeyPressed(Input.Keys.RIGHT) && lastPressedKey == Input.Keys.RIGHT) {
+				if (rightPressed && lastPressedKey == Input.Keys.RIGHT) {
 					aHoriz += ANNETTE_DEFAULT_SPEED;
 					this.direction = AnnetteModel.Direction.RIGHT;
 				}
-				if (Gdx.input.isKeyPressed(Input.Keys.LEFT) && lastPressedKey == Input.Keys.LEFT) {
+				if (leftPressed && lastPressedKey == Input.Keys.LEFT) {
 					aHoriz -= ANNETTE_DEFAULT_SPEED;
 					this.direction = AnnetteModel.Direction.LEFT;
 				}
-				if (Gdx.input.isKeyPressed(Input.Keys.UP) && lastPressedKey == Input.Keys.UP) {
+				if (upPressed && lastPressedKey == Input.Keys.UP) {
 					aVert += ANNETTE_DEFAULT_SPEED;
 					this.direction = AnnetteModel.Direction.UP;
 				}
-				if (Gdx.input.isKeyPressed(Input.Keys.DOWN) && lastPressedKey == Input.Keys.DOWN) {
+				if (downPressed && lastPressedKey == Input.Keys.DOWN) {
 					aVert -= ANNETTE_DEFAULT_SPEED;
 					this.direction = AnnetteModel.Direction.DOWN;
 				}
@@ -368,18 +503,121 @@ public class InputController {
 	}
 
 	/**
-	 * Find the last arrow key that was pressed.
-	 * @return
+	 * Returns true if the key is held, or was pressed since the last readInput
+	 *
+	 * @param key	the key code
+	 *
+	 * @return true if the key is held, or was pressed since the last readInput
+	 */
+	private boolean isDown(int key) {
+		return held[key] || struck[key];
+	}
+
+	/**
+	 * Returns true if the key is held, or was tapped since the last physics step
+	 *
+	 * @param key	the key code
+	 *
+	 * @return true if the key is held, or was tapped since the last physics step
+	 */
+	private boolean isMoving(int key) {
+		return held[key] || (anyTapped && tapped[key]);
+	}
+
+	/**
+	 * Applies the queued key events up to the given time, in order
+	 *
+	 * The arrow key pressed last (in event order) becomes the lastPressedKey.
+	 *
+	 * @param time	the time of the last event to apply, in nanoseconds
+	 *
+	 * @return true if any events were applied
+	 */
+	private boolean applyEvents(long time) {
+		boolean applied = false;
+		while (eventCount > 0 && eventTimes[eventHead] <= time) {
+			applyEvent();
+			applied = true;
+		}
+		return applied;
+	}
+
+	/**
+	 * Removes the oldest event from the queue and applies it to the keyboard state
 	 */
-	private void findLastKey() {
-		if (Gdx.input.isKeyJustPressed(Input.Keys.RIGHT)){
-			lastPressedKey = Input.Keys.RIGHT;
-		} else if (Gdx.input.isKeyJustPressed(Input.Keys.LEFT)){
-			lastPressedKey = Input.Keys.LEFT;
-		} else if (Gdx.input.isKeyJustPressed(Input.Keys.UP)){
-			lastPressedKey = Input.Keys.UP;
-		} else if (Gdx.input.isKeyJustPressed(Input.Keys.DOWN)){
-			lastPressedKey = Input.Keys.DOWN;
+	private void applyEvent() {
+		int key = eventKeys[eventHead];
+		if (eventDown[eventHead]) {
+			held[key] = true;
+			struck[key] = true;
+			tapped[key] = true;
+			anyTapped = true;
+			if (key == Input.Keys.RIGHT || key == Input.Keys.LEFT ||
+				key == Input.Keys.UP || key == Input.Keys.DOWN) {
+				lastPressedKey = key;
+			}
+		} else {
+			held[key] = false;
 		}
+		eventHead = (eventHead+1) % QUEUE_SIZE;
+		eventCount--;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Adds a key event to the queue
+	 *
+	 * If the queue is full, the oldest event is applied early to make room.
+	 *
+	 * @param key	the key code
+	 * @param down	whether the key was pressed (as opposed to released)
+	 */
+	private void queueEvent(int key, boolean down) {
+		if (key < 0 || key >= KEY_COUNT) {
+			return;
+		}
+		if (eventCount == QUEUE_SIZE) {
+			applyEvent();
+		}
+		int index = (eventHead+eventCount) % QUEUE_SIZE;
+		eventKeys[index] = key;
+		eventDown[index] = down;
+		eventTimes[index] = TimeUtils.nanoTime();
+		eventCount++;
+	}
+
+	// INPUT PROCESSOR METHODS (events are queued, but never consumed)
+
+	public boolean keyDown(int keycode) {
+		queueEvent(keycode, true);
+		return false;
+	}
+
+	public boolean keyUp(int keycode) {
+		queueEvent(keycode, false);
+		return false;
+	}
+
+	public boolean keyTyped(char character) {
+		return false;
+	}
+
+	public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+		return false;
+	}
+
+	public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+		return false;
+	}
+
+	public boolean touchDragged(int screenX, int screenY, int pointer) {
+		return false;
+	}
+
+	public boolean mouseMoved(int screenX, int screenY) {
+		return false;
+	}
+
+	public boolean scrolled(int amount) {
+		return false;
+	}
+}
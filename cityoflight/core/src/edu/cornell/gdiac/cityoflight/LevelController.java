@@ -7,6 +7,7 @@ import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.scenes.scene2d.*;
+import com.badlogic.gdx.scenes.scene2d.ui.Button;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.InputProcessor;
@@ -23,6 +24,8 @@ import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import edu.cornell.gdiac.physics.obstacle.ObstacleCanvas;
 import edu.cornell.gdiac.util.FilmStrip;
 import edu.cornell.gdiac.util.ScreenListener;
+import edu.cornell.gdiac.util.SoundRegistry;
+import edu.cornell.gdiac.util.TextureRegistry;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.ApplicationListener;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
@@ -105,6 +108,9 @@ public class LevelController implements Screen, ControllerListener, ContactListe
     private Texture level9hover;
     private Texture level10hover;
 
+    /** The shared textures for all screens */
+    private TextureRegistry textures = TextureRegistry.getInstance();
+
     private ObstacleCanvas canvas;
     private static final String LEVEL_TITLE = "textures/level select assets/levels_title.png";
     private static final String LEVEL_BACKGROUND_FILE = "textures/level select assets/background.png";
@@ -137,8 +143,8 @@ public class LevelController implements Screen, ControllerListener, ContactListe
     private static final String LEVEL_10 ="textures/level select assets/level_10.png";
     private static final String LEVEL_10_HOVER ="textures/level select assets/level_10_hover.png";
 
-    Sound startSound = Gdx.audio.newSound(Gdx.files.internal("sounds/select_effect.wav"));
-    Sound menuSound = Gdx.audio.newSound(Gdx.files.internal("sounds/seen_effect.wav"));
+    Sound startSound = SoundRegistry.getInstance().acquire(this, "sounds/select_effect.wav");
+    Sound menuSound = SoundRegistry.getInstance().acquire(this, "sounds/seen_effect.wav");
 
     private ScreenListener listener;
     private boolean active;
@@ -180,7 +186,7 @@ public class LevelController implements Screen, ControllerListener, ContactListe
 
     public LevelController(ObstacleCanvas drawcanvas) {
         canvas = drawcanvas;
-        background = new Texture(LEVEL_BACKGROUND_FILE);
+        background = textures.acquire(this, LEVEL_BACKGROUND_FILE);
 //        menuButton = new Texture(BACK_FILE);
         active = false;
         pressState = 0;
@@ -221,6 +227,27 @@ public class LevelController implements Screen, ControllerListener, ContactListe
         return menubutton.isPressed();
     }
 
+    /**
+     * Returns the level under the mouse (0 if none)
+     *
+     * The start button counts as the first level, as that is where it goes.
+     *
+     * @return the level under the mouse (0 if none)
+     */
+    public int getHoveredLevel() {
+        if (hover1 || shover) { return 1; }
+        if (hover2) { return 2; }
+        if (hover3) { return 3; }
+        if (hover4) { return 4; }
+        if (hover5) { return 5; }
+        if (hover6) { return 6; }
+        if (hover7) { return 7; }
+        if (hover8) { return 8; }
+        if (hover9) { return 9; }
+        if (hover10) { return 10; }
+        return 0;
+    }
+
     public void setCanvas(ObstacleCanvas canvas) {
         this.canvas = canvas;
     }
@@ -389,110 +416,134 @@ public class LevelController implements Screen, ControllerListener, ContactListe
         if (stage == null) {
             create();
         }
+        preloadAll();
+    }
+
+    /**
+     * Acquires every texture of this screen that is not loaded yet
+     *
+     * This finishes whatever preload() did not get to while the menu was up.
+     */
+    public void preloadAll() {
+        boolean done = false;
+        while (!done) {
+            done = preload();
+        }
+    }
+
+    /**
+     * Acquires the next texture of this screen that is not loaded yet
+     *
+     * Each call uploads at most one texture, so GDXRoot can warm this screen over
+     * several frames while the menu is up.  The screen then opens without a hitch.
+     *
+     * @return true if all of the textures were already loaded
+     */
+    public boolean preload() {
         if (title == null) {
-            title = new Texture(LEVEL_TITLE);
-            title.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            title = textures.acquire(this, LEVEL_TITLE);
+            return false;
         }
         if (menutex == null) {
-            menutex = new Texture(BACK_FILE);
-            menutex.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            menutex = textures.acquire(this, BACK_FILE);
+            return false;
         }
         if (menuhovtex == null) {
-            menuhovtex = new Texture(BACK_HOVER);
-            menuhovtex.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            menuhovtex = textures.acquire(this, BACK_HOVER);
+            return false;
         }
         if (starttex == null) {
-            starttex = new Texture(START_FILE);
-            starttex.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            starttex = textures.acquire(this, START_FILE);
+            return false;
         }
         if (starthovtex == null) {
-            starthovtex = new Texture(START_HOVER);
-            starthovtex.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            starthovtex = textures.acquire(this, START_HOVER);
+            return false;
         }
         if (level1tex == null) {
-            level1tex = new Texture(LEVEL_1);
-            level1tex.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level1tex = textures.acquire(this, LEVEL_1);
+            return false;
 //            create();
         }
         if (level1hover == null) {
-            level1hover = new Texture(LEVEL_1_HOVER);
-            level1hover.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level1hover = textures.acquire(this, LEVEL_1_HOVER);
+            return false;
         }
         if (level2tex == null) {
-            level2tex = new Texture(LEVEL_2);
-            level2tex.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level2tex = textures.acquire(this, LEVEL_2);
+            return false;
         }
         if (level2hover == null) {
-            level2hover = new Texture(LEVEL_2_HOVER);
-            level2hover.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level2hover = textures.acquire(this, LEVEL_2_HOVER);
+            return false;
         }
         if (level3tex == null) {
-            level3tex = new Texture(LEVEL_3);
-            level3tex.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level3tex = textures.acquire(this, LEVEL_3);
+            return false;
         }
         if (level3hover == null) {
-            level3hover = new Texture(LEVEL_3_HOVER);
-            level3hover.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level3hover = textures.acquire(this, LEVEL_3_HOVER);
+            return false;
         }
         if (level4tex == null) {
-            level4tex = new Texture(LEVEL_4);
-            level4tex.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level4tex = textures.acquire(this, LEVEL_4);
+            return false;
         }
         if (level4hover == null) {
-            level4hover = new Texture(LEVEL_4_HOVER);
-            level4hover.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level4hover = textures.acquire(this, LEVEL_4_HOVER);
+            return false;
         }
         if (level5tex == null) {
-            level5tex = new Texture(LEVEL_5);
-            level5tex.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level5tex = textures.acquire(this, LEVEL_5);
+            return false;
         }
         if (level5hover == null) {
-            level5hover = new Texture(LEVEL_5_HOVER);
-            level5hover.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level5hover = textures.acquire(this, LEVEL_5_HOVER);
+            return false;
         }
         if (level6tex == null) {
-            level6tex = new Texture(LEVEL_6);
-            level6tex.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level6tex = textures.acquire(this, LEVEL_6);
+            return false;
         }
         if (level6hover == null) {
-            level6hover = new Texture(LEVEL_6_HOVER);
-            level6hover.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level6hover = textures.acquire(this, LEVEL_6_HOVER);
+            return false;
         }
         if (level7tex == null) {
-            level7tex = new Texture(LEVEL_7);
-            level7tex.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level7tex = textures.acquire(this, LEVEL_7);
+            return false;
         }
         if (level7hover == null) {
-            level7hover = new Texture(LEVEL_7_HOVER);
-            level7hover.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level7hover = textures.acquire(this, LEVEL_7_HOVER);
+            return false;
         }
         if (level8tex == null) {
-            level8tex = new Texture(LEVEL_8);
-            level8tex.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level8tex = textures.acquire(this, LEVEL_8);
+            return false;
         }
         if (level8hover == null) {
-            level8hover = new Texture(LEVEL_8_HOVER);
-            level8hover.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level8hover = textures.acquire(this, LEVEL_8_HOVER);
+            return false;
         }
         if (level9tex == null) {
-            level9tex = new Texture(LEVEL_9);
-            level9tex.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level9tex = textures.acquire(this, LEVEL_9);
+            return false;
         }
         if (level9hover == null) {
-            level9hover = new Texture(LEVEL_9_HOVER);
-            level9hover.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level9hover = textures.acquire(this, LEVEL_9_HOVER);
+            return false;
         }
         if (level10tex == null) {
-            level10tex = new Texture(LEVEL_10);
-            level10tex.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level10tex = textures.acquire(this, LEVEL_10);
+            return false;
         }
         if (level10hover == null) {
-            level10hover = new Texture(LEVEL_10_HOVER);
-            level10hover.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            level10hover = textures.acquire(this, LEVEL_10_HOVER);
+            return false;
         }
         if (locktex == null) {
-            locktex = new Texture(LOCK_FILE);
-            locktex.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            locktex = textures.acquire(this, LOCK_FILE);
+            return false;
         }
 //        if (level6tex == null) {
 //            level6tex = new Texture(LEVEL_6);
@@ -502,13 +553,13 @@ public class LevelController implements Screen, ControllerListener, ContactListe
 //            level6hover = new Texture(LEVEL_6_HOVER);
 //            level6hover.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
 //        }
-
+        return true;
     }
 
     public void setActive(boolean val) {
         active = val;
         if (active) {
-            Gdx.input.setInputProcessor(this);
+            Gdx.input.setInputProcessor(stage != null ? stage : this);
         }
     }
 
@@ -919,32 +970,47 @@ public class LevelController implements Screen, ControllerListener, ContactListe
         if (stage != null) {
             stage.dispose();
         }
-        if (background != null) {
-            background.dispose();
-            background = null;
-        }
-        if (menutex != null){
-            menutex.dispose();
-            menutex = null;
-        }
-        if (menuhovtex != null){
-            menuhovtex.dispose();
-            menuhovtex = null;
-        }
-        if (starttex != null){
-            starttex.dispose();
-            starttex = null;
-        }
-        if (starthovtex != null){
-            starthovtex.dispose();
-            starthovtex = null;
-        }
+        textures.releaseAll(this);
+        SoundRegistry.getInstance().releaseAll(this);
+        background = null;
+        title = null;
+        locktex = null;
+        menutex = null;
+        menuhovtex = null;
+        starttex = null;
+        starthovtex = null;
+        level1tex = null;
+        level2tex = null;
+        level3tex = null;
+        level4tex = null;
+        level5tex = null;
+        level6tex = null;
+        level7tex = null;
+        level8tex = null;
+        level9tex = null;
+        level10tex = null;
+        level1hover = null;
+        level2hover = null;
+        level3hover = null;
+        level4hover = null;
+        level5hover = null;
+        level6hover = null;
+        level7hover = null;
+        level8hover = null;
+        level9hover = null;
+        level10hover = null;
         pressState = 0;
         active = false;
-        batch.dispose();
+        if (batch != null) {
+            batch.dispose();
+            batch = null;
+        }
 //        buttonSkin.dispose();
 //        buttonsAtlas.dispose();
-        font.dispose();
+        if (font != null) {
+            font.dispose();
+            font = null;
+        }
 //        stage.dispose();
     }
     public void show() {
@@ -960,12 +1026,45 @@ public class LevelController implements Screen, ControllerListener, ContactListe
         // TODO Auto-generated method stub
     }
 
+    /**
+     * Resets this screen so that it can be shown again
+     *
+     * GDXRoot keeps this screen between visits, so this clears the button and hover
+     * state of the last visit instead of rebuilding the stage and textures.
+     *
+     * @param canvas the canvas associated with this controller
+     */
     public void reset(ObstacleCanvas canvas) {
 //        dispose();
-        background = new Texture(LEVEL_BACKGROUND_FILE);
+        if (background == null) {
+            background = textures.acquire(this, LEVEL_BACKGROUND_FILE);
+        }
 //        menuButton = new Texture(BACK_FILE);
         setCanvas(canvas);
 //        setActive(true);
+        pressState = 0;
+        startState = 0;
+        mhover = false;
+        shover = false;
+        hover1 = false;
+        hover2 = false;
+        hover3 = false;
+        hover4 = false;
+        hover5 = false;
+        hover6 = false;
+        hover7 = false;
+        hover8 = false;
+        hover9 = false;
+        hover10 = false;
+        if (stage != null) {
+            // The button that sent us away never saw its touch up
+            stage.cancelTouchFocus();
+            for (Actor actor : stage.getActors()) {
+                if (actor instanceof Button) {
+                    ((Button)actor).getClickListener().cancel();
+                }
+            }
+        }
     }
 
     /**
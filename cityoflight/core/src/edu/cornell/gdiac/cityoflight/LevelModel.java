@@ -30,6 +30,8 @@ package edu.cornell.gdiac.cityoflight;
 
 import box2dLight.*;
 
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.*;
@@ -37,6 +39,7 @@ import com.badlogic.gdx.utils.*;
 import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.physics.box2d.*;
 
+import edu.cornell.gdiac.cityoflight.ecs.*;
 import edu.cornell.gdiac.util.*;
 import edu.cornell.gdiac.physics.lights.*;
 import edu.cornell.gdiac.physics.obstacle.*;
@@ -64,6 +67,8 @@ public class LevelModel {
 	private AnnetteModel annette;
 	/** Reference to the creatures */
 	private Array<CreatureModel> creatures = new Array<CreatureModel>();
+	/** The largest width or height of any creature (for spatial queries) */
+	private float creatureExtent;
 	/** Reference to the goalDoor (for collision detection) */
 	private ExitModel goalDoor;
 	/** Reference to the box */
@@ -78,6 +83,10 @@ public class LevelModel {
 
 	/** The interior models */
 	private ArrayList<Obstacle> mazes = new ArrayList<Obstacle>();
+	/** The static rectangles waiting to be compiled into the interior models */
+	private Array<InteriorModel> staticBlocks = new Array<InteriorModel>();
+	/** The compiled static bodies (for sweeping kinematic creatures) */
+	private Array<StaticGeometryModel> staticGeometry = new Array<StaticGeometryModel>();
 	/** The exterior models */
 	private ArrayList<Obstacle> barriers = new ArrayList<Obstacle>();
 	/** Reference to the interior models */
@@ -93,7 +102,30 @@ public class LevelModel {
 	public static final float TRANSLATION = -64;
 
 	/** All the objects in the world. */
-	protected ArrayList<Obstacle> objects  = new ArrayList<Obstacle>();
+	protected ObstacleStore objects  = new ObstacleStore();
+	/** The objects near the camera, in drawing order (rebuilt every frame) */
+	private Array<Obstacle> drawOrder = new Array<Obstacle>(true, 64, Obstacle.class);
+	/** How far (in physics units) a sprite may reach beyond the bounds of its body */
+	static final float CULL_MARGIN = 4.0f;
+	/** The area (in physics units) seen by the camera, padded by CULL_MARGIN */
+	private Rectangle viewBounds = new Rectangle();
+	/** Orders objects from the highest lowest point to the lowest */
+	private Comparator<Obstacle> drawComparator = new Comparator<Obstacle>() {
+		public int compare(Obstacle a, Obstacle b) {
+			int result = Float.compare(b.getLowestY(), a.getLowestY());
+			if (result == 0) {
+				// Break ties the same way every frame, so that nothing flickers
+				int ha = objects.getHandle(a);
+				int hb = objects.getHandle(b);
+				result = ha < hb ? -1 : (ha == hb ? 0 : 1);
+			}
+			return result;
+		}
+	};
+	/** The width and height (in physics units) of a cell of the spatial index */
+	private static final float GRID_CELL_SIZE = 4.0f;
+	/** The spatial index of the objects in the world (rebuilt for each level) */
+	private ObstacleGrid grid;
 
 	// LET THE TIGHT COUPLING BEGIN
 	/** The Box2D world */
@@ -133,6 +165,10 @@ public class LevelModel {
 	private float normal_r, normal_g, normal_b, normal_alp;
 
 	// TO FIX THE TIMESTEP
+	/** The default number of physics steps per second */
+	public static final int DEFAULT_PHYSICS_FPS = 60;
+	/** The slowest frame rate that physics will try to keep up with */
+	public static final int DEFAULT_MIN_FPS = 20;
 	/** The maximum frames per second setting for this level */
 	protected int maxFPS;
 	/** The minimum frames per second setting for this level */
@@ -145,6 +181,49 @@ public class LevelModel {
 	protected float maxTimePerFrame;
 	/** The amount of time that has passed without updating the frame */
 	protected float physicsTimeLeft;
+	/** The number of physics steps taken since the level was populated */
+	protected int stepCount;
+	/** The listener told before each physics step (may be null) */
+	private StepListener stepListener;
+	/** The entity engine, whose systems run after each stepped frame */
+	private Engine engine = createEngine();
+	/** The entity of each model in the engine */
+	private ObjectMap<Obstacle,Entity> entities = new ObjectMap<Obstacle,Entity>();
+
+	/**
+	 * A listener for the physics steps of the level
+	 *
+	 * A frame may take several physics steps (or none).  The listener is called before
+	 * each one, so that it can apply input that arrived after the frame started.
+	 */
+	public interface StepListener {
+		/**
+		 * Called before each physics step
+		 *
+		 * The time is the moment the step catches the physics up to.  The physics lags
+		 * behind the clock by the time left over from the fixed steps, so this is in
+		 * the past, and increases by the step length from one step to the next.
+		 *
+		 * @param time	the time of the step in nanoseconds (from TimeUtils.nanoTime)
+		 */
+		public void preStep(long time);
+	}
+	/** How far (in physics units) a kinematic creature stops short of an obstacle */
+	private static final float KINEMATIC_SKIN = 0.01f;
+	/** The query used to check whether an area is empty */
+	private AreaQuery areaQuery = new AreaQuery();
+
+	// TO THROTTLE THE LIGHTS
+	/** The default number of times per second that each light is raycast */
+	public static final int DEFAULT_LIGHT_RATE = 30;
+	/** The number of times per second that each light is raycast */
+	protected int lightRate;
+	/** The number of light updates owed to the round-robin (may be fractional) */
+	private float lightDebt;
+	/** The index of the next light to update in the round-robin */
+	private int lightCursor;
+	/** The physics step on which each light was last raycast */
+	private ObjectIntMap<LightSource> lightStamps = new ObjectIntMap<LightSource>();
 
 	private static final String BACKGROUND_FILE = "textures/black.png";
 	private Texture background;
@@ -153,6 +232,39 @@ public class LevelModel {
 	private static final String TARASQUE_LAYER_NAME = "Tarasque";
 	private static final String SNAIL_LAYER_NAME = "Snail";
 
+	/** The layers of the level being populated (null if it is not populating) */
+	private JsonValue populateLayers;
+	/** The size of the level being populated, in tiles */
+	private float[] pSize;
+	/** The tileset for each first tile id of the level being populated */
+	private HashMap<Integer, String> idToTexture;
+	/** The 64x64 tiles of each tileset, split on first use */
+	private HashMap<String, TextureRegion[][]> tileRegions;
+	/** The layer being populated (the layer count and beyond are the final steps) */
+	private int layerIndex;
+	/** The number of units in the current layer (-1 if it is not prepared yet) */
+	private int layerSteps;
+	/** The next unit to build in the current layer */
+	private int layerCursor;
+	/** The numbered objects of the current layer */
+	private HashMap<String, JsonValue> layerObjects;
+	/** The numbered bounding boxes of the current layer */
+	private HashMap<String, JsonValue> layerBoxes;
+	/** The drawing offset of the current layer, in physics units */
+	private float layerOffsetX, layerOffsetY;
+	/** The tile ids of the current tile layer (decoded once, when it is prepared) */
+	private int[] layerData;
+	/** The width and height of the current tile layer, in tiles */
+	private int layerWidth, layerHeight;
+	/** The number of populate steps taken so far */
+	private int stepsTaken;
+	/** The estimated number of populate steps in all */
+	private int stepsTotal;
+	/** The populate phase being timed on the load timeline (null if none) */
+	private String phase;
+	/** The time in nanoseconds that the current populate phase started */
+	private long phaseStart;
+
 	/**
 	 * Returns the bounding rectangle for the physics world
 	 *
@@ -221,6 +333,17 @@ public class LevelModel {
 		}
 	}
 
+	/**
+	 * Returns the largest width or height of any creature
+	 *
+	 * A query padded by this amount finds every creature whose box could hold a point.
+	 *
+	 * @return the largest width or height of any creature (in physics units)
+	 */
+	public float getCreatureExtent() {
+		return creatureExtent;
+	}
+
 	/**
 	 * Returns a reference to the vision array
 	 *
@@ -255,7 +378,7 @@ public class LevelModel {
 	}
 
 	public void setBox(BoxModel value) {
-	    box = value;
+	    setAnimatedBox(value);
     }
 
 
@@ -264,6 +387,7 @@ public class LevelModel {
 	}
 
 	public ArrayList<Obstacle> getMazes() { return mazes; }
+	public Array<BackgroundModel> getTiles() { return tiles; }
 	public ArrayList<Obstacle> getBarriers() { return barriers; }
 
 	/**
@@ -299,6 +423,110 @@ public class LevelModel {
 		debug = value;
 	}
 
+	/**
+	 * Returns the entity engine of this level
+	 *
+	 * The engine has the systems for physics sync, vision and animation (run by update
+	 * after each stepped frame) and the AI system (run by updateAI).
+	 *
+	 * @return the entity engine of this level
+	 */
+	public Engine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Returns the entity of the given model (null if it has none)
+	 *
+	 * @param obj	the model
+	 *
+	 * @return the entity of the given model
+	 */
+	public Entity getEntity(Obstacle obj) {
+		return entities.get(obj);
+	}
+
+	/**
+	 * Runs the AI system, choosing and performing the actions of the creatures
+	 *
+	 * This must be called before the physics steps.
+	 *
+	 * @param dt	Number of seconds since last animation frame
+	 */
+	public void updateAI(float dt) {
+		engine.getSystem(AISystem.class).update(dt);
+	}
+
+	/**
+	 * Creates the entity engine with the systems of a level
+	 *
+	 * @return the entity engine with the systems of a level
+	 */
+	private static Engine createEngine() {
+		Engine engine = new Engine();
+		engine.addSystem(new PhysicsSyncSystem());
+		engine.addSystem(new VisionSystem());
+		engine.addSystem(new AnimationSystem());
+		engine.addSystem(new AISystem());
+		return engine;
+	}
+
+	/**
+	 * Adds an entity for the given model to the engine
+	 *
+	 * @param obj		the model
+	 * @param animator	the animation state of the model (may be null)
+	 *
+	 * @return the entity for the model
+	 */
+	private Entity addEntity(Obstacle obj, Animator animator) {
+		Entity entity = new Entity();
+		entity.add(new TransformComponent());
+		entity.add(new BodyComponent(obj));
+		if (animator != null) {
+			entity.add(new SpriteComponent(animator));
+		}
+		engine.addEntity(entity);
+		entities.put(obj, entity);
+		return entity;
+	}
+
+	/**
+	 * Removes the entity of the given model from the engine
+	 *
+	 * @param obj	the model
+	 */
+	private void removeEntity(Obstacle obj) {
+		Entity entity = entities.remove(obj);
+		if (entity != null) {
+			engine.removeEntity(entity);
+		}
+	}
+
+	/**
+	 * Replaces the box, along with its entity
+	 *
+	 * @param value	the new box
+	 */
+	private void setAnimatedBox(BoxModel value) {
+		if (box != null) {
+			removeEntity(box);
+		}
+		box = value;
+		if (box != null) {
+			addEntity(box, box.getAnimator());
+		}
+	}
+
+	/**
+	 * Sets the listener told before each physics step
+	 *
+	 * @param listener	the listener told before each physics step (may be null)
+	 */
+	public void setStepListener(StepListener listener) {
+		stepListener = listener;
+	}
+
 	/**
 	 * Returns the maximum FPS supported by this level
 	 *
@@ -319,6 +547,7 @@ public class LevelModel {
 	 */
 	public void setMaxFPS(int value) {
 		maxFPS = value;
+		resetTimeStep();
 	}
 
 	/**
@@ -341,6 +570,45 @@ public class LevelModel {
 	 */
 	public void setMinFPS(int value) {
 		minFPS = value;
+		resetTimeStep();
+	}
+
+	/**
+	 * Recomputes the physics timestep from the current FPS settings
+	 *
+	 * The physics takes maxFPS steps a second, and will take at most enough steps in
+	 * a single frame to keep up with a display running at minFPS.
+	 */
+	private void resetTimeStep() {
+		timeStep = 1.0f / maxFPS;
+		maxSteps = 1.0f + maxFPS / minFPS;
+		maxTimePerFrame = timeStep * maxSteps;
+	}
+
+	/**
+	 * Returns the number of times per second that each light is raycast
+	 *
+	 * Lights are updated round-robin, so that only a fraction of them are raycast on
+	 * any given physics step.  A value of 0 (or anything at least maxFPS) raycasts
+	 * every light on every step.
+	 *
+	 * @return the number of times per second that each light is raycast
+	 */
+	public int getLightRate() {
+		return lightRate;
+	}
+
+	/**
+	 * Sets the number of times per second that each light is raycast
+	 *
+	 * Lights are updated round-robin, so that only a fraction of them are raycast on
+	 * any given physics step.  A value of 0 (or anything at least maxFPS) raycasts
+	 * every light on every step.
+	 *
+	 * @param value the number of times per second that each light is raycast
+	 */
+	public void setLightRate(int value) {
+		lightRate = value;
 	}
 
 	/**
@@ -381,6 +649,7 @@ public class LevelModel {
 	public LevelModel() {
 		world  = null;
 		bounds = new Rectangle(0,0,1,1);
+		grid = new ObstacleGrid(bounds, GRID_CELL_SIZE);
 		scale = new Vector2(1,1);
 		debug  = false;
 		background = null;
@@ -388,41 +657,72 @@ public class LevelModel {
 		resetAchievements();
 	}
 
+	/**
+	 * Lays out the game geography from the given JSON file
+	 *
+	 * This builds the whole level at once.  To spread the work over several animation
+	 * frames, call beginPopulate and then populate(millis) each frame instead.
+	 *
+	 * @param levelFormat	the JSON tree defining the level
+	 */
 	public void populate(JsonValue levelFormat) {
+		beginPopulate(levelFormat);
+		while (isPopulating()) {
+			populateStep();
+		}
+	}
 
-		background = new Texture(BACKGROUND_FILE);
+	/**
+	 * Starts laying out the game geography from the given JSON file
+	 *
+	 * This creates the physics world and the lighting, but none of the tiles, obstacles
+	 * or creatures.  Those are built by populateStep (or populate(millis)), a small piece
+	 * at a time: one row of a tile layer, one obstacle, one creature or one light.  The
+	 * level should not be updated or drawn until isPopulating() is false.
+	 *
+	 * @param levelFormat	the JSON tree defining the level
+	 */
+	public void beginPopulate(JsonValue levelFormat) {
+		LoadTimeline timeline = LoadTimeline.getInstance();
+		long start = timeline.now();
+
+		if (background == null) {
+			background = TextureRegistry.getInstance().acquire(this, BACKGROUND_FILE);
+		}
 
 		int tileHeight = levelFormat.get("height").asInt();
 		int tileWidth = levelFormat.get("width").asInt();
 		int tileSize = levelFormat.get("tilewidth").asInt();
 
-		//pixels width, height
-//		int[] gSize = {tileWidth*tileSize,tileHeight*tileSize};
-		//how many tiles
-//		float[] pSize = {(float)tileHeight * tileWidth, (float)tileWidth * tileWidth};
-
 		// how many tiles
-		float[] pSize = {(float) tileWidth, (float) tileHeight};
+		pSize = new float[] {(float) tileWidth, (float) tileHeight};
 		// pixels width, height
 		int[] gSize = {tileWidth * tileSize, tileHeight * tileSize};
 
 
 		world = new World(Vector2.Zero, false);
 		bounds = new Rectangle(0, 0, pSize[0], pSize[1]);
+		grid = new ObstacleGrid(bounds, GRID_CELL_SIZE);
 //		scale.x = tileSize;
 		scale.x = gSize[0] / pSize[0];
 //		scale.y = tileSize;
 		scale.y = gSize[1] / pSize[1];
 
-		// FPS is hardcoded now
-		int[] fps = {20, 60};
-		maxFPS = fps[1];
-		minFPS = fps[0];
-		timeStep = 1.0f / maxFPS;
-		maxSteps = 1.0f + maxFPS / minFPS;
-		maxTimePerFrame = timeStep * maxSteps;
+		// Physics may run slower than the display; drawing interpolates between steps
+		maxFPS = levelFormat.has("physicsFPS") ? levelFormat.get("physicsFPS").asInt() : DEFAULT_PHYSICS_FPS;
+		minFPS = Math.min(DEFAULT_MIN_FPS, maxFPS);
+		resetTimeStep();
+		physicsTimeLeft = 0;
+		stepCount = 0;
+
+		// Lights may be raycast less often than the physics
+		lightRate = levelFormat.has("lightRate") ? levelFormat.get("lightRate").asInt() : DEFAULT_LIGHT_RATE;
+		lightDebt = 0;
+		lightCursor = 0;
+		lightStamps.clear();
 
 		// Create the lighting if appropriate
+		long lightStart = timeline.now();
 		if (levelFormat.has("lighting")) {
 			float c0 = levelFormat.get("lightingColor0").asFloat();
 			float c1 = levelFormat.get("lightingColor1").asFloat();
@@ -441,9 +741,7 @@ public class LevelModel {
 			int blur = 3;
 			initLighting(colors, gamma, diffuse, blur);
 		}
-//		createPointLights(levelFormat.get("pointlights"));
-//		createConeLights(levelFormat.get("conelights"));
-
+		timeline.record("lights", "create ray handler", lightStart);
 
 		JsonValue idMap = levelFormat.get("tilesets");
 		tiles = new Array<BackgroundModel>();
@@ -451,797 +749,515 @@ public class LevelModel {
 		shadowTiles = new Array<BackgroundModel>();
 		tutorialTiles = new Array<BackgroundModel>();
 
-		//loop through layers to find specified objects and initialize
-		JsonValue layers = levelFormat.get("layers");
-		JsonValue lineOfSightJSON = null;
-
 		//loop through to find the name keys of textures used
-		HashMap<Integer, String> idToTexture = new HashMap<Integer, String>();
+		idToTexture = new HashMap<Integer, String>();
 		for (int j = 0; j < idMap.size; j++) {
 			JsonValue obj = idMap.get(j);
 			int id = obj.get("firstgid").asInt();
 			String tex = obj.get("name").asString();
 			idToTexture.put(id, tex);
 		}
+		tileRegions = new HashMap<String, TextureRegion[][]>();
+
+		// Estimate the work up front so that the progress is meaningful
+		populateLayers = levelFormat.get("layers");
+		layerIndex = 0;
+		layerSteps = -1;
+		layerCursor = 0;
+		stepsTaken = 0;
+		stepsTotal = 1;
+		for (int i = 0; i < populateLayers.size; i++) {
+			JsonValue layer = populateLayers.get(i);
+			if (layer.has("data")) {
+				stepsTotal += layer.get("height").asInt();
+			} else if (layer.has("objects")) {
+				stepsTotal += layer.get("objects").size;
+			}
+		}
+		timeline.record("populate", "begin populate", start);
+	}
 
-		for (int i = 0; i < layers.size; i++) {
-			JsonValue layer = layers.get(i);
-			String layerName = layer.get("name").asString();
-
-			// just for the Object layers
-			JsonValue objects = layer.get("objects");
-
-			if (layerName.equals("box_Boundaries")) {
-				HashMap<String, JsonValue> boundaryArray = new HashMap<String, JsonValue>();
-
-
-				//assign building and box values to indexes in hashmaps
-				for (int j = 0; j < objects.size; j++) {
-
-					JsonValue obj = objects.get(j);
-					InteriorModel obj2 = new InteriorModel();
-//					setPosition(pos[0]+ size[0]/2,height - (pos[1]-size[1]/2));
-					float[] pos = {obj.get("x").asFloat() / 64, obj.get("y").asFloat() / 64 + obj.get("height").asFloat()/64 - 1};
-					float[] size = {obj.get("width").asFloat() / 64, obj.get("height").asFloat() / 64};
-					float[] pad = {0.1f, 0.1f};
-					String debugColor = "red";
-
-
-
-					obj2.initialize(pos, size, pad, debugColor, null, pSize[1], 0, 0);
-					obj2.setDrawScale(scale);
-					activate(obj2);
-					mazes.add(obj2);
-					String objName = obj.get("name").asString();
-
-					String[] bSplit = objName.split("boundary");
-
-//					boundaryArray.put(bSplit[1], obj);
-
-				}
-
-//			} else if (layerName.equals("vision_properties")) {
-//				DEFINE THIS BEFORE CREATURES GET INITIALIZED
-
-//				lineOfSightJSON = objects;
-//				for (CreatureModel c : creatures) {
-//				createLineofSight(lineOfSightJSON);
-//				}
-			}  else if (layerName.equals(TARASQUE_LAYER_NAME)) {
-
-				HashMap<String, JsonValue> numToCreature = new HashMap<String, JsonValue>();
-				HashMap<String, JsonValue> numToBox = new HashMap<String, JsonValue>();
-
-
-				//assign building and box values to indexes in hashmaps
-				for (int j = 0; j < objects.size; j++) {
-					JsonValue obj = objects.get(j);
-					if (obj.get("name").asString().contains("dragon")) {
-						lineOfSightJSON = obj.get("properties");
-//				for (CreatureModel c : creatures) {
-						createLineofSight(lineOfSightJSON);
-					}
-					else if (obj.get("name").asString().contains("tarasque")) {
-						String objName = obj.get("name").asString();
-						String[] bSplit = objName.split(layerName.toLowerCase());
-						bSplit[0] = objName.substring(0, objName.length()-bSplit[1].length());
-
-						if (bSplit[1].length() > 3) {
-							//add to box list
-							numToBox.put(bSplit[1].split("box")[1], obj);
-						} else {
-							//add to building list
-							numToCreature.put(bSplit[1], obj);
-
-
-						}
-
-					}
-
-
-
-
-//					int index = 0;
-//					if (name.contains("tarasque"))
-//						index = 1;
-//					else if (name.contains("blanche"))
-//						index = 2;
-
-
-				}
-				//initialize creatures
-				for (int n = 0; n < numToCreature.size(); n++) {
-
-					FilmStrip[] film = new FilmStrip[3];
-					JsonValue buildingJSON = numToCreature.get("" + (n + 1)).get("properties");
-					JsonValue boxJSON = numToBox.get("" + (n + 1));
-					String textName = buildingJSON.get("texture").asString();
-					String textName2 = buildingJSON.get("texture2").asString();
-					String textName3 = buildingJSON.get("texture3").asString();
-					String[] textures = {textName, textName2, textName3};
-
-					String name = numToCreature.get("" + (n + 1)).get("name").asString();
-
-					HashMap<String, FilmStrip> idToFilmStrip = new HashMap<String, FilmStrip>();
-					for (int f = 0; f < 3; f++) {
-						if (idToFilmStrip.containsKey(textName)) {
-							film[f] = idToFilmStrip.get(textures[f]);
-						} else {
-							TextureRegion texture = JsonAssetManager.getInstance().getEntry(textures[f], TextureRegion.class);
-							FilmStrip tileTexture;
-							try {
-								tileTexture = (FilmStrip) texture;
-							} catch (Exception e) {
-								tileTexture = null;
-							}
-							film[f] = tileTexture;
-							idToFilmStrip.put(textName + f, tileTexture);
-						}
-					}
-					CreatureModel creature = new CreatureModel();
-					creature.initialize(buildingJSON, boxJSON, film[0], film[1], film[2], pSize[1]);
-					creature.setDrawScale(scale);
-					activate(creature);
-					creatures.add(creature);
-//					attachVision(creature, lights.get(n));
-
-
-				}
-			} else if (layerName.equals(SNAIL_LAYER_NAME)) {
-
-
-				HashMap<String, JsonValue> numToCreature = new HashMap<String, JsonValue>();
-				HashMap<String, JsonValue> numToBox = new HashMap<String, JsonValue>();
-
-
-				//assign building and box values to indexes in hashmaps
-				for (int j = 0; j < objects.size; j++) {
-					JsonValue obj = objects.get(j);
-					if (obj.get("name").asString().contains("snail_vision")) {
-						lineOfSightJSON = obj.get("properties");
-//				for (CreatureModel c : creatures) {
-						createLineofSight(lineOfSightJSON);
-					}
-					else if (obj.get("name").asString().contains("snail")) {
-						String objName = obj.get("name").asString();
-						String[] bSplit = objName.split(layerName.toLowerCase());
-						bSplit[0] = objName.substring(0, objName.length()-bSplit[1].length());
-
-						if (bSplit[1].length() > 3) {
-							//add to box list
-							numToBox.put(bSplit[1].split("box")[1], obj);
-						} else {
-							//add to building list
-							numToCreature.put(bSplit[1], obj);
-
-
-						}
-
-					}
-
-
-
-
-//					int index = 0;
-//					if (name.contains("tarasque"))
-//						index = 1;
-//					else if (name.contains("blanche"))
-//						index = 2;
-
-
-				}
-				//initialize creatures
-				for (int n = 0; n < numToCreature.size(); n++) {
-
-					FilmStrip[] film = new FilmStrip[3];
-					JsonValue buildingJSON = numToCreature.get("" + (n + 1)).get("properties");
-					JsonValue boxJSON = numToBox.get("" + (n + 1));
-					String textName = buildingJSON.get("texture").asString();
-					String textName2 = buildingJSON.get("texture2").asString();
-					String textName3 = buildingJSON.get("texture3").asString();
-					String[] textures = {textName, textName2, textName3};
-
-					String name = numToCreature.get("" + (n + 1)).get("name").asString();
-
-					HashMap<String, FilmStrip> idToFilmStrip = new HashMap<String, FilmStrip>();
-					for (int f = 0; f < 3; f++) {
-						if (idToFilmStrip.containsKey(textName)) {
-							film[f] = idToFilmStrip.get(textures[f]);
-						} else {
-							TextureRegion texture = JsonAssetManager.getInstance().getEntry(textures[f], TextureRegion.class);
-							FilmStrip tileTexture;
-							try {
-								tileTexture = (FilmStrip) texture;
-							} catch (Exception e) {
-								tileTexture = null;
-							}
-							film[f] = tileTexture;
-							idToFilmStrip.put(textName + f, tileTexture);
-						}
-					}
-					CreatureModel creature = new CreatureModel();
-					creature.initialize(buildingJSON, boxJSON, film[0], film[1], film[2], pSize[1]);
-					creature.setDrawScale(scale);
-					activate(creature);
-					creatures.add(creature);
-//					attachVision(creature, lights.get(n));
-
-
-				}
-			}else if (layerName.equals(BLANCHE_LAYER_NAME) ) {
-
-				HashMap<String, JsonValue> numToCreature = new HashMap<String, JsonValue>();
-				HashMap<String, JsonValue> numToBox = new HashMap<String, JsonValue>();
-
-
-				//assign building and box values to indexes in hashmaps
-				for (int j = 0; j < objects.size; j++) {
-					JsonValue obj = objects.get(j);
-//					System.out.println(obj.get("name"));
-					if (obj.get("name").asString().contains("lady")) {
-						lineOfSightJSON = obj.get("properties");
-//				System.out.println(objects);
-//				for (CreatureModel c : creatures) {
-						createLineofSight(lineOfSightJSON);
-					}
-					else if (obj.get("name").asString().contains("blanche")) {
-//						System.out.println(obj);
-						String objName = obj.get("name").asString();
-						String[] bSplit = objName.split(layerName.toLowerCase());
-						bSplit[0] = objName.substring(0, objName.length()-bSplit[1].length());
-//					System.out.println("bSplit[1]: " + bSplit[1]);
-
-						if (bSplit[1].length() > 3) {
-							//add to box list
-							numToBox.put(bSplit[1].split("box")[1], obj);
-//							System.out.println(bSplit[1].split("box")[1]+" j ");
-						} else {
-							//add to building list
-							numToCreature.put(bSplit[1], obj);
-//							System.out.println(bSplit[1]);
-
-
-													}
-
-					}
-
-
-
-
-//					int index = 0;
-//					if (name.contains("tarasque"))
-//						index = 1;
-//					else if (name.contains("blanche"))
-//						index = 2;
-
-//					System.out.println("index = " + index);
-
-				}
-				//initialize creatures
-				for (int n = 0; n < numToCreature.size(); n++) {
-//						System.out.println(n);
-
-					FilmStrip[] film = new FilmStrip[3];
-					JsonValue buildingJSON = numToCreature.get("" + (n + 1)).get("properties");
-//					System.out.println(buildingJSON);
-					JsonValue boxJSON = numToBox.get("" + (n + 1));
-//					System.out.println(boxJSON);
-					String textName = buildingJSON.get("texture").asString();
-					String textName2 = buildingJSON.get("texture2").asString();
-					String textName3 = buildingJSON.get("texture3").asString();
-					String[] textures = {textName, textName2, textName3};
-
-					String name = numToCreature.get("" + (n + 1)).get("name").asString();
-
-					HashMap<String, FilmStrip> idToFilmStrip = new HashMap<String, FilmStrip>();
-					for (int f = 0; f < 3; f++) {
-						if (idToFilmStrip.containsKey(textName)) {
-							film[f] = idToFilmStrip.get(textures[f]);
-						} else {
-							TextureRegion texture = JsonAssetManager.getInstance().getEntry(textures[f], TextureRegion.class);
-							FilmStrip tileTexture;
-							try {
-								tileTexture = (FilmStrip) texture;
-							} catch (Exception e) {
-								tileTexture = null;
-							}
-							film[f] = tileTexture;
-							idToFilmStrip.put(textName + f, tileTexture);
-						}
-					}
-					CreatureModel creature = new CreatureModel();
-//					System.out.println(creature.getPosition().x + " " + creature.getPosition().y);
-					creature.initialize(buildingJSON, boxJSON, film[0], film[1], film[2], pSize[1]);
-//					System.out.println(creature.getPosition().x*64 + " " + creature.getPosition().y*64);
-					creature.setDrawScale(scale);
-					activate(creature);
-//					System.out.println(lights.size + ": lights size");
-//					System.out.println(lights.get(index) + ": lights");
-//					System.out.println("lights "+lights.get(index).getX() + " "+lights.get(index).getY());
-//					System.out.println(name + " added to creatures");
-					creatures.add(creature);
-//					attachVision(creature, lights.get(n));
-
-
-				}
-
-
-			} else if (layerName.equals("creature_bounds")) {
-				//This is the creature patrol area
-
-
-
-
-			} else if (layerName.equals("Annette")) {
-//				System.out.println("loading annette");
-
-
-				annette = new AnnetteModel();
-				JsonValue annetteData = null;
-				JsonValue annetteBounds = null;
-				for (int f = 0; f < 2; f++) {
-					JsonValue obj = objects.get(f);
-					if (obj.get("name").asString().equals("annette")) {
-						annetteData = obj.get("properties");
-					} else if (obj.get("name").asString().equals("annette_box")) {
-						annetteBounds = obj;
-//						System.out.println(obj);
-					}
-				}
+	/**
+	 * Returns true if the level is still being populated
+	 *
+	 * @return true if the level is still being populated
+	 */
+	public boolean isPopulating() {
+		return populateLayers != null;
+	}
 
-				annette.initialize(annetteData, annetteBounds, pSize[1]);
-				annette.setDrawScale(scale);
-				activate(annette);
+	/**
+	 * Returns the progress (0 to 1) of populating the level
+	 *
+	 * This is an estimate, as the number of creatures is not known until their layers
+	 * are read.  It only reaches 1 when the level is done.
+	 *
+	 * @return the progress (0 to 1) of populating the level
+	 */
+	public float getPopulateProgress() {
+		if (!isPopulating()) {
+			return 1.0f;
+		}
+		return Math.min(0.99f, ((float)stepsTaken)/stepsTotal);
+	}
 
-				// Create the light indicating the move in place range.
-				createRadiusofPower();
-				attachPowerRadius(getAnnette(), radiusOfPower);
+	/**
+	 * Continues populating the level for (roughly) the given budget
+	 *
+	 * At least one step is taken, so this always makes progress.  A step may go over
+	 * the budget, but the steps are small enough that it never does by much.
+	 *
+	 * @param millis	The time budget in milliseconds
+	 *
+	 * @return true if the level is done
+	 */
+	public boolean populate(int millis) {
+		long end = TimeUtils.nanoTime() + millis * 1000000L;
+		while (isPopulating()) {
+			populateStep();
+			if (TimeUtils.nanoTime() >= end) {
+				break;
+			}
+		}
+		// Show the gap between frames on the load timeline
+		closePhase();
+		return !isPopulating();
+	}
 
+	/**
+	 * Takes the next small step in populating the level
+	 *
+	 * The layers are processed in order.  Each layer is first prepared (grouping its
+	 * objects by number, which is cheap) and then built one unit at a time.  After the
+	 * layers, the static geometry is compiled and the creature lines of sight are
+	 * attached one at a time.  This method does nothing if the level is not populating.
+	 *
+	 * Consecutive steps of the same layer are recorded as one span on the load timeline.
+	 */
+	public void populateStep() {
+		if (!isPopulating()) {
+			return;
+		}
+		stepsTaken++;
+		if (LoadTimeline.getInstance().isRecording()) {
+			if (layerIndex < populateLayers.size) {
+				enterPhase(populateLayers.get(layerIndex).getString("name"));
+			} else if (layerIndex == populateLayers.size) {
+				enterPhase("static geometry");
+			} else {
+				enterPhase("attach vision");
+			}
+		}
 
-			} else if (layerName.equals("box_Boundaries")) {
-//				System.out.println("loading boundaries");
-				HashMap<String, JsonValue> boundaryArray = new HashMap<String, JsonValue>();
+		if (layerIndex < populateLayers.size) {
+			JsonValue layer = populateLayers.get(layerIndex);
+			if (layerSteps < 0) {
+				layerSteps = prepareLayer(layer);
+				layerCursor = 0;
+			} else if (layerCursor < layerSteps) {
+				buildLayer(layer, layerCursor);
+				layerCursor++;
+			}
 
-//				float offsetx = 0;
-//                float offsety = 0;
+			if (layerCursor >= layerSteps) {
+				layerIndex++;
+				layerSteps = -1;
+				layerObjects = null;
+				layerBoxes = null;
+				layerData = null;
+			}
+		} else if (layerIndex == populateLayers.size) {
+			// Merge the buildings, flowers and boundaries into as few bodies as possible
+			compileStaticGeometry();
 
+			// A level without a crate still needs a box (which can never be summoned)
+			if (box == null || box.getBody() == null) {
+				setAnimatedBox(new BoxModel(1, 1));
+			}
 
-				//assign building and box values to indexes in hashmaps
-//				System.out.println(objects.size);
-				for (int j = 0; j < objects.size; j++) {
-					JsonValue obj = objects.get(j);
-					InteriorModel obj2 = new InteriorModel();
-					float[] pos = {obj.get("x").asFloat() / 64, obj.get("y").asFloat() / 64 - 1};
-					float[] size = {obj.get("width").asFloat() / 64, obj.get("height").asFloat() / 64};
-					float[] pad = {0.1f, 0.1f};
-					String debugColor = "red";
+			stepsTotal = stepsTaken + creatures.size;
+			layerIndex++;
+			layerCursor = 0;
+		} else if (layerCursor < creatures.size) {
+			// Attach one line of sight at a time
+			attachVision(creatures.get(layerCursor), lights.get(layerCursor));
+			layerCursor++;
+		}
 
+		if (layerIndex > populateLayers.size && layerCursor >= creatures.size) {
+			endPopulate();
+		}
+	}
 
-//                    System.out.println(objName);
-//						System.out.println(pSize[0]);
-//						System.out.println(pSize[1]);
-//                    String objName = obj.get("name").asString();
-					obj2.initialize(pos, size, pad, debugColor, null, pSize[1], 0, 0);
-					obj2.setDrawScale(scale);
-					activate(obj2);
-//					System.out.println(pos[0] + " " + pos[1]);
-//					System.out.println("activating building");
-					mazes.add(obj2);
+	/**
+	 * Forgets the working state of populate once the level is done (or disposed)
+	 */
+	private void endPopulate() {
+		closePhase();
+		populateLayers = null;
+		idToTexture = null;
+		tileRegions = null;
+		layerObjects = null;
+		layerBoxes = null;
+		layerData = null;
+	}
 
+	/**
+	 * Starts timing the given populate phase, unless it is the current one
+	 *
+	 * @param name	the name of the phase
+	 */
+	private void enterPhase(String name) {
+		if (!name.equals(phase)) {
+			closePhase();
+			phase = name;
+			phaseStart = LoadTimeline.getInstance().now();
+		}
+	}
 
+	/**
+	 * Records the current populate phase on the load timeline, if there is one
+	 */
+	private void closePhase() {
+		if (phase != null) {
+			LoadTimeline.getInstance().record("populate", phase, phaseStart);
+			phase = null;
+		}
+	}
 
-//					String[] bSplit = objName.split("boundary");
-//
-//					boundaryArray.put(bSplit[1], obj);
-//					System.out.println(bSplit[1]);
-//					System.out.println("boundary "+j + "2 : "+ bSplit[1]);
+	/**
+	 * Prepares a layer to be built, returning the number of steps to build it
+	 *
+	 * Object layers are grouped by number into layerObjects and layerBoxes.  The lines
+	 * of sight of the creatures are created here, as the creatures are later matched
+	 * to them by index.
+	 *
+	 * @param layer	the JSON tree defining the layer
+	 *
+	 * @return the number of steps to build the layer
+	 */
+	private int prepareLayer(JsonValue layer) {
+		String layerName = layer.get("name").asString();
+
+		// just for the Object layers
+		JsonValue objects = layer.get("objects");
+
+		if (layerName.equals("box_Boundaries")) {
+			return objects.size;
+		} else if (layerName.equals(TARASQUE_LAYER_NAME)) {
+			return prepareCreatures(layer, "dragon");
+		} else if (layerName.equals(SNAIL_LAYER_NAME)) {
+			return prepareCreatures(layer, "snail_vision");
+		} else if (layerName.equals(BLANCHE_LAYER_NAME)) {
+			return prepareCreatures(layer, "lady");
+		} else if (layerName.equals("Annette") || layerName.equals("Exit") ||
+				   layerName.equals("Crate") || layerName.equals("Bird")) {
+			return 1;
+		} else if (layerName.equals("Flowers") || layerName.equals("Buildings")) {
+			String prefix = layerName.equals("Flowers") ? "flower" : "building";
+			layerObjects = new HashMap<String, JsonValue>();
+			layerBoxes = new HashMap<String, JsonValue>();
+
+			// default offset is 0
+			layerOffsetX = 0;
+			layerOffsetY = 0;
+
+			// if offsets are being defined
+			if (layer.has("offsetx") || layer.has("offsety")) {
+				// offsets are defined in the physics scale
+				layerOffsetX = layer.get("offsetx").asInt()/scale.x;
+				layerOffsetY = layer.get("offsety").asInt()/scale.y;
+			}
 
+			//assign building and box values to indexes in hashmaps
+			for (int j = 0; j < objects.size; j++) {
+				JsonValue obj = objects.get(j);
+				String objName = obj.get("name").asString();
+				if (objName.contains("box")) {
+					layerBoxes.put(objName.substring(3), obj);
+				} else {
+					layerObjects.put(objName.split(prefix)[1], obj);
 				}
-
 			}
+			return layerObjects.size();
+		} else if (layerName.equals("Shadow") || layerName.equals("Outline") ||
+				   layerName.equals("Tutorial") || layerName.equals("Base")) {
+			// Decode the tiles once, so that each row only indexes into them
+			layerData = layer.get("data").asIntArray();
+			layerWidth = layer.get("width").asInt();
+			layerHeight = layer.get("height").asInt();
+			return layerHeight;
+		}
 
+		// creature_bounds is the creature patrol area, and is not built
+		return 0;
+	}
 
-            else if(layerName.equals("Flowers")){
-
-                HashMap<String, JsonValue> numToFlower = new HashMap<String, JsonValue>();
-                HashMap<String, JsonValue> numToBox = new HashMap<String, JsonValue>();
-
-                // default offset is 0
-                float offsetx = 0;
-                float offsety = 0;
-
-                //assign building and box values to indexes in hashmaps
-                for(int j = 0; j< objects.size; j++){
-
-                    JsonValue obj = objects.get(j);
-                    String objName = obj.get("name").asString();
-
-                    // if offsets are being defined
-                    if (layer.has("offsetx") || layer.has("offsety")) {
-                        // offsets are defined in the physics scale
-                        offsetx = layer.get("offsetx").asInt()/scale.x;
-                        offsety = layer.get("offsety").asInt()/scale.y;
-                    }
-
-                    String[] bSplit = objName.split("flower");
-
-                    if(objName.contains("box")){
-                        numToBox.put(objName.substring(3),obj);
-                        //add to building list
-
-                    }
-                    else{
-                        //add to box list
-                        numToFlower.put(bSplit[1],obj);
-                    }
-                }
-
-                //initialize flowers
-                for(int j = 0; j<numToFlower.size(); j++){
-
-                    TextureRegion film = null;
-                    JsonValue flowerJSON = numToFlower.get((j+1) + "").get("properties");
-                    JsonValue boxJSON = numToBox.get((j+1) +"");
-
-                    String textName = flowerJSON.get("texture").asString();
-
-
-                    TextureRegion texture = JsonAssetManager.getInstance().getEntry(textName.trim(), TextureRegion.class);
-                    film = texture;
-
-
-                    // FLOWERS
-                    InteriorModel obj2 = new InteriorModel();
-                    float[] pos = {numToFlower.get((j+1) + "").get("x").asFloat()/64,numToFlower.get((j+1) + "").get("y").asFloat()/64};
-                    float[] size = {1f,1f};
-                    float[] pad = { 0.1f, 0.1f};
-                    String debugColor = "blue";
-
-                    if(boxJSON != null){
-                        pos[0] = boxJSON.get("x").asFloat()/64;
-                        pos[1] = boxJSON.get("y").asFloat()/64 - 0.27f;
-                        size[0] = boxJSON.get("width").asFloat()/64;
-                        size[1] = boxJSON.get("height").asFloat()/64;
-
-                    }
-
-
-                    if(film!= null) {
-
-                        obj2.initialize(pos, size, pad, debugColor, film, pSize[1], offsetx, offsety);
-                        obj2.setDrawScale(scale);
-                        activate(obj2);
-                        mazes.add(obj2);
-                    }
-                }
-
-
-            }
-
-			else if(layerName.equals("Buildings")){
-//				System.out.println("loading buildings");
-
-				HashMap<String, JsonValue> numToBuilding = new HashMap<String, JsonValue>();
-				HashMap<String, JsonValue> numToBox = new HashMap<String, JsonValue>();
-
-                // default offset is 0
-                float offsetx = 0;
-                float offsety = 0;
-
-				//assign building and box values to indexes in hashmaps
-				for(int j = 0; j< objects.size; j++){
-
-					JsonValue obj = objects.get(j);
-					String objName = obj.get("name").asString();
-
-					// if offsets are being defined
-					if (layer.has("offsetx") || layer.has("offsety")) {
-					    // offsets are defined in the physics scale
-                        offsetx = layer.get("offsetx").asInt()/scale.x;
-                        offsety = layer.get("offsety").asInt()/scale.y;
-//                        System.out.println("offsetx: " + offsetx + ", offsety: " + offsety);
-                    }
-
-					String[] bSplit = objName.split("building");
-
-					if(objName.contains("box")){
-						numToBox.put(objName.substring(3),obj);
-						//add to building list
-
-						//System.out.println("building "+j + " : "+ objName.substring(3));
-
-					}
-					else{
-						//add to box list
-						numToBuilding.put(bSplit[1],obj);
-						//System.out.println("building "+j + "2 : "+ bSplit[1]);
-
-					}
-
+	/**
+	 * Groups the objects of a creature layer, creating their lines of sight
+	 *
+	 * The creature objects are named after the layer, followed by their number (or
+	 * "box" and their number for their bounds).
+	 *
+	 * @param layer			the JSON tree defining the layer
+	 * @param visionName	the name marking the line of sight objects
+	 *
+	 * @return the number of creatures in the layer
+	 */
+	private int prepareCreatures(JsonValue layer, String visionName) {
+		String creatureName = layer.get("name").asString().toLowerCase();
+		JsonValue objects = layer.get("objects");
+		layerObjects = new HashMap<String, JsonValue>();
+		layerBoxes = new HashMap<String, JsonValue>();
+
+		//assign creature and box values to indexes in hashmaps
+		for (int j = 0; j < objects.size; j++) {
+			JsonValue obj = objects.get(j);
+			String objName = obj.get("name").asString();
+			if (objName.contains(visionName)) {
+				long start = LoadTimeline.getInstance().now();
+				createLineofSight(obj.get("properties"));
+				if (LoadTimeline.getInstance().isRecording()) {
+					LoadTimeline.getInstance().record("lights", "create "+objName, start);
 				}
-
-				//initialize buildings
-				for(int j = 0; j<numToBuilding.size(); j++){
-
-					TextureRegion film = null;
-					JsonValue buildingJSON = numToBuilding.get((j+1) + "").get("properties");
-					JsonValue boxJSON = numToBox.get((j+1) +"");
-
-					String textName = buildingJSON.get("texture").asString();
-
-
-					TextureRegion texture = JsonAssetManager.getInstance().getEntry(textName.trim(), TextureRegion.class);
-					film = texture;
-
-//					System.out.println("textname: "+textName + " : " + texture);
-
-
-
-
-
-
-
-
-                    // BUILDINGS
-					InteriorModel obj2 = new InteriorModel();
-					float[] pos = {numToBuilding.get((j+1) + "").get("x").asFloat()/64,numToBuilding.get((j+1) + "").get("y").asFloat()/64+ 1.75f};
-					float[] size = {1f,1f};
-					float[] pad = { 0.1f, 0.1f};
-					String debugColor = "red";
-
-					if(boxJSON != null){
-						pos[0] = boxJSON.get("x").asFloat()/64;
-						pos[1] = boxJSON.get("y").asFloat()/64 + 1.75f;
-						if(textName.contains("128") || textName.contains("64"))
-						{
-							pos[1] = boxJSON.get("y").asFloat()/64 + 0.3f;
-						}
-						size[0 ] = boxJSON.get("width").asFloat()/64;
-						size[1] = boxJSON.get("height").asFloat()/64;
-
-					}
-
-
-					if(film!= null) {
-
-//						System.out.println("psize");
-//						System.out.println(pSize[0]);
-//						System.out.println(pSize[1]);
-
-						obj2.initialize(pos, size, pad, debugColor, film, pSize[1], offsetx, offsety);
-						obj2.setDrawScale(scale);
-						activate(obj2);
-//						System.out.println(pos[0] + " " + pos[1]);
-//						System.out.println("activating building");
-						mazes.add(obj2);
-					}
+			} else if (objName.contains(creatureName)) {
+				String number = objName.split(creatureName)[1];
+				if (number.length() > 3) {
+					//add to box list
+					layerBoxes.put(number.split("box")[1], obj);
+				} else {
+					//add to creature list
+					layerObjects.put(number, obj);
 				}
-
-
 			}
-            else if(layerName.equals("Shadow")){
-                int[] data = layer.get("data").asIntArray();
-                int height = layer.get("height").asInt();
-                int width = layer.get("width").asInt();
-
-                for(int j = 0; j < height*width; j++){
-                    //dataMatrix[j%width][height - 1 - ((j - (6%width))/height)] = data[j];
-//                    System.out.println("width: " + width + ", height: " + height);
-                    int newx = j % width ; //(height - 1 - ((j - (6%width))/height));
-                    int newy = height - (j / width);//(j%width);
-//					System.out.println("newx "+ newx + " new y " + newy);
-
-
-                    int f = 0;
-                    while(f<data[j] && !idToTexture.containsKey(data[j] - f)){
-
-                        f++;
-                    }
-                    //System.out.println(data[j] + " : "+ (data[j] - f));
-                    String texName = idToTexture.get(data[j] - f);
-//					System.out.println(texName);
-                    TextureRegion texture = JsonAssetManager.getInstance().getEntry(texName, TextureRegion.class);
-
-                    // IMPORTANT PROBLEM: TEXTURE IS NULL
-                    if(texture != null) {
-
-//						System.out.println(texture.getRegionHeight());
-                        TextureRegion[][] textures = texture.split(64, 64);
-//						System.out.println(f % textures.length + " " + f / textures.length);
-                        TextureRegion texNew = textures[f / textures[0].length][f % textures[0].length];
-                        shadowTiles.add(new BackgroundModel(newx, newy, texNew));
-                    }
-
-
-
-                }
-            }
-			else if(layerName.equals("Outline")){
-				int[] data = layer.get("data").asIntArray();
-				int height = layer.get("height").asInt();
-				int width = layer.get("width").asInt();
-
-				for(int j = 0; j < height*width; j++){
-					//dataMatrix[j%width][height - 1 - ((j - (6%width))/height)] = data[j];
-//                    System.out.println("width: " + width + ", height: " + height);
-					int newx = j % width ; //(height - 1 - ((j - (6%width))/height));
-					int newy = height - (j / width);//(j%width);
-//					System.out.println("newx "+ newx + " new y " + newy);
-
-
-					int f = 0;
-					while(f<data[j] && !idToTexture.containsKey(data[j] - f)){
-
-						f++;
-					}
-					//System.out.println(data[j] + " : "+ (data[j] - f));
-					String texName = idToTexture.get(data[j] - f);
-//					System.out.println(texName);
-					TextureRegion texture = JsonAssetManager.getInstance().getEntry(texName, TextureRegion.class);
-
-					// IMPORTANT PROBLEM: TEXTURE IS NULL
-					if(texture != null) {
-
-//						System.out.println(texture.getRegionHeight());
-						TextureRegion[][] textures = texture.split(64, 64);
-//						System.out.println(f % textures.length + " " + f / textures.length);
-						TextureRegion texNew = textures[f / textures[0].length][f % textures[0].length];
-						outlineTiles.add(new BackgroundModel(newx, newy, texNew));
-					}
-
-
+		}
+		return layerObjects.size();
+	}
 
+	/**
+	 * Builds a single unit of the given layer
+	 *
+	 * A unit is a row of a tile layer, or a single object of an object layer.
+	 *
+	 * @param layer	the JSON tree defining the layer
+	 * @param step	the unit to build (less than the value of prepareLayer)
+	 */
+	private void buildLayer(JsonValue layer, int step) {
+		String layerName = layer.get("name").asString();
+
+		if (layerName.equals("box_Boundaries")) {
+			JsonValue obj = layer.get("objects").get(step);
+			InteriorModel obj2 = new InteriorModel();
+			float[] pos = {obj.get("x").asFloat() / 64, obj.get("y").asFloat() / 64 + obj.get("height").asFloat()/64 - 1};
+			float[] size = {obj.get("width").asFloat() / 64, obj.get("height").asFloat() / 64};
+			float[] pad = {0.1f, 0.1f};
+			String debugColor = "red";
+
+			obj2.initialize(pos, size, pad, debugColor, null, pSize[1], 0, 0);
+			obj2.setDrawScale(scale);
+			addStaticBlock(obj2);
+		} else if (layerName.equals(TARASQUE_LAYER_NAME) || layerName.equals(SNAIL_LAYER_NAME) ||
+				   layerName.equals(BLANCHE_LAYER_NAME)) {
+			buildCreature(step);
+		} else if (layerName.equals("Annette")) {
+			JsonValue objects = layer.get("objects");
+			annette = new AnnetteModel();
+			JsonValue annetteData = null;
+			JsonValue annetteBounds = null;
+			for (int f = 0; f < 2; f++) {
+				JsonValue obj = objects.get(f);
+				if (obj.get("name").asString().equals("annette")) {
+					annetteData = obj.get("properties");
+				} else if (obj.get("name").asString().equals("annette_box")) {
+					annetteBounds = obj;
 				}
 			}
-			else if (layerName.equals("Tutorial")){
-
-//				System.out.println("loading tutorial data");
-
-
-				int[] data = layer.get("data").asIntArray();
-				int height = layer.get("height").asInt();
-				int width = layer.get("width").asInt();
-
-
-				for(int j = 0; j < height*width; j++){
-					//dataMatrix[j%width][height - 1 - ((j - (6%width))/height)] = data[j];
-//                    System.out.println("width: " + width + ", height: " + height);
-					int newx = j % width ; //(height - 1 - ((j - (6%width))/height));
-					int newy = height - (j / width);//(j%width);
-//					System.out.println("newx "+ newx + " new y " + newy);
-
-
-					int f = 0;
-					while(f<data[j] && !idToTexture.containsKey(data[j] - f)){
-
-						f++;
-					}
-					//System.out.println(data[j] + " : "+ (data[j] - f));
-					String texName = idToTexture.get(data[j] - f);
-//					System.out.println(texName);
-					TextureRegion texture = JsonAssetManager.getInstance().getEntry(texName, TextureRegion.class);
-
-					// IMPORTANT PROBLEM: TEXTURE IS NULL
-					if(texture != null) {
-
-						tutorialTiles.add(new BackgroundModel(newx, newy, texture));
-					}
-
-
-
-				}
 
+			annette.initialize(annetteData, annetteBounds, pSize[1]);
+			annette.setDrawScale(scale);
+			addEntity(annette, annette.getAnimator());
+			activate(annette);
+
+			// Create the light indicating the move in place range.
+			createRadiusofPower();
+			attachPowerRadius(getAnnette(), radiusOfPower);
+		} else if (layerName.equals("Flowers")) {
+			JsonValue flowerJSON = layerObjects.get((step+1) + "");
+			JsonValue boxJSON = layerBoxes.get((step+1) + "");
+			String textName = flowerJSON.get("properties").get("texture").asString();
+			TextureRegion film = JsonAssetManager.getInstance().getEntry(textName.trim(), TextureRegion.class);
+
+			// FLOWERS
+			InteriorModel obj2 = new InteriorModel();
+			float[] pos = {flowerJSON.get("x").asFloat()/64, flowerJSON.get("y").asFloat()/64};
+			float[] size = {1f,1f};
+			float[] pad = { 0.1f, 0.1f};
+			String debugColor = "blue";
+
+			if (boxJSON != null) {
+				pos[0] = boxJSON.get("x").asFloat()/64;
+				pos[1] = boxJSON.get("y").asFloat()/64 - 0.27f;
+				size[0] = boxJSON.get("width").asFloat()/64;
+				size[1] = boxJSON.get("height").asFloat()/64;
 			}
-			else if(layerName.equals("Base")){
-//				System.out.println("loading background");
-
-
-				int[] data = layer.get("data").asIntArray();
-				int height = layer.get("height").asInt();
-				int width = layer.get("width").asInt();
-
-
-				for(int j = 0; j < height*width; j++){
-					//dataMatrix[j%width][height - 1 - ((j - (6%width))/height)] = data[j];
-//                    System.out.println("width: " + width + ", height: " + height);
-					int newx = j % width ; //(height - 1 - ((j - (6%width))/height));
-					int newy = height - (j / width);//(j%width);
-//					System.out.println("newx "+ newx + " new y " + newy);
-
-
-					int f = 0;
-					while(f<data[j] && !idToTexture.containsKey(data[j] - f)){
-
-						f++;
-					}
-					//System.out.println(data[j] + " : "+ (data[j] - f));
-					String texName = idToTexture.get(data[j] - f);
-//					System.out.println(texName);
-					TextureRegion texture = JsonAssetManager.getInstance().getEntry(texName, TextureRegion.class);
-
-					// IMPORTANT PROBLEM: TEXTURE IS NULL
-					if(texture != null) {
-
-//						System.out.println(texture.getRegionHeight());
-						TextureRegion[][] textures = texture.split(64, 64);
-//						System.out.println(f % textures.length + " " + f / textures.length);
-						TextureRegion texNew = textures[f / textures[0].length][f % textures[0].length];
-						tiles.add(new BackgroundModel(newx, newy, texNew));
-					}
-
-
 
-				}
+			if (film != null) {
+				obj2.initialize(pos, size, pad, debugColor, film, pSize[1], layerOffsetX, layerOffsetY);
+				obj2.setDrawScale(scale);
+				addStaticBlock(obj2);
 			}
-			else if (layerName.equals("Exit")){
-//				System.out.println("loading exit");
-
-
-				JsonValue exitValues = null;
-				JsonValue boundValues = null;
-
-
-				for(int j = 0; j< objects.size; j++){
-
-					JsonValue obj = objects.get(j);
-					String name = obj.get("name").asString();
-					if(name.equals("exit")){
-						exitValues = obj.get("properties");
-					}
-					else{
-						boundValues = obj;
-					}
-
-
+		} else if (layerName.equals("Buildings")) {
+			JsonValue buildingJSON = layerObjects.get((step+1) + "");
+			JsonValue boxJSON = layerBoxes.get((step+1) + "");
+			String textName = buildingJSON.get("properties").get("texture").asString();
+			TextureRegion film = JsonAssetManager.getInstance().getEntry(textName.trim(), TextureRegion.class);
+
+			// BUILDINGS
+			InteriorModel obj2 = new InteriorModel();
+			float[] pos = {buildingJSON.get("x").asFloat()/64, buildingJSON.get("y").asFloat()/64 + 1.75f};
+			float[] size = {1f,1f};
+			float[] pad = { 0.1f, 0.1f};
+			String debugColor = "red";
+
+			if (boxJSON != null) {
+				pos[0] = boxJSON.get("x").asFloat()/64;
+				pos[1] = boxJSON.get("y").asFloat()/64 + 1.75f;
+				if (textName.contains("128") || textName.contains("64")) {
+					pos[1] = boxJSON.get("y").asFloat()/64 + 0.3f;
 				}
-				//check ids equal to specific objects
-				goalDoor = new ExitModel();
-				float x = boundValues.get("x").asFloat();
-//				System.out.println();
-				float y = (boundValues.get("y").asFloat());
-				float[] pos = {x,y};
-				float width = boundValues.get("width").asFloat();
-				float height = boundValues.get("height").asFloat();
-				String debugC = "yellow";
-//				System.out.println("psize" +pSize[0] + "  " + pSize[1]);
-				String tex = exitValues.get("texture").asString();
-				goalDoor.initialize(pos,width,height,debugC, tex, pSize);
-				goalDoor.setDrawScale(scale);
-				activate(goalDoor);
-
-			}
-		}
-
-
-
-
-
-//		JsonValue bounds = levelFormat.getChild("exterior");
-//		while (bounds != null) {
-//			ExteriorModel obj = new ExteriorModel();
-//			obj.initialize(bounds);
-//			obj.setDrawScale(scale);
-//			activate(obj);
-//			barriers.add(obj);
-//			bounds = bounds.next();
-//		}
-
-		//attachLights(creature);
-
-		// Create cone lights to be line of sights of creatures.
+				size[0] = boxJSON.get("width").asFloat()/64;
+				size[1] = boxJSON.get("height").asFloat()/64;
+			}
 
-		// Create the creatures and attach light sources
-		// Create box
-		box = new BoxModel(1, 1);
+			if (film != null) {
+				obj2.initialize(pos, size, pad, debugColor, film, pSize[1], layerOffsetX, layerOffsetY);
+				obj2.setDrawScale(scale);
+				addStaticBlock(obj2);
+			}
+		} else if (layerName.equals("Shadow")) {
+			buildTileRow(step, shadowTiles, true);
+		} else if (layerName.equals("Outline")) {
+			buildTileRow(step, outlineTiles, true);
+		} else if (layerName.equals("Tutorial")) {
+			buildTileRow(step, tutorialTiles, false);
+		} else if (layerName.equals("Base")) {
+			buildTileRow(step, tiles, true);
+		} else if (layerName.equals("Exit")) {
+			JsonValue objects = layer.get("objects");
+			JsonValue exitValues = null;
+			JsonValue boundValues = null;
+
+			for (int j = 0; j < objects.size; j++) {
+				JsonValue obj = objects.get(j);
+				String name = obj.get("name").asString();
+				if (name.equals("exit")) {
+					exitValues = obj.get("properties");
+				} else {
+					boundValues = obj;
+				}
+			}
+			//check ids equal to specific objects
+			goalDoor = new ExitModel();
+			float x = boundValues.get("x").asFloat();
+			float y = (boundValues.get("y").asFloat());
+			float[] pos = {x,y};
+			float width = boundValues.get("width").asFloat();
+			float height = boundValues.get("height").asFloat();
+			String debugC = "yellow";
+			String tex = exitValues.get("texture").asString();
+			goalDoor.initialize(pos,width,height,debugC, tex, pSize);
+			addEntity(goalDoor, goalDoor.getAnimator());
+			goalDoor.setDrawScale(scale);
+			activate(goalDoor);
+		} else if (layerName.equals("Crate")) {
+			// The box is built once, and sleeps out of the store until it is summoned
+			BoxModel crate = new BoxModel(1, 1);
+			crate.initialize(layer);
+			crate.setDrawScale(scale);
+			crate.activatePhysics(world);
+			setAnimatedBox(crate);
+		} else if (layerName.equals("Bird")) {
+			// The bird is built once, and sleeps out of the store until it is launched
+			JsonValue distractiondata = layer.get("objects");
+			JsonValue birdinfo = distractiondata.get(0).get("properties");
+			JsonValue birdbox = distractiondata.get(1);
+			distraction = new DistractionModel(0, 0, false, AnnetteModel.Direction.RIGHT);
+			distraction.initialize(birdinfo, birdbox);
+			distraction.setDrawScale(scale);
+			distraction.activatePhysics(world);
+		}
+	}
 
-		if (distraction != null) {
-			distraction.setAlive(false);
+	/**
+	 * Builds the creature with the given index in the current creature layer
+	 *
+	 * @param step	the index of the creature (the creature number minus 1)
+	 */
+	private void buildCreature(int step) {
+		FrameTable[] film = new FrameTable[3];
+		JsonValue creatureJSON = layerObjects.get("" + (step + 1)).get("properties");
+		JsonValue boxJSON = layerBoxes.get("" + (step + 1));
+		String[] textures = {creatureJSON.get("texture").asString(),
+							 creatureJSON.get("texture2").asString(),
+							 creatureJSON.get("texture3").asString()};
+
+		// The frames are shared, but every creature keeps its own animation state
+		for (int f = 0; f < 3; f++) {
+			film[f] = JsonAssetManager.getInstance().getFrames(textures[f]);
 		}
+		CreatureModel creature = new CreatureModel();
+		creature.initialize(creatureJSON, boxJSON, film[0], film[1], film[2], pSize[1]);
+		creature.setDrawScale(scale);
+		Entity entity = addEntity(creature, creature.getAnimator());
+		entity.getComponent(TransformComponent.class).size.set(creature.getWidth(), creature.getHeight());
+		entity.add(new VisionComponent(creature.getMovement()));
+		activate(creature);
+		creatures.add(creature);
+		creatureExtent = Math.max(creatureExtent, Math.max(creature.getWidth(), creature.getHeight()));
+	}
 
-		int ind = 0;
-		for (CreatureModel c : creatures) {
-			attachVision(c, lights.get(ind));
-			ind+=1;
+	/**
+	 * Builds a single row of a tile layer
+	 *
+	 * Each tile id is matched to the tileset with the largest first id below it.  Most
+	 * tilesets are sheets of 64x64 tiles, which are split once per populate and shared
+	 * by every tile of the level.
+	 *
+	 * The tiles were decoded by prepareLayer, so this only indexes into them.
+	 *
+	 * @param row		the row to build (from the top of the layer)
+	 * @param target	the tile list to add to
+	 * @param sheet		whether the tilesets are sheets of 64x64 tiles
+	 */
+	private void buildTileRow(int row, Array<BackgroundModel> target, boolean sheet) {
+		int[] data = layerData;
+		int height = layerHeight;
+		int width = layerWidth;
+
+		for (int j = row*width; j < (row+1)*width; j++) {
+			int newx = j % width;
+			int newy = height - (j / width);
+
+			int f = 0;
+			while (f < data[j] && !idToTexture.containsKey(data[j] - f)) {
+				f++;
+			}
+			String texName = idToTexture.get(data[j] - f);
+			TextureRegion texture = JsonAssetManager.getInstance().getEntry(texName, TextureRegion.class);
+
+			// IMPORTANT PROBLEM: TEXTURE IS NULL
+			if (texture == null) {
+				continue;
+			}
+			if (sheet) {
+				TextureRegion[][] textures = tileRegions.get(texName);
+				if (textures == null) {
+					textures = texture.split(64, 64);
+					tileRegions.put(texName, textures);
+				}
+				texture = textures[f / textures[0].length][f % textures[0].length];
+			}
+			target.add(new BackgroundModel(newx, newy, texture));
 		}
 	}
 
@@ -1370,47 +1386,71 @@ public class LevelModel {
         }
     }
 
-    public void createBox(JsonValue levelFormat) {
-        box = new BoxModel(annette.getX(), annette.getY());
-        JsonValue layers = levelFormat.get("layers");
-        for(int i =0; i< layers.size; i++){
-            if(layers.get(i).get("name").asString().equals("Bird")){
-                //initialize bird here
-                JsonValue distractiondata = layers.get(i).get("objects");
-                JsonValue birdinfo = distractiondata.get(0).get("properties");
-                JsonValue birdbox = distractiondata.get(1);
-                distraction.initialize(birdinfo, birdbox);
-
-                distraction.setDrawScale(scale);
-                activate(distraction);
-                distraction.setActive(true);
-                distraction.setAlive(false);
-            }
-        }
+    /**
+	 * Summons the box at the given position
+	 *
+	 * The box is built when the level is populated, so this only wakes its body and
+	 * puts it back in the object store.
+	 *
+	 * @param x	the x-coordinate of the box
+	 * @param y	the y-coordinate of the box
+	 *
+	 * @return true if the box was summoned (false if the level has no crate)
+	 */
+	public boolean summonBox(float x, float y) {
+		if (box == null || box.getBody() == null) {
+			return false;
+		}
+		box.summon(x, y);
+		objects.add(box, ObstacleStore.TRANSIENT);
+		grid.add(box);
+		return true;
+	}
 
-//		distraction.activatePhysics(world);
-    }
+	/**
+	 * Puts the box away until it is summoned again
+	 *
+	 * This must not be called during a physics step.
+	 */
+	public void dismissBox() {
+		if (box != null) {
+			objects.remove(box);
+			grid.remove(box);
+			box.dismiss();
+		}
+	}
 
-    public void createDistraction(JsonValue levelFormat) {
-        distraction = new DistractionModel(annette.getX(), annette.getY(), false, annette.getDirection());
-        JsonValue layers = levelFormat.get("layers");
-        for(int i =0; i< layers.size; i++){
-        	if(layers.get(i).get("name").asString().equals("Bird")){
-        		//initialize bird here
-				JsonValue distractiondata = layers.get(i).get("objects");
-				JsonValue birdinfo = distractiondata.get(0).get("properties");
-				JsonValue birdbox = distractiondata.get(1);
-				distraction.initialize(birdinfo, birdbox);
-
-				distraction.setDrawScale(scale);
-				activate(distraction);
-				distraction.setActive(true);
-				distraction.setAlive(false);
-			}
+	/**
+	 * Launches the bird from Annette, in the direction she is facing
+	 *
+	 * The bird is built when the level is populated, so this only wakes its body and
+	 * puts it back in the object store.
+	 *
+	 * @return true if the bird was launched (false if the level has no bird)
+	 */
+	public boolean launchDistraction() {
+		if (distraction == null || distraction.getBody() == null) {
+			return false;
 		}
+		distraction.launch(annette.getX(), annette.getY(), annette.getDirection());
+		objects.add(distraction, ObstacleStore.TRANSIENT);
+		grid.add(distraction);
+		return true;
+	}
 
-//		distraction.activatePhysics(world);
-    }
+	/**
+	 * Kills the bird, removing it from the object store
+	 *
+	 * This is safe to call during a physics step (such as in a contact callback), as
+	 * the body of the bird is only put to sleep on the next update.
+	 */
+	public void dismissDistraction() {
+		if (distraction != null) {
+			distraction.setAlive(false);
+			objects.remove(distraction);
+			grid.remove(distraction);
+		}
+	}
 
 
     /**
@@ -1432,6 +1472,8 @@ public class LevelModel {
 		RayHandler.useDiffuseLight(diffuse);
 		rayhandler = new RayHandler(world, Gdx.graphics.getWidth(), Gdx.graphics.getWidth());
 		rayhandler.setCombinedMatrix(raycamera);
+		// Lights outside of the camera given to setCombinedMatrix are neither raycast nor rendered
+		rayhandler.setCulling(true);
 
 		rayhandler.setAmbientLight(color[0], color[1], color[2], color[3]);
 		normal_r = color[0];
@@ -1463,6 +1505,7 @@ public class LevelModel {
 	 *
 	 */
 	private void createRadiusofPower() {
+		long start = LoadTimeline.getInstance().now();
 		float[] color = {0.6f, 0.0f, 0.0f, 0.3f};
 		float[] pos = {  0,   0};
 		float dist  = 11;
@@ -1480,6 +1523,7 @@ public class LevelModel {
 		point.setActive(false); // TURN ON LATER
 
 		radiusOfPower = point;
+		LoadTimeline.getInstance().record("lights", "create radius of power", start);
 	}
 
 	/**
@@ -1579,6 +1623,10 @@ public class LevelModel {
 		light.attachToBody(creature.getBody(), 0, 0, light.getDirection());
 
 		creature.setVision(light);
+		Entity entity = entities.get(creature);
+		if (entity != null) {
+			entity.getComponent(VisionComponent.class).light = light;
+		}
 	}
 
 	public void attachPowerRadius (AnnetteModel annette, LightSource light){
@@ -1597,6 +1645,7 @@ public class LevelModel {
 			light.remove();
 		}
 		lights.clear();
+		lightStamps.clear();
 
 		if (rayhandler != null) {
 			rayhandler.dispose();
@@ -1608,19 +1657,39 @@ public class LevelModel {
 			obj.dispose();
 		}
 		objects.clear();
+		grid.clear();
+
+		// The box and the bird are out of the store while they sleep.  They are only
+		// rebuilt if the next level has them, so they must not outlive this one.
+		if (box != null) {
+			box.deactivatePhysics(world);
+			setAnimatedBox(null);
+		}
+		if (distraction != null) {
+			distraction.deactivatePhysics(world);
+			distraction = null;
+		}
+		mazes.clear();
+		staticBlocks.clear();
+		staticGeometry.clear();
 
 		for(CreatureModel c : creatures) {
 			c.deactivatePhysics(world);
 			c.dispose();
 		}
 		creatures.clear();
+		creatureExtent = 0;
+		engine.removeAllEntities();
+		entities.clear();
 
 		if (world != null) {
 			world.dispose();
 			world = null;
 		}
 
+		TextureRegistry.getInstance().releaseAll(this);
 		background = null;
+		endPopulate();
 
 		tiles.clear();
 		shadowTiles.clear();
@@ -1641,8 +1710,73 @@ public class LevelModel {
 	 */
 	protected void activate(Obstacle obj) {
 		assert inBounds(obj) : "Object is not in bounds";
-		objects.add(obj);
+		objects.add(obj, categoryOf(obj));
 		obj.activatePhysics(world);
+		obj.snapInterpolation();
+		grid.add(obj);
+	}
+
+	/**
+	 * Returns the category of the object store for the given object
+	 *
+	 * The box and the bird come and go during play, so they are kept apart from the
+	 * static geometry and the actors.
+	 *
+	 * @param obj The object to classify
+	 *
+	 * @return the category of the object store for the given object
+	 */
+	private static int categoryOf(Obstacle obj) {
+		if (obj instanceof InteriorModel || obj instanceof StaticGeometryModel) {
+			return ObstacleStore.STATIC;
+		} else if (obj instanceof BoxModel || obj instanceof DistractionModel) {
+			return ObstacleStore.TRANSIENT;
+		}
+		return ObstacleStore.ACTORS;
+	}
+
+	/**
+	 * Adds a static rectangle to be compiled into the interior models
+	 *
+	 * The rectangle is drawn like any other object, but it does not get a body of
+	 * its own.  Instead, compileStaticGeometry merges all of these rectangles into
+	 * a few large static bodies.
+	 *
+	 * @param block The static rectangle to add
+	 */
+	protected void addStaticBlock(InteriorModel block) {
+		objects.add(block, ObstacleStore.STATIC);
+		grid.add(block);
+		staticBlocks.add(block);
+	}
+
+	/**
+	 * Compiles the static rectangles into merged static bodies
+	 *
+	 * Rectangles with the same collision category are merged into a single body,
+	 * with touching and overlapping rectangles combined into fewer fixtures.  This
+	 * cuts down on the broadphase pairs and on the fixtures each light ray must
+	 * test.  The merged bodies become the interior models used by the contacts.
+	 */
+	protected void compileStaticGeometry() {
+		IntMap<StaticGeometryModel> groups = new IntMap<StaticGeometryModel>();
+		for(InteriorModel block : staticBlocks) {
+			int category = block.getFilterData().categoryBits;
+			StaticGeometryModel geometry = groups.get(category);
+			if (geometry == null) {
+				geometry = new StaticGeometryModel();
+				groups.put(category, geometry);
+			}
+			geometry.addBlock(block);
+		}
+		staticBlocks.clear();
+
+		for(StaticGeometryModel geometry : groups.values()) {
+			geometry.compile();
+			activate(geometry);
+			mazes.add(geometry);
+			staticGeometry.add(geometry);
+		}
 	}
 
 	/**
@@ -1669,43 +1803,39 @@ public class LevelModel {
 	 * @param dt the time passed since the last frame
 	 */
 	public boolean update(float dt) {
+		int steps = stepCount;
 		if (fixedStep(dt)) {
 			if (rayhandler != null) {
-				rayhandler.update();
-
-				}
+				updateLights(stepCount-steps);
+			}
 
 
 			annette.update(dt);
 			for (CreatureModel creature : creatures){
 				creature.update(dt);
-				creature.getVision().setPosition(creature.getX()+creature.getWidth()/2,creature.getY()+creature.getHeight());
-				if (creature.getMovement().x > 0) {
-					creature.getVision().setDirection(0);
-					creature.getVision().setPosition(creature.getX()-creature.getWidth()/2,creature.getY()+creature.getHeight());
-				}
-				else if (creature.getMovement().x < 0) {
-					creature.getVision().setDirection(180);
-					creature.getVision().setPosition(creature.getX()-creature.getWidth()/4,creature.getY()+creature.getHeight());
-				}
-				else if (creature.getMovement().y < 0) {
-					creature.getVision().setDirection(270);
-					creature.getVision().setPosition(creature.getX()+creature.getWidth()/4,creature.getY()-creature.getHeight()/2);
-				}
-				else if (creature.getMovement().y > 0) {
-					creature.getVision().setDirection(90);
-					creature.getVision().setPosition(creature.getX()+creature.getWidth()/4,creature.getY()+creature.getHeight()/2);
-				}
 			}
 			goalDoor.update(dt);
 			box.update(dt);
             if (distraction!=null) {
 				distraction.update(dt);
-				if (!distraction.getAlive()) {
+				if (!distraction.getAlive() && distraction.isAwake()) {
 					objects.remove(distraction);
+					grid.remove(distraction);
+					distraction.putAway();
 				}
             }
 
+			// Only the actors and transient objects move
+			for (int ii = 0; ii < objects.size(ObstacleStore.ACTORS); ii++) {
+				grid.update(objects.get(ObstacleStore.ACTORS, ii));
+			}
+			for (int ii = 0; ii < objects.size(ObstacleStore.TRANSIENT); ii++) {
+				grid.update(objects.get(ObstacleStore.TRANSIENT, ii));
+			}
+
+			// Sync the transforms, then aim the vision cones and advance the animations
+			engine.update(dt);
+
 			return true;
 		}
 		return false;
@@ -1727,14 +1857,363 @@ public class LevelModel {
 		}
 
 		boolean stepped = false;
+		long now = TimeUtils.nanoTime();
 		while (physicsTimeLeft >= timeStep) {
+			if (stepListener != null) {
+				stepListener.preStep(now-(long)((physicsTimeLeft-timeStep)*1000000000L));
+			}
+			for (Obstacle obj : objects) {
+				obj.saveState();
+			}
+			moveKinematicCreatures(timeStep);
 			world.step(timeStep, WORLD_VELOC, WORLD_POSIT);
 			physicsTimeLeft -= timeStep;
+			stepCount++;
 			stepped = true;
 		}
 		return stepped;
 	}
 
+	/**
+	 * Sets the velocity of each kinematic creature for the next physics step
+	 *
+	 * Kinematic creatures never generate contacts with the static geometry, so we
+	 * sweep their bounding boxes ourselves.  A creature that would run into a
+	 * building, the box or another creature is stopped just short of it and marked
+	 * as stuck, exactly as the contact listener does for dynamic creatures.
+	 *
+	 * @param dt the length of the physics step
+	 */
+	private void moveKinematicCreatures(float dt) {
+		for (CreatureModel c : creatures) {
+			if (!c.isKinematic() || c.getBody() == null) {
+				continue;
+			}
+
+			Vector2 velocity = c.getKinematicVelocity(dt);
+			float dx = velocity.x * dt;
+			float dy = velocity.y * dt;
+			if (dx == 0 && dy == 0) {
+				c.setLinearVelocity(Vector2.Zero);
+				continue;
+			}
+
+			// Creatures are rotated to face their movement
+			float cos = Math.abs((float)Math.cos(c.getAngle()));
+			float sin = Math.abs((float)Math.sin(c.getAngle()));
+			float hw = (cos * c.getWidth() + sin * c.getHeight()) / 2;
+			float hh = (sin * c.getWidth() + cos * c.getHeight()) / 2;
+			Filter filter = c.getFilterData();
+
+			float t = 1;
+			for (StaticGeometryModel geometry : staticGeometry) {
+				if (!shouldCollide(filter, geometry.getFilterData())) {
+					continue;
+				}
+				for (Rectangle rect : geometry.getRectangles()) {
+					t = Math.min(t, sweep(c.getX(), c.getY(), hw, hh, dx, dy,
+										  rect.x + rect.width / 2, rect.y + rect.height / 2, rect.width / 2, rect.height / 2));
+				}
+			}
+
+			for (CreatureModel other : creatures) {
+				if (other != c && other.getBody() != null && shouldCollide(filter, other.getFilterData())) {
+					t = Math.min(t, sweep(c.getX(), c.getY(), hw, hh, dx, dy,
+										  other.getX(), other.getY(), other.getWidth() / 2, other.getHeight() / 2));
+				}
+			}
+
+			BoxModel box = getBox();
+			if (box != null && box.getBody() != null && box.isActive() && box.getDoesExist()
+					&& shouldCollide(filter, box.getFilterData())) {
+				float tb = sweep(c.getX(), c.getY(), hw, hh, dx, dy,
+								 box.getX(), box.getY(), box.getWidth() / 2, box.getHeight() / 2);
+				if (tb < 1) {
+					c.setStuckBox(true);
+				}
+				t = Math.min(t, tb);
+			}
+
+			if (t < 1) {
+				c.setStuck(true);
+				t = Math.max(0, t - KINEMATIC_SKIN / (float)Math.sqrt(dx * dx + dy * dy));
+			}
+			c.setLinearVelocity(velocity.set(dx * t / dt, dy * t / dt));
+		}
+	}
+
+	/**
+	 * Returns the fraction of a move before one box runs into another
+	 *
+	 * The first box (with center x, y and half-extents hw, hh) moves by dx, dy.  The
+	 * other box (with center ox, oy and half-extents ohw, ohh) is still.  The method
+	 * returns 1 if the boxes do not meet.  Boxes that already overlap are allowed to
+	 * move apart freely.
+	 *
+	 * @return the fraction of a move before one box runs into another
+	 */
+	private float sweep(float x, float y, float hw, float hh, float dx, float dy,
+						float ox, float oy, float ohw, float ohh) {
+		float ex = hw + ohw;
+		float ey = hh + ohh;
+		if (Math.abs(x - ox) < ex && Math.abs(y - oy) < ey) {
+			return 1;
+		}
+
+		float enter = 0;
+		float leave = 1;
+		if (dx == 0) {
+			if (Math.abs(x - ox) >= ex) {
+				return 1;
+			}
+		} else {
+			float t1 = (ox - ex - x) / dx;
+			float t2 = (ox + ex - x) / dx;
+			enter = Math.max(enter, Math.min(t1, t2));
+			leave = Math.min(leave, Math.max(t1, t2));
+		}
+		if (dy == 0) {
+			if (Math.abs(y - oy) >= ey) {
+				return 1;
+			}
+		} else {
+			float t1 = (oy - ey - y) / dy;
+			float t2 = (oy + ey - y) / dy;
+			enter = Math.max(enter, Math.min(t1, t2));
+			leave = Math.min(leave, Math.max(t1, t2));
+		}
+		return enter < leave ? enter : 1;
+	}
+
+	/**
+	 * Returns true if no solid fixture overlaps the given area
+	 *
+	 * This is a single query of the world, intended for checks that only happen
+	 * on demand (such as whether there is room to summon the box).  Sensors and
+	 * the fixtures of the ignored object do not count.
+	 *
+	 * @param area		the area to check (in physics coordinates)
+	 * @param ignore	an object whose fixtures should not count (may be null)
+	 *
+	 * @return true if no solid fixture overlaps the given area
+	 */
+	public boolean isAreaClear(Rectangle area, Obstacle ignore) {
+		if (world == null) {
+			return false;
+		}
+		areaQuery.reset(area, ignore == null ? null : ignore.getBody());
+		world.QueryAABB(areaQuery, area.x, area.y, area.x + area.width, area.y + area.height);
+		return areaQuery.clear;
+	}
+
+	/**
+	 * Adds every object whose bounding box overlaps the area to the given array
+	 *
+	 * This uses the spatial index of the level, so the cost depends on the number of
+	 * objects near the area, and not on the size of the level.  The array is not
+	 * cleared first.
+	 *
+	 * @param area	the area to search (in physics coordinates)
+	 * @param out	the array to add the objects to
+	 *
+	 * @return the array out, for chaining
+	 */
+	public Array<Obstacle> queryArea(Rectangle area, Array<Obstacle> out) {
+		return grid.query(area, out);
+	}
+
+	/**
+	 * Adds every object within the radius of a point to the given array
+	 *
+	 * The search uses the bounding boxes of the objects, and a radius of 0 finds the
+	 * objects whose bounding box holds the point.  The array is not cleared first.
+	 *
+	 * @param x			the x-coordinate of the point (in physics coordinates)
+	 * @param y			the y-coordinate of the point (in physics coordinates)
+	 * @param radius	the distance from the point (in physics units)
+	 * @param out		the array to add the objects to
+	 *
+	 * @return the array out, for chaining
+	 */
+	public Array<Obstacle> queryRadius(float x, float y, float radius, Array<Obstacle> out) {
+		return grid.query(x, y, radius, out);
+	}
+
+	/**
+	 * Returns true if the object is a wall (part of the static geometry)
+	 *
+	 * The mazes and the barriers are all static, so this is a lookup in the object
+	 * store rather than a search of those lists.
+	 *
+	 * @param obj	the object to check
+	 *
+	 * @return true if the object is a wall
+	 */
+	public boolean isWall(Obstacle obj) {
+		return obj != null && objects.getCategory(obj) == ObstacleStore.STATIC;
+	}
+
+	/**
+	 * Callback to find a solid fixture in an area of the world
+	 *
+	 * The broadphase reports every fixture whose (padded) bounding box touches the
+	 * area, so this checks the actual bounds of each fixture before counting it.
+	 */
+	private static class AreaQuery implements QueryCallback {
+		/** The area to check */
+		private Rectangle area = new Rectangle();
+		/** The body whose fixtures do not count */
+		private Body ignore;
+		/** Whether the area has been clear so far */
+		private boolean clear;
+		/** Cache for fixture vertices */
+		private Vector2 vertex = new Vector2();
+
+		/**
+		 * Prepares this callback for a new query
+		 *
+		 * @param value	the area to check
+		 * @param body	the body whose fixtures do not count
+		 */
+		public void reset(Rectangle value, Body body) {
+			area.set(value);
+			ignore = body;
+			clear = true;
+		}
+
+		/**
+		 * Checks a fixture reported by the broadphase
+		 *
+		 * @param fixture	the fixture to check
+		 *
+		 * @return false to stop the query once the area is known to be blocked
+		 */
+		public boolean reportFixture(Fixture fixture) {
+			if (fixture.isSensor() || fixture.getBody() == ignore) {
+				return true;
+			}
+			clear = !overlaps(fixture);
+			return clear;
+		}
+
+		/**
+		 * Returns true if the bounding box of the fixture overlaps the area
+		 *
+		 * @param fixture	the fixture to check
+		 *
+		 * @return true if the bounding box of the fixture overlaps the area
+		 */
+		private boolean overlaps(Fixture fixture) {
+			Shape shape = fixture.getShape();
+			Transform transform = fixture.getBody().getTransform();
+			float minX, minY, maxX, maxY;
+			if (shape instanceof PolygonShape) {
+				PolygonShape poly = (PolygonShape)shape;
+				minX = minY = Float.MAX_VALUE;
+				maxX = maxY = -Float.MAX_VALUE;
+				for (int ii = 0; ii < poly.getVertexCount(); ii++) {
+					poly.getVertex(ii, vertex);
+					transform.mul(vertex);
+					minX = Math.min(minX, vertex.x);
+					minY = Math.min(minY, vertex.y);
+					maxX = Math.max(maxX, vertex.x);
+					maxY = Math.max(maxY, vertex.y);
+				}
+			} else if (shape instanceof CircleShape) {
+				vertex.set(((CircleShape)shape).getPosition());
+				transform.mul(vertex);
+				float radius = shape.getRadius();
+				minX = vertex.x - radius;
+				minY = vertex.y - radius;
+				maxX = vertex.x + radius;
+				maxY = vertex.y + radius;
+			} else {
+				return true;
+			}
+			return minX < area.x + area.width && area.x < maxX && minY < area.y + area.height && area.y < maxY;
+		}
+	}
+
+	/**
+	 * Returns true if fixtures with the given filters would collide
+	 *
+	 * This is the same rule that Box2D uses for collision filtering.
+	 *
+	 * @param a	the filter of the first fixture
+	 * @param b	the filter of the second fixture
+	 *
+	 * @return true if fixtures with the given filters would collide
+	 */
+	private static boolean shouldCollide(Filter a, Filter b) {
+		if (a.groupIndex == b.groupIndex && a.groupIndex != 0) {
+			return a.groupIndex > 0;
+		}
+		return (a.maskBits & b.categoryBits) != 0 && (a.categoryBits & b.maskBits) != 0;
+	}
+
+	/**
+	 * Raycasts the next few lights in round-robin order
+	 *
+	 * Rather than have the rayhandler raycast every light on every physics step, each
+	 * light is only raycast lightRate times a second.  The work is spread evenly over
+	 * the steps, and a light keeps its previous polygon until its turn comes around.
+	 *
+	 * @param steps the number of physics steps taken this frame
+	 */
+	private void updateLights(int steps) {
+		int total = lights.size + (radiusOfPower != null ? 1 : 0);
+		if (total == 0 || steps == 0) {
+			return;
+		}
+
+		if (lightRate <= 0 || lightRate >= maxFPS) {
+			for (int ii = 0; ii < total; ii++) {
+				refreshLight(getLightAt(ii));
+			}
+			return;
+		}
+
+		lightDebt += steps * total * (float)lightRate / maxFPS;
+		int count = Math.min((int)lightDebt, total);
+		lightDebt -= (int)lightDebt;
+		for (int ii = 0; ii < count; ii++) {
+			refreshLight(getLightAt(lightCursor));
+			lightCursor = (lightCursor+1) % total;
+		}
+	}
+
+	/**
+	 * Returns the light at the given round-robin index
+	 *
+	 * The cone lights come first, followed by the radius of power.
+	 *
+	 * @param index the round-robin index
+	 *
+	 * @return the light at the given round-robin index
+	 */
+	private LightSource getLightAt(int index) {
+		return index < lights.size ? lights.get(index) : radiusOfPower;
+	}
+
+	/**
+	 * Raycasts the given light if it is stale for the current physics step
+	 *
+	 * AI perception queries the light polygon directly, so it should call this method
+	 * first to get a fresh answer even when the light is between round-robin updates.
+	 * A light is raycast at most once per physics step.
+	 *
+	 * @param light the light to refresh
+	 */
+	public void refreshLight(LightSource light) {
+		if (light == null || !light.isActive()) {
+			return;
+		}
+		if (lightStamps.get(light, -1) != stepCount) {
+			light.update();
+			lightStamps.put(light, stepCount);
+		}
+	}
+
 	/**
 	 * Draws the level to the given game canvas
 	 *
@@ -1751,7 +2230,14 @@ public class LevelModel {
 		AnnetteModel annette = getAnnette();
 		BoxModel box = getBox();
 
-		Vector2 pos = annette.getPosition();
+		// Draw everything partway between the last two physics steps
+		float alpha = timeStep > 0 ? physicsTimeLeft / timeStep : 1;
+		for (Obstacle obj : objects) {
+			obj.interpolate(alpha);
+		}
+
+		float px = annette.getRenderX();
+		float py = annette.getRenderY();
 		Vector2 scale = annette.getDrawScale();
 
 		// Accounts for edges of screen
@@ -1805,9 +2291,10 @@ public class LevelModel {
 				break;
 			}
 		}
-		float tx = pos.x <= cameraXStart ? cameraXStart : (pos.x >= cameraXEnd ? cameraXEnd : pos.x);
-		float ty = pos.y <= cameraYStart ? cameraYStart : (pos.y >= cameraYEnd ? cameraYEnd : pos.y);
+		float tx = px <= cameraXStart ? cameraXStart : (px >= cameraXEnd ? cameraXEnd : px);
+		float ty = py <= cameraYStart ? cameraYStart : (py >= cameraYEnd ? cameraYEnd : py);
 
+		setView(tx, ty, canvas.getWidth()/scale.x, canvas.getHeight()/scale.y);
 
 		oTran.setToTranslation(TRANSLATION*tx, TRANSLATION*ty);
 		wTran.setToTranslation(canvas.getWidth()/2,canvas.getHeight()/2);
@@ -1819,20 +2306,7 @@ public class LevelModel {
 
 
 		//DRAWS BACKGROUND TILES HERE
-		for(int i =0;i< tiles.size; i++){
-			tiles.get(i).draw(canvas);
-
-		}
-		for(int i =0;i< tutorialTiles.size; i++){
-			tutorialTiles.get(i).draw(canvas);
-
-		}
-		for(int i=0; i< outlineTiles.size; i++) {
-			outlineTiles.get(i).draw(canvas);
-		}
-        for(int i=0; i< shadowTiles.size; i++) {
-            shadowTiles.get(i).draw(canvas);
-        }
+		drawTiles(canvas);
 
 
 
@@ -1853,27 +2327,11 @@ public class LevelModel {
 
 		canvas.begin(oTran);
 
-		int n = objects.size();
-		for (int x=0; x<n; x++) // bubble sort outer loop
-		{
-			for (int i=0; i < n - x - 1; i++) {
-				if (objects.get(i).getLowestY() < (objects.get(i+1).getLowestY()) )
-				{
-					Obstacle temp = objects.get(i);
-					objects.set(i,objects.get(i+1) );
-					objects.set(i+1, temp);
-				}
-			}
-		}
-
 //		canvas.begin();
 
 //		canvas.end();
 
-
-		for(Obstacle obj : objects) {
-			obj.draw(canvas);
-		}
+		drawObjects(canvas);
 
 		if (box.getDeactivated()) {
 			color = Color.DARK_GRAY;
@@ -1896,14 +2354,86 @@ public class LevelModel {
 		// Draw debugging on top of everything.
 		if (debug) {
 			canvas.beginDebug(oTran);
-			for(Obstacle obj : objects) {
-				obj.drawDebug(canvas);
+			for (int ii = 0; ii < drawOrder.size; ii++) {
+				drawOrder.get(ii).drawDebug(canvas);
 			}
 			canvas.endDebug();
 		}
 
 	}
 
+	/**
+	 * Sets the area that the camera can see
+	 *
+	 * Nothing outside of this area is drawn.  The area is grown by CULL_MARGIN on
+	 * every side, as a sprite may reach further than the body of its obstacle.
+	 *
+	 * @param x			the x-coordinate of the camera center (in physics units)
+	 * @param y			the y-coordinate of the camera center (in physics units)
+	 * @param width		the width of the camera (in physics units)
+	 * @param height	the height of the camera (in physics units)
+	 */
+	void setView(float x, float y, float width, float height) {
+		float halfWidth = width/2 + CULL_MARGIN;
+		float halfHeight = height/2 + CULL_MARGIN;
+		viewBounds.set(x-halfWidth, y-halfHeight, 2*halfWidth, 2*halfHeight);
+	}
+
+	/**
+	 * Collects the objects near the camera, sorted from the highest lowest point down
+	 *
+	 * The objects come from the spatial index, so the cost depends on the number of
+	 * objects on screen, and not on the size of the level.  Objects further down the
+	 * screen are drawn later, so that they are in front.
+	 *
+	 * @return the objects to draw, in order (reused every frame)
+	 */
+	Array<Obstacle> collectDrawOrder() {
+		drawOrder.clear();
+		grid.query(viewBounds, drawOrder);
+		drawOrder.sort(drawComparator);
+		return drawOrder;
+	}
+
+	/**
+	 * Draws the objects that the camera can see, from the back to the front
+	 *
+	 * @param canvas	the drawing context
+	 */
+	void drawObjects(ObstacleCanvas canvas) {
+		collectDrawOrder();
+		for (int ii = 0; ii < drawOrder.size; ii++) {
+			drawOrder.get(ii).draw(canvas);
+		}
+	}
+
+	/**
+	 * Draws the tiles of every layer that the camera can see
+	 *
+	 * @param canvas	the drawing context
+	 */
+	void drawTiles(ObstacleCanvas canvas) {
+		drawTiles(canvas, tiles);
+		drawTiles(canvas, tutorialTiles);
+		drawTiles(canvas, outlineTiles);
+		drawTiles(canvas, shadowTiles);
+	}
+
+	/**
+	 * Draws the tiles of a layer that the camera can see
+	 *
+	 * @param canvas	the drawing context
+	 * @param layer		the tiles of the layer
+	 */
+	private void drawTiles(ObstacleCanvas canvas, Array<BackgroundModel> layer) {
+		for (int ii = 0; ii < layer.size; ii++) {
+			BackgroundModel tile = layer.get(ii);
+			if (tile.overlaps(viewBounds)) {
+				tile.draw(canvas);
+			}
+		}
+	}
+
 	public Affine2 getoTran(){return oTran;}
 
 	public void resetAchievements(){
@@ -0,0 +1,183 @@
+/*
+ * LevelPreloader.java
+ *
+ * Starting a level used to do all of its work at the moment the player clicked: read
+ * and parse the level file, load the textures it uses, and populate the level.  This
+ * class starts on the first two while the player is still choosing.  When a level
+ * button on the level select screen is hovered, the level file is read and parsed on
+ * a background thread.  Its textures are then queued in the asset manager, which
+ * decodes them in the background and uploads them a few at a time on the render
+ * thread.  If the hover moves to another level, the work for the old one is thrown
+ * away (and its textures given back).
+ *
+ * Populating the level is still done when the level starts, as it builds the lights
+ * and physics bodies of the live level.
+ *
+ * Note that this class is an instance of a Singleton.  Use the method getInstance()
+ * to get the current preloader.
+ */
+package edu.cornell.gdiac.cityoflight;
+
+import com.badlogic.gdx.*;
+import com.badlogic.gdx.utils.*;
+
+import java.util.concurrent.*;
+
+import edu.cornell.gdiac.util.*;
+
+/**
+ * A singleton class to prepare the next likely level in the background
+ */
+public class LevelPreloader {
+	/** Milliseconds of texture uploading to allow each frame */
+	private static final int UPLOAD_BUDGET = 4;
+
+	/** The singleton level preloader */
+	private static LevelPreloader preloader;
+
+	/** The thread to parse the level files */
+	private ExecutorService executor;
+	/** The level being prepared (0 if none) */
+	private int level;
+	/** The parsed level file (when the background work is done) */
+	private Future<JsonValue> parse;
+	/** Whether the textures of the level have been queued */
+	private boolean queued;
+
+	/**
+	 * Creates a new level preloader with nothing prepared
+	 */
+	private LevelPreloader() {
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "LevelPreloader");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		level = 0;
+	}
+
+	/**
+	 * Returns the single instance for the LevelPreloader
+	 *
+	 * The first time this is called, it will construct the LevelPreloader.
+	 *
+	 * @return the single instance for the LevelPreloader
+	 */
+	public static LevelPreloader getInstance() {
+		if (preloader == null) {
+			preloader = new LevelPreloader();
+		}
+		return preloader;
+	}
+
+	/**
+	 * Returns the level being prepared (0 if none)
+	 *
+	 * @return the level being prepared (0 if none)
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Starts preparing the given level, cancelling any other level
+	 *
+	 * This does nothing if the level is already being prepared, or if it is 0
+	 * (so that moving the mouse off a button does not throw away the work).
+	 *
+	 * @param value	The level number (starting at 1)
+	 */
+	public void request(int value) {
+		if (value <= 0 || value == level) {
+			return;
+		}
+		cancel();
+		level = value;
+		final String file = GameController.getLevelFile(value);
+		parse = executor.submit(new Callable<JsonValue>() {
+			public JsonValue call() {
+				return new JsonReader().parse(JsonAssetManager.getInstance().resolve(file));
+			}
+		});
+	}
+
+	/**
+	 * Advances the preparation of the current level
+	 *
+	 * This must be called on the render thread every frame while a level may be
+	 * requested.  Once the file is parsed, this queues the textures of the level and
+	 * spends a small budget each frame uploading them.
+	 */
+	public void update() {
+		if (parse == null || !parse.isDone()) {
+			return;
+		}
+		JsonAssetManager manager = JsonAssetManager.getInstance();
+		if (!queued) {
+			JsonValue json = getParsed();
+			if (json == null) {
+				parse = null;
+				return;
+			}
+			manager.prefetchManifest(manager.getManifest(json));
+			queued = true;
+		}
+		manager.update(UPLOAD_BUDGET);
+	}
+
+	/**
+	 * Returns the parsed file of the given level, if it was prepared
+	 *
+	 * The preloader hands over the level and forgets it.  If the level is still
+	 * parsing, this waits for it.  This returns null if the given level was not
+	 * requested.  Any queued textures stay queued; the level manifest either asks
+	 * for them or gives them back when it is allocated.
+	 *
+	 * @param value	The level number (starting at 1)
+	 *
+	 * @return the parsed file of the given level, if it was prepared
+	 */
+	public JsonValue take(int value) {
+		JsonValue result = null;
+		if (value == level && parse != null) {
+			result = getParsed();
+		}
+		parse = null;
+		level = 0;
+		queued = false;
+		return result;
+	}
+
+	/**
+	 * Stops preparing the current level
+	 *
+	 * The parse is abandoned and any textures queued for the level are unloaded.
+	 */
+	public void cancel() {
+		if (parse != null) {
+			parse.cancel(true);
+			parse = null;
+		}
+		if (queued) {
+			JsonAssetManager.getInstance().cancelPrefetch();
+			queued = false;
+		}
+		level = 0;
+	}
+
+	/**
+	 * Returns the result of the finished parse, or null if it failed
+	 *
+	 * @return the result of the finished parse, or null if it failed
+	 */
+	private JsonValue getParsed() {
+		try {
+			return parse.get();
+		} catch (Exception e) {
+			// Fall back to parsing when the level starts
+			return null;
+		}
+	}
+}
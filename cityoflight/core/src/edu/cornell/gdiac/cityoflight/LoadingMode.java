@@ -12,9 +12,9 @@
  * anything until loading is complete. You know those loading screens with the inane tips
  * that want to be helpful?  That is asynchronous loading.
  *
- * This player mode provides a basic loading screen.  While you could adapt it for
- * between level loading, it is currently designed for loading all assets at the
- * start of the game.
+ * This player mode provides a basic loading screen.  At the start of the game, it loads
+ * all of the assets.  Between levels, it populates the next level instead, a few steps
+ * each frame, so that a large level does not freeze the game while it is built.
  *
  * This class differs slightly from the labs in that the AssetManager is now a
  * singleton and is not constructed by this class.
@@ -32,6 +32,7 @@ import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.graphics.Texture.TextureFilter;
 import com.badlogic.gdx.graphics.g2d.*;
 import com.badlogic.gdx.controllers.*;
+import com.badlogic.gdx.utils.TimeUtils;
 
 import edu.cornell.gdiac.physics.obstacle.ObstacleCanvas;
 import edu.cornell.gdiac.util.*;
@@ -44,10 +45,10 @@ import edu.cornell.gdiac.util.*;
  * screen to be used at the start of the game or between levels.  Feel free to adopt
  * this to your needs.
  *
- * You will note that this mode has some textures that are not loaded by the AssetManager.
- * You are never required to load through the AssetManager.  But doing this will block
- * the application.  That is why we try to have as few resources as possible for this
- * loading screen.
+ * You will note that this mode has some textures that are not loaded by the AssetManager
+ * queue.  They come from the TextureRegistry, which loads them immediately.  But doing
+ * this will block the application.  That is why we try to have as few resources as
+ * possible for this loading screen.
  */
 public class LoadingMode implements Screen {
 	// Textures necessary to support the loading screen
@@ -103,6 +104,8 @@ public class LoadingMode implements Screen {
 
 	/** AssetManager to be loading in the background */
 	private AssetManager manager;
+	/** The shared textures for all screens */
+	private TextureRegistry textures = TextureRegistry.getInstance();
 	/** Reference to GameCanvas created by the root */
 	private ObstacleCanvas canvas;
 	/** Listener that will update the player mode when we are done */
@@ -119,8 +122,12 @@ public class LoadingMode implements Screen {
 	/** Scaling factor for when the student changes the resolution. */
 	private float scale;
 
-	/** Current progress (0 to 1) of the asset manager */
+	/** Current progress (0 to 1) of the asset manager (or the level) */
 	private float progress;
+	/** The level being populated (null if loading assets) */
+	private LevelModel level;
+	/** The time (in milliseconds) that loading started, or 0 once it is reported */
+	private long startTime;
 	/** The current state of the play button */
 //	private int   pressState;
 	/** The amount of time to devote to loading assets (as opposed to on screen hints, etc.) */
@@ -158,6 +165,29 @@ public class LoadingMode implements Screen {
 		budget = millis;
 	}
 
+	/**
+	 * Returns the level being populated (null if loading assets)
+	 *
+	 * @return the level being populated (null if loading assets)
+	 */
+	public LevelModel getLevel() {
+		return level;
+	}
+
+	/**
+	 * Sets the level to populate (null to load assets)
+	 *
+	 * The level must have begun populating.  This screen then spends its budget each
+	 * frame populating the level instead of loading assets, and is ready when the level
+	 * is done.
+	 *
+	 * @param value the level to populate (null to load assets)
+	 */
+	public void setLevel(LevelModel value) {
+		level = value;
+		progress = 0;
+	}
+
 	/**
 	 * Returns true if all assets are loaded and the player is ready to go.
 	 *
@@ -200,13 +230,14 @@ public class LoadingMode implements Screen {
 
 		// Load the next two images immediately.
 //		playButton = null;
-		background = new Texture(BACKGROUND_FILE);
-		statusBar  = new Texture(PROGRESS_FILE);
+		background = textures.acquire(this, BACKGROUND_FILE);
+		statusBar  = textures.acquire(this, PROGRESS_FILE);
 		//transition = new Texture(TRANSITION_FILE);
 		//transition_strip = new FilmStrip(transition, 1, 36);
 
 		// No progress so far.
 		progress   = 0;
+		startTime  = TimeUtils.millis();
 //		pressState = 0;
 		active = false;
 
@@ -241,8 +272,7 @@ public class LoadingMode implements Screen {
 		statusFrgRight = null;
 		statusFrgMiddle = null;
 
-		background.dispose();
-		statusBar.dispose();
+		textures.releaseAll(this);
 		background = null;
 		statusBar  = null;
 //		 if (playButton != null) {
@@ -262,8 +292,18 @@ public class LoadingMode implements Screen {
 	 */
 	private void update(float delta) {
 //		if (playButton == null) {
-		manager.update(budget);
-		this.progress = manager.getProgress();
+		if (level != null) {
+			level.populate(budget);
+			this.progress = level.getPopulateProgress();
+		} else {
+			long start = LoadTimeline.getInstance().now();
+			manager.update(budget);
+			LoadTimeline.getInstance().record("assets", "update", start);
+			this.progress = manager.getProgress();
+			if (progress >= 1.0f && startTime != 0) {
+				reportTimes();
+			}
+		}
 		if (progress >= 1.0f) {
 			this.progress = 1.0f;
 //				playButton = new Texture(PLAY_BTN_FILE);
@@ -272,6 +312,20 @@ public class LoadingMode implements Screen {
 		}
 	}
 
+	/**
+	 * Logs how long the assets took to load, and how much of it was texture work
+	 *
+	 * Decoding is summed across the decoding threads, so it may be more than the
+	 * total time when the threads overlap.
+	 */
+	private void reportTimes() {
+		ParallelTextureLoader loader = ((JsonAssetManager)manager).getTextureLoader();
+		Gdx.app.log("LoadingMode", "Assets loaded in "+(TimeUtils.millis()-startTime)+" ms ("+
+					loader.getTotalDecodeTime()+" ms decoding on "+loader.getThreads()+" threads, "+
+					loader.getTotalUploadTime()+" ms uploading)");
+		startTime = 0;
+	}
+
 	/**
 	 * Draw the status of this player mode.
 	 *
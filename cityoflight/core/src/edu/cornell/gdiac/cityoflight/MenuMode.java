@@ -22,9 +22,12 @@ import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import edu.cornell.gdiac.physics.obstacle.ObstacleCanvas;
 import edu.cornell.gdiac.util.FilmStrip;
+import edu.cornell.gdiac.util.JsonAssetManager;
 import edu.cornell.gdiac.util.ScreenListener;
 import com.badlogic.gdx.graphics.Texture.TextureFilter;
 import edu.cornell.gdiac.util.SoundController;
+import edu.cornell.gdiac.util.SoundRegistry;
+import edu.cornell.gdiac.util.TextureRegistry;
 
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
@@ -143,9 +146,9 @@ public class MenuMode implements Screen, ControllerListener, ContactListener, In
 
 //    private static final String START_SOUND = "sounds/select_effect.wav";
 //    private static final String LEVEL_SOUND = "sounds/seen_effect.wav";
-    Sound startSound = Gdx.audio.newSound(Gdx.files.internal("sounds/select_effect.wav"));
-    Sound menuSound = Gdx.audio.newSound(Gdx.files.internal("sounds/seen_effect.wav"));
-    Music menuMusic = Gdx.audio.newMusic(Gdx.files.internal("music/menu_music.mp3"));
+    Sound startSound = SoundRegistry.getInstance().acquire(this, "sounds/select_effect.wav");
+    Sound menuSound = SoundRegistry.getInstance().acquire(this, "sounds/seen_effect.wav");
+    Music menuMusic = Gdx.audio.newMusic(JsonAssetManager.getInstance().resolve("music/menu_music.mp3"));
 
     private Texture title;
     private Texture helpButton;
@@ -198,6 +201,8 @@ public class MenuMode implements Screen, ControllerListener, ContactListener, In
 
     /** Background texture for start-up */
     private Texture background;
+    /** The shared textures for all screens */
+    private TextureRegistry textures = TextureRegistry.getInstance();
     /** Standard window size (for scaling) */
     private static int STANDARD_WIDTH  = 800;
     /** Standard window height (for scaling) */
@@ -253,8 +258,8 @@ public class MenuMode implements Screen, ControllerListener, ContactListener, In
 
     public MenuMode(ObstacleCanvas canvas, Game parent) {
         drawcanvas = canvas;
-        background = new Texture(BACKGROUND_FILE);
-        title = new Texture(TITLE_FILE);
+        background = textures.acquire(this, BACKGROUND_FILE);
+        title = textures.acquire(this, TITLE_FILE);
 
         pressState = 0;
         levelState = 0;
@@ -287,7 +292,7 @@ public class MenuMode implements Screen, ControllerListener, ContactListener, In
 //        System.out.println(menuMusic);
 
         drawHelper = new DrawHelper();
-        transition_strip = new FilmStrip((new Texture(TRANSITION_FILE)), 1, 36);
+        transition_strip = new FilmStrip(textures.acquire(this, TRANSITION_FILE), 1, 36);
 //        System.out.println("transition_strip = " + transition_strip);
 
 //        level = new MyActor(levelX, levelY, new MyListener());
@@ -489,30 +494,46 @@ public class MenuMode implements Screen, ControllerListener, ContactListener, In
         return quitState == 2;
     }
 
+    /**
+     * Resets this screen so that it can be shown again
+     *
+     * GDXRoot keeps this screen between visits, so this clears the button state of
+     * the last visit and replays the opening transition and music.  The stage, sounds
+     * and textures are kept.
+     */
     public void reset() {
+        pressState = 0;
+        levelState = 0;
+        helpState = 0;
+        quitState = 0;
+        hoverplay = false;
+        hoverlevel = false;
+        hoverhelp = false;
+        hoverquit = false;
+        menuPlay = true;
+        drawHelper.reset();
+        transition_strip.setFrame(0);
+        if (stage != null) {
+            // The button that sent us away never saw its touch up
+            stage.cancelTouchFocus();
+        }
     }
     /**
      * Dispose of all (non-static) resources allocated to this mode.
      */
     public void dispose() {
-        background.dispose();
+        textures.releaseAll(this);
+        SoundRegistry.getInstance().releaseAll(this);
         background = null;
-        if (playButton != null) {
-            playButton.dispose();
-            playButton = null;
-        }
-        if (levelButton != null) {
-            levelButton.dispose();
-            levelButton = null;
-        }
-        if (helpButton != null) {
-            helpButton.dispose();
-            helpButton = null;
-        }
-        if (quitButton != null) {
-            quitButton.dispose();
-            quitButton = null;
-        }
+        title = null;
+        playButton = null;
+        playHover = null;
+        levelButton = null;
+        levelHover = null;
+        helpButton = null;
+        helpHover = null;
+        quitButton = null;
+        quitHover = null;
         if (menuMusic != null) {
             menuMusic.stop();
             menuMusic.dispose();
@@ -539,6 +560,7 @@ public class MenuMode implements Screen, ControllerListener, ContactListener, In
     public void show() {
         // Useless if called in outside animation loop
         active = true;
+        Gdx.input.setInputProcessor(stage != null ? stage : this);
     }
     public void pause() {
         // TODO Auto-generated method stub
@@ -576,7 +598,10 @@ public class MenuMode implements Screen, ControllerListener, ContactListener, In
      * Called when this screen is no longer the current screen for a Game.
      */
     public void hide() {
-        // Useless if called in outside animation loop
+        // This screen is kept when it is hidden, so silence it until the next reset
+        if (menuMusic != null) {
+            menuMusic.stop();
+        }
     }
 
     /**
@@ -627,47 +652,39 @@ public class MenuMode implements Screen, ControllerListener, ContactListener, In
 
     public void update() {
         if (playButton == null) {
-            playButton = new Texture(PLAY_BTN_FILE);
-            playButton.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+            playButton = textures.acquire(this, PLAY_BTN_FILE);
             create();
         }
         if (playHover == null) {
-            playHover = new Texture(PLAY_HOVER);
-            playHover.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+            playHover = textures.acquire(this, PLAY_HOVER);
 
         }
         if (levelButton == null) {
-            levelButton = new Texture(LEVEL_BTN_FILE);
-            levelButton.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+            levelButton = textures.acquire(this, LEVEL_BTN_FILE);
 //            level.setWidth(levelButton.getWidth());
 //            level.setHeight(levelButton.getHeight());
 
         }
         if (levelHover == null) {
-            levelHover = new Texture(LEVEL_HOVER_FILE);
-            levelHover.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+            levelHover = textures.acquire(this, LEVEL_HOVER_FILE);
 //            create();
         }
         if (helpButton == null) {
-            helpButton = new Texture(HELP_FILE);
-            levelButton.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+            helpButton = textures.acquire(this, HELP_FILE);
 //            setting.setWidth(helpButton.getWidth());
 //            setting.setHeight(helpButton.getHeight());
         }
         if (helpHover == null) {
-            helpHover = new Texture(HELP_HOVER);
-            helpHover.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+            helpHover = textures.acquire(this, HELP_HOVER);
 //            create();
         }
         if (quitButton == null) {
-            quitButton = new Texture(QUIT_FILE);
-            quitButton.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+            quitButton = textures.acquire(this, QUIT_FILE);
 //            quit.setWidth(quitButton.getWidth());
 //            quit.setHeight(quitButton.getHeight());
         }
         if (quitHover == null) {
-            quitHover = new Texture(QUIT_HOVER);
-            quitHover.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+            quitHover = textures.acquire(this, QUIT_HOVER);
 //            create();
         }
 
@@ -27,6 +27,7 @@ import com.sun.scenario.effect.impl.sw.sse.SSEBlend_SRC_OUTPeer;
 import edu.cornell.gdiac.physics.obstacle.ObstacleCanvas;
 import edu.cornell.gdiac.util.ScreenListener;
 import edu.cornell.gdiac.util.SoundController;
+import edu.cornell.gdiac.util.TextureRegistry;
 
 public class PauseMode implements Screen, ControllerListener, ContactListener, InputProcessor, ApplicationListener {
     public class MyActor extends Actor {
@@ -106,6 +107,8 @@ public class PauseMode implements Screen, ControllerListener, ContactListener, I
     private Texture soundButton;
     private Texture muteMusicButton;
     private Texture muteSoundButton;
+    /** The shared textures for all screens */
+    private TextureRegistry textures = TextureRegistry.getInstance();
 
     private int pressState;
     private int quitState;
@@ -152,7 +155,7 @@ public class PauseMode implements Screen, ControllerListener, ContactListener, I
 
     public PauseMode(ObstacleCanvas drawcanvas) {
         canvas = drawcanvas;
-        background = new Texture(BACKGROUND_FILE);
+        background = textures.acquire(this, BACKGROUND_FILE);
         pressState = 0;
         quitState = 0;
         playButton = null;
@@ -162,7 +165,7 @@ public class PauseMode implements Screen, ControllerListener, ContactListener, I
         soundButton = null;
         active = false;
 
-        Gdx.input.setInputProcessor(this);
+        InputController.getInstance().setScreenProcessor(this);
     }
 
     public void reset() {
@@ -191,30 +194,22 @@ public class PauseMode implements Screen, ControllerListener, ContactListener, I
     }
 
     public void dispose() {
-        background.dispose();
+        textures.releaseAll(this);
         background = null;
-        if (playButton != null) {
-            playButton.dispose();
-            playButton = null;
-        }
-        if (quitButton != null) {
-            quitButton.dispose();
-            quitButton = null;
-        }
-        if (musicButton != null) {
-            musicButton.dispose();
-            quitButton = null;
-        }
-        if (soundButton != null) {
-            soundButton.dispose();
-            soundButton = null;
-        }
+        playButton = null;
+        playHover = null;
+        quitButton = null;
+        quitHover = null;
+        musicButton = null;
+        soundButton = null;
+        muteMusicButton = null;
+        muteSoundButton = null;
     }
 
     public void show() {
         // Useless if called in outside animation loop
         active = true;
-        Gdx.input.setInputProcessor(this);
+        InputController.getInstance().setScreenProcessor(this);
     }
     public void pause() {
         // TODO Auto-generated method stub
@@ -289,7 +284,7 @@ public class PauseMode implements Screen, ControllerListener, ContactListener, I
 
     public void create () {
         stage = new Stage();
-        Gdx.input.setInputProcessor(stage);
+        InputController.getInstance().setScreenProcessor(stage);
         table = new Table();
         table.setFillParent(true);
         font = new BitmapFont(false);
@@ -450,55 +445,47 @@ public class PauseMode implements Screen, ControllerListener, ContactListener, I
 //            System.out.println("stage null");
 //        }
         if (playButton == null) {
-            playButton = new Texture(PLAY_BTN_FILE);
-            playButton.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            playButton = textures.acquire(this, PLAY_BTN_FILE);
             playY =  62;//+playButton.getHeight();//(int)(.25f*height) - 50;
             playX = 147;//+playButton.getWidth();//width/2 - 200;
 //            create();
 //            System.out.println("play not null");
         }
         if (playHover == null) {
-            playHover = new Texture(PLAY_HOVER);
-            playHover.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            playHover = textures.acquire(this, PLAY_HOVER);
         }
         if (quitButton == null) {
-            quitButton = new Texture(QUIT_BTN_FILE);
-            quitButton.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            quitButton = textures.acquire(this, QUIT_BTN_FILE);
             quitY =  60;//+quitButton.getHeight();//(int)(.25f*height) - 50;
             quitX = 500;//+quitButton.getWidth();//width/2+200;
 //            System.out.println("quit not null");
 //            create();
         }
         if (quitHover == null) {
-            quitHover = new Texture(QUIT_HOVER);
-            quitHover.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            quitHover = textures.acquire(this, QUIT_HOVER);
 //            create();
         }
 
         if (musicButton == null) {
-            musicButton = new Texture(MUSIC_BTN_FILE);
-            musicButton.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            musicButton = textures.acquire(this, MUSIC_BTN_FILE);
             musicY =  300;//+playButton.getHeight();//(int)(.25f*height) - 50;
             musicX = 725;//+playButton.getWidth();//width/2 - 200;
 
         }
         if (soundButton == null) {
-            soundButton = new Texture(SOUND_BTN_FILE);
-            soundButton.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            soundButton = textures.acquire(this, SOUND_BTN_FILE);
             soundY =  250;//+quitButton.getHeight();//(int)(.25f*height) - 50;
             soundX = 730;//+quitButton.getWidth();//width/2+200;
         }
 
         if (muteMusicButton == null) {
-            muteMusicButton = new Texture(MUSIC_MUTE_BTN_FILE);
-            muteMusicButton.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            muteMusicButton = textures.acquire(this, MUSIC_MUTE_BTN_FILE);
             musicY =  300;//+playButton.getHeight();//(int)(.25f*height) - 50;
             musicX = 725;//+playButton.getWidth();//width/2 - 200;
 
         }
         if (muteSoundButton == null) {
-            muteSoundButton = new Texture(SOUND_MUTE_BTN_FILE);
-            muteSoundButton.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            muteSoundButton = textures.acquire(this, SOUND_MUTE_BTN_FILE);
             soundY =  250;//+quitButton.getHeight();//(int)(.25f*height) - 50;
             soundX = 730;//+quitButton.getWidth();//width/2+200;
         }
@@ -0,0 +1,381 @@
+/*
+ * StaticGeometryModel.java
+ *
+ * Every building, flower and boundary in a level is a static rectangle.  Giving each
+ * of them their own body means one broadphase proxy (and one more fixture for every
+ * light ray to test) per rectangle, even when the rectangles touch or overlap.  This
+ * class compiles a group of those rectangles into a single static body whose fixtures
+ * are non-overlapping rectangles, greedily merged into large rectangles that cover
+ * the same area.
+ *
+ * The original InteriorModels are still the logical objects of the level, and are what
+ * get drawn.  They just do not have bodies of their own.  This model keeps a table from
+ * each compiled fixture back to the InteriorModels that it covers.
+ */
+package edu.cornell.gdiac.cityoflight;
+
+import com.badlogic.gdx.math.*;
+import com.badlogic.gdx.utils.*;
+import com.badlogic.gdx.graphics.*;
+import com.badlogic.gdx.physics.box2d.*;
+
+import java.util.Arrays;
+
+import edu.cornell.gdiac.physics.obstacle.*;
+
+/**
+ * A single static body merging many static rectangles.
+ *
+ * Add the blocks with addBlock and then call compile before activating the physics.
+ * All of the blocks should share the same collision filter, as the body only has one.
+ */
+public class StaticGeometryModel extends SimpleObstacle {
+	/** Edges closer than this (in physics units) are treated as the same edge */
+	private static final float EDGE_EPSILON = 0.001f;
+
+	/** The logical models merged into this body */
+	private Array<InteriorModel> blocks;
+	/** The compiled rectangles (in world coordinates) */
+	private Array<Rectangle> rects;
+	/** The shapes for the compiled rectangles */
+	private PolygonShape[] shapes;
+	/** The fixtures for the compiled rectangles */
+	private Fixture[] geoms;
+	/** The logical models covered by each compiled fixture */
+	private ObjectMap<Fixture,Array<InteriorModel>> owners;
+	/** The logical models covered by each compiled rectangle */
+	private Array<Array<InteriorModel>> rectOwners;
+	/** The color to show off the debug shape */
+	private Color debugColor;
+
+	/**
+	 * Creates a new, empty static geometry model
+	 */
+	public StaticGeometryModel() {
+		super(0,0);
+		blocks = new Array<InteriorModel>();
+		rects = new Array<Rectangle>();
+		rectOwners = new Array<Array<InteriorModel>>();
+		owners = new ObjectMap<Fixture,Array<InteriorModel>>();
+		shapes = new PolygonShape[0];
+		geoms = new Fixture[0];
+		setName("Static geometry");
+		setBodyType(BodyDef.BodyType.StaticBody);
+	}
+
+	/**
+	 * Adds a logical rectangle to this body
+	 *
+	 * The first block added determines the material and collision filter of the body.
+	 * The block will not be part of the physics until compile is called.
+	 *
+	 * @param block	The rectangle to merge into this body
+	 */
+	public void addBlock(InteriorModel block) {
+		if (blocks.size == 0) {
+			setDensity(block.getDensity());
+			setFriction(block.getFriction());
+			setRestitution(block.getRestitution());
+			setFilterData(block.getFilterData());
+			setDebugColor(block.getDebugColor());
+			setDrawScale(block.getDrawScale());
+		}
+		blocks.add(block);
+	}
+
+	/**
+	 * Returns the logical rectangles merged into this body
+	 *
+	 * @return the logical rectangles merged into this body
+	 */
+	public Array<InteriorModel> getBlocks() {
+		return blocks;
+	}
+
+	/**
+	 * Returns the compiled rectangles (in world coordinates)
+	 *
+	 * These rectangles are the fixtures of this body.  They are only valid after
+	 * the call to compile.
+	 *
+	 * @return the compiled rectangles (in world coordinates)
+	 */
+	public Array<Rectangle> getRectangles() {
+		return rects;
+	}
+
+	/**
+	 * Returns the number of fixtures in the compiled body
+	 *
+	 * @return the number of fixtures in the compiled body
+	 */
+	public int getShapeCount() {
+		return rects.size;
+	}
+
+	/**
+	 * Returns the logical models covered by the given fixture
+	 *
+	 * A compiled fixture may span several of the original rectangles.  This method
+	 * returns null if the fixture does not belong to this body.
+	 *
+	 * @param fix	The fixture of this body
+	 *
+	 * @return the logical models covered by the given fixture
+	 */
+	public Array<InteriorModel> getModels(Fixture fix) {
+		return owners.get(fix);
+	}
+
+	/**
+	 * Returns the color to display the physics outline
+	 *
+	 * @return the color to display the physics outline
+	 */
+	public Color getDebugColor() {
+		return debugColor;
+	}
+
+	/**
+	 * Sets the color to display the physics outline
+	 *
+	 * @param value	the color to display the physics outline
+	 */
+	public void setDebugColor(Color value) {
+		debugColor = value;
+	}
+
+	/**
+	 * Merges the blocks into large rectangles covering the same area
+	 *
+	 * The block edges divide the plane into a grid of cells.  After marking the cells
+	 * covered by some block, we greedily grow each covered cell into the widest, and
+	 * then tallest, rectangle of covered cells that we can.  This is exact: the result
+	 * covers precisely the union of the blocks.  It is not guaranteed to use the fewest
+	 * rectangles, though it is usually far fewer than the blocks.
+	 */
+	public void compile() {
+		rects.clear();
+		rectOwners.clear();
+		if (blocks.size == 0) {
+			rebuildShapes();
+			return;
+		}
+
+		float[] xs = new float[2*blocks.size];
+		float[] ys = new float[2*blocks.size];
+		for(int ii = 0; ii < blocks.size; ii++) {
+			InteriorModel block = blocks.get(ii);
+			xs[2*ii  ] = block.getX()-block.getWidth()/2;
+			xs[2*ii+1] = block.getX()+block.getWidth()/2;
+			ys[2*ii  ] = block.getY()-block.getHeight()/2;
+			ys[2*ii+1] = block.getY()+block.getHeight()/2;
+		}
+		xs = uniqueEdges(xs);
+		ys = uniqueEdges(ys);
+
+		// Mark the cells covered by each block
+		int cols = xs.length-1;
+		int rows = ys.length-1;
+		boolean[][] covered = new boolean[cols][rows];
+		for(InteriorModel block : blocks) {
+			int x0 = findEdge(xs,block.getX()-block.getWidth()/2);
+			int x1 = findEdge(xs,block.getX()+block.getWidth()/2);
+			int y0 = findEdge(ys,block.getY()-block.getHeight()/2);
+			int y1 = findEdge(ys,block.getY()+block.getHeight()/2);
+			for(int ii = x0; ii < x1; ii++) {
+				for(int jj = y0; jj < y1; jj++) {
+					covered[ii][jj] = true;
+				}
+			}
+		}
+
+		// Greedily cut the covered cells into rectangles
+		for(int jj = 0; jj < rows; jj++) {
+			for(int ii = 0; ii < cols; ii++) {
+				if (!covered[ii][jj]) {
+					continue;
+				}
+				int right = ii+1;
+				while (right < cols && covered[right][jj]) {
+					right++;
+				}
+				int top = jj+1;
+				boolean grow = true;
+				while (grow && top < rows) {
+					for(int kk = ii; kk < right && grow; kk++) {
+						grow = covered[kk][top];
+					}
+					if (grow) {
+						top++;
+					}
+				}
+				for(int kk = ii; kk < right; kk++) {
+					for(int ll = jj; ll < top; ll++) {
+						covered[kk][ll] = false;
+					}
+				}
+				Rectangle rect = new Rectangle(xs[ii],ys[jj],xs[right]-xs[ii],ys[top]-ys[jj]);
+				rects.add(rect);
+				rectOwners.add(findOwners(rect));
+			}
+		}
+		rebuildShapes();
+	}
+
+	/**
+	 * Returns the sorted edge coordinates with near duplicates removed
+	 *
+	 * @param edges	The edge coordinates (this array is sorted in place)
+	 *
+	 * @return the sorted edge coordinates with near duplicates removed
+	 */
+	private float[] uniqueEdges(float[] edges) {
+		Arrays.sort(edges);
+		FloatArray result = new FloatArray(edges.length);
+		for(float edge : edges) {
+			if (result.size == 0 || edge-result.peek() > EDGE_EPSILON) {
+				result.add(edge);
+			}
+		}
+		return result.toArray();
+	}
+
+	/**
+	 * Returns the index of the grid edge nearest to the given coordinate
+	 *
+	 * @param edges	The sorted, unique edge coordinates
+	 * @param value	The coordinate to look up
+	 *
+	 * @return the index of the grid edge nearest to the given coordinate
+	 */
+	private int findEdge(float[] edges, float value) {
+		int index = Arrays.binarySearch(edges,value);
+		if (index >= 0) {
+			return index;
+		}
+		index = -index-1;
+		if (index == edges.length || (index > 0 && value-edges[index-1] < edges[index]-value)) {
+			index--;
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the blocks that overlap the given rectangle
+	 *
+	 * @param rect	The compiled rectangle
+	 *
+	 * @return the blocks that overlap the given rectangle
+	 */
+	private Array<InteriorModel> findOwners(Rectangle rect) {
+		Array<InteriorModel> result = new Array<InteriorModel>();
+		for(InteriorModel block : blocks) {
+			float left   = Math.max(rect.x,block.getX()-block.getWidth()/2);
+			float right  = Math.min(rect.x+rect.width,block.getX()+block.getWidth()/2);
+			float bottom = Math.max(rect.y,block.getY()-block.getHeight()/2);
+			float top    = Math.min(rect.y+rect.height,block.getY()+block.getHeight()/2);
+			if (right-left > EDGE_EPSILON && top-bottom > EDGE_EPSILON) {
+				result.add(block);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Recreates the polygon shapes from the compiled rectangles
+	 */
+	private void rebuildShapes() {
+		for(PolygonShape shape : shapes) {
+			shape.dispose();
+		}
+		shapes = new PolygonShape[rects.size];
+		Vector2 center = new Vector2();
+		for(int ii = 0; ii < rects.size; ii++) {
+			Rectangle rect = rects.get(ii);
+			rect.getCenter(center);
+			shapes[ii] = new PolygonShape();
+			shapes[ii].setAsBox(rect.width/2,rect.height/2,center,0);
+		}
+		markDirty(true);
+	}
+
+	/**
+	 * Create new fixtures for this body, defining the shape
+	 *
+	 * Each fixture is recorded in the table back to the logical models.
+	 */
+	protected void createFixtures() {
+		if (body == null) {
+			return;
+		}
+
+		releaseFixtures();
+
+		geoms = new Fixture[shapes.length];
+		for(int ii = 0; ii < shapes.length; ii++) {
+			fixture.shape = shapes[ii];
+			geoms[ii] = body.createFixture(fixture);
+			owners.put(geoms[ii],rectOwners.get(ii));
+		}
+		markDirty(false);
+	}
+
+	/**
+	 * Release the fixtures for this body, reseting the shape
+	 */
+	protected void releaseFixtures() {
+		for(Fixture fix : geoms) {
+			if (fix != null) {
+				body.destroyFixture(fix);
+			}
+		}
+		geoms = new Fixture[0];
+		owners.clear();
+	}
+
+	/**
+	 * Destroys the physics Body(s) of this object if applicable,
+	 * removing them from the world.
+	 *
+	 * @param world Box2D world that stores body
+	 */
+	public void deactivatePhysics(World world) {
+		if (body != null) {
+			geoms = new Fixture[0];
+			owners.clear();
+		}
+		super.deactivatePhysics(world);
+	}
+
+	/**
+	 * Releases the shapes held by this model
+	 */
+	public void dispose() {
+		for(PolygonShape shape : shapes) {
+			shape.dispose();
+		}
+		shapes = new PolygonShape[0];
+	}
+
+	/**
+	 * Draws nothing, as the logical models draw themselves.
+	 *
+	 * @param canvas Drawing context
+	 */
+	public void draw(ObstacleCanvas canvas) {
+	}
+
+	/**
+	 * Draws the outline of the compiled rectangles.
+	 *
+	 * @param canvas Drawing context
+	 */
+	public void drawDebug(ObstacleCanvas canvas) {
+		if (debugColor != null) {
+			for(PolygonShape shape : shapes) {
+				canvas.drawPhysics(shape,debugColor,getX(),getY(),getAngle(),drawScale.x,drawScale.y);
+			}
+		}
+	}
+}
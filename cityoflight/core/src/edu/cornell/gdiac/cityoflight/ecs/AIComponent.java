@@ -0,0 +1,26 @@
+/*
+ * AIComponent.java
+ *
+ * The controller that chooses the actions of a creature.
+ */
+package edu.cornell.gdiac.cityoflight.ecs;
+
+import com.badlogic.ashley.core.Component;
+import edu.cornell.gdiac.cityoflight.AIController;
+
+/**
+ * The AI controller of an entity
+ */
+public class AIComponent implements Component {
+	/** The controller of the entity */
+	public AIController controller;
+
+	/**
+	 * Creates a component for the given controller
+	 *
+	 * @param controller	the controller of the entity
+	 */
+	public AIComponent(AIController controller) {
+		this.controller = controller;
+	}
+}
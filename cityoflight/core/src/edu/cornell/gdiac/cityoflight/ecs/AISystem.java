@@ -0,0 +1,45 @@
+/*
+ * AISystem.java
+ *
+ * Runs the AI controller of every creature.  The AI has to choose its actions before
+ * the physics steps (the actions set the movement of the creatures), so this system
+ * does not run with the others.  The GameController runs it at the start of its update.
+ */
+package edu.cornell.gdiac.cityoflight.ecs;
+
+import com.badlogic.ashley.core.*;
+import com.badlogic.ashley.systems.IteratingSystem;
+import edu.cornell.gdiac.cityoflight.AIController;
+
+/**
+ * A system that runs the AI controllers
+ */
+public class AISystem extends IteratingSystem {
+	/** The priority of this system (lower runs first) */
+	public static final int PRIORITY = 3;
+
+	/** The AI of each entity */
+	private ComponentMapper<AIComponent> minds = ComponentMapper.getFor(AIComponent.class);
+
+	/**
+	 * Creates a system for every entity with an AI controller
+	 *
+	 * The system is not processed by Engine.update; call update directly.
+	 */
+	public AISystem() {
+		super(Family.all(AIComponent.class).get(), PRIORITY);
+		setProcessing(false);
+	}
+
+	/**
+	 * Chooses and performs the next action of the entity
+	 *
+	 * @param entity	the entity to update
+	 * @param dt		Number of seconds since last animation frame
+	 */
+	protected void processEntity(Entity entity, float dt) {
+		AIController controller = minds.get(entity).controller;
+		controller.chooseAction();
+		controller.doAction();
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * AnimationSystem.java
+ *
+ * Advances the animation of every entity with a sprite, one tick per stepped frame.
+ * The animators are kept on an AnimationClock as their entities come and go, so each
+ * tick is one pass over a flat array rather than a walk over the entities.
+ */
+package edu.cornell.gdiac.cityoflight.ecs;
+
+import com.badlogic.ashley.core.*;
+import com.badlogic.ashley.utils.ImmutableArray;
+import edu.cornell.gdiac.util.AnimationClock;
+
+/**
+ * A system that advances the animators of the sprites
+ */
+public class AnimationSystem extends EntitySystem implements EntityListener {
+	/** The priority of this system (lower runs first) */
+	public static final int PRIORITY = 2;
+
+	/** The entities with a sprite */
+	private static final Family SPRITES = Family.all(SpriteComponent.class).get();
+
+	/** The sprite of each entity */
+	private ComponentMapper<SpriteComponent> sprites = ComponentMapper.getFor(SpriteComponent.class);
+	/** The clock advancing the animators of the sprites */
+	private AnimationClock clock;
+
+	/**
+	 * Creates a system for every entity with a sprite
+	 */
+	public AnimationSystem() {
+		super(PRIORITY);
+		clock = new AnimationClock();
+	}
+
+	/**
+	 * Puts the animators of the engine's sprites on the clock, and listens for more
+	 *
+	 * @param engine	the engine this system was added to
+	 */
+	public void addedToEngine(Engine engine) {
+		ImmutableArray<Entity> entities = engine.getEntitiesFor(SPRITES);
+		for (int ii = 0; ii < entities.size(); ii++) {
+			entityAdded(entities.get(ii));
+		}
+		engine.addEntityListener(SPRITES, this);
+	}
+
+	/**
+	 * Stops listening to the engine and empties the clock
+	 *
+	 * @param engine	the engine this system was removed from
+	 */
+	public void removedFromEngine(Engine engine) {
+		engine.removeEntityListener(this);
+		clock.clear();
+	}
+
+	/**
+	 * Puts the animator of a new sprite on the clock
+	 *
+	 * @param entity	the entity that was added
+	 */
+	public void entityAdded(Entity entity) {
+		clock.add(sprites.get(entity).animator);
+	}
+
+	/**
+	 * Takes the animator of a removed sprite off the clock
+	 *
+	 * @param entity	the entity that was removed
+	 */
+	public void entityRemoved(Entity entity) {
+		clock.remove(sprites.get(entity).animator);
+	}
+
+	/**
+	 * Advances every animation by one tick
+	 *
+	 * @param dt	Number of seconds since last animation frame
+	 */
+	public void update(float dt) {
+		clock.tick();
+	}
+}
@@ -0,0 +1,27 @@
+/*
+ * BodyComponent.java
+ *
+ * The models still keep their physics in an Obstacle, which owns the Box2D body and
+ * its fixtures.  This component links the entity to that obstacle.
+ */
+package edu.cornell.gdiac.cityoflight.ecs;
+
+import com.badlogic.ashley.core.Component;
+import edu.cornell.gdiac.physics.obstacle.Obstacle;
+
+/**
+ * The physics body of an entity
+ */
+public class BodyComponent implements Component {
+	/** The obstacle holding the body */
+	public Obstacle obstacle;
+
+	/**
+	 * Creates a component for the given obstacle
+	 *
+	 * @param obstacle	the obstacle holding the body
+	 */
+	public BodyComponent(Obstacle obstacle) {
+		this.obstacle = obstacle;
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * PhysicsSyncSystem.java
+ *
+ * Copies the position and angle of each body into the transform of its entity.  It
+ * runs first after every physics step, so the later systems read the new positions.
+ */
+package edu.cornell.gdiac.cityoflight.ecs;
+
+import com.badlogic.ashley.core.*;
+import com.badlogic.ashley.systems.IteratingSystem;
+import edu.cornell.gdiac.physics.obstacle.Obstacle;
+
+/**
+ * A system that copies the physics bodies into the transforms
+ */
+public class PhysicsSyncSystem extends IteratingSystem {
+	/** The priority of this system (lower runs first) */
+	public static final int PRIORITY = 0;
+
+	/** The transform of each entity */
+	private ComponentMapper<TransformComponent> transforms = ComponentMapper.getFor(TransformComponent.class);
+	/** The body of each entity */
+	private ComponentMapper<BodyComponent> bodies = ComponentMapper.getFor(BodyComponent.class);
+
+	/**
+	 * Creates a system for every entity with a transform and a body
+	 */
+	public PhysicsSyncSystem() {
+		super(Family.all(TransformComponent.class, BodyComponent.class).get(), PRIORITY);
+	}
+
+	/**
+	 * Copies the body of the entity into its transform
+	 *
+	 * @param entity	the entity to update
+	 * @param dt		Number of seconds since last animation frame
+	 */
+	protected void processEntity(Entity entity, float dt) {
+		Obstacle obstacle = bodies.get(entity).obstacle;
+		TransformComponent transform = transforms.get(entity);
+		transform.position.set(obstacle.getX(), obstacle.getY());
+		transform.angle = obstacle.getAngle();
+	}
+}
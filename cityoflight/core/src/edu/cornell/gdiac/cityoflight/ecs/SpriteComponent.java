@@ -0,0 +1,27 @@
+/*
+ * SpriteComponent.java
+ *
+ * The animation state of an entity.  The frames themselves are shared between every
+ * entity with the same texture (see FrameTable).
+ */
+package edu.cornell.gdiac.cityoflight.ecs;
+
+import com.badlogic.ashley.core.Component;
+import edu.cornell.gdiac.util.Animator;
+
+/**
+ * The animated sprite of an entity
+ */
+public class SpriteComponent implements Component {
+	/** The animation state of the sprite */
+	public Animator animator;
+
+	/**
+	 * Creates a component for the given animation state
+	 *
+	 * @param animator	the animation state of the sprite
+	 */
+	public SpriteComponent(Animator animator) {
+		this.animator = animator;
+	}
+}
@@ -0,0 +1,23 @@
+/*
+ * TransformComponent.java
+ *
+ * The systems read the position of an entity from here instead of asking Box2D, so
+ * that they do not touch the physics world (which is not thread safe) while they run.
+ * The PhysicsSyncSystem copies the body into this component after each physics step.
+ */
+package edu.cornell.gdiac.cityoflight.ecs;
+
+import com.badlogic.ashley.core.Component;
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * The position, angle and size of an entity in physics coordinates
+ */
+public class TransformComponent implements Component {
+	/** The position of the entity (the center of its body) */
+	public final Vector2 position = new Vector2();
+	/** The size of the entity (zero if it does not matter to any system) */
+	public final Vector2 size = new Vector2();
+	/** The angle of the entity in radians */
+	public float angle;
+}
@@ -0,0 +1,31 @@
+/*
+ * VisionComponent.java
+ *
+ * A creature sees through a cone of light in the direction it is walking.  The light
+ * is attached after the entity is created (the lines of sight are the last phase of
+ * populating a level), so it may be null for a while.
+ */
+package edu.cornell.gdiac.cityoflight.ecs;
+
+import com.badlogic.ashley.core.Component;
+import com.badlogic.gdx.math.Vector2;
+import edu.cornell.gdiac.physics.lights.LightSource;
+
+/**
+ * The vision cone of an entity
+ */
+public class VisionComponent implements Component {
+	/** The light of the vision cone (null until it is attached) */
+	public LightSource light;
+	/** The direction the entity is walking (shared with its model) */
+	public Vector2 heading;
+
+	/**
+	 * Creates a component that aims along the given heading
+	 *
+	 * @param heading	the direction the entity is walking (shared with its model)
+	 */
+	public VisionComponent(Vector2 heading) {
+		this.heading = heading;
+	}
+}
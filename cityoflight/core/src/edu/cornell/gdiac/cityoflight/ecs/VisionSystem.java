@@ -0,0 +1,68 @@
+/*
+ * VisionSystem.java
+ *
+ * Aims the vision cone of each creature the way it is walking.  The cone sits at the
+ * front of the creature, which depends on the direction (the sprites are not centered
+ * on the body).
+ */
+package edu.cornell.gdiac.cityoflight.ecs;
+
+import com.badlogic.ashley.core.*;
+import com.badlogic.ashley.systems.IteratingSystem;
+import com.badlogic.gdx.math.Vector2;
+import edu.cornell.gdiac.physics.lights.LightSource;
+
+/**
+ * A system that moves the vision cones with their creatures
+ */
+public class VisionSystem extends IteratingSystem {
+	/** The priority of this system (lower runs first) */
+	public static final int PRIORITY = 1;
+
+	/** The transform of each entity */
+	private ComponentMapper<TransformComponent> transforms = ComponentMapper.getFor(TransformComponent.class);
+	/** The vision of each entity */
+	private ComponentMapper<VisionComponent> visions = ComponentMapper.getFor(VisionComponent.class);
+
+	/**
+	 * Creates a system for every entity with a transform and a vision cone
+	 */
+	public VisionSystem() {
+		super(Family.all(TransformComponent.class, VisionComponent.class).get(), PRIORITY);
+	}
+
+	/**
+	 * Aims the vision cone of the entity
+	 *
+	 * @param entity	the entity to update
+	 * @param dt		Number of seconds since last animation frame
+	 */
+	protected void processEntity(Entity entity, float dt) {
+		VisionComponent vision = visions.get(entity);
+		LightSource light = vision.light;
+		if (light == null) {
+			return;
+		}
+		TransformComponent transform = transforms.get(entity);
+		float x = transform.position.x;
+		float y = transform.position.y;
+		float width  = transform.size.x;
+		float height = transform.size.y;
+		Vector2 heading = vision.heading;
+
+		light.setPosition(x+width/2, y+height);
+		if (heading.x > 0) {
+			light.setDirection(0);
+			light.setPosition(x-width/2, y+height);
+		} else if (heading.x < 0) {
+			light.setDirection(180);
+			light.setPosition(x-width/4, y+height);
+		} else if (heading.y < 0) {
+			light.setDirection(270);
+			light.setPosition(x+width/4, y-height/2);
+		} else if (heading.y > 0) {
+			light.setDirection(90);
+			light.setPosition(x+width/4, y+height/2);
+		}
+	}
+}
@@ -393,5 +393,14 @@ public interface LightSource {
 	 * @return true if given point is inside of this light area
 	 */
 	public boolean contains(float x, float y);
+
+	/**
+	 * Recomputes the geometry of this light by casting all of its rays
+	 *
+	 * The rayhandler normally does this for every light on every update.  Calling
+	 * this method directly allows a level to spread the raycasting across several
+	 * animation frames.  Until the next call, the light keeps its previous polygon.
+	 */
+	public void update();
 	
 }
@@ -69,6 +69,16 @@ public abstract class Obstacle {
 
 	protected float lowestY = 0;
 
+	/// Render interpolation
+	/** The position at the start of the latest physics step */
+	protected Vector2 previousPosition = new Vector2();
+	/** The angle at the start of the latest physics step */
+	protected float previousAngle;
+	/** The position to draw at, blended between the last two physics steps */
+	protected Vector2 renderPosition = new Vector2();
+	/** The angle to draw at, blended between the last two physics steps */
+	protected float renderAngle;
+
 
 	/// BodyDef Methods
 	/**
@@ -128,6 +138,7 @@ public abstract class Obstacle {
 	 */
 	public void setPosition(Vector2 value) {
 		bodyinfo.position.set(value);
+		snapPosition();
 	}
 
 	/**
@@ -138,6 +149,7 @@ public abstract class Obstacle {
 	 */
 	public void setPosition(float x, float y) {
 		bodyinfo.position.set(x, y);
+		snapPosition();
 	}
 
 	/**
@@ -156,6 +168,7 @@ public abstract class Obstacle {
 	 */
 	public void setX(float value) {
 		bodyinfo.position.x = value;
+		snapPosition();
 	}
 	
 	/**
@@ -174,6 +187,7 @@ public abstract class Obstacle {
 	 */
 	public void setY(float value) {
 		bodyinfo.position.y = value;
+		snapPosition();
 	}
 	
 	/**
@@ -194,6 +208,7 @@ public abstract class Obstacle {
 	 */
 	public void setAngle(float value) {
 		bodyinfo.angle = value;
+		snapAngle();
 	}
 	
 	/**
@@ -898,6 +913,93 @@ public abstract class Obstacle {
     	drawScale.set(x,y);
     }
     	
+    /**
+     * Records the current physics state as the previous state
+     *
+     * This should be called immediately before each physics step.  Drawing then
+     * blends between this state and the state after the step.
+     */
+    public void saveState() {
+    	previousPosition.set(getPosition());
+    	previousAngle = getAngle();
+    }
+
+    /**
+     * Computes the drawing state between the previous and current physics state
+     *
+     * The blend factor is the fraction of a physics step left over after the last
+     * step was taken.  A value of 1 draws the current physics state exactly.  This
+     * lets physics run at a lower fixed rate than the display without stutter.
+     *
+     * @param alpha  the blend factor between the previous and current state
+     */
+    public void interpolate(float alpha) {
+    	renderPosition.set(previousPosition).lerp(getPosition(),alpha);
+    	renderAngle = previousAngle + (getAngle()-previousAngle)*alpha;
+    }
+
+    /**
+     * Draws this object at its current physics state, without blending
+     *
+     * An object moved outside of the physics step (a teleport) should be drawn where it
+     * is now, and not slide there from where it was.  The position and angle setters
+     * already snap what they change, so this is only needed after moving the body
+     * directly.
+     */
+    public void snapInterpolation() {
+    	snapPosition();
+    	snapAngle();
+    }
+
+    /**
+     * Draws this object at its current position, without blending
+     */
+    protected void snapPosition() {
+    	previousPosition.set(getPosition());
+    	renderPosition.set(previousPosition);
+    }
+
+    /**
+     * Draws this object at its current angle, without blending
+     */
+    protected void snapAngle() {
+    	previousAngle = getAngle();
+    	renderAngle = previousAngle;
+    }
+
+    /**
+     * Returns the x-coordinate at which to draw this object
+     *
+     * This is the x-coordinate computed by the last call to interpolate.
+     *
+     * @return the x-coordinate at which to draw this object
+     */
+    public float getRenderX() {
+    	return renderPosition.x;
+    }
+
+    /**
+     * Returns the y-coordinate at which to draw this object
+     *
+     * This is the y-coordinate computed by the last call to interpolate.
+     *
+     * @return the y-coordinate at which to draw this object
+     */
+    public float getRenderY() {
+    	return renderPosition.y;
+    }
+
+    /**
+     * Returns the angle at which to draw this object (in radians)
+     *
+     * This is the angle computed by the last call to interpolate.
+     *
+     * @return the angle at which to draw this object (in radians)
+     */
+    public float getRenderAngle() {
+    	return renderAngle;
+    }
+
 	/// DEBUG METHODS
 	/**
      * Returns the physics object tag.
@@ -958,6 +1060,10 @@ public abstract class Obstacle {
 		
 		// Set the default drawing scale
 		drawScale = new Vector2(1,1);
+
+		// Nothing to blend until the first physics step
+		previousPosition.set(x,y);
+		renderPosition.set(x,y);
 	}
 	
 	/**
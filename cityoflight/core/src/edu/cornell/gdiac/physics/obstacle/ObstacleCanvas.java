@@ -80,6 +80,11 @@ public class ObstacleCanvas {
 	/** Camera for the underlying SpriteBatch */
 	private OrthographicCamera camera;
 	
+	/** The number of batch flushes (texture switches) so far this frame */
+	private int drawCalls;
+	/** The number of batch flushes (texture switches) in the last complete frame */
+	private int lastDrawCalls;
+
 	/** Value to cache window width (if we are currently full screen) */
 	int width;
 	/** Value to cache window height (if we are currently full screen) */
@@ -325,10 +330,30 @@ public class ObstacleCanvas {
 		return camera;
 	}
 	
+	/**
+	 * Returns the number of draw calls in the last complete frame
+	 *
+	 * The sprite batch only flushes when the texture (or blend mode) changes or
+	 * the batch is full, so this is essentially the number of texture switches.
+	 * A frame is complete when clear() is called to start the next one.
+	 *
+	 * Only the standard (sprite) passes are counted.  The debug passes between
+	 * beginDebug and endDebug draw shapes with their own renderer, whose flushes
+	 * are not included.
+	 *
+	 * @return the number of draw calls in the last complete frame
+	 */
+	public int getDrawCalls() {
+		return lastDrawCalls;
+	}
+
 	/**
 	 * Clear the screen so we can start a new animation frame
 	 */
 	public void clear() {
+		lastDrawCalls = drawCalls;
+		drawCalls = 0;
+
     	// Clear the screen
 		Gdx.gl.glClearColor(0.39f, 0.58f, 0.93f, 1.0f);  // Homage to the XNA years
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);		
@@ -388,6 +413,7 @@ public class ObstacleCanvas {
 	 */
     public void end() {
     	spriteBatch.end();
+    	drawCalls += spriteBatch.renderCalls;
     	active = DrawPass.INACTIVE;
     }
 
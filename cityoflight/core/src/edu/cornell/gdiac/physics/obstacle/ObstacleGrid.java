@@ -0,0 +1,394 @@
+/*
+ * ObstacleGrid.java
+ *
+ * Finding the obstacles near a point used to mean walking every obstacle in the level,
+ * so the cost of a question like "what is in front of the camera" or "is the bird inside
+ * a creature" grew with the size of the level.
+ *
+ * This class is a uniform grid over the level.  Every obstacle is entered in each cell
+ * that its bounding box touches, and a query only looks at the cells that the query
+ * area touches.  The cost of a query is proportional to the number of obstacles near
+ * it, and not to the number of obstacles in the level.
+ *
+ * Static obstacles are entered once.  Moving obstacles must be updated after they move,
+ * but an update that stays in the same cells only recomputes the bounding box.
+ */
+package edu.cornell.gdiac.physics.obstacle;
+
+import com.badlogic.gdx.math.*;
+import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.utils.*;
+
+/**
+ * A uniform grid of obstacles, supporting area and radius queries
+ *
+ * The bounding box of an obstacle comes from the fixtures of its body.  Obstacles
+ * without a body (such as the blocks that are compiled into the static geometry) use
+ * their dimensions instead.  Obstacles outside of the grid are kept in the nearest
+ * cells, so they are still found, just less efficiently.
+ *
+ * Queries mark the obstacles they have seen, so queries may not be nested.
+ */
+public class ObstacleGrid {
+	/** The left edge of the grid */
+	private float originX;
+	/** The bottom edge of the grid */
+	private float originY;
+	/** The width and height of each cell */
+	private float cellSize;
+	/** The number of columns */
+	private int cols;
+	/** The number of rows */
+	private int rows;
+
+	/** The obstacles in each cell, by row and then column (created on first use) */
+	private Array<Obstacle>[] cells;
+	/** The entry of each obstacle in the grid */
+	private ObjectMap<Obstacle,Entry> entries;
+	/** The mark of the current query */
+	private int queryMark;
+
+	/** Cache for fixture vertices */
+	private Vector2 vertex = new Vector2();
+
+	/**
+	 * Creates an empty grid over the given bounds
+	 *
+	 * @param bounds	the bounds of the grid (in physics units)
+	 * @param cellSize	the width and height of each cell (in physics units)
+	 */
+	@SuppressWarnings("unchecked")
+	public ObstacleGrid(Rectangle bounds, float cellSize) {
+		this.originX = bounds.x;
+		this.originY = bounds.y;
+		this.cellSize = cellSize;
+		this.cols = Math.max(1, MathUtils.ceil(bounds.width/cellSize));
+		this.rows = Math.max(1, MathUtils.ceil(bounds.height/cellSize));
+		cells = (Array<Obstacle>[])new Array<?>[cols*rows];
+		entries = new ObjectMap<Obstacle,Entry>();
+	}
+
+	/**
+	 * Returns the width and height of each cell
+	 *
+	 * @return the width and height of each cell
+	 */
+	public float getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Returns the number of obstacles in the grid
+	 *
+	 * @return the number of obstacles in the grid
+	 */
+	public int size() {
+		return entries.size;
+	}
+
+	/**
+	 * Returns true if the obstacle is in the grid
+	 *
+	 * @param obj	the obstacle
+	 *
+	 * @return true if the obstacle is in the grid
+	 */
+	public boolean contains(Obstacle obj) {
+		return entries.containsKey(obj);
+	}
+
+	/**
+	 * Adds an obstacle to the grid at its current bounds
+	 *
+	 * If the obstacle is already in the grid, this updates it instead.
+	 *
+	 * @param obj	the obstacle to add
+	 */
+	public void add(Obstacle obj) {
+		Entry entry = entries.get(obj);
+		if (entry != null) {
+			update(obj);
+			return;
+		}
+		entry = new Entry();
+		computeBounds(obj, entry);
+		entries.put(obj, entry);
+		insert(obj, entry);
+	}
+
+	/**
+	 * Moves an obstacle to its current bounds
+	 *
+	 * This only touches the cells if the obstacle has moved into different ones.  It
+	 * does nothing if the obstacle is not in the grid.
+	 *
+	 * @param obj	the obstacle that moved
+	 */
+	public void update(Obstacle obj) {
+		Entry entry = entries.get(obj);
+		if (entry == null) {
+			return;
+		}
+		int col0 = entry.col0, row0 = entry.row0, col1 = entry.col1, row1 = entry.row1;
+		computeBounds(obj, entry);
+		if (col0 != entry.col0 || row0 != entry.row0 || col1 != entry.col1 || row1 != entry.row1) {
+			erase(obj, col0, row0, col1, row1);
+			insert(obj, entry);
+		}
+	}
+
+	/**
+	 * Removes an obstacle from the grid
+	 *
+	 * @param obj	the obstacle to remove
+	 *
+	 * @return true if the obstacle was in the grid
+	 */
+	public boolean remove(Obstacle obj) {
+		Entry entry = entries.remove(obj);
+		if (entry == null) {
+			return false;
+		}
+		erase(obj, entry.col0, entry.row0, entry.col1, entry.row1);
+		return true;
+	}
+
+	/**
+	 * Removes every obstacle from the grid
+	 */
+	public void clear() {
+		for (int ii = 0; ii < cells.length; ii++) {
+			if (cells[ii] != null) {
+				cells[ii].clear();
+			}
+		}
+		entries.clear();
+	}
+
+	/**
+	 * Adds every obstacle whose bounding box overlaps the area to the given array
+	 *
+	 * Each obstacle is added once, in no particular order.  The array is not cleared
+	 * first.
+	 *
+	 * @param area	the area to search (in physics units)
+	 * @param out	the array to add the obstacles to
+	 *
+	 * @return the array out, for chaining
+	 */
+	public Array<Obstacle> query(Rectangle area, Array<Obstacle> out) {
+		float minX = area.x, minY = area.y;
+		float maxX = area.x+area.width, maxY = area.y+area.height;
+		int col0 = toCol(minX), row0 = toRow(minY);
+		int col1 = toCol(maxX), row1 = toRow(maxY);
+		queryMark++;
+		for (int row = row0; row <= row1; row++) {
+			for (int col = col0; col <= col1; col++) {
+				Array<Obstacle> cell = cells[row*cols+col];
+				if (cell == null) {
+					continue;
+				}
+				for (int ii = 0; ii < cell.size; ii++) {
+					Obstacle obj = cell.get(ii);
+					Entry entry = entries.get(obj);
+					if (entry.mark == queryMark) {
+						continue;
+					}
+					entry.mark = queryMark;
+					if (entry.minX <= maxX && minX <= entry.maxX && entry.minY <= maxY && minY <= entry.maxY) {
+						out.add(obj);
+					}
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Adds every obstacle whose bounding box is within the radius of a point
+	 *
+	 * Each obstacle is added once, in no particular order.  The array is not cleared
+	 * first.  A radius of 0 finds the obstacles whose bounding box holds the point.
+	 *
+	 * @param x			the x-coordinate of the point (in physics units)
+	 * @param y			the y-coordinate of the point (in physics units)
+	 * @param radius	the distance from the point (in physics units)
+	 * @param out		the array to add the obstacles to
+	 *
+	 * @return the array out, for chaining
+	 */
+	public Array<Obstacle> query(float x, float y, float radius, Array<Obstacle> out) {
+		int col0 = toCol(x-radius), row0 = toRow(y-radius);
+		int col1 = toCol(x+radius), row1 = toRow(y+radius);
+		float radius2 = radius*radius;
+		queryMark++;
+		for (int row = row0; row <= row1; row++) {
+			for (int col = col0; col <= col1; col++) {
+				Array<Obstacle> cell = cells[row*cols+col];
+				if (cell == null) {
+					continue;
+				}
+				for (int ii = 0; ii < cell.size; ii++) {
+					Obstacle obj = cell.get(ii);
+					Entry entry = entries.get(obj);
+					if (entry.mark == queryMark) {
+						continue;
+					}
+					entry.mark = queryMark;
+					// Distance from the point to the nearest point of the box
+					float dx = Math.max(0, Math.max(entry.minX-x, x-entry.maxX));
+					float dy = Math.max(0, Math.max(entry.minY-y, y-entry.maxY));
+					if (dx*dx+dy*dy <= radius2) {
+						out.add(obj);
+					}
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the column holding the given x-coordinate (clamped to the grid)
+	 *
+	 * @param x	the x-coordinate
+	 *
+	 * @return the column holding the given x-coordinate
+	 */
+	private int toCol(float x) {
+		return MathUtils.clamp(MathUtils.floor((x-originX)/cellSize), 0, cols-1);
+	}
+
+	/**
+	 * Returns the row holding the given y-coordinate (clamped to the grid)
+	 *
+	 * @param y	the y-coordinate
+	 *
+	 * @return the row holding the given y-coordinate
+	 */
+	private int toRow(float y) {
+		return MathUtils.clamp(MathUtils.floor((y-originY)/cellSize), 0, rows-1);
+	}
+
+	/**
+	 * Enters the obstacle in every cell of its entry
+	 *
+	 * @param obj	the obstacle
+	 * @param entry	the entry of the obstacle
+	 */
+	private void insert(Obstacle obj, Entry entry) {
+		for (int row = entry.row0; row <= entry.row1; row++) {
+			for (int col = entry.col0; col <= entry.col1; col++) {
+				int index = row*cols+col;
+				if (cells[index] == null) {
+					cells[index] = new Array<Obstacle>(false, 4);
+				}
+				cells[index].add(obj);
+			}
+		}
+	}
+
+	/**
+	 * Removes the obstacle from every cell in the given range
+	 *
+	 * @param obj	the obstacle
+	 * @param col0	the first column
+	 * @param row0	the first row
+	 * @param col1	the last column
+	 * @param row1	the last row
+	 */
+	private void erase(Obstacle obj, int col0, int row0, int col1, int row1) {
+		for (int row = row0; row <= row1; row++) {
+			for (int col = col0; col <= col1; col++) {
+				cells[row*cols+col].removeValue(obj, true);
+			}
+		}
+	}
+
+	/**
+	 * Computes the bounding box of the obstacle, and the cells it touches
+	 *
+	 * @param obj	the obstacle
+	 * @param entry	the entry to store the bounds in
+	 */
+	private void computeBounds(Obstacle obj, Entry entry) {
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		Body body = obj.getBody();
+		if (body != null && body.getFixtureList().size > 0) {
+			Transform transform = body.getTransform();
+			Array<Fixture> fixtures = body.getFixtureList();
+			for (int ii = 0; ii < fixtures.size; ii++) {
+				Shape shape = fixtures.get(ii).getShape();
+				if (shape instanceof PolygonShape) {
+					PolygonShape poly = (PolygonShape)shape;
+					for (int jj = 0; jj < poly.getVertexCount(); jj++) {
+						poly.getVertex(jj, vertex);
+						transform.mul(vertex);
+						minX = Math.min(minX, vertex.x);
+						minY = Math.min(minY, vertex.y);
+						maxX = Math.max(maxX, vertex.x);
+						maxY = Math.max(maxY, vertex.y);
+					}
+				} else {
+					// Circles are exact; other shapes fall back to a circle at the body
+					float radius = shape.getRadius();
+					if (shape instanceof CircleShape) {
+						vertex.set(((CircleShape)shape).getPosition());
+						transform.mul(vertex);
+					} else {
+						vertex.set(body.getPosition());
+					}
+					minX = Math.min(minX, vertex.x-radius);
+					minY = Math.min(minY, vertex.y-radius);
+					maxX = Math.max(maxX, vertex.x+radius);
+					maxY = Math.max(maxY, vertex.y+radius);
+				}
+			}
+		} else {
+			float halfWidth = 0, halfHeight = 0;
+			if (obj instanceof BoxObstacle) {
+				halfWidth = ((BoxObstacle)obj).getWidth()/2;
+				halfHeight = ((BoxObstacle)obj).getHeight()/2;
+			} else if (obj instanceof WheelObstacle) {
+				halfWidth = halfHeight = ((WheelObstacle)obj).getRadius();
+			}
+			minX = obj.getX()-halfWidth;
+			minY = obj.getY()-halfHeight;
+			maxX = obj.getX()+halfWidth;
+			maxY = obj.getY()+halfHeight;
+		}
+
+		entry.minX = minX;
+		entry.minY = minY;
+		entry.maxX = maxX;
+		entry.maxY = maxY;
+		entry.col0 = toCol(minX);
+		entry.row0 = toRow(minY);
+		entry.col1 = toCol(maxX);
+		entry.row1 = toRow(maxY);
+	}
+
+	/**
+	 * The bounds and cells of an obstacle in the grid
+	 */
+	private static class Entry {
+		/** The left edge of the bounding box */
+		public float minX;
+		/** The bottom edge of the bounding box */
+		public float minY;
+		/** The right edge of the bounding box */
+		public float maxX;
+		/** The top edge of the bounding box */
+		public float maxY;
+		/** The first column touched */
+		public int col0;
+		/** The first row touched */
+		public int row0;
+		/** The last column touched */
+		public int col1;
+		/** The last row touched */
+		public int row1;
+		/** The mark of the last query to see this obstacle */
+		public int mark;
+	}
+}
@@ -0,0 +1,372 @@
+/*
+ * ObstacleStore.java
+ *
+ * The level used to keep every obstacle in a single ArrayList.  Whenever the box or the
+ * bird went away, it was removed with a linear search followed by a shift of everything
+ * after it.
+ *
+ * This class is a slot map.  Every obstacle added gets a handle, which stays valid until
+ * the obstacle is removed.  The obstacles themselves are packed into a dense array for
+ * each category (static blocks, actors and transient objects), and removing one moves
+ * the last obstacle of its category into the hole.  Both adding and removing take
+ * constant time, and iterating only walks the dense arrays.
+ *
+ * Handles carry a generation, so a handle to a removed obstacle never refers to the
+ * obstacle that reuses its slot.
+ */
+package edu.cornell.gdiac.physics.obstacle;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+import java.util.*;
+
+/**
+ * A store of obstacles with stable handles and constant time insert and remove
+ *
+ * The order of the obstacles within a category changes when one is removed, so users
+ * that need an order (such as drawing) must sort for themselves.  The iterator is reused,
+ * so iterations may not be nested, and the store may not change during an iteration.
+ */
+public class ObstacleStore implements Iterable<Obstacle> {
+	/** The category of static blocks and geometry */
+	public static final int STATIC = 0;
+	/** The category of actors (characters, creatures and the exit) */
+	public static final int ACTORS = 1;
+	/** The category of transient objects (such as the box and the bird) */
+	public static final int TRANSIENT = 2;
+	/** The number of categories */
+	public static final int CATEGORIES = 3;
+
+	/** The value of a handle that refers to nothing */
+	public static final int NO_HANDLE = -1;
+
+	/** The number of bits of a handle holding the slot (the rest is the generation) */
+	private static final int SLOT_BITS = 20;
+	/** The mask for the slot of a handle */
+	private static final int SLOT_MASK = (1 << SLOT_BITS)-1;
+	/** The largest generation (generations wrap around after this) */
+	private static final int MAX_GENERATION = (1 << (31-SLOT_BITS))-1;
+	/** The starting capacity of each array */
+	private static final int DEFAULT_CAPACITY = 64;
+
+	/** The obstacles of each category, packed at the front of the array */
+	private Obstacle[][] dense;
+	/** The slot of each obstacle in the dense arrays */
+	private int[][] denseSlots;
+	/** The number of obstacles in each category */
+	private int[] sizes;
+
+	/** The category of each slot */
+	private int[] slotCategory;
+	/** The index in the dense array of each slot (-1 if the slot is free) */
+	private int[] slotIndex;
+	/** The generation of each slot (increased when the slot is freed) */
+	private int[] slotGeneration;
+	/** The number of slots ever used */
+	private int slotCount;
+	/** The slots that are free for reuse */
+	private IntArray freeSlots;
+	/** The handle of each obstacle in the store */
+	private ObjectIntMap<Obstacle> handles;
+	/** The number of changes made to the store */
+	private int version;
+
+	/** The iterator reused by iterator() */
+	private StoreIterator iterator;
+
+	/**
+	 * Creates an empty obstacle store
+	 */
+	public ObstacleStore() {
+		dense = new Obstacle[CATEGORIES][DEFAULT_CAPACITY];
+		denseSlots = new int[CATEGORIES][DEFAULT_CAPACITY];
+		sizes = new int[CATEGORIES];
+		slotCategory = new int[DEFAULT_CAPACITY];
+		slotIndex = new int[DEFAULT_CAPACITY];
+		slotGeneration = new int[DEFAULT_CAPACITY];
+		slotCount = 0;
+		freeSlots = new IntArray();
+		handles = new ObjectIntMap<Obstacle>();
+		iterator = new StoreIterator();
+	}
+
+	/**
+	 * Adds an obstacle to the given category, returning its handle
+	 *
+	 * If the obstacle is already in the store, this returns its current handle and does
+	 * not add it again.
+	 *
+	 * @param obj		the obstacle to add
+	 * @param category	the category of the obstacle (STATIC, ACTORS or TRANSIENT)
+	 *
+	 * @return the handle of the obstacle
+	 */
+	public int add(Obstacle obj, int category) {
+		int handle = handles.get(obj, NO_HANDLE);
+		if (handle != NO_HANDLE) {
+			return handle;
+		}
+
+		int slot;
+		if (freeSlots.size > 0) {
+			slot = freeSlots.pop();
+		} else {
+			if (slotCount == slotIndex.length) {
+				growSlots();
+			}
+			slot = slotCount++;
+		}
+
+		int index = sizes[category];
+		if (index == dense[category].length) {
+			dense[category] = Arrays.copyOf(dense[category], index*2);
+			denseSlots[category] = Arrays.copyOf(denseSlots[category], index*2);
+		}
+		dense[category][index] = obj;
+		denseSlots[category][index] = slot;
+		sizes[category]++;
+
+		slotCategory[slot] = category;
+		slotIndex[slot] = index;
+		handle = (slotGeneration[slot] << SLOT_BITS) | slot;
+		handles.put(obj, handle);
+		version++;
+		return handle;
+	}
+
+	/**
+	 * Removes the obstacle with the given handle
+	 *
+	 * The last obstacle of the same category takes its place.  This does nothing (and
+	 * returns false) if the handle is stale.
+	 *
+	 * @param handle	the handle of the obstacle
+	 *
+	 * @return true if an obstacle was removed
+	 */
+	public boolean remove(int handle) {
+		if (!isValid(handle)) {
+			return false;
+		}
+		int slot = handle & SLOT_MASK;
+		int category = slotCategory[slot];
+		int index = slotIndex[slot];
+		int last = --sizes[category];
+
+		Obstacle obj = dense[category][index];
+		dense[category][index] = dense[category][last];
+		denseSlots[category][index] = denseSlots[category][last];
+		slotIndex[denseSlots[category][index]] = index;
+		dense[category][last] = null;
+
+		handles.remove(obj, NO_HANDLE);
+		slotIndex[slot] = -1;
+		slotGeneration[slot] = (slotGeneration[slot]+1) & MAX_GENERATION;
+		freeSlots.add(slot);
+		version++;
+		return true;
+	}
+
+	/**
+	 * Removes the given obstacle
+	 *
+	 * This does nothing (and returns false) if the obstacle is not in the store.
+	 *
+	 * @param obj	the obstacle to remove
+	 *
+	 * @return true if the obstacle was removed
+	 */
+	public boolean remove(Obstacle obj) {
+		return remove(handles.get(obj, NO_HANDLE));
+	}
+
+	/**
+	 * Returns true if the handle refers to an obstacle in the store
+	 *
+	 * @param handle	the handle to check
+	 *
+	 * @return true if the handle refers to an obstacle in the store
+	 */
+	public boolean isValid(int handle) {
+		if (handle < 0) {
+			return false;
+		}
+		int slot = handle & SLOT_MASK;
+		return slot < slotCount && slotIndex[slot] >= 0 && slotGeneration[slot] == (handle >>> SLOT_BITS);
+	}
+
+	/**
+	 * Returns the obstacle with the given handle (null if the handle is stale)
+	 *
+	 * @param handle	the handle of the obstacle
+	 *
+	 * @return the obstacle with the given handle
+	 */
+	public Obstacle get(int handle) {
+		if (!isValid(handle)) {
+			return null;
+		}
+		int slot = handle & SLOT_MASK;
+		return dense[slotCategory[slot]][slotIndex[slot]];
+	}
+
+	/**
+	 * Returns the handle of the given obstacle (NO_HANDLE if it is not in the store)
+	 *
+	 * @param obj	the obstacle
+	 *
+	 * @return the handle of the given obstacle
+	 */
+	public int getHandle(Obstacle obj) {
+		return handles.get(obj, NO_HANDLE);
+	}
+
+	/**
+	 * Returns the category of the given obstacle (-1 if it is not in the store)
+	 *
+	 * @param obj	the obstacle
+	 *
+	 * @return the category of the given obstacle
+	 */
+	public int getCategory(Obstacle obj) {
+		int handle = handles.get(obj, NO_HANDLE);
+		return handle == NO_HANDLE ? -1 : slotCategory[handle & SLOT_MASK];
+	}
+
+	/**
+	 * Returns true if the obstacle is in the store
+	 *
+	 * @param obj	the obstacle
+	 *
+	 * @return true if the obstacle is in the store
+	 */
+	public boolean contains(Obstacle obj) {
+		return handles.containsKey(obj);
+	}
+
+	/**
+	 * Returns the number of obstacles in the store
+	 *
+	 * @return the number of obstacles in the store
+	 */
+	public int size() {
+		return sizes[STATIC]+sizes[ACTORS]+sizes[TRANSIENT];
+	}
+
+	/**
+	 * Returns the number of obstacles in the given category
+	 *
+	 * @param category	the category
+	 *
+	 * @return the number of obstacles in the given category
+	 */
+	public int size(int category) {
+		return sizes[category];
+	}
+
+	/**
+	 * Returns the number of changes made to the store
+	 *
+	 * This changes whenever an obstacle is added or removed, so users that keep their
+	 * own list of the obstacles (such as a draw order) can tell when to rebuild it.
+	 *
+	 * @return the number of changes made to the store
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the obstacle at the given position of a category
+	 *
+	 * @param category	the category
+	 * @param index		the position in the category (less than size(category))
+	 *
+	 * @return the obstacle at the given position of a category
+	 */
+	public Obstacle get(int category, int index) {
+		return dense[category][index];
+	}
+
+	/**
+	 * Removes every obstacle, invalidating all handles
+	 */
+	public void clear() {
+		for (int category = 0; category < CATEGORIES; category++) {
+			Arrays.fill(dense[category], 0, sizes[category], null);
+			sizes[category] = 0;
+		}
+		for (int slot = 0; slot < slotCount; slot++) {
+			if (slotIndex[slot] >= 0) {
+				slotIndex[slot] = -1;
+				slotGeneration[slot] = (slotGeneration[slot]+1) & MAX_GENERATION;
+			}
+		}
+		freeSlots.clear();
+		for (int slot = slotCount-1; slot >= 0; slot--) {
+			freeSlots.add(slot);
+		}
+		handles.clear();
+		version++;
+	}
+
+	/**
+	 * Returns an iterator over every obstacle, one category after another
+	 *
+	 * The iterator is reused, so iterations may not be nested.
+	 *
+	 * @return an iterator over every obstacle
+	 */
+	public Iterator<Obstacle> iterator() {
+		iterator.reset();
+		return iterator;
+	}
+
+	/**
+	 * Doubles the size of the slot arrays
+	 */
+	private void growSlots() {
+		int capacity = slotIndex.length*2;
+		slotCategory = Arrays.copyOf(slotCategory, capacity);
+		slotIndex = Arrays.copyOf(slotIndex, capacity);
+		slotGeneration = Arrays.copyOf(slotGeneration, capacity);
+	}
+
+	/**
+	 * An iterator over the dense arrays of the store
+	 */
+	private class StoreIterator implements Iterator<Obstacle> {
+		/** The category being iterated */
+		private int category;
+		/** The next position in the category */
+		private int index;
+
+		/**
+		 * Moves the iterator back to the first obstacle
+		 */
+		public void reset() {
+			category = 0;
+			index = 0;
+		}
+
+		public boolean hasNext() {
+			while (category < CATEGORIES && index >= sizes[category]) {
+				category++;
+				index = 0;
+			}
+			return category < CATEGORIES;
+		}
+
+		public Obstacle next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return dense[category][index++];
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException("Remove obstacles through the store");
+		}
+	}
+}
@@ -406,7 +406,7 @@ public class PolygonObstacle extends SimpleObstacle {
 	 */
 	public void draw(ObstacleCanvas canvas) {
 		if (region != null) {
-			canvas.draw(region,Color.WHITE,0,0,getX()*drawScale.x,getY()*drawScale.y,getAngle(),1,1);
+			canvas.draw(region,Color.WHITE,0,0,getRenderX()*drawScale.x,getRenderY()*drawScale.y,getRenderAngle(),1,1);
 		}
 	}
 
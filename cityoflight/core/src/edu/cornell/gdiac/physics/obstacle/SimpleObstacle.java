@@ -95,6 +95,7 @@ public abstract class SimpleObstacle extends Obstacle {
 	public void setPosition(Vector2 value) {
 		if (body != null) {
 			body.setTransform(value,body.getAngle());
+			snapPosition();
 		} else {
 			super.setPosition(value);
 		}
@@ -110,6 +111,7 @@ public abstract class SimpleObstacle extends Obstacle {
 		if (body != null) {
 			positionCache.set(x,y);
 			body.setTransform(positionCache,body.getAngle());
+			snapPosition();
 		} else {
 			super.setPosition(x,y);
 		}
@@ -133,6 +135,7 @@ public abstract class SimpleObstacle extends Obstacle {
 		if (body != null) {
 			positionCache.set(value,body.getPosition().y);
 			body.setTransform(positionCache,body.getAngle());
+			snapPosition();
 		} else {
 			super.setX(value);
 		}
@@ -156,6 +159,7 @@ public abstract class SimpleObstacle extends Obstacle {
 		if (body != null) {
 			positionCache.set(body.getPosition().x,value);
 			body.setTransform(positionCache,body.getAngle());
+			snapPosition();
 		} else {
 			super.setY(value);
 		}
@@ -180,6 +184,7 @@ public abstract class SimpleObstacle extends Obstacle {
 	public void setAngle(float value) {
 		if (body != null) {
 			body.setTransform(body.getPosition(),value);
+			snapAngle();
 		} else {
 			super.setAngle(value);
 		}
@@ -775,7 +780,7 @@ public abstract class SimpleObstacle extends Obstacle {
 	 */
 	public void draw(ObstacleCanvas canvas) {
 		if (texture != null) {
-			canvas.draw(texture,Color.WHITE,origin.x,origin.y,getX()*drawScale.x,getY()*drawScale.x,getAngle(),GameController.TEMP_SCALE, GameController.TEMP_SCALE);
+			canvas.draw(texture,Color.WHITE,origin.x,origin.y,getRenderX()*drawScale.x,getRenderY()*drawScale.x,getRenderAngle(),GameController.TEMP_SCALE, GameController.TEMP_SCALE);
 		}
 	}
 	
@@ -0,0 +1,382 @@
+/*
+ * AdaptiveMusic.java
+ *
+ * The game music has a stem for each mood (such as calm and detected), written to the
+ * same tempo and length so that one can take over from the other at any point.  The
+ * simple way to switch between them is to play every stem all the time and only turn
+ * up the one that is wanted.  But then every stem is decoded all the time, even though
+ * only one can be heard.
+ *
+ * This class only plays the active stem.  When the mood changes, the new stem starts
+ * in step with the old one and the two crossfade.  Once the fade is done, the old stem
+ * keeps playing silently for a short while (the mood often flips back soon), and is
+ * then paused.  So two stems are only decoded around a transition.
+ *
+ * Seeking a stream has to decode everything from its cursor up to the new position,
+ * on the thread that asks for it.  Seeking a paused stem all the way to the position
+ * of the active one would stall the frame, and the stall would grow the longer the
+ * stem was paused.  Instead, a stem that was paused for a while resumes from its own
+ * cursor and only skips ahead to the same place in the bar.  That decodes at most one
+ * bar, however far into the music it is.  Stems that were playing silently (or were
+ * only paused for less than a bar) are exactly in step.
+ */
+package edu.cornell.gdiac.util;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.audio.Music;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * A piece of looping music with several stems, only one of which is heard at a time
+ */
+public class AdaptiveMusic implements Disposable {
+	/** The default crossfade time in seconds */
+	private static final float DEFAULT_FADE = 0.5f;
+	/** The default length of a bar in seconds (4 beats at 120 bpm) */
+	private static final float DEFAULT_BAR = 2.0f;
+	/** The default time a faded out stem keeps playing silently, in seconds */
+	private static final float DEFAULT_LINGER = 8.0f;
+	/** Skips shorter than this (in seconds) are not worth a seek */
+	private static final float MIN_SKIP = 0.01f;
+
+	/** The stems of the music */
+	private Music[] stems;
+	/** The time left that each stem keeps playing silently (0 if it is not lingering) */
+	private float[] lingerLeft;
+	/** The index of the stem being played (or faded in) */
+	private int active;
+	/** The index of the stem being faded out (-1 if none) */
+	private int fading;
+	/** The time left in the crossfade, in seconds */
+	private float fadeLeft;
+	/** The length of a crossfade, in seconds */
+	private float fadeTime;
+	/** The length of a bar, in seconds */
+	private float barLength;
+	/** The time a faded out stem keeps playing silently, in seconds */
+	private float lingerTime;
+	/** The volume of the music */
+	private float volume;
+	/** Whether the music is playing */
+	private boolean playing;
+	/** The stem the active one must be brought in step with when played (-1 if none) */
+	private int alignFrom;
+
+	/**
+	 * Creates music from the given stems, which must have the same length
+	 *
+	 * The first stem is the active one.  The stems are streamed, so creating them only
+	 * opens the files.
+	 *
+	 * @param files	The file of each stem
+	 */
+	public AdaptiveMusic(FileHandle... files) {
+		stems = new Music[files.length];
+		lingerLeft = new float[files.length];
+		for (int ii = 0; ii < files.length; ii++) {
+			stems[ii] = Gdx.audio.newMusic(files[ii]);
+			stems[ii].setLooping(true);
+			stems[ii].setVolume(0.0f);
+		}
+		active = 0;
+		fading = -1;
+		fadeTime = DEFAULT_FADE;
+		barLength = DEFAULT_BAR;
+		lingerTime = DEFAULT_LINGER;
+		volume = 1.0f;
+		playing = false;
+		alignFrom = -1;
+	}
+
+	/**
+	 * Returns the index of the active stem
+	 *
+	 * @return the index of the active stem
+	 */
+	public int getStem() {
+		return active;
+	}
+
+	/**
+	 * Switches to the given stem, keeping the music in step
+	 *
+	 * If the music is playing, the new stem starts in step with the old one and they
+	 * crossfade (see update).  Switching back in the middle of a fade reverses the
+	 * fade.  If the music is not playing, the new stem is brought in step when it is
+	 * played.  Either way, this never decodes more than one bar.
+	 *
+	 * @param index	The index of the stem to play
+	 */
+	public void setStem(int index) {
+		if (index == active) {
+			return;
+		}
+		if (!playing) {
+			if (alignFrom < 0) {
+				alignFrom = active;
+			} else if (alignFrom == index) {
+				alignFrom = -1;
+			}
+			active = index;
+			return;
+		}
+		if (index == fading) {
+			// Reverse the fade from where it is
+			fading = active;
+			active = index;
+			fadeLeft = fadeTime-fadeLeft;
+			return;
+		}
+		if (fading >= 0) {
+			linger(fading);
+		}
+		Music next = stems[index];
+		lingerLeft[index] = 0;
+		if (!next.isPlaying()) {
+			next.setVolume(0.0f);
+			next.play();
+			align(next, stems[active]);
+		}
+		fading = active;
+		active = index;
+		fadeLeft = fadeTime;
+	}
+
+	/**
+	 * Returns the length of a crossfade, in seconds
+	 *
+	 * @return the length of a crossfade, in seconds
+	 */
+	public float getFadeTime() {
+		return fadeTime;
+	}
+
+	/**
+	 * Sets the length of a crossfade, in seconds
+	 *
+	 * @param value the length of a crossfade, in seconds
+	 */
+	public void setFadeTime(float value) {
+		fadeTime = Math.max(0, value);
+	}
+
+	/**
+	 * Returns the length of a bar, in seconds
+	 *
+	 * A stem that was paused for a while is brought in step to the bar, so this bounds
+	 * the work of a switch.
+	 *
+	 * @return the length of a bar, in seconds
+	 */
+	public float getBarLength() {
+		return barLength;
+	}
+
+	/**
+	 * Sets the length of a bar, in seconds
+	 *
+	 * @param value the length of a bar, in seconds
+	 */
+	public void setBarLength(float value) {
+		barLength = Math.max(MIN_SKIP, value);
+	}
+
+	/**
+	 * Returns the time a faded out stem keeps playing silently, in seconds
+	 *
+	 * @return the time a faded out stem keeps playing silently, in seconds
+	 */
+	public float getLingerTime() {
+		return lingerTime;
+	}
+
+	/**
+	 * Sets the time a faded out stem keeps playing silently, in seconds
+	 *
+	 * Switching back to a stem within this time is exactly in step and free, at the
+	 * cost of decoding two stems for that long.
+	 *
+	 * @param value the time a faded out stem keeps playing silently, in seconds
+	 */
+	public void setLingerTime(float value) {
+		lingerTime = Math.max(0, value);
+	}
+
+	/**
+	 * Returns the volume of the music
+	 *
+	 * @return the volume of the music
+	 */
+	public float getVolume() {
+		return volume;
+	}
+
+	/**
+	 * Sets the volume of the music
+	 *
+	 * @param value the volume of the music in the range [0,1]
+	 */
+	public void setVolume(float value) {
+		volume = value;
+		if (fading < 0) {
+			stems[active].setVolume(volume);
+		}
+	}
+
+	/**
+	 * Returns the musical position of the active stem in seconds
+	 *
+	 * @return the musical position of the active stem in seconds
+	 */
+	public float getPosition() {
+		return stems[active].getPosition();
+	}
+
+	/**
+	 * Returns true if the music is playing
+	 *
+	 * @return true if the music is playing
+	 */
+	public boolean isPlaying() {
+		return playing;
+	}
+
+	/**
+	 * Plays the active stem (resuming it if it was paused)
+	 */
+	public void play() {
+		if (playing) {
+			return;
+		}
+		Music stem = stems[active];
+		stem.setVolume(volume);
+		stem.play();
+		if (alignFrom >= 0) {
+			align(stem, stems[alignFrom]);
+			alignFrom = -1;
+		}
+		playing = true;
+	}
+
+	/**
+	 * Pauses the music, finishing any crossfade
+	 */
+	public void pause() {
+		finishFade();
+		for (int ii = 0; ii < stems.length; ii++) {
+			if (ii != active && lingerLeft[ii] > 0) {
+				stems[ii].pause();
+				lingerLeft[ii] = 0;
+			}
+		}
+		stems[active].pause();
+		playing = false;
+	}
+
+	/**
+	 * Stops the music, so that it starts from the beginning when played again
+	 */
+	public void stop() {
+		finishFade();
+		for (int ii = 0; ii < stems.length; ii++) {
+			stems[ii].stop();
+			lingerLeft[ii] = 0;
+		}
+		alignFrom = -1;
+		playing = false;
+	}
+
+	/**
+	 * Advances the crossfade (if there is one) by the given time
+	 *
+	 * The volumes of the two stems follow an equal power curve, so that the music does
+	 * not dip in the middle.  The old stem lingers silently when the fade is done, and
+	 * is paused once its linger time runs out.
+	 *
+	 * @param dt	Number of seconds since last animation frame
+	 */
+	public void update(float dt) {
+		for (int ii = 0; ii < stems.length; ii++) {
+			if (lingerLeft[ii] > 0) {
+				lingerLeft[ii] -= dt;
+				if (lingerLeft[ii] <= 0) {
+					lingerLeft[ii] = 0;
+					stems[ii].pause();
+				}
+			}
+		}
+
+		if (fading < 0) {
+			return;
+		}
+		fadeLeft -= dt;
+		if (fadeLeft <= 0) {
+			finishFade();
+			return;
+		}
+		float t = 1.0f-fadeLeft/fadeTime;
+		stems[active].setVolume(volume*(float)Math.sin(t*Math.PI/2));
+		stems[fading].setVolume(volume*(float)Math.cos(t*Math.PI/2));
+	}
+
+	/**
+	 * Disposes of the stems
+	 */
+	public void dispose() {
+		for (Music stem : stems) {
+			stem.dispose();
+		}
+		stems = null;
+	}
+
+	/**
+	 * Ends the crossfade (if there is one), letting the old stem linger
+	 */
+	private void finishFade() {
+		if (fading < 0) {
+			return;
+		}
+		linger(fading);
+		stems[active].setVolume(volume);
+		fading = -1;
+	}
+
+	/**
+	 * Silences a stem, keeping it playing (and so in step) for the linger time
+	 *
+	 * @param index	The index of the stem
+	 */
+	private void linger(int index) {
+		stems[index].setVolume(0.0f);
+		if (lingerTime > 0) {
+			lingerLeft[index] = lingerTime;
+		} else {
+			stems[index].pause();
+		}
+	}
+
+	/**
+	 * Skips a stem ahead so that it is in step with another
+	 *
+	 * A stem can only skip forward cheaply, so a stem at most a bar behind catches up
+	 * exactly, and any other stem only skips to the same place in the bar.  Either way
+	 * this decodes at most one bar.
+	 *
+	 * @param stem		The stem to move
+	 * @param leader	The stem to keep in step with
+	 */
+	private void align(Music stem, Music leader) {
+		float cursor = stem.getPosition();
+		float behind = leader.getPosition()-cursor;
+		float skip;
+		if (behind >= 0 && behind <= barLength) {
+			skip = behind;
+		} else {
+			skip = ((behind % barLength)+barLength) % barLength;
+		}
+		if (skip >= MIN_SKIP) {
+			stem.setPosition(cursor+skip);
+		}
+	}
+}
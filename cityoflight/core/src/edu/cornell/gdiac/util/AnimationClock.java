@@ -0,0 +1,73 @@
+/*
+ * AnimationClock.java
+ *
+ * Each model used to advance its own animation in its update method, each with its own
+ * cooldown logic.  This class advances every animator of a level together, in a single
+ * pass over a flat array, once per tick.
+ */
+package edu.cornell.gdiac.util;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * A clock that advances a set of animators together
+ */
+public class AnimationClock {
+	/** The animators advanced by this clock */
+	private Array<Animator> animators;
+
+	/**
+	 * Creates a clock with no animators
+	 */
+	public AnimationClock() {
+		animators = new Array<Animator>(true, 16, Animator.class);
+	}
+
+	/**
+	 * Adds an animator to this clock
+	 *
+	 * This does nothing if the animator is already on the clock.
+	 *
+	 * @param animator	the animator to add
+	 */
+	public void add(Animator animator) {
+		if (animator != null && !animators.contains(animator, true)) {
+			animators.add(animator);
+		}
+	}
+
+	/**
+	 * Removes an animator from this clock
+	 *
+	 * @param animator	the animator to remove
+	 */
+	public void remove(Animator animator) {
+		animators.removeValue(animator, true);
+	}
+
+	/**
+	 * Removes every animator from this clock
+	 */
+	public void clear() {
+		animators.clear();
+	}
+
+	/**
+	 * Returns the number of animators on this clock
+	 *
+	 * @return the number of animators on this clock
+	 */
+	public int size() {
+		return animators.size;
+	}
+
+	/**
+	 * Advances every animator by one tick
+	 */
+	public void tick() {
+		Animator[] items = animators.items;
+		for (int ii = 0; ii < animators.size; ii++) {
+			items[ii].tick();
+		}
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * Animator.java
+ *
+ * The animation state of a single model: the frame table it is playing, the current
+ * frame and the cooldown until the next one.  The models used to keep this state in
+ * their own counters (walkCool, boxCool and so on) and write the frame into a shared
+ * FilmStrip.  Now the frames are shared (as a FrameTable) and only this small state
+ * belongs to the model.
+ *
+ * Animators do not advance themselves.  They are added to an AnimationClock, which
+ * advances all of them in one pass each tick.  The animation system of the level keeps
+ * the animators of its sprites on such a clock.
+ */
+package edu.cornell.gdiac.util;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+/**
+ * The per-instance state of a flipbook animation
+ *
+ * A playing animator advances one frame every interval+1 ticks, wrapping around at
+ * the end of the table.  A stopped animator returns to its start frame once the
+ * cooldown runs out.  If the rest is positive, the animation plays once, rests on the
+ * start frame for that many ticks, and then plays again (like the shine of the box).
+ */
+public class Animator {
+	/** The frames being played */
+	private FrameTable table;
+	/** The current frame */
+	private int frame;
+	/** The frame to return to when stopped */
+	private int start;
+	/** The number of ticks to wait between frames */
+	private int interval;
+	/** The number of ticks until the next frame */
+	private int cooldown;
+	/** The number of ticks to rest between cycles (0 to loop without resting) */
+	private int rest;
+	/** The number of ticks left in the current rest */
+	private int resting;
+	/** Whether the animation is playing */
+	private boolean playing;
+
+	/**
+	 * Creates a stopped animator for the given frames
+	 *
+	 * @param table		the frames to play (may be null)
+	 * @param interval	the number of ticks to wait between frames
+	 */
+	public Animator(FrameTable table, int interval) {
+		this.table = table;
+		this.interval = interval;
+		frame = 0;
+		start = 0;
+		cooldown = 0;
+		rest = 0;
+		resting = 0;
+		playing = false;
+	}
+
+	/**
+	 * Returns the frames being played
+	 *
+	 * @return the frames being played
+	 */
+	public FrameTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Sets the frames being played
+	 *
+	 * The current frame is kept (wrapped to the size of the new table), so that a model
+	 * turning to face another way stays in step.
+	 *
+	 * @param value	the frames to play
+	 */
+	public void setTable(FrameTable value) {
+		table = value;
+		if (table != null) {
+			frame = frame % table.getSize();
+		}
+	}
+
+	/**
+	 * Returns the current frame
+	 *
+	 * @return the current frame
+	 */
+	public int getFrame() {
+		return frame;
+	}
+
+	/**
+	 * Sets the current frame
+	 *
+	 * @param value	the current frame
+	 */
+	public void setFrame(int value) {
+		frame = value;
+	}
+
+	/**
+	 * Returns the frame to return to when stopped
+	 *
+	 * @return the frame to return to when stopped
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * Sets the frame to return to when stopped
+	 *
+	 * This also makes it the current frame.
+	 *
+	 * @param value	the frame to return to when stopped
+	 */
+	public void setStart(int value) {
+		start = value;
+		frame = value;
+	}
+
+	/**
+	 * Returns the number of ticks to wait between frames
+	 *
+	 * @return the number of ticks to wait between frames
+	 */
+	public int getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Sets the number of ticks to wait between frames
+	 *
+	 * @param value	the number of ticks to wait between frames
+	 */
+	public void setInterval(int value) {
+		interval = value;
+	}
+
+	/**
+	 * Returns the number of ticks to rest between cycles
+	 *
+	 * @return the number of ticks to rest between cycles (0 to loop without resting)
+	 */
+	public int getRest() {
+		return rest;
+	}
+
+	/**
+	 * Sets the number of ticks to rest between cycles
+	 *
+	 * @param value	the number of ticks to rest between cycles (0 to loop without resting)
+	 */
+	public void setRest(int value) {
+		rest = value;
+	}
+
+	/**
+	 * Returns true if the animation is playing
+	 *
+	 * @return true if the animation is playing
+	 */
+	public boolean isPlaying() {
+		return playing;
+	}
+
+	/**
+	 * Sets whether the animation is playing
+	 *
+	 * @param value	whether the animation is playing
+	 */
+	public void setPlaying(boolean value) {
+		playing = value;
+	}
+
+	/**
+	 * Returns the region of the current frame (null if there are no frames)
+	 *
+	 * @return the region of the current frame
+	 */
+	public TextureRegion getRegion() {
+		return table == null ? null : table.getFrame(frame);
+	}
+
+	/**
+	 * Advances the animation by one tick
+	 */
+	public void tick() {
+		if (table == null) {
+			return;
+		}
+		if (cooldown > 0) {
+			cooldown--;
+		} else if (resting > 0) {
+			frame = start;
+			resting--;
+		} else if (playing) {
+			int next = (frame+1) % table.getSize();
+			if (rest > 0 && next < frame) {
+				resting = rest;
+			} else {
+				frame = next;
+			}
+			cooldown = interval;
+		} else {
+			frame = start;
+		}
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ * AssetPack.java
+ *
+ * At startup, the game reads a great many small files: the images, sounds, music and
+ * level files.  Opening each file costs far more than reading it, especially when the
+ * disk cache is cold.
+ *
+ * An asset pack holds all of these files in one file (built by the packAssets Gradle
+ * task).  The pack is memory-mapped when it is opened, and each asset is served as a
+ * read-only slice of the mapping, so reading an asset neither opens a file nor copies
+ * it to a new buffer first.
+ *
+ * The format is a big-endian header (the magic number, the version and the number of
+ * entries), followed by an index of entries (the path as UTF, the offset and the length
+ * as longs), followed by the contents of the files.
+ */
+package edu.cornell.gdiac.util;
+
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.files.*;
+import com.badlogic.gdx.utils.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+/**
+ * A read-only pack of asset files, memory-mapped from disk
+ */
+public class AssetPack {
+	/** The magic number at the start of every pack ("CLPK") */
+	public static final int MAGIC = 0x434C504B;
+	/** The version of the pack format */
+	public static final int VERSION = 1;
+
+	/** The mapped contents of the pack file */
+	private MappedByteBuffer buffer;
+	/** The contents of each file in the pack, by path */
+	private ObjectMap<String,ByteBuffer> entries;
+
+	/**
+	 * Opens the pack in the given file, returning null if it cannot be used
+	 *
+	 * A pack can only be mapped from a real file, so this returns null if the file is
+	 * missing or inside a jar, or if it is not a valid pack.
+	 *
+	 * @param file	The pack file
+	 *
+	 * @return the opened pack (or null if it cannot be used)
+	 */
+	public static AssetPack open(FileHandle file) {
+		File path = file.file();
+		if (!path.isFile()) {
+			return null;
+		}
+		try {
+			return new AssetPack(path);
+		} catch (IOException e) {
+			return null;
+		} catch (BufferUnderflowException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Maps the given pack file and reads its index
+	 *
+	 * The file is closed once mapped; the mapping stays valid until it is collected.
+	 *
+	 * @param path	The pack file
+	 */
+	private AssetPack(File path) throws IOException {
+		RandomAccessFile input = new RandomAccessFile(path, "r");
+		try {
+			FileChannel channel = input.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			input.close();
+		}
+
+		if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			throw new IOException("Not an asset pack: " + path);
+		}
+		int count = buffer.getInt();
+		entries = new ObjectMap<String,ByteBuffer>(count);
+		DataInputStream index = new DataInputStream(new SliceInputStream(buffer.duplicate()));
+		for (int ii = 0; ii < count; ii++) {
+			String name = index.readUTF();
+			long offset = index.readLong();
+			long length = index.readLong();
+			if (offset < 0 || length < 0 || offset+length > buffer.capacity()) {
+				throw new IOException("Corrupt asset pack: " + path);
+			}
+			ByteBuffer slice = buffer.duplicate();
+			slice.position((int)offset);
+			slice.limit((int)(offset+length));
+			entries.put(name, slice.slice());
+		}
+	}
+
+	/**
+	 * Returns true if the pack has the given file
+	 *
+	 * @param path	The file path (relative to the assets folder)
+	 *
+	 * @return true if the pack has the given file
+	 */
+	public boolean contains(String path) {
+		return entries.containsKey(path);
+	}
+
+	/**
+	 * Returns the number of files in the pack
+	 *
+	 * @return the number of files in the pack
+	 */
+	public int size() {
+		return entries.size;
+	}
+
+	/**
+	 * Returns a file handle for the given file in the pack (null if it is not there)
+	 *
+	 * The handle reads from the mapped pack.  Its parent and siblings are ordinary
+	 * internal handles, so their paths can be resolved again through the pack.
+	 *
+	 * @param path	The file path (relative to the assets folder)
+	 *
+	 * @return a file handle for the given file in the pack
+	 */
+	public FileHandle get(String path) {
+		ByteBuffer contents = entries.get(path);
+		if (contents == null) {
+			return null;
+		}
+		return new PackFileHandle(path, contents);
+	}
+
+	/**
+	 * A file handle for a single file in a pack
+	 */
+	private static class PackFileHandle extends FileHandle {
+		/** The contents of the file (never read directly, only duplicated) */
+		private ByteBuffer contents;
+
+		/**
+		 * Creates a handle for the given contents
+		 *
+		 * @param path		The file path (relative to the assets folder)
+		 * @param contents	The contents of the file
+		 */
+		public PackFileHandle(String path, ByteBuffer contents) {
+			super(new File(path), Files.FileType.Internal);
+			this.contents = contents;
+		}
+
+		/**
+		 * Returns a stream over the contents, without copying them
+		 *
+		 * @return a stream over the contents
+		 */
+		public InputStream read() {
+			return new SliceInputStream(contents.duplicate());
+		}
+
+		/**
+		 * Returns a copy of the contents
+		 *
+		 * @return a copy of the contents
+		 */
+		public byte[] readBytes() {
+			ByteBuffer view = contents.duplicate();
+			byte[] result = new byte[view.remaining()];
+			view.get(result);
+			return result;
+		}
+
+		/**
+		 * Returns the length of the contents
+		 *
+		 * @return the length of the contents
+		 */
+		public long length() {
+			return contents.capacity();
+		}
+
+		/**
+		 * Returns true, as the file is in the pack
+		 *
+		 * @return true
+		 */
+		public boolean exists() {
+			return true;
+		}
+
+		/**
+		 * Returns false, as the pack only holds files
+		 *
+		 * @return false
+		 */
+		public boolean isDirectory() {
+			return false;
+		}
+	}
+
+	/**
+	 * An input stream over a byte buffer
+	 *
+	 * The stream owns the buffer's position, so each stream needs its own duplicate.
+	 */
+	private static class SliceInputStream extends InputStream {
+		/** The remaining contents to read */
+		private ByteBuffer data;
+
+		/**
+		 * Creates a stream over the given buffer
+		 *
+		 * @param data	The buffer to read (from its position to its limit)
+		 */
+		public SliceInputStream(ByteBuffer data) {
+			this.data = data;
+		}
+
+		public int read() {
+			return data.hasRemaining() ? (data.get() & 0xff) : -1;
+		}
+
+		public int read(byte[] bytes, int offset, int length) {
+			if (length == 0) {
+				return 0;
+			}
+			if (!data.hasRemaining()) {
+				return -1;
+			}
+			int amount = Math.min(length, data.remaining());
+			data.get(bytes, offset, amount);
+			return amount;
+		}
+
+		public long skip(long amount) {
+			int skipped = (int)Math.max(0, Math.min(amount, data.remaining()));
+			data.position(data.position()+skipped);
+			return skipped;
+		}
+
+		public int available() {
+			return data.remaining();
+		}
+	}
+}
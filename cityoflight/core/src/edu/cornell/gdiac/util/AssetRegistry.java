@@ -0,0 +1,161 @@
+/*
+ * AssetRegistry.java
+ *
+ * The menus, help pages and level select screen use images and sounds that they load
+ * on their own, outside of the asset directory.  The registries share these between
+ * the screens, so that every file is only loaded once.  Sharing a file means counting
+ * the references held by each screen, which is the same for every kind of asset.
+ *
+ * This class is that bookkeeping.  The assets are stored in the JsonAssetManager, so a
+ * file that is also part of the asset directory is never loaded twice, and an asset is
+ * disposed when the last reference (from a registry or the directory) is released.
+ * Each subclass only says how to load its kind of asset.
+ */
+package edu.cornell.gdiac.util;
+
+import com.badlogic.gdx.files.*;
+import com.badlogic.gdx.utils.*;
+
+/**
+ * A registry sharing one kind of asset between the objects that acquire it
+ *
+ * Assets are acquired on behalf of an owner (usually the screen that uses them).
+ * Each acquire adds a reference, which is given back with release, or all at once when
+ * the owner is disposed with releaseAll.
+ *
+ * @param <T>	the type of asset
+ */
+public abstract class AssetRegistry<T> {
+	/** The asset manager holding the assets */
+	private JsonAssetManager manager;
+	/** The type of asset */
+	private Class<T> type;
+	/** The files acquired by each owner (one entry per reference) */
+	private ObjectMap<Object,Array<String>> owners;
+	/** The number of references held through this registry for each file */
+	private ObjectIntMap<String> counts;
+
+	/**
+	 * Creates a new, empty registry for the given type of asset
+	 *
+	 * @param type	the type of asset
+	 */
+	protected AssetRegistry(Class<T> type) {
+		this.type = type;
+		manager = JsonAssetManager.getInstance();
+		owners = new ObjectMap<Object,Array<String>>();
+		counts = new ObjectIntMap<String>();
+	}
+
+	/**
+	 * Returns a new asset loaded from the given file
+	 *
+	 * This is only called for files that the asset manager does not have yet.
+	 *
+	 * @param file	the handle of the file (resolved through the asset manager)
+	 *
+	 * @return a new asset loaded from the given file
+	 */
+	protected abstract T create(FileHandle file);
+
+	/**
+	 * Returns the shared asset for the given file, adding a reference for the owner
+	 *
+	 * If the file is not loaded yet, it is loaded immediately (not through the asset
+	 * queue, so that this is safe to call while the loading screen is running).
+	 *
+	 * @param owner	The object that will use this asset
+	 * @param file	The asset file (relative to the assets folder)
+	 *
+	 * @return the shared asset for the given file
+	 */
+	public T acquire(Object owner, String file) {
+		T asset;
+		if (manager.isLoaded(file, type)) {
+			asset = manager.get(file, type);
+			manager.setReferenceCount(file, manager.getReferenceCount(file)+1);
+		} else {
+			asset = create(manager.resolve(file));
+			manager.addShared(file, type, asset);
+		}
+
+		Array<String> files = owners.get(owner);
+		if (files == null) {
+			files = new Array<String>();
+			owners.put(owner, files);
+		}
+		files.add(file);
+		counts.getAndIncrement(file, 0, 1);
+		return asset;
+	}
+
+	/**
+	 * Gives back one reference to the given file held by the owner
+	 *
+	 * This method does nothing if the owner does not hold the file.
+	 *
+	 * @param owner	The object that acquired the asset
+	 * @param file	The asset file (relative to the assets folder)
+	 */
+	public void release(Object owner, String file) {
+		Array<String> files = owners.get(owner);
+		if (files == null || !files.removeValue(file, false)) {
+			return;
+		}
+		if (files.size == 0) {
+			owners.remove(owner);
+		}
+		unload(file);
+	}
+
+	/**
+	 * Gives back every reference held by the owner
+	 *
+	 * Screens should call this when they are disposed.
+	 *
+	 * @param owner	The object that acquired the assets
+	 */
+	public void releaseAll(Object owner) {
+		Array<String> files = owners.remove(owner);
+		if (files == null) {
+			return;
+		}
+		for (String file : files) {
+			unload(file);
+		}
+	}
+
+	/**
+	 * Returns the number of references held through this registry for the file
+	 *
+	 * @param file	The asset file (relative to the assets folder)
+	 *
+	 * @return the number of references held through this registry for the file
+	 */
+	public int getReferenceCount(String file) {
+		return counts.get(file, 0);
+	}
+
+	/**
+	 * Returns the number of distinct files held through this registry
+	 *
+	 * @return the number of distinct files held through this registry
+	 */
+	public int size() {
+		return counts.size;
+	}
+
+	/**
+	 * Gives a single reference back to the asset manager
+	 *
+	 * @param file	The asset file (relative to the assets folder)
+	 */
+	private void unload(String file) {
+		if (counts.getAndIncrement(file, 0, -1) <= 1) {
+			counts.remove(file, 0);
+		}
+		if (manager.isLoaded(file)) {
+			manager.unload(file);
+		}
+	}
+}
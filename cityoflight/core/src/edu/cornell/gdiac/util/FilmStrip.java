@@ -49,6 +49,10 @@ public class FilmStrip extends TextureRegion {
 	
 	/** The active animation frame */
 	private int frame;
+	/** The x-coordinate of the filmstrip in its texture (non-zero in an atlas) */
+	private int left;
+	/** The y-coordinate of the filmstrip in its texture (non-zero in an atlas) */
+	private int top;
 	
 	/**
 	 * Creates a new filmstrip from the given texture.
@@ -85,6 +89,34 @@ public class FilmStrip extends TextureRegion {
 		rheight = texture.getHeight()/rows;
 		setFrame(0);
 	}
+
+	/**
+	 * Creates a new filmstrip from the given texture region.
+	 * 
+	 * This allows a filmstrip to be a region of a larger texture, such as a
+	 * texture atlas.  The frames are taken from the region, not the whole
+	 * texture.  The value size must be less than or equal to rows*cols, or 
+	 * this constructor will raise an error.
+	 * 
+	 * @param region The texture region to use
+	 * @param rows The number of rows in the filmstrip
+	 * @param cols The number of columns in the filmstrip
+	 * @param size The number of frames in the filmstrip
+	 */
+	public FilmStrip(TextureRegion region, int rows, int cols, int size) {
+		super(region);
+		if (size > rows*cols) {
+			Gdx.app.error("FilmStrip", "Invalid strip size", new IllegalArgumentException());
+			return;
+		}
+		this.cols = cols;
+		this.size = size;
+		left = region.getRegionX();
+		top  = region.getRegionY();
+		rwidth  = region.getRegionWidth()/cols;
+		rheight = region.getRegionHeight()/rows;
+		setFrame(0);
+	}
 	
 	/**
 	 * Returns the number of frames in this filmstrip.
@@ -117,9 +149,28 @@ public class FilmStrip extends TextureRegion {
 			return;
 		}
 		this.frame = frame;
-		int x = (frame % cols)*rwidth;
-		int y = (frame / cols)*rheight;
+		int x = left+(frame % cols)*rwidth;
+		int y = top+(frame / cols)*rheight;
 		setRegion(x,y,rwidth,rheight);
 	}
 
+	/**
+	 * Returns a new region for the given frame, without changing the active frame.
+	 *
+	 * If the frame index is invalid, an error is raised.
+	 *
+	 * @param frame the index of the frame
+	 *
+	 * @return a new region for the given frame
+	 */
+	public TextureRegion getFrameRegion(int frame) {
+		if (frame < 0 || frame >= size) {
+			Gdx.app.error("FilmStrip", "Invalid animation frame", new IllegalArgumentException());
+			return null;
+		}
+		int x = left+(frame % cols)*rwidth;
+		int y = top+(frame / cols)*rheight;
+		return new TextureRegion(getTexture(),x,y,rwidth,rheight);
+	}
+
 }
\ No newline at end of file
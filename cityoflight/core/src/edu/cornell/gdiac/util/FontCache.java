@@ -0,0 +1,235 @@
+/*
+ * FontCache.java
+ *
+ * The fonts in the asset directory are TrueType files.  FreeType rasterizes them at the
+ * requested size every time they are loaded, which is slow and happens at every launch.
+ *
+ * This class bakes each font and size into a bitmap font: a BMFont text file (.fnt)
+ * and PNG pages of glyphs.  A bitmap font loads like any other texture, so no FreeType
+ * work is needed when the cache is good.  The fonts can be baked at build time (with
+ * the bakeFonts Gradle task), or on the first launch that does not find them.
+ *
+ * Each baked font records the checksum of its TrueType file and its size.  If either
+ * changes, the font is baked again.
+ */
+package edu.cornell.gdiac.util;
+
+import com.badlogic.gdx.files.*;
+import com.badlogic.gdx.graphics.*;
+import com.badlogic.gdx.graphics.g2d.*;
+import com.badlogic.gdx.graphics.g2d.freetype.*;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.StreamUtils;
+
+import java.io.*;
+import java.util.zip.*;
+
+/**
+ * A static class to bake TrueType fonts into cached bitmap fonts
+ */
+public class FontCache {
+	/** The folder (relative to the assets) of the baked fonts */
+	public static final String CACHE_DIR = "fontcache";
+	/** The width and height of each glyph page */
+	private static final int PAGE_SIZE = 1024;
+	/** The version of the baked format (bump this to invalidate old caches) */
+	private static final int VERSION = 1;
+
+	/**
+	 * Returns the baked font file for the given font and size
+	 *
+	 * The font file has a page file next to it for each glyph page.
+	 *
+	 * @param dir	The cache folder
+	 * @param ttf	The TrueType file
+	 * @param size	The font size in pixels
+	 *
+	 * @return the baked font file for the given font and size
+	 */
+	public static FileHandle getFontFile(FileHandle dir, FileHandle ttf, int size) {
+		return dir.child(ttf.nameWithoutExtension() + "-" + size + ".fnt");
+	}
+
+	/**
+	 * Returns true if the baked font exists and is up to date
+	 *
+	 * @param dir	The cache folder
+	 * @param ttf	The TrueType file
+	 * @param size	The font size in pixels
+	 *
+	 * @return true if the baked font exists and is up to date
+	 */
+	public static boolean isBaked(FileHandle dir, FileHandle ttf, int size) {
+		FileHandle fnt = getFontFile(dir, ttf, size);
+		if (!fnt.exists() || !ttf.exists()) {
+			return false;
+		}
+		String header;
+		BufferedReader reader = new BufferedReader(fnt.reader("UTF-8"), 512);
+		try {
+			header = reader.readLine();
+		} catch (IOException e) {
+			return false;
+		} finally {
+			StreamUtils.closeQuietly(reader);
+		}
+		return getHeader(ttf, size).equals(header);
+	}
+
+	/**
+	 * Rasterizes the font at the given size and writes it to the cache
+	 *
+	 * This needs the FreeType natives, but not a GL context.
+	 *
+	 * @param dir	The cache folder
+	 * @param ttf	The TrueType file
+	 * @param size	The font size in pixels
+	 *
+	 * @return the baked font file
+	 */
+	public static FileHandle bake(FileHandle dir, FileHandle ttf, int size) {
+		FreeTypeFontGenerator generator = new FreeTypeFontGenerator(ttf);
+		PixmapPacker packer = new PixmapPacker(PAGE_SIZE, PAGE_SIZE, Pixmap.Format.RGBA8888, 1, false);
+		try {
+			FreeTypeFontGenerator.FreeTypeFontParameter parameter = new FreeTypeFontGenerator.FreeTypeFontParameter();
+			parameter.size = size;
+			parameter.packer = packer;
+			BitmapFont.BitmapFontData data = generator.generateData(parameter);
+
+			FileHandle fnt = getFontFile(dir, ttf, size);
+			Array<PixmapPacker.Page> pages = packer.getPages();
+			for (int ii = 0; ii < pages.size; ii++) {
+				PixmapIO.writePNG(fnt.sibling(getPageName(fnt, ii)), pages.get(ii).getPixmap());
+			}
+			// Write the font file last, so an interrupted bake is never valid
+			fnt.writeString(getFontText(ttf, size, fnt, data, pages.size), false, "UTF-8");
+			return fnt;
+		} finally {
+			packer.dispose();
+			generator.dispose();
+		}
+	}
+
+	/**
+	 * Returns the first line of the baked font, which identifies its source
+	 *
+	 * @param ttf	The TrueType file
+	 * @param size	The font size in pixels
+	 *
+	 * @return the first line of the baked font
+	 */
+	private static String getHeader(FileHandle ttf, int size) {
+		CRC32 crc = new CRC32();
+		crc.update(ttf.readBytes());
+		return "info face=\""+ttf.nameWithoutExtension()+"\" size="+size+" bold=0 italic=0 charset=\"\" "+
+			   "unicode=1 stretchH=100 smooth=1 aa=1 padding=0,0,0,0 spacing=1,1 "+
+			   "crc="+Long.toHexString(crc.getValue())+" version="+VERSION;
+	}
+
+	/**
+	 * Returns the name of the given glyph page of a baked font
+	 *
+	 * @param fnt	The baked font file
+	 * @param page	The page index
+	 *
+	 * @return the name of the given glyph page of a baked font
+	 */
+	private static String getPageName(FileHandle fnt, int page) {
+		return fnt.nameWithoutExtension() + "_" + page + ".png";
+	}
+
+	/**
+	 * Returns the BMFont text for the generated font data
+	 *
+	 * The BMFont format measures the glyph offsets down from the top of the line.  The
+	 * base is chosen so that BitmapFont computes the same ascent as FreeType did.
+	 *
+	 * @param ttf	The TrueType file
+	 * @param size	The font size in pixels
+	 * @param fnt	The baked font file
+	 * @param data	The generated font data
+	 * @param pages	The number of glyph pages
+	 *
+	 * @return the BMFont text for the generated font data
+	 */
+	private static String getFontText(FileHandle ttf, int size, FileHandle fnt, BitmapFont.BitmapFontData data, int pages) {
+		Array<BitmapFont.Glyph> glyphs = new Array<BitmapFont.Glyph>();
+		for (BitmapFont.Glyph[] page : data.glyphs) {
+			if (page == null) {
+				continue;
+			}
+			for (BitmapFont.Glyph glyph : page) {
+				if (glyph != null && glyph.id > 0) {
+					glyphs.add(glyph);
+				}
+			}
+		}
+
+		// BitmapFont takes the cap height from the first cap glyph (or the tallest)
+		int capHeight = 0;
+		for (char ch : data.capChars) {
+			BitmapFont.Glyph glyph = data.getGlyph(ch);
+			if (glyph != null && glyph.width > 0 && glyph.height > 0) {
+				capHeight = glyph.height;
+				break;
+			}
+		}
+		if (capHeight == 0) {
+			for (BitmapFont.Glyph glyph : glyphs) {
+				capHeight = Math.max(capHeight, glyph.height);
+			}
+		}
+		int base = Math.round(data.ascent + capHeight);
+
+		StringBuilder text = new StringBuilder();
+		text.append(getHeader(ttf, size)).append('\n');
+		text.append("common lineHeight=").append(Math.round(data.lineHeight)).append(" base=").append(base);
+		text.append(" scaleW=").append(PAGE_SIZE).append(" scaleH=").append(PAGE_SIZE);
+		text.append(" pages=").append(pages).append(" packed=0\n");
+		for (int ii = 0; ii < pages; ii++) {
+			text.append("page id=").append(ii).append(" file=\"").append(getPageName(fnt, ii)).append("\"\n");
+		}
+
+		text.append("chars count=").append(glyphs.size + (data.missingGlyph != null ? 1 : 0)).append('\n');
+		if (data.missingGlyph != null) {
+			appendGlyph(text, 0, data.missingGlyph);
+		}
+		for (BitmapFont.Glyph glyph : glyphs) {
+			appendGlyph(text, glyph.id, glyph);
+		}
+
+		StringBuilder kernings = new StringBuilder();
+		int count = 0;
+		for (BitmapFont.Glyph first : glyphs) {
+			for (BitmapFont.Glyph second : glyphs) {
+				int amount = first.getKerning((char)second.id);
+				if (amount != 0) {
+					kernings.append("kerning first=").append(first.id).append(" second=").append(second.id);
+					kernings.append(" amount=").append(amount).append('\n');
+					count++;
+				}
+			}
+		}
+		text.append("kernings count=").append(count).append('\n');
+		text.append(kernings);
+		return text.toString();
+	}
+
+	/**
+	 * Appends the BMFont line for a single glyph
+	 *
+	 * @param text	The text to append to
+	 * @param id	The character of the glyph (0 for the missing glyph)
+	 * @param glyph	The generated glyph
+	 */
+	private static void appendGlyph(StringBuilder text, int id, BitmapFont.Glyph glyph) {
+		text.append("char id=").append(id);
+		text.append(" x=").append(glyph.srcX).append(" y=").append(glyph.srcY);
+		text.append(" width=").append(glyph.width).append(" height=").append(glyph.height);
+		text.append(" xoffset=").append(glyph.xoffset);
+		// BitmapFont reads this back as -(height + yoffset)
+		text.append(" yoffset=").append(-glyph.yoffset - glyph.height);
+		text.append(" xadvance=").append(glyph.xadvance);
+		text.append(" page=").append(glyph.page).append(" chnl=0\n");
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * FrameTable.java
+ *
+ * The asset manager hands out one FilmStrip per texture key, so every model animated
+ * with the same texture shares it.  A FilmStrip keeps its current frame (and moves its
+ * region when the frame changes), so two creatures of the same kind used to advance
+ * each other's animations and draw whichever frame the other one set last.
+ *
+ * This class is the part of a filmstrip that can be shared: the region of every frame,
+ * computed once.  The current frame belongs to each model, in an Animator.
+ */
+package edu.cornell.gdiac.util;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+/**
+ * An immutable table of the animation frames of a filmstrip
+ *
+ * The regions in this table are shared, and must never be changed.  Use the method
+ * getFrames() in JsonAssetManager to get the table for a texture key.
+ */
+public class FrameTable {
+	/** The filmstrip this table was built from */
+	private final FilmStrip source;
+	/** The region of each frame */
+	private final TextureRegion[] frames;
+
+	/**
+	 * Creates the frame table of the given filmstrip
+	 *
+	 * The filmstrip is not changed.
+	 *
+	 * @param strip	the filmstrip to split into frames
+	 */
+	public FrameTable(FilmStrip strip) {
+		source = strip;
+		frames = new TextureRegion[strip.getSize()];
+		for (int ii = 0; ii < frames.length; ii++) {
+			frames[ii] = strip.getFrameRegion(ii);
+		}
+	}
+
+	/**
+	 * Returns the filmstrip this table was built from
+	 *
+	 * @return the filmstrip this table was built from
+	 */
+	public FilmStrip getSource() {
+		return source;
+	}
+
+	/**
+	 * Returns the number of frames in this table
+	 *
+	 * @return the number of frames in this table
+	 */
+	public int getSize() {
+		return frames.length;
+	}
+
+	/**
+	 * Returns the region of the given frame
+	 *
+	 * @param frame	the index of the frame
+	 *
+	 * @return the region of the given frame
+	 */
+	public TextureRegion getFrame(int frame) {
+		return frames[frame];
+	}
+}
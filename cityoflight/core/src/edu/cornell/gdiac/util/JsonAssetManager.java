@@ -13,11 +13,29 @@
  * 
  * REFACTORED TO SUPPORT FILMSTRIP
  *
+ * In lazy mode, textures are not loaded with the directory.  Instead, each level
+ * loads the manifest of textures it references, and any other texture is loaded the
+ * first time it is requested.  Textures that have not been used recently are evicted
+ * when the resident textures go over budget.  Textures requested before the first
+ * manifest (the art of the screens, and anything cached in a field at startup) are
+ * pinned, and are never evicted.
+ *
+ * Assets are read from the asset pack (see AssetPack) when it exists.
+ *
+ * Textures are decoded on a pool of worker threads as soon as they are queued (see
+ * ParallelTextureLoader), and only uploaded on the GL thread.
+ *
+ * The directory may also list texture atlases (built by the packTextures Gradle task).
+ * A texture whose file was packed into an atlas is allocated as a region of that atlas
+ * instead of its own texture, so that sprites batch together.
+ *
  * Author: Walker M. White
  * Version: 3/12/2016
  */
  package edu.cornell.gdiac.util;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.*;
 import com.badlogic.gdx.assets.*;
 import com.badlogic.gdx.audio.*;
@@ -46,12 +64,45 @@ public class JsonAssetManager extends AssetManager {
 	private JsonValue directory;
 	/** The allocated texture regions (for easy clean-up) */
 	ObjectMap<String,TextureRegion> regions;
+	/** The frame tables built from the filmstrips (shared by the animated models) */
+	ObjectMap<String,FrameTable> frameTables;
 	/** The allocated textures (for easy clean-up) */
 	ObjectMap<String,Texture> textures;
 	/** The allocated fonts (for easy clean-up) */
 	ObjectMap<String,BitmapFont> fonts;
+	/** The file actually loaded for each font key (a baked font if there is one) */
+	ObjectMap<String,String> fontFiles;
 	/** The allocated sounds (for easy clean-up) */
 	ObjectMap<String,Sound> sounds;
+	/** The allocated texture atlases */
+	Array<TextureAtlas> atlases;
+	/** The texture keys allocated from an atlas (these are never evicted) */
+	ObjectSet<String> atlasKeys;
+	/** The loader decoding textures on a pool of threads */
+	private ParallelTextureLoader textureLoader;
+
+	/** The asset pack (relative to the assets folder), used if it exists */
+	public static final String PACK_FILE = "assets.pack";
+	/** The default amount of texture memory (in bytes) to keep resident */
+	public static final long DEFAULT_TEXTURE_BUDGET = 256L*1024L*1024L;
+	/** Whether textures are loaded on demand instead of with the directory */
+	private boolean lazy;
+	/** The amount of texture memory (in bytes) to keep resident */
+	private long textureBudget;
+	/** The texture keys referenced by the current manifest */
+	private ObjectSet<String> manifest;
+	/** The texture keys queued by the current manifest, but not yet allocated */
+	private ObjectSet<String> pending;
+	/** The value of the use clock when each texture key was last requested */
+	private ObjectIntMap<String> lastUsed;
+	/** The number of texture requests so far (for least-recently-used eviction) */
+	private int useClock;
+	/** The value of the use clock when the current manifest was loaded */
+	private int manifestClock;
+	/** Whether a manifest has been loaded since the directory */
+	private boolean hasManifest;
+	/** The texture keys requested before the first manifest (these are never evicted) */
+	private ObjectSet<String> pinned;
 	
 	/** The singleton asset manager (for easy access) */
 	private static JsonAssetManager manager;
@@ -92,35 +143,195 @@ public class JsonAssetManager extends AssetManager {
 	 * sound support through the SoundController.
 	 */
 	private JsonAssetManager() {
-		super();
+		// Read from the asset pack if there is one
+		super(new PackFileHandleResolver(AssetPack.open(Gdx.files.internal(PACK_FILE))));
 		
 		// Add font support to the asset manager
-		FileHandleResolver resolver = new InternalFileHandleResolver();
+		FileHandleResolver resolver = getFileHandleResolver();
 		setLoader(FreeTypeFontGenerator.class, new FreeTypeFontGeneratorLoader(resolver));
 		setLoader(BitmapFont.class, ".ttf", new FreetypeFontLoader(resolver));
 
+		// Decode textures in parallel
+		textureLoader = new ParallelTextureLoader(resolver);
+		setLoader(Texture.class, textureLoader);
+
 		// To keep track of the directory
 		directory = null;
 		regions = new ObjectMap<String,TextureRegion>();
+		frameTables = new ObjectMap<String,FrameTable>();
 		textures = new ObjectMap<String,Texture>();
 		fonts = new ObjectMap<String,BitmapFont>();
+		fontFiles = new ObjectMap<String,String>();
 		sounds = new ObjectMap<String,Sound>();
+		atlases = new Array<TextureAtlas>();
+		atlasKeys = new ObjectSet<String>();
+
+		// To load textures on demand
+		lazy = false;
+		textureBudget = DEFAULT_TEXTURE_BUDGET;
+		manifest = new ObjectSet<String>();
+		pending = new ObjectSet<String>();
+		lastUsed = new ObjectIntMap<String>();
+		useClock = 0;
+		manifestClock = 0;
+		hasManifest = false;
+		pinned = new ObjectSet<String>();
+	}
+
+	/**
+	 * Returns a handle for the given asset file
+	 *
+	 * The file comes from the asset pack if it is there, and from the assets folder
+	 * otherwise.  Use this instead of Gdx.files.internal for anything in the pack.
+	 *
+	 * @param fileName	The file path (relative to the assets folder)
+	 *
+	 * @return a handle for the given asset file
+	 */
+	public FileHandle resolve(String fileName) {
+		return getFileHandleResolver().resolve(fileName);
+	}
+
+	/**
+	 * Returns the loader decoding the textures
+	 *
+	 * The loader has the time spent decoding and uploading each texture file.
+	 *
+	 * @return the loader decoding the textures
+	 */
+	public ParallelTextureLoader getTextureLoader() {
+		return textureLoader;
+	}
+
+	/**
+	 * Sets the number of threads decoding textures
+	 *
+	 * This finishes any loading in progress before replacing the decoding pool.
+	 *
+	 * @param threads	The number of threads decoding textures
+	 */
+	public void setDecodeThreads(int threads) {
+		finishLoading();
+		textureLoader.dispose();
+		textureLoader = new ParallelTextureLoader(getFileHandleResolver(), threads);
+		setLoader(Texture.class, textureLoader);
+	}
+
+	/**
+	 * Queues an asset for loading, starting to decode it right away if it is a texture
+	 *
+	 * @param fileName	The file name
+	 * @param type		The asset type
+	 * @param parameter	The loader parameters (may be null)
+	 */
+	public synchronized <T> void load(String fileName, Class<T> type, AssetLoaderParameters<T> parameter) {
+		super.load(fileName, type, parameter);
+		if (type == Texture.class && parameter == null && !isLoaded(fileName)) {
+			textureLoader.decode(fileName);
+		}
+	}
+
+	/**
+	 * Unloads an asset, throwing away its decode if it never finished loading
+	 *
+	 * @param fileName	The file name
+	 */
+	public synchronized void unload(String fileName) {
+		super.unload(fileName);
+		if (!isLoaded(fileName)) {
+			textureLoader.discard(fileName);
+		}
+	}
+
+	/**
+	 * Disposes all assets and stops the decoding threads
+	 */
+	public synchronized void dispose() {
+		super.dispose();
+		textureLoader.dispose();
+	}
+
+	/**
+	 * Returns true if textures are loaded on demand
+	 *
+	 * If this is true, loading the directory only loads the fonts and sounds. The
+	 * textures are loaded by manifest, or the first time they are requested.
+	 *
+	 * @return true if textures are loaded on demand
+	 */
+	public boolean isLazy() {
+		return lazy;
+	}
+
+	/**
+	 * Sets whether textures are loaded on demand
+	 *
+	 * If this is true, loading the directory only loads the fonts and sounds. The
+	 * textures are loaded by manifest, or the first time they are requested. This
+	 * must be set before the directory is loaded.
+	 *
+	 * @param value	whether textures are loaded on demand
+	 */
+	public void setLazy(boolean value) {
+		assert directory == null : "Directory has already been loaded; must unload first";
+		lazy = value;
+	}
+
+	/**
+	 * Returns the amount of texture memory (in bytes) to keep resident
+	 *
+	 * When a manifest is allocated, textures not used since the previous manifest are
+	 * evicted (least recently used first) until the textures fit in this budget.
+	 *
+	 * @return the amount of texture memory (in bytes) to keep resident
+	 */
+	public long getTextureBudget() {
+		return textureBudget;
+	}
+
+	/**
+	 * Sets the amount of texture memory (in bytes) to keep resident
+	 *
+	 * When a manifest is allocated, textures not used since the previous manifest are
+	 * evicted (least recently used first) until the textures fit in this budget.
+	 *
+	 * @param value	the amount of texture memory (in bytes) to keep resident
+	 */
+	public void setTextureBudget(long value) {
+		textureBudget = value;
 	}
 	
 	/**
 	 * Loads assets defined by the given directory
 	 *
 	 * The assets are all loaded asynchronously. The directory will not
-	 * be loaded if their is a current active directory.
+	 * be loaded if their is a current active directory.  In lazy mode, the
+	 * textures are skipped.  The directory may set the texture budget (in
+	 * megabytes) with the key "textureBudget".
 	 *
 	 * @param json	the parsed asset directory
 	 */
 	public void loadDirectory(JsonValue json) {
 		assert directory == null : "Directory has already been loaded; must unload first";
 		directory = json;
-		loadTextures();
+		if (json.has("textureBudget")) {
+			textureBudget = json.getLong("textureBudget")*1024L*1024L;
+		}
+		LoadTimeline timeline = LoadTimeline.getInstance();
+		long start = timeline.now();
+		loadAtlases();
+		timeline.record("assets", "queue atlases", start);
+		if (!lazy) {
+			start = timeline.now();
+			loadTextures();
+			timeline.record("assets", "queue textures", start);
+		}
+		start = timeline.now();
 		loadSounds();
+		timeline.record("assets", "queue sounds", start);
+		start = timeline.now();
 		loadFonts();
+		timeline.record("assets", "queue fonts", start);
 	}
 	
 	/**
@@ -137,12 +348,31 @@ public class JsonAssetManager extends AssetManager {
 			return "fonts";
 		} else if (type.equals(Sound.class)) {
 			return "sounds";
+		} else if (type.equals(TextureAtlas.class)) {
+			return "atlases";
 		}
 		// Should never reach here
 		assert false : "JSON directory does not support this assets class";
 		return null;
 	}
 
+	/**
+	 * Loads all texture atlases in the asset directory
+	 *
+	 * An atlas that has not been packed yet is skipped.  The textures in it
+	 * are then loaded from their own files instead.
+	 */
+	private void loadAtlases() {
+		JsonValue json = directory.getChild(getClassIdentifier(TextureAtlas.class));
+		while (json != null) {
+			String file = json.getString("file");
+			if (resolve(file).exists()) {
+				load(file,TextureAtlas.class);
+			}
+			json = json.next;
+		}
+	}
+
 	/**
 	 * Loads all textures in the asset directory
 	 */
@@ -157,18 +387,70 @@ public class JsonAssetManager extends AssetManager {
 	
 	/**
 	 * Loads all fonts in the asset directory
+	 *
+	 * Each font is loaded from the font cache if it has been baked at its size.  If
+	 * not, it is baked now (so that later launches skip FreeType).  The TrueType file
+	 * is only rasterized at load time if the cache cannot be written.
 	 */
 	private void loadFonts() {
 		JsonValue json = directory.getChild(getClassIdentifier(BitmapFont.class));
 		while (json != null) {
-			FreetypeFontLoader.FreeTypeFontLoaderParameter size2Params = new FreetypeFontLoader.FreeTypeFontLoaderParameter();
-			size2Params.fontFileName = json.getString("file");
-			size2Params.fontParameters.size = json.getInt("size");
-		
-			load(size2Params.fontFileName, BitmapFont.class, size2Params);
+			String file = json.getString("file");
+			int size = json.getInt("size");
+			FileHandle baked = findBakedFont(file, size);
+			if (baked != null) {
+				fontFiles.put(json.name(), baked.path());
+				load(baked.path(), BitmapFont.class);
+			} else {
+				FreetypeFontLoader.FreeTypeFontLoaderParameter size2Params = new FreetypeFontLoader.FreeTypeFontLoaderParameter();
+				size2Params.fontFileName = file;
+				size2Params.fontParameters.size = size;
+
+				fontFiles.put(json.name(), file);
+				load(size2Params.fontFileName, BitmapFont.class, size2Params);
+			}
 			json = json.next;
 		}
 	}
+
+	/**
+	 * Returns the baked font for the given TrueType file and size, baking it if needed
+	 *
+	 * The fonts baked at build time ship with the assets.  On desktop, the assets
+	 * folder is also the working folder, so a font baked at launch goes to the same
+	 * place.  This returns null if the font cannot be baked.
+	 *
+	 * @param file	The TrueType file
+	 * @param size	The font size in pixels
+	 *
+	 * @return the baked font for the given TrueType file and size
+	 */
+	private FileHandle findBakedFont(String file, int size) {
+		FileHandle ttf = resolve(file);
+		FileHandle shipped = Gdx.files.internal(FontCache.CACHE_DIR);
+		LoadTimeline timeline = LoadTimeline.getInstance();
+		long start = timeline.now();
+		boolean baked = FontCache.isBaked(shipped, ttf, size);
+		if (timeline.isRecording()) {
+			timeline.record("font", "check "+file+" at "+size, start);
+		}
+		if (baked) {
+			return FontCache.getFontFile(shipped, ttf, size);
+		}
+		try {
+			FileHandle local = Gdx.files.local(FontCache.CACHE_DIR);
+			start = timeline.now();
+			FontCache.bake(local, ttf, size);
+			if (timeline.isRecording()) {
+				timeline.record("font", "bake "+file+" at "+size, start);
+			}
+			// Load it the same way as a shipped font
+			return FontCache.getFontFile(shipped, ttf, size);
+		} catch (GdxRuntimeException e) {
+			Gdx.app.error("JsonAssetManager", "Could not bake font "+file, e);
+			return null;
+		}
+	}
 	
 	/**
 	 * Loads all sounds in the asset directory
@@ -188,10 +470,17 @@ public class JsonAssetManager extends AssetManager {
 	 * The asset loader is now free to load another directory.
 	 */
 	public void unloadDirectory() {
+		unloadAtlases();
 		unloadTextures();
 		unloadSounds();
 		unloadFonts();
+		frameTables.clear();
 		directory = null;
+		manifest.clear();
+		pending.clear();
+		lastUsed.clear();
+		pinned.clear();
+		hasManifest = false;
 	}
 	
 	/**
@@ -214,19 +503,37 @@ public class JsonAssetManager extends AssetManager {
 		}
 	}
 	
+	/**
+	 * Unloads all texture atlases in the asset directory
+	 */
+	private void unloadAtlases() {
+		JsonValue json = directory.getChild(getClassIdentifier(TextureAtlas.class));
+		while (json != null) {
+			String file = json.getString("file");
+			if (isLoaded(file)) {
+				unload(file);
+			}
+			json = json.next;
+		}
+		for (String key : atlasKeys) {
+			regions.remove(key);
+		}
+		atlases.clear();
+		atlasKeys.clear();
+	}
+
 	/**
 	 * Unloads all fonts in the asset directory
 	 */
 	private void unloadFonts() {
 		JsonValue json = directory.getChild(getClassIdentifier(BitmapFont.class));
 		while (json != null) {
-			String file = json.getString("file");
+			String file = fontFiles.get(json.name(), json.getString("file"));
 			if (isLoaded(file)) {
 				unload(file);
-				if (fonts.containsKey(file)) {
-					fonts.remove(file);
-				}
+				fonts.remove(json.name());
 			}
+			fontFiles.remove(json.name());
 			json = json.next;
 		}
 	}
@@ -256,9 +563,19 @@ public class JsonAssetManager extends AssetManager {
 	 * the directory key to allow key look-up.
 	 */
 	public void allocateDirectory() {
-		JsonValue json = directory.getChild(getClassIdentifier(TextureRegion.class));
+		JsonValue json = directory.getChild(getClassIdentifier(TextureAtlas.class));
 		while (json != null) {
-			allocateTextureRegion(json);
+			String file = json.getString("file");
+			if (isLoaded(file)) {
+				atlases.add(get(file, TextureAtlas.class));
+			}
+			json = json.next;
+		}
+		json = directory.getChild(getClassIdentifier(TextureRegion.class));
+		while (json != null) {
+			if (!lazy || isLoaded(json.getString("file")) || findAtlasRegion(json) != null) {
+				allocateTextureRegion(json);
+			}
 			json = json.next;
 		}
 		json = directory.getChild(getClassIdentifier(BitmapFont.class));
@@ -280,10 +597,16 @@ public class JsonAssetManager extends AssetManager {
 	 */	
 	private TextureRegion allocateTextureRegion(JsonValue json) {
 		String filename = json.getString("file");
+		TextureRegion base = findAtlasRegion(json);
+		if (base == null) {
+			base = new TextureRegion(get(filename, Texture.class));
+		} else {
+			atlasKeys.add(json.name());
+		}
 		TextureRegion region;
 
 		if (!json.has("strip")) {
-			region = new TextureRegion(get(filename, Texture.class));
+			region = new TextureRegion(base);
 		} else {
 			// It is a filmstrip
 			JsonValue fstrip = json.get("strip");
@@ -291,7 +614,7 @@ public class JsonAssetManager extends AssetManager {
 			int rows  = fstrip.getInt("rows");
 			int cols  = fstrip.getInt("cols");
 			int first = fstrip.getInt("first");
-			FilmStrip film = new FilmStrip(get(filename, Texture.class),rows,cols,size);
+			FilmStrip film = new FilmStrip(base,rows,cols,size);
 			film.setFrame(first);
 			region = film;
 		}
@@ -304,6 +627,35 @@ public class JsonAssetManager extends AssetManager {
 		regions.put(json.name(),region);
 		return region;
 	}
+
+	/**
+	 * Returns the atlas region packed from the file of this entry
+	 *
+	 * The packTextures task names each region after its file, relative to the
+	 * asset folder and without the extension.  Wrapped textures cannot come from
+	 * an atlas, so this method returns null for them (or if no atlas has the file).
+	 *
+	 * @param json 	the directory entry for the asset
+	 *
+	 * @return the atlas region packed from the file of this entry
+	 */
+	private TextureRegion findAtlasRegion(JsonValue json) {
+		if (atlases.size == 0 || json.getBoolean("wrap", false)) {
+			return null;
+		}
+		String name = json.getString("file");
+		int dot = name.lastIndexOf('.');
+		if (dot >= 0) {
+			name = name.substring(0,dot);
+		}
+		for (TextureAtlas atlas : atlases) {
+			TextureRegion region = atlas.findRegion(name);
+			if (region != null) {
+				return region;
+			}
+		}
+		return null;
+	}
 	
 	/**
 	 * Allocates a texture and binds it to the directory key
@@ -327,7 +679,7 @@ public class JsonAssetManager extends AssetManager {
 	 * @param json 	the directory entry for the asset
 	 */	
 	private BitmapFont allocateFont(JsonValue json) {
-		String filename = json.getString("file");
+		String filename = fontFiles.get(json.name(), json.getString("file"));
 		BitmapFont font = get(filename, BitmapFont.class);
 		fonts.put(json.name(),font);
 		return font;
@@ -347,16 +699,242 @@ public class JsonAssetManager extends AssetManager {
 		return sound;
 	}
 	
+	/**
+	 * Returns the texture keys referenced by the given level
+	 *
+	 * A level references a texture if any string in its JSON (a tileset name or
+	 * an object property, for example) is the key of a texture in the directory.
+	 *
+	 * @param level	the parsed level file
+	 *
+	 * @return the texture keys referenced by the given level
+	 */
+	public ObjectSet<String> getManifest(JsonValue level) {
+		ObjectSet<String> result = new ObjectSet<String>();
+		JsonValue entries = directory.get(getClassIdentifier(Texture.class));
+		collectManifest(level, entries, result);
+		return result;
+	}
+
+	/**
+	 * Adds every texture key in the given JSON subtree to the manifest
+	 *
+	 * @param json		the JSON subtree to search
+	 * @param entries	the texture entries of the directory
+	 * @param result	the manifest to add to
+	 */
+	private void collectManifest(JsonValue json, JsonValue entries, ObjectSet<String> result) {
+		if (json.isString()) {
+			String key = json.asString().trim();
+			if (entries.has(key)) {
+				result.add(key);
+			}
+		}
+		for (JsonValue child = json.child; child != null; child = child.next) {
+			collectManifest(child, entries, result);
+		}
+	}
+
+	/**
+	 * Queues the textures referenced by the given level for loading
+	 *
+	 * The textures are loaded asynchronously like the directory.  They are not
+	 * available until the manifest is allocated.  This does nothing if the manager
+	 * is not lazy, as every texture is already loaded.
+	 *
+	 * @param level	the parsed level file
+	 */
+	public void loadManifest(JsonValue level) {
+		if (!lazy) {
+			return;
+		}
+		long start = LoadTimeline.getInstance().now();
+		manifest = getManifest(level);
+		manifestClock = useClock;
+		hasManifest = true;
+		JsonValue entries = directory.get(getClassIdentifier(Texture.class));
+		for (String key : manifest) {
+			String file = entries.get(key).getString("file");
+			if (!regions.containsKey(key) && !pending.contains(key) && findAtlasRegion(entries.get(key)) == null) {
+				load(file, Texture.class);
+				pending.add(key);
+			}
+		}
+		LoadTimeline.getInstance().record("assets", "queue manifest", start);
+	}
+
+	/**
+	 * Queues the given textures for loading ahead of their level
+	 *
+	 * This is like loadManifest, except that the current manifest does not change.
+	 * The textures are still loading in the background until the manager is updated.
+	 * Use cancelPrefetch to give them back if the level is not played after all.
+	 *
+	 * @param keys	the texture keys of the next likely level
+	 */
+	public void prefetchManifest(ObjectSet<String> keys) {
+		if (!lazy) {
+			return;
+		}
+		JsonValue entries = directory.get(getClassIdentifier(Texture.class));
+		for (String key : keys) {
+			String file = entries.get(key).getString("file");
+			if (!regions.containsKey(key) && !pending.contains(key) && findAtlasRegion(entries.get(key)) == null) {
+				load(file, Texture.class);
+				pending.add(key);
+			}
+		}
+	}
+
+	/**
+	 * Unloads the queued textures that are not in the current manifest
+	 *
+	 * This cancels a prefetch, whether or not the textures have finished loading.
+	 */
+	public void cancelPrefetch() {
+		JsonValue entries = directory.get(getClassIdentifier(Texture.class));
+		Array<String> cancelled = new Array<String>();
+		for (String key : pending) {
+			if (!manifest.contains(key)) {
+				cancelled.add(key);
+			}
+		}
+		for (String key : cancelled) {
+			pending.remove(key);
+			unload(entries.get(key).getString("file"));
+		}
+	}
+
+	/**
+	 * Allocates the textures in the current manifest
+	 *
+	 * This finishes loading the manifest if necessary.  Afterwards, textures that
+	 * are outside of the manifest and have not been used since it was loaded are
+	 * evicted until the textures fit in the budget.
+	 */
+	public void allocateManifest() {
+		if (!lazy) {
+			return;
+		}
+		LoadTimeline timeline = LoadTimeline.getInstance();
+		long start = timeline.now();
+		cancelPrefetch();
+		finishLoading();
+		pending.clear();
+		timeline.record("assets", "finish loading manifest", start);
+
+		start = timeline.now();
+		JsonValue entries = directory.get(getClassIdentifier(Texture.class));
+		for (String key : manifest) {
+			if (!regions.containsKey(key)) {
+				allocateTextureRegion(entries.get(key));
+			}
+			lastUsed.put(key, ++useClock);
+		}
+		evictTextures();
+		timeline.record("assets", "allocate manifest", start);
+	}
+
+	/**
+	 * Loads and allocates a texture the first time it is requested
+	 *
+	 * This blocks until the texture is loaded, so it is best to put textures in a
+	 * manifest when they are known ahead of time.  Once a level has loaded its
+	 * manifest, a blocking load is logged, as it may hitch the game.
+	 *
+	 * @param key	the asset directory key
+	 */
+	private void loadLazily(String key) {
+		JsonValue entry = directory.get(getClassIdentifier(Texture.class)).get(key);
+		if (entry == null) {
+			return;
+		}
+		if (findAtlasRegion(entry) == null) {
+			String file = entry.getString("file");
+			if (hasManifest && !pending.contains(key)) {
+				Gdx.app.log("JsonAssetManager", "Texture "+key+" is not in the level manifest; loading it now");
+			}
+			if (!pending.remove(key)) {
+				load(file, Texture.class);
+			}
+			finishLoadingAsset(file);
+		}
+		allocateTextureRegion(entry);
+	}
+
+	/**
+	 * Unloads the least recently used textures until they fit in the budget
+	 *
+	 * Only textures that are outside of the current manifest and have not been
+	 * requested since it was loaded are candidates.  Anything else may still be
+	 * referenced by a live object.  Pinned textures are never candidates, as they
+	 * may be cached in fields and drawn every frame without another request.
+	 */
+	private void evictTextures() {
+		long resident = 0;
+		Array<String> candidates = new Array<String>();
+		for (ObjectMap.Entry<String,TextureRegion> entry : regions) {
+			Texture texture = entry.value.getTexture();
+			if (atlasKeys.contains(entry.key)) {
+				continue;
+			}
+			resident += (long)texture.getWidth()*texture.getHeight()*4;
+			if (!manifest.contains(entry.key) && !pinned.contains(entry.key) &&
+				lastUsed.get(entry.key, 0) <= manifestClock) {
+				candidates.add(entry.key);
+			}
+		}
+		if (resident <= textureBudget) {
+			return;
+		}
+
+		// Oldest first (simple insertion sort; there are only a few hundred keys)
+		for (int ii = 1; ii < candidates.size; ii++) {
+			String key = candidates.get(ii);
+			int time = lastUsed.get(key, 0);
+			int jj = ii-1;
+			while (jj >= 0 && lastUsed.get(candidates.get(jj), 0) > time) {
+				candidates.set(jj+1, candidates.get(jj));
+				jj--;
+			}
+			candidates.set(jj+1, key);
+		}
+
+		JsonValue entries = directory.get(getClassIdentifier(Texture.class));
+		for (int ii = 0; ii < candidates.size && resident > textureBudget; ii++) {
+			String key = candidates.get(ii);
+			Texture texture = regions.get(key).getTexture();
+			resident -= (long)texture.getWidth()*texture.getHeight()*4;
+			regions.remove(key);
+			frameTables.remove(key);
+			textures.remove(key);
+			lastUsed.remove(key, 0);
+			unload(entries.get(key).getString("file"));
+		}
+	}
+
 	/**
 	 * Returns the asset associate with the given directory key
 	 *
-	 * The assets must be allocated for this method to return a value.
+	 * The assets must be allocated for this method to return a value.  In lazy
+	 * mode, a texture that is not yet allocated is loaded immediately.
 	 *
 	 * @param key	the asset directory key
 	 * @param type	the asset type
 	 */
 	public <T> T getEntry(String key, Class<T> type) {
 		try {
+			if (type.equals(TextureRegion.class) || type.equals(Texture.class)) {
+				if (lazy) {
+					if (!hasManifest) {
+						pinned.add(key);
+					}
+					if (!regions.containsKey(key)) {
+						loadLazily(key);
+					}
+					lastUsed.put(key, ++useClock);
+				}
+			}
 			if (type.equals(TextureRegion.class)) {
 				return (T)regions.get(key);
 			} else if (type.equals(Texture.class)) {
@@ -376,4 +954,43 @@ public class JsonAssetManager extends AssetManager {
 		
 	}
 
+	/**
+	 * Returns the frame table of the filmstrip with the given directory key
+	 *
+	 * The table is built the first time it is asked for, and is then shared by every
+	 * model animated with this filmstrip (until the filmstrip is reloaded).  Unlike the
+	 * filmstrip, the table has no current frame, so the models cannot disturb each
+	 * other.  This returns null if the key is not a filmstrip.
+	 *
+	 * @param key	the asset directory key
+	 *
+	 * @return the frame table of the filmstrip with the given directory key
+	 */
+	public FrameTable getFrames(String key) {
+		TextureRegion region = getEntry(key, TextureRegion.class);
+		if (!(region instanceof FilmStrip)) {
+			return null;
+		}
+		FrameTable table = frameTables.get(key);
+		if (table == null || table.getSource() != region) {
+			table = new FrameTable((FilmStrip)region);
+			frameTables.put(key, table);
+		}
+		return table;
+	}
+
+	/**
+	 * Adds an asset that was loaded outside of the queue to this manager
+	 *
+	 * The asset starts with a single reference and is disposed when that
+	 * reference is unloaded.  This is how the registries share their assets.
+	 *
+	 * @param file		the asset file (relative to the assets folder)
+	 * @param type		the type of asset
+	 * @param asset		the asset loaded from the file
+	 */
+	<T> void addShared(String file, Class<T> type, T asset) {
+		addAsset(file, type, asset);
+	}
+
 }
@@ -0,0 +1,299 @@
+/*
+ * LoadTimeline.java
+ *
+ * Loading happens in many places at once: the asset manager thread, the texture
+ * decoding threads, the loading screen and the level itself.  Timing each of them on
+ * its own does not show where the wait between a click and the first playable frame
+ * actually goes.
+ *
+ * This class records the spans of the loading work (asset queueing, decoding, uploads,
+ * font baking, JSON parsing, level population, lights and AI) on one timeline, across
+ * every thread.  A recording is a session, from a start (such as launching the game or
+ * clicking a level) to the first playable frame.  When the session finishes, it is
+ * written out in the Chrome trace format, which chrome://tracing (or Perfetto) can open.
+ *
+ * Recording is off unless enabled (the desktop launcher enables it with -trace).  When
+ * it is off, recording a span costs a single field check.  That does not cover the
+ * arguments, so callers that build span names from strings should check isRecording()
+ * first.
+ */
+package edu.cornell.gdiac.util;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.JsonWriter;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.io.*;
+
+/**
+ * A recorder of loading spans, exported as Chrome trace files
+ *
+ * This class is a singleton, and it is safe to record from any thread.
+ */
+public class LoadTimeline {
+	/** The folder (relative to the local storage) of the trace files */
+	public static final String TRACE_DIR = "traces";
+
+	/** The singleton timeline (created eagerly, as the loading threads also use it) */
+	private static final LoadTimeline instance = new LoadTimeline();
+
+	/** Whether sessions are recorded at all */
+	private boolean enabled;
+	/** The name of the session being recorded (null if not recording) */
+	private volatile String session;
+	/** The time in nanoseconds that the session started */
+	private long origin;
+	/** The spans recorded in this session */
+	private Array<Span> spans;
+	/** The names of the threads that recorded spans, by thread id */
+	private LongMap<String> threads;
+
+	/**
+	 * A single recorded span (or instant, if it has no duration)
+	 */
+	private static class Span {
+		/** The category of the span (such as "assets" or "populate") */
+		public String category;
+		/** The name of the span */
+		public String name;
+		/** The id of the thread that recorded the span */
+		public long thread;
+		/** The start of the span in nanoseconds (relative to the session) */
+		public long start;
+		/** The length of the span in nanoseconds (negative for an instant) */
+		public long length;
+	}
+
+	/**
+	 * Returns the timeline singleton
+	 *
+	 * @return the timeline singleton
+	 */
+	public static LoadTimeline getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Creates a disabled timeline
+	 */
+	private LoadTimeline() {
+		enabled = false;
+		session = null;
+		spans = new Array<Span>();
+		threads = new LongMap<String>();
+	}
+
+	/**
+	 * Returns true if sessions are recorded
+	 *
+	 * @return true if sessions are recorded
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets whether sessions are recorded
+	 *
+	 * Disabling the timeline throws away the session in progress.
+	 *
+	 * @param value	whether sessions are recorded
+	 */
+	public synchronized void setEnabled(boolean value) {
+		enabled = value;
+		if (!enabled) {
+			session = null;
+			spans.clear();
+			threads.clear();
+		}
+	}
+
+	/**
+	 * Returns true if a session is being recorded
+	 *
+	 * @return true if a session is being recorded
+	 */
+	public boolean isRecording() {
+		return session != null;
+	}
+
+	/**
+	 * Returns the current time, to pass as the start of a span
+	 *
+	 * @return the current time in nanoseconds
+	 */
+	public long now() {
+		return TimeUtils.nanoTime();
+	}
+
+	/**
+	 * Starts recording a new session, throwing away any session in progress
+	 *
+	 * The session is named after what is being loaded (such as "startup" or "level-3"),
+	 * and its trace is written to a file of that name.  This does nothing if the
+	 * timeline is not enabled.
+	 *
+	 * @param name	the name of the session
+	 */
+	public synchronized void start(String name) {
+		if (!enabled) {
+			return;
+		}
+		spans.clear();
+		threads.clear();
+		origin = TimeUtils.nanoTime();
+		session = name;
+	}
+
+	/**
+	 * Records a span from the given start time until now, on the current thread
+	 *
+	 * A span that started before the session is cut off at the start of the session.
+	 * This does nothing if no session is being recorded.
+	 *
+	 * @param category	the category of the span
+	 * @param name		the name of the span
+	 * @param start		the start time in nanoseconds (from now())
+	 */
+	public void record(String category, String name, long start) {
+		if (session == null) {
+			return;
+		}
+		long end = TimeUtils.nanoTime();
+		synchronized (this) {
+			if (session != null) {
+				long from = Math.max(start, origin);
+				add(category, name, from-origin, Math.max(0, end-from));
+			}
+		}
+	}
+
+	/**
+	 * Records an instant on the current thread
+	 *
+	 * This does nothing if no session is being recorded.
+	 *
+	 * @param category	the category of the instant
+	 * @param name		the name of the instant
+	 */
+	public void mark(String category, String name) {
+		if (session == null) {
+			return;
+		}
+		long time = TimeUtils.nanoTime();
+		synchronized (this) {
+			if (session != null) {
+				add(category, name, time-origin, -1);
+			}
+		}
+	}
+
+	/**
+	 * Finishes the session in progress, writing its trace file
+	 *
+	 * The trace is written to TRACE_DIR/name.json in local storage, replacing the trace
+	 * of any earlier session with the same name.  This does nothing (and returns null) if
+	 * no session is being recorded.
+	 *
+	 * @return the trace file written (null if there was no session)
+	 */
+	public synchronized FileHandle finish() {
+		if (session == null) {
+			return null;
+		}
+		mark("session", "finish");
+		String name = session;
+		long total = TimeUtils.nanoTime()-origin;
+		session = null;
+
+		FileHandle file = Gdx.files.local(TRACE_DIR + "/" + name + ".json");
+		try {
+			file.writeString(toJson(), false, "UTF-8");
+			Gdx.app.log("LoadTimeline", name+" took "+(total/1000000)+" ms ("+spans.size+" spans, see "+file.path()+")");
+		} catch (Exception e) {
+			Gdx.app.error("LoadTimeline", "Could not write trace "+file.path(), e);
+			file = null;
+		}
+		spans.clear();
+		threads.clear();
+		return file;
+	}
+
+	/**
+	 * Returns the spans of the current session as Chrome trace JSON
+	 *
+	 * Spans are complete ("X") events and instants are "i" events, both in microseconds.
+	 * Each thread is named by a metadata event.
+	 *
+	 * @return the spans of the current session as Chrome trace JSON
+	 */
+	public synchronized String toJson() {
+		StringWriter buffer = new StringWriter();
+		JsonWriter json = new JsonWriter(buffer);
+		json.setOutputType(JsonWriter.OutputType.json);
+		try {
+			json.object();
+			json.set("displayTimeUnit", "ms");
+			json.array("traceEvents");
+			for (LongMap.Entry<String> entry : threads.entries()) {
+				json.object();
+				json.set("name", "thread_name");
+				json.set("ph", "M");
+				json.set("pid", 1);
+				json.set("tid", entry.key);
+				json.object("args");
+				json.set("name", entry.value);
+				json.pop();
+				json.pop();
+			}
+			for (Span span : spans) {
+				json.object();
+				json.set("name", span.name);
+				json.set("cat", span.category);
+				json.set("pid", 1);
+				json.set("tid", span.thread);
+				json.set("ts", span.start/1000.0);
+				if (span.length < 0) {
+					json.set("ph", "i");
+					json.set("s", "t");
+				} else {
+					json.set("ph", "X");
+					json.set("dur", span.length/1000.0);
+				}
+				json.pop();
+			}
+			json.pop();
+			json.pop();
+			json.close();
+		} catch (IOException e) {
+			// A StringWriter never throws
+			throw new IllegalStateException(e);
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Adds a span on the current thread (the caller must hold the lock)
+	 *
+	 * @param category	the category of the span
+	 * @param name		the name of the span
+	 * @param start		the start in nanoseconds (relative to the session)
+	 * @param length	the length in nanoseconds (negative for an instant)
+	 */
+	private void add(String category, String name, long start, long length) {
+		Thread current = Thread.currentThread();
+		if (!threads.containsKey(current.getId())) {
+			threads.put(current.getId(), current.getName());
+		}
+		Span span = new Span();
+		span.category = category;
+		span.name = name;
+		span.thread = current.getId();
+		span.start = start;
+		span.length = length;
+		spans.add(span);
+	}
+}
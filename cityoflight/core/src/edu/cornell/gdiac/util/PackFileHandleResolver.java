@@ -0,0 +1,57 @@
+/*
+ * PackFileHandleResolver.java
+ *
+ * A file handle resolver that serves files from an asset pack when it can, and from
+ * the assets folder otherwise.  This lets the asset manager (and anything else that
+ * resolves files through it) read from the pack without knowing about it.
+ */
+package edu.cornell.gdiac.util;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.loaders.*;
+import com.badlogic.gdx.files.*;
+
+/**
+ * A resolver for internal files that checks an asset pack first
+ */
+public class PackFileHandleResolver implements FileHandleResolver {
+	/** The asset pack (null if there is none) */
+	private AssetPack pack;
+
+	/**
+	 * Creates a resolver for the given pack
+	 *
+	 * If the pack is null, every file is resolved as an internal file.
+	 *
+	 * @param pack	The asset pack (may be null)
+	 */
+	public PackFileHandleResolver(AssetPack pack) {
+		this.pack = pack;
+	}
+
+	/**
+	 * Returns the asset pack (null if there is none)
+	 *
+	 * @return the asset pack (null if there is none)
+	 */
+	public AssetPack getPack() {
+		return pack;
+	}
+
+	/**
+	 * Returns a handle for the given file, from the pack if it has it
+	 *
+	 * @param fileName	The file path (relative to the assets folder)
+	 *
+	 * @return a handle for the given file
+	 */
+	public FileHandle resolve(String fileName) {
+		if (pack != null) {
+			FileHandle result = pack.get(fileName);
+			if (result != null) {
+				return result;
+			}
+		}
+		return Gdx.files.internal(fileName);
+	}
+}
@@ -0,0 +1,426 @@
+/*
+ * ParallelTextureLoader.java
+ *
+ * The AssetManager loads one asset at a time on a single background thread.  For
+ * textures, almost all of that time is spent decoding the image file, so a directory
+ * of many images loads no faster on a machine with many cores.
+ *
+ * This loader decodes images on a pool of worker threads instead.  The decode starts
+ * as soon as the texture is queued (see JsonAssetManager.load), so that many images
+ * decode at once while the asset manager works through its queue.  When the manager
+ * reaches a texture, it only waits for its image (if it is not done already) and then
+ * uploads it on the GL thread.
+ *
+ * The loader keeps the time spent decoding and uploading each file, so that slow
+ * assets can be found.  Each decode and upload is also recorded on the load timeline.
+ */
+package edu.cornell.gdiac.util;
+
+import com.badlogic.gdx.assets.*;
+import com.badlogic.gdx.assets.loaders.*;
+import com.badlogic.gdx.files.*;
+import com.badlogic.gdx.graphics.*;
+import com.badlogic.gdx.graphics.glutils.*;
+import com.badlogic.gdx.utils.*;
+
+import java.util.concurrent.*;
+
+/**
+ * A texture loader that decodes images on a pool of worker threads
+ *
+ * This loader accepts the same parameters as TextureLoader.  Compressed formats
+ * (ETC1, KTX and CIM) are not decoded by the pool, but are loaded as TextureLoader
+ * would on the asset manager thread.
+ */
+public class ParallelTextureLoader extends AsynchronousAssetLoader<Texture, TextureLoader.TextureParameter> {
+	/** The pool of decoding threads */
+	private ExecutorService pool;
+	/** The number of decoding threads */
+	private int threads;
+	/** The decodes started ahead of the asset manager, by file name (until uploaded) */
+	private ObjectMap<String,Decode> decodes;
+	/** The decoded images waiting to be uploaded, by file name */
+	private ObjectMap<String,TextureData> decoded;
+	/** The time in milliseconds spent decoding each file */
+	private ObjectFloatMap<String> decodeTimes;
+	/** The time in milliseconds spent uploading each file */
+	private ObjectFloatMap<String> uploadTimes;
+
+	/**
+	 * An image being decoded by the pool
+	 *
+	 * The image is kept here (rather than just in the future) so that a decode that is
+	 * discarded while it is running does not leak its image.
+	 */
+	private class Decode implements Callable<Pixmap> {
+		/** The file to decode */
+		private FileHandle file;
+		/** The result of the decode */
+		private Future<Pixmap> result;
+		/** The decoded image (null until done, or if it was taken or discarded) */
+		private Pixmap pixmap;
+		/** Whether the decode is no longer wanted */
+		private boolean discarded;
+
+		/**
+		 * Creates a decode for the given file
+		 *
+		 * @param file	The file to decode
+		 */
+		public Decode(FileHandle file) {
+			this.file = file;
+		}
+
+		/**
+		 * Decodes the image on a pool thread, recording the time
+		 *
+		 * @return the decoded image (null if it was discarded)
+		 */
+		public Pixmap call() {
+			long start = TimeUtils.nanoTime();
+			Pixmap image = new Pixmap(file);
+			setTime(decodeTimes, file.path(), start);
+			if (LoadTimeline.getInstance().isRecording()) {
+				LoadTimeline.getInstance().record("texture", "decode "+file.path(), start);
+			}
+			synchronized (this) {
+				if (discarded) {
+					image.dispose();
+					return null;
+				}
+				pixmap = image;
+			}
+			return image;
+		}
+
+		/**
+		 * Returns the decoded image, waiting for it if necessary
+		 *
+		 * The decode gives up the image, so it is no longer disposed on discard.  This
+		 * returns null if the image was already taken, or the decode was discarded.
+		 *
+		 * @return the decoded image
+		 */
+		public Pixmap take() {
+			try {
+				result.get();
+			} catch (CancellationException e) {
+				return null;
+			} catch (ExecutionException e) {
+				throw new GdxRuntimeException("Couldn't decode file: " + file, e.getCause());
+			} catch (InterruptedException e) {
+				throw new GdxRuntimeException("Interrupted while decoding file: " + file, e);
+			}
+			synchronized (this) {
+				Pixmap image = pixmap;
+				pixmap = null;
+				return image;
+			}
+		}
+
+		/**
+		 * Throws away the decode, disposing the image if it is done
+		 */
+		public void discard() {
+			synchronized (this) {
+				discarded = true;
+				if (pixmap != null) {
+					pixmap.dispose();
+					pixmap = null;
+				}
+			}
+			result.cancel(false);
+		}
+	}
+
+	/**
+	 * Creates a texture loader with one decoding thread per spare core
+	 *
+	 * @param resolver	The resolver for the file names
+	 */
+	public ParallelTextureLoader(FileHandleResolver resolver) {
+		this(resolver, Math.max(1, Runtime.getRuntime().availableProcessors()-1));
+	}
+
+	/**
+	 * Creates a texture loader with the given number of decoding threads
+	 *
+	 * @param resolver	The resolver for the file names
+	 * @param threads	The number of decoding threads
+	 */
+	public ParallelTextureLoader(FileHandleResolver resolver, int threads) {
+		super(resolver);
+		this.threads = Math.max(1, threads);
+		pool = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+			private int count = 0;
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "TextureDecoder-" + (++count));
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		decodes = new ObjectMap<String,Decode>();
+		decoded = new ObjectMap<String,TextureData>();
+		decodeTimes = new ObjectFloatMap<String>();
+		uploadTimes = new ObjectFloatMap<String>();
+	}
+
+	/**
+	 * Returns the number of decoding threads
+	 *
+	 * @return the number of decoding threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Starts decoding the given file on the pool
+	 *
+	 * This should be called when the texture is queued in the asset manager.  It does
+	 * nothing if the file is already decoding (or waiting to upload), or if it is a
+	 * compressed format.
+	 *
+	 * @param fileName	The file name (unresolved)
+	 */
+	public void decode(String fileName) {
+		if (isCompressed(fileName)) {
+			return;
+		}
+		synchronized (decodes) {
+			if (decodes.containsKey(fileName)) {
+				return;
+			}
+			Decode decode = new Decode(resolve(fileName));
+			decode.result = pool.submit(decode);
+			decodes.put(fileName, decode);
+		}
+	}
+
+	/**
+	 * Throws away the decode of the given file, if there is one
+	 *
+	 * This should be called when the texture is unloaded before it finished loading.
+	 *
+	 * @param fileName	The file name (unresolved)
+	 */
+	public void discard(String fileName) {
+		Decode decode;
+		synchronized (decodes) {
+			decode = decodes.remove(fileName);
+		}
+		if (decode != null) {
+			decode.discard();
+		}
+	}
+
+	/**
+	 * Returns the time in milliseconds spent decoding the given file
+	 *
+	 * This is the time on a worker thread, not the time the asset manager waited.
+	 *
+	 * @param fileName	The file name (resolved)
+	 *
+	 * @return the time in milliseconds spent decoding the given file
+	 */
+	public float getDecodeTime(String fileName) {
+		synchronized (decodeTimes) {
+			return decodeTimes.get(fileName, 0);
+		}
+	}
+
+	/**
+	 * Returns the time in milliseconds spent uploading the given file
+	 *
+	 * @param fileName	The file name (resolved)
+	 *
+	 * @return the time in milliseconds spent uploading the given file
+	 */
+	public float getUploadTime(String fileName) {
+		synchronized (uploadTimes) {
+			return uploadTimes.get(fileName, 0);
+		}
+	}
+
+	/**
+	 * Returns the total time in milliseconds spent decoding (across all threads)
+	 *
+	 * @return the total time in milliseconds spent decoding
+	 */
+	public float getTotalDecodeTime() {
+		return sum(decodeTimes);
+	}
+
+	/**
+	 * Returns the total time in milliseconds spent uploading
+	 *
+	 * @return the total time in milliseconds spent uploading
+	 */
+	public float getTotalUploadTime() {
+		return sum(uploadTimes);
+	}
+
+	/**
+	 * Stops the decoding threads, throwing away any decodes in progress
+	 */
+	public void dispose() {
+		Array<String> names;
+		synchronized (decodes) {
+			names = decodes.keys().toArray();
+		}
+		for (String name : names) {
+			discard(name);
+		}
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Loads the texture data on the asset manager thread
+	 *
+	 * The image is taken from the pool (waiting for it if necessary).  If the texture
+	 * was not queued through decode (or its decode was discarded), it is decoded here
+	 * instead.
+	 *
+	 * @param manager	The asset manager
+	 * @param fileName	The file name (unresolved)
+	 * @param file		The resolved file
+	 * @param parameter	The texture parameters (may be null)
+	 */
+	public void loadAsync(AssetManager manager, String fileName, FileHandle file, TextureLoader.TextureParameter parameter) {
+		Pixmap.Format format = null;
+		boolean genMipMaps = false;
+		if (parameter != null) {
+			format = parameter.format;
+			genMipMaps = parameter.genMipMaps;
+		}
+
+		TextureData data;
+		if (parameter != null && parameter.textureData != null) {
+			data = parameter.textureData;
+		} else if (isCompressed(fileName)) {
+			data = TextureData.Factory.loadFromFile(file, format, genMipMaps);
+		} else {
+			Decode decode;
+			synchronized (decodes) {
+				decode = decodes.get(fileName);
+			}
+			long wait = TimeUtils.nanoTime();
+			Pixmap pixmap = (decode == null ? null : decode.take());
+			if (pixmap != null && LoadTimeline.getInstance().isRecording()) {
+				LoadTimeline.getInstance().record("texture", "wait "+file.path(), wait);
+			}
+			if (pixmap == null) {
+				long start = TimeUtils.nanoTime();
+				pixmap = new Pixmap(file);
+				setTime(decodeTimes, file.path(), start);
+				if (LoadTimeline.getInstance().isRecording()) {
+					LoadTimeline.getInstance().record("texture", "decode "+file.path(), start);
+				}
+			}
+			data = new FileTextureData(file, pixmap, format, genMipMaps);
+		}
+		if (!data.isPrepared()) {
+			data.prepare();
+		}
+		synchronized (decoded) {
+			decoded.put(fileName, data);
+		}
+	}
+
+	/**
+	 * Uploads the texture on the GL thread
+	 *
+	 * @param manager	The asset manager
+	 * @param fileName	The file name (unresolved)
+	 * @param file		The resolved file
+	 * @param parameter	The texture parameters (may be null)
+	 *
+	 * @return the uploaded texture
+	 */
+	public Texture loadSync(AssetManager manager, String fileName, FileHandle file, TextureLoader.TextureParameter parameter) {
+		TextureData data;
+		synchronized (decoded) {
+			data = decoded.remove(fileName);
+		}
+		synchronized (decodes) {
+			decodes.remove(fileName);
+		}
+		if (data == null) {
+			throw new GdxRuntimeException("Texture was not decoded: " + fileName);
+		}
+
+		long start = TimeUtils.nanoTime();
+		Texture texture;
+		if (parameter != null && parameter.texture != null) {
+			texture = parameter.texture;
+			texture.load(data);
+		} else {
+			texture = new Texture(data);
+		}
+		if (parameter != null) {
+			texture.setFilter(parameter.minFilter, parameter.magFilter);
+			texture.setWrap(parameter.wrapU, parameter.wrapV);
+		}
+		setTime(uploadTimes, file.path(), start);
+		if (LoadTimeline.getInstance().isRecording()) {
+			LoadTimeline.getInstance().record("texture", "upload "+file.path(), start);
+		}
+		return texture;
+	}
+
+	/**
+	 * Returns the dependencies of a texture (there are none)
+	 *
+	 * @param fileName	The file name (unresolved)
+	 * @param file		The resolved file
+	 * @param parameter	The texture parameters (may be null)
+	 *
+	 * @return null, as textures have no dependencies
+	 */
+	public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, TextureLoader.TextureParameter parameter) {
+		return null;
+	}
+
+	/**
+	 * Returns true if the file is a compressed format that the pool does not decode
+	 *
+	 * @param fileName	The file name
+	 *
+	 * @return true if the file is a compressed format that the pool does not decode
+	 */
+	private static boolean isCompressed(String fileName) {
+		return fileName.endsWith(".cim") || fileName.endsWith(".etc1") ||
+			   fileName.endsWith(".ktx") || fileName.endsWith(".zktx");
+	}
+
+	/**
+	 * Records the time since start (in milliseconds) for the given file
+	 *
+	 * @param times		The timings to record into
+	 * @param fileName	The file name (resolved)
+	 * @param start		The start time in nanoseconds
+	 */
+	private static void setTime(ObjectFloatMap<String> times, String fileName, long start) {
+		float millis = (TimeUtils.nanoTime()-start)/1000000.0f;
+		synchronized (times) {
+			times.put(fileName, millis);
+		}
+	}
+
+	/**
+	 * Returns the sum of the given timings
+	 *
+	 * @param times	The timings to add up
+	 *
+	 * @return the sum of the given timings
+	 */
+	private static float sum(ObjectFloatMap<String> times) {
+		float total = 0;
+		synchronized (times) {
+			for (ObjectFloatMap.Entry<String> entry : times) {
+				total += entry.value;
+			}
+		}
+		return total;
+	}
+}
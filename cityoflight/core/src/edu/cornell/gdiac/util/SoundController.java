@@ -6,12 +6,16 @@
  * even worse than that.  There is a lot of magic vodoo that you have to
  * do to get everything working properly.  This class hides all of that
  * for you and makes it easy to play sound effects.
- * 
+ *
  * Note that this class is an instance of a Singleton.  There is only one
  * SoundController at a time.  The constructor is hidden and you cannot
  * make your own sound controller.  Instead, you use the method getInstance()
  * to get the current sound controller.
  *
+ * Sounds are played on a fixed table of voices.  Sounds and keys can be resolved
+ * to integer handles ahead of time, so that playing a sound every frame neither
+ * looks up a string nor allocates.
+ *
  * Author: Walker M. White
  * Based on original PhysicsDemo Lab by Don Holden, 2007
  * LibGDX version, 2/6/2015
@@ -24,115 +28,144 @@ import com.badlogic.gdx.utils.*;
 
 /**
  * A singleton class for controlling sound effects in LibGDX
- * 
+ *
  * Sound sucks in LibGDX for three reasons.  (1) You have to keep track of
  * a mysterious number every time you play a sound.  (2) You have no idea
  * when a sound has finished playing.  (3) OpenAL bugs on OS X cause popping
- * and distortions if you have no idea what you are doing.  This class 
+ * and distortions if you have no idea what you are doing.  This class
  * provides a (not so great) solution to all of these.
- * 
- * To get around (1), this sound engine uses a key management system.  
+ *
+ * To get around (1), this sound engine uses a key management system.
  * Instead of waiting for a number after playing the sound, you give it a
  * key ahead of time.  The key allows you to identify different instances
  * of the same sound.  See our example for collision sounds in the Rocket
- * demo for more.
- * 
+ * demo for more.  Keys and sound files can be given as strings, or resolved
+ * once to integer handles with getKey() and getHandle().
+ *
  * To get around (2), we have an update() method.  By calling this method
  * you let the SoundController know that time has progressed by one animation
- * frame.  The cooldown prevents you from playing the same instance of a 
- * sound too close together.  In addition, the frame limit prevents you 
+ * frame.  The cooldown prevents you from playing the same instance of a
+ * sound too close together.  In addition, the play budget prevents you
  * from playing too many sounds during the same animation frame (which can
  * lead to distortion).  This is not as good as being able to tell when a
  * sound is finished, but it works for most applications.
- * 
+ *
  * Finally, for (3), we never actually stop a Sound.  Instead we turn its
  * volume to 0 and allow it to be garbage collected when done.  This is why
  * we never allow you to access a sound object directly.
+ *
+ * Sound instances play on a fixed number of voices.  Each sound also has a
+ * polyphony cap, the most voices that it may use at once.  When there is no
+ * voice to spare, the new sound steals the voice of the lowest priority (and
+ * then oldest) sound, as long as that priority is no higher than its own.
  */
 public class SoundController {
 
 	/**
-	 * Inner class to track and active sound instance
-	 * 
+	 * Inner class to track a voice, which plays one sound instance
+	 *
 	 * A sound instance is a Sound object and a number.  That is because
-	 * a single Sound object may have multiple instances.  We do not 
+	 * a single Sound object may have multiple instances.  We do not
 	 * know when a sound ends.  Therefore, we simply let the sound go
-	 * and we garbage collect when the lifespace is greater than the
+	 * and we recycle the voice when the lifespan is greater than the
 	 * sound limit.
 	 */
-	private class ActiveSound {
-		/** Reference to the sound resource */
-		public Sound sound;
+	private static class Voice {
+		/** The key handle playing on this voice (NO_KEY if the voice is free) */
+		public int key = NO_KEY;
+		/** The handle of the sound being played */
+		public int sound;
 		/** The id number representing the sound instance */
 		public long  id;
-		/** Is the sound looping (so no garbage collection) */
+		/** Is the sound looping */
 		public boolean loop;
 		/** How long this sound has been running */
 		public long lifespan;
-		
+		/** The priority of the sound */
+		public int priority;
+
 		/**
-		 * Creates a new active sound with the given values
-		 * 
-		 * @param s	Reference to the sound resource
-		 * @param n The id number representing the sound instance
-		 * @param b Is the sound looping (so no garbage collection)
+		 * Returns true if the voice is not playing anything
+		 *
+		 * @return true if the voice is not playing anything
 		 */
-		public ActiveSound(Sound s, long n, boolean b) {
-			sound = s;
-			id = n;
-			loop = b;
-			lifespan = 0;
+		public boolean isFree() {
+			return key == NO_KEY;
 		}
 	}
 
+	/** The handle for no sound (or no key) */
+	public static final int NO_KEY = -1;
+	/** The priority of sounds that may be cut off by anything */
+	public static final int LOW_PRIORITY = -1;
+	/** The priority of most sounds */
+	public static final int DEFAULT_PRIORITY = 0;
+	/** The priority of sounds that should never be cut off */
+	public static final int HIGH_PRIORITY = 1;
+
 	/** The default sound cooldown */
 	private static final int DEFAULT_COOL = 120;
 	/** The default sound length limit */
 	private static final int DEFAULT_LIMIT = 11340;
 	/** The default limit on sounds per frame */
-	private static final int DEFAULT_FRAME = 10;
-	
+	private static final int DEFAULT_BUDGET = 10;
+	/** The default number of voices */
+	private static final int DEFAULT_VOICES = 16;
+	/** The default number of voices a single sound may use */
+	private static final int DEFAULT_POLYPHONY = 4;
+
 	/** The singleton Sound controller instance */
 	private static SoundController controller;
-	
-	/** Keeps track of all of the allocated sound resources */
-	private ObjectMap<String,Sound> soundbank;
+
+	/** The handles of the sound files */
+	private ObjectIntMap<String> handles;
+	/** The allocated sound resources, by handle (null if not allocated) */
+	private Array<Sound> soundbank;
+	/** The most voices each sound may use, by handle */
+	private IntArray polyphony;
 	/** Reverse look up of source files */
 	private IdentityMap<Sound,String> soundsrc;
-	/** Keeps track of all of the "active" sounds */
-	private ObjectMap<String,ActiveSound> actives;
-	/** Support class for garbage collection */
-	private Array<String> collection;
-	
-	
+	/** The handles of the keys */
+	private ObjectIntMap<String> keys;
+	/** The voice playing each key, by handle (-1 if none) */
+	private IntArray keyVoices;
+	/** The voices to play sounds on */
+	private Voice[] voices;
+
 	/** The number of animation frames before a key can be reused */
 	private long cooldown;
 	/** The maximum amount of animation frames a sound can run */
 	private long timeLimit;
 	/** The maximum number of sounds we can play each animation frame */
-	private int frameLimit;
+	private int budget;
 	/** The number of sounds we have played this animation frame */
 	private int current;
 
-	/** 
+	/**
 	 * Creates a new SoundController with the default settings.
 	 */
 	private SoundController() {
-		soundbank = new ObjectMap<String,Sound>();
+		handles = new ObjectIntMap<String>();
+		soundbank = new Array<Sound>();
+		polyphony = new IntArray();
 		soundsrc = new IdentityMap<Sound,String>();
-		actives = new ObjectMap<String,ActiveSound>();
-		collection = new Array<String>();
+		keys = new ObjectIntMap<String>();
+		keyVoices = new IntArray();
+		voices = new Voice[DEFAULT_VOICES];
+		for (int ii = 0; ii < voices.length; ii++) {
+			voices[ii] = new Voice();
+		}
 		cooldown = DEFAULT_COOL;
 		timeLimit = DEFAULT_LIMIT;
-		frameLimit = DEFAULT_FRAME;
+		budget = DEFAULT_BUDGET;
 		current = 0;
 	}
 
 	/**
 	 * Returns the single instance for the SoundController
-	 * 
+	 *
 	 * The first time this is called, it will construct the SoundController.
-	 * 
+	 *
 	 * @return the single instance for the SoundController
 	 */
 	public static SoundController getInstance() {
@@ -141,16 +174,16 @@ public class SoundController {
 		}
 		return controller;
 	}
-	
+
 	/// Properties
 	/**
 	 * Returns the number of frames before a key can be reused
-	 * 
+	 *
 	 * If a key was used very recently, then an attempt to use the key
 	 * again means that the sound will be stopped and restarted. This
 	 * can cause undesirable artifacts.  So we limit how fast a key
 	 * can be reused.
-	 * 
+	 *
 	 * @return the number of frames before a key can be reused
 	 */
 	public long getCoolDown() {
@@ -159,28 +192,25 @@ public class SoundController {
 
 	/**
 	 * Sets the number of frames before a key can be reused
-	 * 
+	 *
 	 * If a key was used very recently, then an attempt to use the key
 	 * again means that the sound will be stopped and restarted. This
 	 * can cause undesirable artifacts.  So we limit how fast a key
 	 * can be reused.
-	 * 
+	 *
 	 * param value	the number of frames before a key can be reused
 	 */
 	public void setCoolDown(long value) {
 		cooldown = value;
 	}
-	
+
 	/**
 	 * Returns the maximum amount of animation frames a sound can run
-	 * 
+	 *
 	 * Eventually we want to garbage collect sound instances.  Since we cannot
 	 * do this, we set an upper bound on all sound effects (default is 2
 	 * seconds) and garbage collect when time is up.
-	 * 
-	 * Sounds on a loop with NEVER be garbage collected.  They must be stopped
-	 * manually via stop().
-	 * 
+	 *
 	 * @return the maximum amount of animation frames a sound can run
 	 */
 	public long getTimeLimit() {
@@ -189,98 +219,197 @@ public class SoundController {
 
 	/**
 	 * Sets the maximum amount of animation frames a sound can run
-	 * 
+	 *
 	 * Eventually we want to garbage collect sound instances.  Since we cannot
 	 * do this, we set an upper bound on all sound effects (default is 2
 	 * seconds) and garbage collect when time is up.
-	 * 
-	 * Sounds on a loop with NEVER be garbage collected.  They must be stopped
-	 * manually via stop().
-	 * 
+	 *
 	 * @param value the maximum amount of animation frames a sound can run
 	 */
 	public void setTimeLimit(long value) {
 		timeLimit = value;
 	}
-	
+
 	/**
-	 * Returns the maximum amount of sounds per animation frame
-	 * 
+	 * Returns the maximum amount of sounds played per animation frame
+	 *
 	 * Because of Box2d limitations in LibGDX, you might get a lot of simultaneous
 	 * sounds if you try to play sounds on collision.  This in turn can cause
-	 * distortions.  We fix that by putting an upper bound on the number of 
-	 * simultaneous sounds per animation frame.  If you exceed the number, then
+	 * distortions.  We fix that by putting an upper bound on the number of
+	 * sounds started each animation frame.  If you exceed the number, then
 	 * you should wait another frame before playing a sound.
-	 * 
-	 * @return the maximum amount of sounds per animation frame
+	 *
+	 * @return the maximum amount of sounds played per animation frame
 	 */
-	public int getFrameLimit() {
-		return frameLimit;
+	public int getPlayBudget() {
+		return budget;
 	}
-	
+
 	/**
-	 * Sets the maximum amount of sounds per animation frame
-	 * 
+	 * Sets the maximum amount of sounds played per animation frame
+	 *
 	 * Because of Box2d limitations in LibGDX, you might get a lot of simultaneous
 	 * sounds if you try to play sounds on collision.  This in turn can cause
-	 * distortions.  We fix that by putting an upper bound on the number of 
-	 * simultaneous sounds per animation frame.  If you exceed the number, then
+	 * distortions.  We fix that by putting an upper bound on the number of
+	 * sounds started each animation frame.  If you exceed the number, then
 	 * you should wait another frame before playing a sound.
-	 * 
-	 * @param value the maximum amount of sounds per animation frame
+	 *
+	 * @param value the maximum amount of sounds played per animation frame
 	 */
-	public void setFrameLimit(int value) {
-		frameLimit = value;
+	public void setPlayBudget(int value) {
+		budget = value;
 	}
 
+	/**
+	 * Returns the number of voices (sound instances that may play at once)
+	 *
+	 * @return the number of voices
+	 */
+	public int getVoiceCount() {
+		return voices.length;
+	}
 
-	public Array<String> getCollection() {
-		return collection;
+	/**
+	 * Sets the number of voices (sound instances that may play at once)
+	 *
+	 * This stops every sound that is playing.
+	 *
+	 * @param value the number of voices
+	 */
+	public void setVoiceCount(int value) {
+		stopAll();
+		voices = new Voice[Math.max(1, value)];
+		for (int ii = 0; ii < voices.length; ii++) {
+			voices[ii] = new Voice();
+		}
+	}
+
+	/**
+	 * Returns the most voices the given sound may use at once
+	 *
+	 * @param sound	The sound handle
+	 *
+	 * @return the most voices the given sound may use at once
+	 */
+	public int getPolyphony(int sound) {
+		return polyphony.get(sound);
+	}
+
+	/**
+	 * Sets the most voices the given sound may use at once
+	 *
+	 * Once a sound is at its cap, a new instance of it can only replace an older
+	 * instance of the same sound.
+	 *
+	 * @param sound	The sound handle
+	 * @param value	The most voices the sound may use at once
+	 */
+	public void setPolyphony(int sound, int value) {
+		polyphony.set(sound, Math.max(1, value));
 	}
 
 	/// Sound Management
 	/**
 	 * Uses the asset manager to allocate a sound
-	 * 
-	 * All sound assets are managed internally by the controller.  Do not try 
+	 *
+	 * All sound assets are managed internally by the controller.  Do not try
 	 * to access the sound directly.  Use the play and stop methods instead.
-	 * 
+	 *
 	 * @param manager  A reference to the asset manager loading the sound
 	 * @param filename The filename for the sound asset
 	 */
 	public void allocate(AssetManager manager, String filename) {
 		Sound sound = manager.get(filename,Sound.class);
-		soundbank.put(filename,sound);
+		soundbank.set(getHandle(filename),sound);
 		soundsrc.put(sound,filename);
 	}
 
+	/**
+	 * Releases a sound allocated from the asset manager
+	 *
+	 * Any instance of the sound still playing is stopped.  The handle of the sound
+	 * stays valid, and plays nothing until it is allocated again.
+	 *
+	 * @param manager  A reference to the asset manager loading the sound
+	 * @param filename The filename for the sound asset
+	 */
 	public void deallocate(AssetManager manager, String filename) {
 		Sound sound = manager.get(filename,Sound.class);
-		soundbank.remove(filename);
+		int handle = handles.get(filename, NO_KEY);
+		if (handle != NO_KEY) {
+			for (int ii = 0; ii < voices.length; ii++) {
+				if (!voices[ii].isFree() && voices[ii].sound == handle) {
+					release(voices[ii]);
+				}
+			}
+			soundbank.set(handle, null);
+		}
 		soundsrc.remove(sound);
 	}
-	
+
 	public String getSource(Sound sound) {
 		return soundsrc.get(sound);
 	}
 
+	/**
+	 * Returns the handle for the given sound file
+	 *
+	 * The handle is created the first time the file is requested, and never changes
+	 * afterwards.  It may be resolved before the sound is allocated, but it plays
+	 * nothing until then.
+	 *
+	 * @param filename	The filename of the sound asset
+	 *
+	 * @return the handle for the given sound file
+	 */
+	public int getHandle(String filename) {
+		int handle = handles.get(filename, NO_KEY);
+		if (handle == NO_KEY) {
+			handle = soundbank.size;
+			handles.put(filename, handle);
+			soundbank.add(null);
+			polyphony.add(DEFAULT_POLYPHONY);
+		}
+		return handle;
+	}
+
+	/**
+	 * Returns the handle for the given sound instance key
+	 *
+	 * The handle is created the first time the key is requested, and never changes
+	 * afterwards.
+	 *
+	 * @param key	The identifier for a sound instance
+	 *
+	 * @return the handle for the given sound instance key
+	 */
+	public int getKey(String key) {
+		int handle = keys.get(key, NO_KEY);
+		if (handle == NO_KEY) {
+			handle = keyVoices.size;
+			keys.put(key, handle);
+			keyVoices.add(-1);
+		}
+		return handle;
+	}
+
 	/**
 	 * Plays the an instance of the given sound
-	 * 
+	 *
 	 * A sound is identified by its filename.  You can have multiple instances of the
 	 * same sound playing.  You use the key to identify a sound instance.  You can only
 	 * have one key playing at a time.  If a key is in use, the existing sound may
 	 * be garbage collected to allow you to reuse it, depending on the settings.
-	 * 
+	 *
 	 * However, it is also possible that the key use may fail.  In the latter case,
 	 * this method returns false.  In addition, if the sound is currently looping,
 	 * then this method will return true but will not stop and restart the sound.
-	 * 
-	 * 
+	 *
+	 *
 	 * @param key		The identifier for this sound instance
 	 * @param filename	The filename of the sound asset
 	 * @param loop		Whether to loop the sound
-	 * 
+	 *
 	 * @return True if the sound was successfully played
 	 */
 	public boolean play(String key, String filename, boolean loop) {
@@ -289,53 +418,26 @@ public class SoundController {
 
 	/**
 	 * Plays the an instance of the given sound
-	 * 
+	 *
 	 * A sound is identified by its filename.  You can have multiple instances of the
 	 * same sound playing.  You use the key to identify a sound instance.  You can only
 	 * have one key playing at a time.  If a key is in use, the existing sound may
 	 * be garbage collected to allow you to reuse it, depending on the settings.
-	 * 
+	 *
 	 * However, it is also possible that the key use may fail.  In the latter case,
 	 * this method returns false.  In addition, if the sound is currently looping,
 	 * then this method will return true but will not stop and restart the sound.
-	 * 
-	 * 
+	 *
+	 *
 	 * @param key		The identifier for this sound instance
 	 * @param filename	The filename of the sound asset
 	 * @param loop		Whether to loop the sound
 	 * @param volume	The sound volume in the range [0,1]
-	 * 
+	 *
 	 * @return True if the sound was successfully played
 	 */
 	public boolean play(String key, String filename, boolean loop, float volume) {
-		// Get the sound for the file
-		if (!soundbank.containsKey(filename) || current >= frameLimit) {
-			return false;
-		}
-
-		// If there is a sound for this key, stop it
-		Sound sound = soundbank.get(filename);
-		if (actives.containsKey(key)) {
-			ActiveSound snd = actives.get(key);
-			if (!snd.loop && snd.lifespan > cooldown) {
-				// This is a workaround for the OS X sound bug
-				//snd.sound.stop(snd.id);
-				snd.sound.setVolume(snd.id, 0.0f); 
-			} else {
-				return true;
-			}
-		}
-		
-		// Play the new sound and add it
-		long id = sound.play(volume);
-		if (id == -1) {
-			return false;
-		} else if (loop) {
-			sound.setLooping(id, true);
-		}
-		actives.put(key,new ActiveSound(sound,id,loop));
-		current++;
-		return true;
+		return play(getKey(key),getHandle(filename),loop,volume,0.0f,DEFAULT_PRIORITY);
 	}
 
 	/**
@@ -355,43 +457,12 @@ public class SoundController {
 	 * @param filename	The filename of the sound asset
 	 * @param loop		Whether to loop the sound
 	 * @param volume	The sound volume in the range [0,1]
+	 * @param soundPlay	Whether sound effects are on (nothing plays if not)
 	 *
 	 * @return True if the sound was successfully played
 	 */
 	public boolean play(String key, String filename, boolean loop, float volume, boolean soundPlay) {
-		// Get the sound for the file
-		if (!soundbank.containsKey(filename) || current >= frameLimit) {
-			return false;
-		}
-
-		// If there is a sound for this key, stop it
-		Sound sound = soundbank.get(filename);
-		if (actives.containsKey(key)) {
-			ActiveSound snd = actives.get(key);
-			if (!snd.loop && snd.lifespan > cooldown) {
-				// This is a workaround for the OS X sound bug
-				//snd.sound.stop(snd.id);
-				snd.sound.setVolume(snd.id, 0.0f);
-			} else {
-				return true;
-			}
-		}
-
-		if (soundPlay) {
-			// Play the new sound and add it
-			long id = sound.play(volume);
-			if (id == -1) {
-				return false;
-			} else if (loop) {
-				sound.setLooping(id, true);
-			}
-			actives.put(key, new ActiveSound(sound, id, loop));
-			current++;
-			return true;
-		}
-		else {
-			return false;
-		}
+		return soundPlay && play(key,filename,loop,volume);
 	}
 
 	/**
@@ -416,96 +487,248 @@ public class SoundController {
 	 * @return True if the sound was successfully played
 	 */
 	public boolean play(String key, String filename, boolean loop, float volume, float pan) {
-		// Get the sound for the file
-		if (!soundbank.containsKey(filename) || current >= frameLimit) {
+		return play(getKey(key),getHandle(filename),loop,volume,pan,DEFAULT_PRIORITY);
+	}
+
+	/**
+	 * Plays the an instance of the given sound handle
+	 *
+	 * This is the same as the play methods with strings, except that the key and the
+	 * sound are already resolved to handles, so it does no look-ups.
+	 *
+	 * @param key		The key handle for this sound instance
+	 * @param sound		The handle of the sound asset
+	 * @param loop		Whether to loop the sound
+	 * @param volume	The sound volume in the range [0,1]
+	 *
+	 * @return True if the sound was successfully played
+	 */
+	public boolean play(int key, int sound, boolean loop, float volume) {
+		return play(key,sound,loop,volume,0.0f,DEFAULT_PRIORITY);
+	}
+
+	/**
+	 * Plays the an instance of the given sound handle
+	 *
+	 * If the key is in use and past its cooldown, the new sound replaces the old one
+	 * on the same voice.  Otherwise, the sound takes a free voice.  If the sound is at
+	 * its polyphony cap, or there is no free voice, it steals the voice of the lowest
+	 * priority (and then oldest) sound, if that is no higher than its own priority.
+	 * If there is nothing to steal, this method returns false.
+	 *
+	 * @param key		The key handle for this sound instance
+	 * @param sound		The handle of the sound asset
+	 * @param loop		Whether to loop the sound
+	 * @param volume	The sound volume in the range [0,1]
+	 * @param pan		Panning (-1 left, +1 right)
+	 * @param priority	The priority of the sound (such as DEFAULT_PRIORITY)
+	 *
+	 * @return True if the sound was successfully played
+	 */
+	public boolean play(int key, int sound, boolean loop, float volume, float pan, int priority) {
+		// Get the sound for the handle
+		if (key < 0 || key >= keyVoices.size || sound < 0 || sound >= soundbank.size) {
+			return false;
+		}
+		Sound resource = soundbank.get(sound);
+		if (resource == null || current >= budget) {
 			return false;
 		}
 
 		// If there is a sound for this key, stop it
-		Sound sound = soundbank.get(filename);
-		if (actives.containsKey(key)) {
-			ActiveSound snd = actives.get(key);
-			if (!snd.loop && snd.lifespan > cooldown) {
-				// This is a workaround for the OS X sound bug
-				//snd.sound.stop(snd.id);
-				snd.sound.setVolume(snd.id, 0.0f);
-				snd.sound.setPan(snd.id, pan, volume);
-			} else {
+		Voice voice;
+		int index = keyVoices.get(key);
+		if (index >= 0) {
+			voice = voices[index];
+			if (voice.loop || voice.lifespan <= cooldown) {
 				return true;
 			}
+			release(voice);
+		} else {
+			index = findVoice(sound, priority);
+			if (index < 0) {
+				return false;
+			}
+			voice = voices[index];
+			if (!voice.isFree()) {
+				release(voice);
+			}
 		}
 
-		// Play the new sound and add it
-		long id = sound.play(volume);
+		// Play the new sound on the voice
+		long id = resource.play(volume, 1.0f, pan);
 		if (id == -1) {
 			return false;
 		} else if (loop) {
-			sound.setLooping(id, true);
+			resource.setLooping(id, true);
 		}
-
-		actives.put(key,new ActiveSound(sound,id,loop));
+		voice.key = key;
+		voice.sound = sound;
+		voice.id = id;
+		voice.loop = loop;
+		voice.lifespan = 0;
+		voice.priority = priority;
+		keyVoices.set(key, index);
 		current++;
 		return true;
 	}
-	
+
 	/**
 	 * Stops the sound, allowing its key to be reused.
-	 * 
+	 *
 	 * This is the only way to stop a sound on a loop.  Otherwise it will
 	 * play forever.
-	 * 
+	 *
 	 * If there is no sound instance for the key, this method does nothing.
-	 * 
+	 *
 	 * @param key	The sound instance to stop.
 	 */
 	public void stop(String key) {
-		// Get the active sound for the key
-		if (!actives.containsKey(key)) {
+		stop(keys.get(key, NO_KEY));
+	}
+
+	/**
+	 * Stops the sound, allowing its key to be reused.
+	 *
+	 * If there is no sound instance for the key, this method does nothing.
+	 *
+	 * @param key	The key handle of the sound instance to stop.
+	 */
+	public void stop(int key) {
+		if (key < 0 || key >= keyVoices.size || keyVoices.get(key) < 0) {
 			return;
 		}
-		
-		ActiveSound snd = actives.get(key);
-		
-		// This is a workaround for the OS X sound bug
-		//snd.sound.stop(snd.id);
-		snd.sound.setLooping(snd.id,false); // Will eventually garbage collect
-		snd.sound.setVolume(snd.id, 0.0f); 
-		actives.remove(key);
+		release(voices[keyVoices.get(key)]);
 	}
-	
+
+	/**
+	 * Stops every sound that is playing, including the loops
+	 */
+	public void stopAll() {
+		for (int ii = 0; ii < voices.length; ii++) {
+			if (!voices[ii].isFree()) {
+				release(voices[ii]);
+			}
+		}
+	}
+
 	/**
 	 * Returns true if the sound instance is currently active
-	 * 
+	 *
 	 * @param key	The sound instance identifier
-	 * 
+	 *
 	 * @return true if the sound instance is currently active
 	 */
 	public boolean isActive(String key) {
-		return actives.containsKey(key);
+		return isActive(keys.get(key, NO_KEY));
 	}
-	
+
+	/**
+	 * Returns true if the sound instance is currently active
+	 *
+	 * @param key	The key handle of the sound instance
+	 *
+	 * @return true if the sound instance is currently active
+	 */
+	public boolean isActive(int key) {
+		return key >= 0 && key < keyVoices.size && keyVoices.get(key) >= 0;
+	}
+
 	/**
 	 * Updates the current frame of the sound controller.
-	 * 
+	 *
 	 * This method serves two purposes.  First, it allows us to limit the number
 	 * of sounds per animation frame.  In addition it allows us some primitive
-	 * garbage collection.
+	 * garbage collection, as the voices of expired sounds are freed for reuse.
 	 */
 	public void update() {
-		for(String key : actives.keys()) {
-			ActiveSound snd = actives.get(key);
-			snd.lifespan++;
-			if (snd.lifespan > timeLimit) {
-				collection.add(key);
-				snd.sound.setLooping(snd.id,false); // Will eventually garbage collect
-				snd.sound.setVolume(snd.id, 0.0f); 
+		for (int ii = 0; ii < voices.length; ii++) {
+			Voice voice = voices[ii];
+			if (!voice.isFree()) {
+				voice.lifespan++;
+				if (voice.lifespan > timeLimit) {
+					release(voice);
+				}
 			}
 		}
-		for(String key : collection) {
-			actives.remove(key);
-		}
-		collection.clear();
 		current = 0;
 	}
 
+	/**
+	 * Returns the voice to play a new instance of the given sound on
+	 *
+	 * This is a free voice if the sound is under its polyphony cap and there is one.
+	 * Otherwise it is the voice to steal: the lowest priority (and then oldest) voice
+	 * of the same sound if the sound is at its cap, or of any sound if not.  This
+	 * returns -1 if every such voice has a higher priority than the new sound.
+	 *
+	 * @param sound		The handle of the sound to play
+	 * @param priority	The priority of the sound to play
+	 *
+	 * @return the voice to play a new instance of the given sound on
+	 */
+	private int findVoice(int sound, int priority) {
+		int free = -1;
+		int playing = 0;
+		int victim = -1;
+		int sameVictim = -1;
+		for (int ii = 0; ii < voices.length; ii++) {
+			Voice voice = voices[ii];
+			if (voice.isFree()) {
+				if (free < 0) {
+					free = ii;
+				}
+				continue;
+			}
+			if (voice.sound == sound) {
+				playing++;
+			}
+			if (voice.priority > priority) {
+				continue;
+			}
+			if (victim < 0 || isWeaker(voice, voices[victim])) {
+				victim = ii;
+			}
+			if (voice.sound == sound && (sameVictim < 0 || isWeaker(voice, voices[sameVictim]))) {
+				sameVictim = ii;
+			}
+		}
+		if (playing >= polyphony.get(sound)) {
+			return sameVictim;
+		}
+		return free >= 0 ? free : victim;
+	}
+
+	/**
+	 * Returns true if the first voice should be stolen before the second
+	 *
+	 * @param first		The first voice
+	 * @param second	The second voice
+	 *
+	 * @return true if the first voice should be stolen before the second
+	 */
+	private static boolean isWeaker(Voice first, Voice second) {
+		if (first.priority != second.priority) {
+			return first.priority < second.priority;
+		}
+		return first.lifespan > second.lifespan;
+	}
+
+	/**
+	 * Silences the sound on the given voice and frees the voice
+	 *
+	 * @param voice	The voice to free
+	 */
+	private void release(Voice voice) {
+		Sound resource = soundbank.get(voice.sound);
+		if (resource != null) {
+			// This is a workaround for the OS X sound bug
+			//resource.stop(voice.id);
+			resource.setLooping(voice.id, false); // Will eventually garbage collect
+			resource.setVolume(voice.id, 0.0f);
+		}
+		keyVoices.set(voice.key, -1);
+		voice.key = NO_KEY;
+	}
+
 }
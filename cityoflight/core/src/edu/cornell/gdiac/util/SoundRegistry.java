@@ -0,0 +1,67 @@
+/*
+ * SoundRegistry.java
+ *
+ * The menus, help pages and level select screen play the select and seen effects on
+ * their own, outside of the SoundController.  Each screen used to make its own Sound
+ * for these, so the same WAV file was read and decoded into a new sample buffer once
+ * per screen, on top of the copy in the asset directory.
+ *
+ * This class shares these sounds, like the TextureRegistry shares images.  Every sound
+ * file is decoded once, and the decoded samples are kept for as long as some screen
+ * (or the asset directory) holds a reference to them.  The sounds are stored in the
+ * JsonAssetManager, so when the directory later loads the same file it only adds a
+ * reference instead of decoding it again.
+ *
+ * Note that this class is an instance of a Singleton.  Use the method getInstance()
+ * to get the current registry.
+ */
+package edu.cornell.gdiac.util;
+
+import com.badlogic.gdx.*;
+import com.badlogic.gdx.audio.*;
+import com.badlogic.gdx.files.*;
+
+/**
+ * A singleton class for sharing decoded sounds between screens
+ *
+ * Sounds are acquired on behalf of an owner (usually the screen that plays them).
+ * Each acquire adds a reference, which is given back with release, or all at once when
+ * the owner is disposed with releaseAll.  A sound is disposed when its last reference
+ * (from this registry or the asset directory) is released.
+ */
+public class SoundRegistry extends AssetRegistry<Sound> {
+	/** The singleton sound registry */
+	private static SoundRegistry registry;
+
+	/**
+	 * Creates a new, empty sound registry
+	 */
+	private SoundRegistry() {
+		super(Sound.class);
+	}
+
+	/**
+	 * Returns the single instance for the SoundRegistry
+	 *
+	 * The first time this is called, it will construct the SoundRegistry.
+	 *
+	 * @return the single instance for the SoundRegistry
+	 */
+	public static SoundRegistry getInstance() {
+		if (registry == null) {
+			registry = new SoundRegistry();
+		}
+		return registry;
+	}
+
+	/**
+	 * Returns a new sound decoded from the given file
+	 *
+	 * @param file	the sound file
+	 *
+	 * @return a new sound decoded from the given file
+	 */
+	protected Sound create(FileHandle file) {
+		return Gdx.audio.newSound(file);
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * TextureRegistry.java
+ *
+ * The menus, help pages and level select screen all draw images that are not part of
+ * the asset directory.  Each screen used to make its own Texture for these, and some of
+ * them made a new one every time they were shown (or even every frame), so GPU memory
+ * grew for as long as those screens were open.
+ *
+ * This class shares these images.  Every image file is decoded and uploaded once, and
+ * the texture is kept for as long as some screen (or model) holds a reference to it.
+ * The textures are stored in the JsonAssetManager, so a file that is also part of the
+ * asset directory is never loaded twice.
+ *
+ * Note that this class is an instance of a Singleton.  Use the method getInstance()
+ * to get the current registry.
+ */
+package edu.cornell.gdiac.util;
+
+import com.badlogic.gdx.files.*;
+import com.badlogic.gdx.graphics.*;
+
+/**
+ * A singleton class for sharing textures between screens and models
+ *
+ * Textures are acquired on behalf of an owner (usually the screen that draws them).
+ * Each acquire adds a reference, which is given back with release, or all at once when
+ * the owner is disposed with releaseAll.  A texture is disposed when its last reference
+ * (from this registry or the asset directory) is released.
+ */
+public class TextureRegistry extends AssetRegistry<Texture> {
+	/** The singleton texture registry */
+	private static TextureRegistry registry;
+
+	/**
+	 * Creates a new, empty texture registry
+	 */
+	private TextureRegistry() {
+		super(Texture.class);
+	}
+
+	/**
+	 * Returns the single instance for the TextureRegistry
+	 *
+	 * The first time this is called, it will construct the TextureRegistry.
+	 *
+	 * @return the single instance for the TextureRegistry
+	 */
+	public static TextureRegistry getInstance() {
+		if (registry == null) {
+			registry = new TextureRegistry();
+		}
+		return registry;
+	}
+
+	/**
+	 * Returns a new texture loaded from the given file, with a linear filter
+	 *
+	 * @param file	the image file
+	 *
+	 * @return a new texture loaded from the given file
+	 */
+	protected Texture create(FileHandle file) {
+		Texture texture = new Texture(file);
+		texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+		return texture;
+	}
+}
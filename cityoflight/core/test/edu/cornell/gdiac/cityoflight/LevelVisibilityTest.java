@@ -0,0 +1,156 @@
+/*
+ * LevelVisibilityTest.java
+ *
+ * The level only draws the obstacles and tiles that the camera can see (plus a margin
+ * for sprites that reach further than their bodies).  These tests draw a level to a
+ * recording canvas, and check what was drawn.
+ */
+package edu.cornell.gdiac.cityoflight;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import com.badlogic.gdx.graphics.*;
+import com.badlogic.gdx.graphics.g2d.*;
+
+import edu.cornell.gdiac.physics.obstacle.*;
+import edu.cornell.gdiac.util.*;
+
+/**
+ * Tests the culling of the level drawing
+ */
+public class LevelVisibilityTest {
+	/** The width of the canvas in pixels (10 physics units) */
+	private static final int CANVAS_WIDTH = 640;
+	/** The height of the canvas in pixels (7.5 physics units) */
+	private static final int CANVAS_HEIGHT = 480;
+	/** The pixels in a physics unit (and in a tile) */
+	private static final float SCALE = 64;
+	/** The x-coordinate of the camera center */
+	private static final float CAMERA_X = 10;
+	/** The y-coordinate of the camera center */
+	private static final float CAMERA_Y = 10;
+
+	/** The texture of every image (its content does not matter) */
+	private static Texture texture;
+
+	/** The level to draw */
+	private LevelModel level;
+	/** The canvas recording the drawing */
+	private RecordingCanvas canvas;
+
+	@BeforeClass
+	public static void startGdx() {
+		HeadlessGdx.start();
+		Pixmap pixmap = new Pixmap(64, 64, Pixmap.Format.RGBA8888);
+		texture = new Texture(pixmap);
+		pixmap.dispose();
+	}
+
+	@AfterClass
+	public static void disposeTexture() {
+		texture.dispose();
+	}
+
+	@Before
+	public void createLevel() {
+		level = new LevelModel();
+		canvas = new RecordingCanvas(CANVAS_WIDTH, CANVAS_HEIGHT);
+		level.setView(CAMERA_X, CAMERA_Y, CANVAS_WIDTH/SCALE, CANVAS_HEIGHT/SCALE);
+	}
+
+	/**
+	 * Adds a unit block with its own image at the given position
+	 *
+	 * @param x	the x-coordinate of the block center
+	 * @param y	the y-coordinate of the block center
+	 *
+	 * @return the image of the block
+	 */
+	private TextureRegion addBlock(float x, float y) {
+		TextureRegion image = new TextureRegion(texture);
+		InteriorModel block = new InteriorModel();
+		block.setDimension(1, 1);
+		block.setPosition(x, y);
+		block.setTexture(image);
+		level.addStaticBlock(block);
+		return image;
+	}
+
+	/**
+	 * Adds a tile with its own image at the given position
+	 *
+	 * @param x		the x-coordinate of the bottom left corner (in tiles)
+	 * @param y		the y-coordinate of the bottom left corner (in tiles)
+	 * @param width	the width of the tile image (in tiles)
+	 *
+	 * @return the image of the tile
+	 */
+	private TextureRegion addTile(int x, int y, int width) {
+		TextureRegion image = new TextureRegion(texture, 0, 0, width*64, 64);
+		level.getTiles().add(new BackgroundModel(x, y, image));
+		return image;
+	}
+
+	@Test
+	public void drawsObstaclesOnScreen() {
+		TextureRegion visible = addBlock(CAMERA_X, CAMERA_Y);
+		TextureRegion corner = addBlock(CAMERA_X-4.5f, CAMERA_Y+3.5f);
+		level.drawObjects(canvas);
+		assertTrue(canvas.wasDrawn(visible));
+		assertTrue(canvas.wasDrawn(corner));
+	}
+
+	@Test
+	public void skipsObstaclesOffScreen() {
+		TextureRegion visible = addBlock(CAMERA_X, CAMERA_Y);
+		TextureRegion right = addBlock(CAMERA_X+20, CAMERA_Y);
+		TextureRegion below = addBlock(CAMERA_X, CAMERA_Y-15);
+		level.drawObjects(canvas);
+		assertFalse(canvas.wasDrawn(right));
+		assertFalse(canvas.wasDrawn(below));
+		assertEquals(1, canvas.getDrawn().size);
+		assertTrue(canvas.wasDrawn(visible));
+	}
+
+	@Test
+	public void keepsObstaclesWithinMargin() {
+		// The camera ends 5 units right of its center, but the sprite may reach into it
+		TextureRegion edge = addBlock(CAMERA_X+5+LevelModel.CULL_MARGIN-1, CAMERA_Y);
+		TextureRegion beyond = addBlock(CAMERA_X+5+LevelModel.CULL_MARGIN+1, CAMERA_Y);
+		level.drawObjects(canvas);
+		assertTrue(canvas.wasDrawn(edge));
+		assertFalse(canvas.wasDrawn(beyond));
+	}
+
+	@Test
+	public void drawsTilesOnScreen() {
+		TextureRegion visible = addTile(10, 10, 1);
+		TextureRegion offscreen = addTile(40, 40, 1);
+		level.drawTiles(canvas);
+		assertTrue(canvas.wasDrawn(visible));
+		assertFalse(canvas.wasDrawn(offscreen));
+		assertEquals(1, canvas.getDrawn().size);
+	}
+
+	@Test
+	public void keepsOversizedTiles() {
+		// Both tiles start well left of the camera, but only the wide one reaches into it
+		TextureRegion wide = addTile(-8, 10, 12);
+		TextureRegion narrow = addTile(-8, 10, 1);
+		level.drawTiles(canvas);
+		assertTrue(canvas.wasDrawn(wide));
+		assertFalse(canvas.wasDrawn(narrow));
+	}
+
+	@Test
+	public void drawsFrontObstaclesLast() {
+		TextureRegion back = addBlock(CAMERA_X, CAMERA_Y+1);
+		TextureRegion front = addBlock(CAMERA_X, CAMERA_Y-1);
+		level.drawObjects(canvas);
+		assertEquals(2, canvas.getDrawn().size);
+		assertSame(back, canvas.getDrawn().get(0));
+		assertSame(front, canvas.getDrawn().get(1));
+	}
+}
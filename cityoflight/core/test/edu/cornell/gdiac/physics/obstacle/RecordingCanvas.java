@@ -0,0 +1,265 @@
+/*
+ * RecordingCanvas.java
+ *
+ * Nothing can be drawn on the headless backend, so this canvas records what is drawn
+ * instead of drawing it.  It counts the draw calls the same way that the sprite batch
+ * flushes: once for every change of texture (or blend mode) in a drawing sequence.
+ *
+ * The canvas still creates its sprite batch (see HeadlessGdx), but never uses it.  It
+ * has its own size, as the headless backend has no window.
+ */
+package edu.cornell.gdiac.physics.obstacle;
+
+import com.badlogic.gdx.math.*;
+import com.badlogic.gdx.graphics.*;
+import com.badlogic.gdx.graphics.g2d.*;
+import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.utils.*;
+
+/**
+ * A canvas that records the images drawn to it, in order
+ */
+public class RecordingCanvas extends ObstacleCanvas {
+	/** The width of the canvas */
+	private int canvasWidth;
+	/** The height of the canvas */
+	private int canvasHeight;
+	/** The images (textures, regions or polygon regions) drawn since the last clear */
+	private Array<Object> drawn;
+	/** The texture of the current batch (null if nothing is batched) */
+	private Texture batched;
+	/** The number of batch flushes so far this frame */
+	private int flushes;
+	/** The number of batch flushes in the last complete frame */
+	private int lastFlushes;
+
+	/**
+	 * Creates a recording canvas of the given size
+	 *
+	 * @param width		the canvas width
+	 * @param height	the canvas height
+	 */
+	public RecordingCanvas(int width, int height) {
+		super();
+		canvasWidth = width;
+		canvasHeight = height;
+		drawn = new Array<Object>();
+	}
+
+	/**
+	 * Returns the images drawn since the last clear, in order
+	 *
+	 * @return the images drawn since the last clear, in order
+	 */
+	public Array<Object> getDrawn() {
+		return drawn;
+	}
+
+	/**
+	 * Returns true if the image was drawn since the last clear
+	 *
+	 * @param image	the texture, region or polygon region
+	 *
+	 * @return true if the image was drawn since the last clear
+	 */
+	public boolean wasDrawn(Object image) {
+		return drawn.contains(image, true);
+	}
+
+	/**
+	 * Records an image, counting a draw call if it switches texture
+	 *
+	 * @param image		the texture, region or polygon region
+	 * @param texture	the texture of the image
+	 */
+	private void record(Object image, Texture texture) {
+		drawn.add(image);
+		if (texture != batched) {
+			flush();
+			batched = texture;
+		}
+	}
+
+	/**
+	 * Counts a draw call for the current batch (if there is one)
+	 */
+	private void flush() {
+		if (batched != null) {
+			flushes++;
+			batched = null;
+		}
+	}
+
+	@Override
+	public int getWidth() {
+		return canvasWidth;
+	}
+
+	@Override
+	public int getHeight() {
+		return canvasHeight;
+	}
+
+	@Override
+	public int getDrawCalls() {
+		return lastFlushes;
+	}
+
+	@Override
+	public void clear() {
+		lastFlushes = flushes;
+		flushes = 0;
+		drawn.clear();
+	}
+
+	@Override
+	public void setBlendState(BlendState state) {
+		flush();
+	}
+
+	@Override
+	public void begin(Affine2 affine) {
+		batched = null;
+	}
+
+	@Override
+	public void begin(float sx, float sy) {
+		batched = null;
+	}
+
+	@Override
+	public void begin() {
+		batched = null;
+	}
+
+	@Override
+	public void end() {
+		flush();
+	}
+
+	@Override
+	public void draw(Texture image, float x, float y) {
+		record(image, image);
+	}
+
+	@Override
+	public void draw(Texture image, Color tint, float x, float y, float width, float height) {
+		record(image, image);
+	}
+
+	@Override
+	public void draw(Texture image, Color tint, float ox, float oy, float x, float y, float width, float height) {
+		record(image, image);
+	}
+
+	@Override
+	public void draw(Texture image, Color tint, float ox, float oy,
+					float x, float y, float angle, float sx, float sy) {
+		record(image, image);
+	}
+
+	@Override
+	public void draw(Texture image, Color tint, float ox, float oy, Affine2 transform) {
+		record(image, image);
+	}
+
+	@Override
+	public void draw(TextureRegion region, float x, float y) {
+		record(region, region.getTexture());
+	}
+
+	@Override
+	public void draw(TextureRegion region, Color tint, float x, float y, float width, float height) {
+		record(region, region.getTexture());
+	}
+
+	@Override
+	public void draw(TextureRegion region, Color tint, float ox, float oy, float x, float y, float width, float height) {
+		record(region, region.getTexture());
+	}
+
+	@Override
+	public void draw(TextureRegion region, Color tint, float ox, float oy,
+					 float x, float y, float angle, float sx, float sy) {
+		record(region, region.getTexture());
+	}
+
+	@Override
+	public void draw(TextureRegion region, Color tint, float ox, float oy, Affine2 affine) {
+		record(region, region.getTexture());
+	}
+
+	@Override
+	public void draw(PolygonRegion region, float x, float y) {
+		record(region, region.getRegion().getTexture());
+	}
+
+	@Override
+	public void draw(PolygonRegion region, Color tint, float x, float y, float width, float height) {
+		record(region, region.getRegion().getTexture());
+	}
+
+	@Override
+	public void draw(PolygonRegion region, Color tint, float ox, float oy, float x, float y, float width, float height) {
+		record(region, region.getRegion().getTexture());
+	}
+
+	@Override
+	public void draw(PolygonRegion region, Color tint, float ox, float oy,
+					 float x, float y, float angle, float sx, float sy) {
+		record(region, region.getRegion().getTexture());
+	}
+
+	@Override
+	public void draw(PolygonRegion region, Color tint, float ox, float oy, Affine2 affine) {
+		record(region, region.getRegion().getTexture());
+	}
+
+	@Override
+	public void drawText(String text, BitmapFont font, float x, float y) {
+	}
+
+	@Override
+	public void drawTextCentered(String text, BitmapFont font) {
+	}
+
+	@Override
+	public void drawTextCentered(String text, BitmapFont font, float xOff, float yOff) {
+	}
+
+	@Override
+	public void beginDebug(Affine2 affine) {
+	}
+
+	@Override
+	public void beginDebug(float sx, float sy) {
+	}
+
+	@Override
+	public void beginDebug() {
+	}
+
+	@Override
+	public void endDebug() {
+	}
+
+	@Override
+	public void drawPhysics(PolygonShape shape, Color color, float x, float y) {
+	}
+
+	@Override
+	public void drawPhysics(PolygonShape shape, Color color, float x, float y, float angle) {
+	}
+
+	@Override
+	public void drawPhysics(PolygonShape shape, Color color, float x, float y, float angle, float sx, float sy) {
+	}
+
+	@Override
+	public void drawPhysics(CircleShape shape, Color color, float x, float y) {
+	}
+
+	@Override
+	public void drawPhysics(CircleShape shape, Color color, float x, float y, float sx, float sy) {
+	}
+}
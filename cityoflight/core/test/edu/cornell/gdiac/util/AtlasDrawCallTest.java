@@ -0,0 +1,207 @@
+/*
+ * AtlasDrawCallTest.java
+ *
+ * The sprite batch flushes (a draw call) every time the texture changes.  The game
+ * images are packed into a few atlases by the packTextures task, so that a frame
+ * switches texture far less often.  This test draws the same frame with and without
+ * an atlas, and checks the draw calls of each.
+ *
+ * The test packs the images of the textures folder itself (with the settings of the
+ * packTextures task), so that it does not depend on the build having run that task.
+ */
+package edu.cornell.gdiac.util;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import javax.imageio.*;
+import java.awt.image.*;
+
+import org.junit.*;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.*;
+import com.badlogic.gdx.graphics.g2d.*;
+import com.badlogic.gdx.tools.texturepacker.*;
+import com.badlogic.gdx.utils.*;
+
+import edu.cornell.gdiac.physics.obstacle.*;
+
+/**
+ * Compares the draw calls of a frame with and without a texture atlas
+ */
+public class AtlasDrawCallTest {
+	/** The asset directory */
+	private static final String ASSETS_FILE = "jsons/assets.json";
+	/** The folder of images to pack */
+	private static final String FOLDER = "textures";
+	/** The largest atlas page (the same as the packTextures task) */
+	private static final int MAX_SIZE = 4096;
+	/** The number of times each image is drawn in the frame */
+	private static final int PASSES = 2;
+
+	/** The folder holding the atlas packed for the test */
+	private static File atlasDir;
+
+	/** The textures loaded for the test */
+	private Array<Texture> textures;
+	/** The atlas loaded for the test (null if none) */
+	private TextureAtlas atlas;
+	/** The canvas counting the draw calls */
+	private RecordingCanvas canvas;
+
+	@BeforeClass
+	public static void packAtlas() throws IOException {
+		HeadlessGdx.start();
+		File images = Gdx.files.internal(FOLDER).file();
+		File staging = createTempDir("staging");
+		atlasDir = createTempDir("atlas");
+		for (File image : images.listFiles()) {
+			if (!image.getName().endsWith(".png")) {
+				continue;
+			}
+			BufferedImage size = ImageIO.read(image);
+			if (size.getWidth() <= MAX_SIZE && size.getHeight() <= MAX_SIZE) {
+				new FileHandle(image).copyTo(new FileHandle(staging));
+			}
+		}
+
+		TexturePacker.Settings settings = new TexturePacker.Settings();
+		settings.maxWidth = MAX_SIZE;
+		settings.maxHeight = MAX_SIZE;
+		settings.combineSubdirectories = true;
+		settings.useIndexes = false;
+		settings.rotation = false;
+		settings.stripWhitespaceX = false;
+		settings.stripWhitespaceY = false;
+		settings.silent = true;
+		TexturePacker.process(settings, staging.getPath(), atlasDir.getPath(), FOLDER);
+		new FileHandle(staging).deleteDirectory();
+	}
+
+	@AfterClass
+	public static void deleteAtlas() {
+		new FileHandle(atlasDir).deleteDirectory();
+	}
+
+	/**
+	 * Returns a new, empty temporary folder
+	 *
+	 * @param prefix	the start of the folder name
+	 *
+	 * @return a new, empty temporary folder
+	 */
+	private static File createTempDir(String prefix) throws IOException {
+		File dir = File.createTempFile(prefix, "");
+		if (!dir.delete() || !dir.mkdir()) {
+			throw new IOException("Cannot create "+dir);
+		}
+		return dir;
+	}
+
+	@Before
+	public void createCanvas() {
+		textures = new Array<Texture>();
+		canvas = new RecordingCanvas(1024, 576);
+	}
+
+	@After
+	public void disposeAssets() {
+		for (Texture texture : textures) {
+			texture.dispose();
+		}
+		if (atlas != null) {
+			atlas.dispose();
+		}
+		canvas.dispose();
+	}
+
+	/**
+	 * Returns the files of the unwrapped images of the folder in the asset directory
+	 *
+	 * @return the files of the unwrapped images of the folder in the asset directory
+	 */
+	private Array<String> getFiles() {
+		JsonValue directory = new JsonReader().parse(Gdx.files.internal(ASSETS_FILE));
+		Array<String> result = new Array<String>();
+		for (JsonValue entry = directory.getChild("textures"); entry != null; entry = entry.next) {
+			String file = entry.getString("file");
+			if (file.startsWith(FOLDER+"/") && !entry.getBoolean("wrap", false)) {
+				result.add(file);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a new region for the whole of the given image file
+	 *
+	 * @param file	the image file
+	 *
+	 * @return a new region for the whole of the given image file
+	 */
+	private TextureRegion loadTexture(String file) {
+		Texture texture = new Texture(Gdx.files.internal(file));
+		textures.add(texture);
+		return new TextureRegion(texture);
+	}
+
+	/**
+	 * Returns the draw calls of a frame drawing every image a few times
+	 *
+	 * The images are drawn in turn, the way that a frame sorted by depth goes back and
+	 * forth between the images of the different objects.
+	 *
+	 * @param images	the images to draw
+	 *
+	 * @return the draw calls of the frame
+	 */
+	private int drawFrame(Array<TextureRegion> images) {
+		canvas.clear();
+		canvas.begin();
+		for (int pass = 0; pass < PASSES; pass++) {
+			for (int ii = 0; ii < images.size; ii++) {
+				canvas.draw(images.get(ii), 0, 0);
+			}
+		}
+		canvas.end();
+		// Clearing completes the frame
+		canvas.clear();
+		return canvas.getDrawCalls();
+	}
+
+	@Test
+	public void atlasReducesDrawCalls() {
+		Array<String> files = getFiles();
+		assertTrue(files.size > 1);
+
+		// Without an atlas, every image is its own texture
+		Array<TextureRegion> loose = new Array<TextureRegion>();
+		for (String file : files) {
+			loose.add(loadTexture(file));
+		}
+		assertEquals(PASSES*files.size, drawFrame(loose));
+
+		// With an atlas, only the images that did not fit are their own texture
+		atlas = new TextureAtlas(new FileHandle(new File(atlasDir, FOLDER+".atlas")));
+		Array<TextureRegion> packed = new Array<TextureRegion>();
+		int unpacked = 0;
+		for (String file : files) {
+			String name = file.substring(FOLDER.length()+1, file.lastIndexOf('.'));
+			TextureRegion region = atlas.findRegion(name);
+			if (region == null) {
+				region = loadTexture(file);
+				unpacked++;
+			}
+			packed.add(region);
+		}
+		// The folder fits on one page, so only the images too large for it break a batch
+		// (by switching to their own texture and back)
+		assertEquals(1, atlas.getTextures().size);
+		int bound = PASSES*(1+2*unpacked);
+		int calls = drawFrame(packed);
+		assertTrue("Expected at most "+bound+" draw calls, got "+calls, calls <= bound);
+		assertTrue(calls < PASSES*files.size);
+	}
+}
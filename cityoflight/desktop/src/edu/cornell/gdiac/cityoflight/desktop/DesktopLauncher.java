@@ -15,6 +15,7 @@ package edu.cornell.gdiac.cityoflight.desktop;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 import edu.cornell.gdiac.cityoflight.GDXRoot;
+import edu.cornell.gdiac.util.LoadTimeline;
 
 /**
  * The main class of the game.
@@ -29,10 +30,18 @@ public class DesktopLauncher {
 	 * 
 	 * This method simply exists to start a new LwjglApplication.  For desktop games,
 	 * LibGDX is built on top of LWJGL (this is not the case for Android).
+	 *
+	 * With the argument -trace, the loading times are written to Chrome trace files
+	 * (see LoadTimeline).
 	 * 
 	 * @param arg Command line arguments
 	 */
 	public static void main (String[] arg) {
+		for (String option : arg) {
+			if (option.equals("-trace")) {
+				LoadTimeline.getInstance().setEnabled(true);
+			}
+		}
 		LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
 		config.width  = 896;
 		config.height = 512;
@@ -0,0 +1,47 @@
+/*
+ * FontBaker.java
+ *
+ * This is the main class of the bakeFonts Gradle task.  It bakes every font in the
+ * asset directory into the font cache, so that the game never has to run FreeType at
+ * launch.  It must be run with the assets folder as the working folder.
+ *
+ * The baking only needs the native libraries, not a window, so this does not start
+ * an application.
+ */
+package edu.cornell.gdiac.cityoflight.desktop;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.*;
+
+import edu.cornell.gdiac.util.FontCache;
+
+/**
+ * The main class to bake the fonts of the asset directory
+ */
+public class FontBaker {
+	/** The asset directory (relative to the assets folder) */
+	private static final String DIRECTORY_FILE = "jsons/assets.json";
+
+	/**
+	 * Bakes every font in the asset directory that is missing or out of date
+	 *
+	 * @param arg Command line arguments (ignored)
+	 */
+	public static void main (String[] arg) {
+		GdxNativesLoader.load();
+
+		JsonValue directory = new JsonReader().parse(new FileHandle(DIRECTORY_FILE));
+		FileHandle cache = new FileHandle(FontCache.CACHE_DIR);
+		JsonValue json = directory.getChild("fonts");
+		while (json != null) {
+			FileHandle ttf = new FileHandle(json.getString("file"));
+			int size = json.getInt("size");
+			if (FontCache.isBaked(cache, ttf, size)) {
+				System.out.println("Up to date: "+FontCache.getFontFile(cache, ttf, size).path());
+			} else {
+				System.out.println("Baked: "+FontCache.bake(cache, ttf, size).path());
+			}
+			json = json.next;
+		}
+	}
+}